@@ -0,0 +1,51 @@
+package org.renjin.benchmarks;
+
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.parser.RParser;
+
+/**
+ * Measures the time needed to create a new {@link Session}, loading the base package
+ * either from the precompiled base image or from the lazy-load frame.
+ *
+ * <p>Usage: {@code SessionStartupBenchmark [iterations]}
+ */
+public class SessionStartupBenchmark {
+
+  private static final String NO_IMAGE_PROPERTY = "renjin.base.noimage";
+
+  public static void main(String[] args) throws Exception {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+
+    // the first session pays for loading classes and initializing the primitives table
+    // regardless of the format, so report it separately
+    long firstSession = time(false);
+    System.out.println(String.format("first session: %8.1f ms", firstSession / 1e6));
+
+    // interleave the two paths so that both see the same JIT and GC conditions
+    long imageTotal = 0;
+    long frameTotal = 0;
+    for(int i=0;i!=iterations;++i) {
+      imageTotal += time(false);
+      frameTotal += time(true);
+    }
+
+    System.out.println(String.format("base image:   %8.1f ms/session", imageTotal / 1e6 / iterations));
+    System.out.println(String.format("lazy frame:   %8.1f ms/session", frameTotal / 1e6 / iterations));
+  }
+
+  private static long time(boolean lazyLoadFrame) throws Exception {
+    if(lazyLoadFrame) {
+      System.setProperty(NO_IMAGE_PROPERTY, "true");
+    } else {
+      System.clearProperty(NO_IMAGE_PROPERTY);
+    }
+    long start = System.nanoTime();
+    Session session = new SessionBuilder().build();
+
+    // make sure the session is usable, and force a typical base function
+    session.getTopLevelContext().evaluate(RParser.parseSource("paste('a', 'b')\n"));
+
+    return System.nanoTime() - start;
+  }
+}
@@ -0,0 +1,33 @@
+package org.renjin.benchmarks.jmh;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks, writing the results as JSON to {@code target/jmh-results.json}
+ * so that the results of different builds can be compared.
+ *
+ * <p>Accepts the usual JMH command line options, for example {@code -rff other.json} to change the
+ * results file or a regular expression to select benchmarks: {@code InterpreterBenchmark}
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+
+    OptionsBuilder builder = new OptionsBuilder();
+    builder.parent(commandLine);
+    if(!commandLine.getResultFormat().hasValue()) {
+      builder.resultFormat(ResultFormatType.JSON);
+    }
+    if(!commandLine.getResult().hasValue()) {
+      builder.result("target/jmh-results.json");
+    }
+    Options options = builder.build();
+
+    new Runner(options).run();
+  }
+}
@@ -0,0 +1,70 @@
+package org.renjin.benchmarks.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.renjin.compiler.pipeline.DeferredGraph;
+import org.renjin.compiler.pipeline.SimpleVectorPipeliner;
+import org.renjin.compiler.pipeline.VectorPipeliner;
+import org.renjin.primitives.R$primitive$$minus$deferred_dd;
+import org.renjin.primitives.R$primitive$$times$deferred_dd;
+import org.renjin.primitives.summary.DeferredSum;
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.DoubleArrayVector;
+import org.renjin.sexp.Vector;
+
+/**
+ * Measures building a {@link DeferredGraph} and materializing it with the
+ * {@link SimpleVectorPipeliner}, for {@code sum((a - b) * (a - b))}.
+ *
+ * <p>A new deferred computation is built for each invocation, as summaries memoize their results.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DeferredGraphBenchmark {
+
+  @Param({"10000", "1000000"})
+  public int size;
+
+  private DoubleArrayVector a;
+  private DoubleArrayVector b;
+
+  private final VectorPipeliner pipeliner = new SimpleVectorPipeliner();
+
+  @Setup
+  public void setUp() {
+    double[] x = new double[size];
+    double[] y = new double[size];
+    for(int i=0;i!=size;++i) {
+      x[i] = i;
+      y[i] = size - i;
+    }
+    a = new DoubleArrayVector(x);
+    b = new DoubleArrayVector(y);
+  }
+
+  private DeferredSum newComputation() {
+    Vector diff1 = new R$primitive$$minus$deferred_dd(a, b, AttributeMap.EMPTY);
+    Vector diff2 = new R$primitive$$minus$deferred_dd(a, b, AttributeMap.EMPTY);
+    Vector product = new R$primitive$$times$deferred_dd(diff1, diff2, AttributeMap.EMPTY);
+    return new DeferredSum(product, AttributeMap.EMPTY);
+  }
+
+  @Benchmark
+  public DeferredGraph buildGraph() {
+    return new DeferredGraph(newComputation());
+  }
+
+  @Benchmark
+  public double materialize() {
+    return pipeliner.materialize(newComputation()).getElementAsDouble(0);
+  }
+}
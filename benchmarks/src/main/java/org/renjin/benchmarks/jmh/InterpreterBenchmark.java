@@ -0,0 +1,57 @@
+package org.renjin.benchmarks.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.renjin.eval.Context;
+import org.renjin.eval.Session;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+
+/**
+ * Measures the AST interpreter on scalar loops and closure calls, through {@link Context#evaluate(SEXP)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class InterpreterBenchmark {
+
+  private Context context;
+
+  private ExpressionVector scalarLoop;
+  private ExpressionVector closureCalls;
+  private ExpressionVector builtinCalls;
+
+  @Setup
+  public void setUp() {
+    Session session = RSessions.newSession();
+    context = session.getTopLevelContext();
+
+    RSessions.eval(session, "inc <- function(x, by = 1) x + by");
+
+    scalarLoop = RSessions.parse("{ s <- 0; for(i in 1:10000) s <- s + i * 2; s }");
+    closureCalls = RSessions.parse("{ s <- 0; for(i in 1:10000) s <- inc(s); s }");
+    builtinCalls = RSessions.parse("{ x <- 1:10; n <- 0; for(i in 1:10000) n <- n + length(x) + x[3]; n }");
+  }
+
+  @Benchmark
+  public SEXP scalarLoop() {
+    return context.evaluate(scalarLoop);
+  }
+
+  @Benchmark
+  public SEXP closureCalls() {
+    return context.evaluate(closureCalls);
+  }
+
+  @Benchmark
+  public SEXP builtinCalls() {
+    return context.evaluate(builtinCalls);
+  }
+}
@@ -0,0 +1,80 @@
+package org.renjin.benchmarks.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.renjin.eval.Context;
+import org.renjin.eval.Session;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.ExternalPtr;
+import org.renjin.sexp.SEXP;
+
+/**
+ * Measures calls from R to methods and properties of a JVM object, with the generated invokers
+ * and, in a separate fork with {@code -Drenjin.invoke.generate=false}, through reflection only.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JavaInteropBenchmark {
+
+  public static class Scorer {
+    private double weight = 0.5;
+
+    public double score(double x, int n) {
+      return weight * x + n;
+    }
+
+    public double getWeight() {
+      return weight;
+    }
+
+    public void setWeight(double weight) {
+      this.weight = weight;
+    }
+  }
+
+  private Context context;
+
+  private ExpressionVector methodCalls;
+  private ExpressionVector propertyAccess;
+
+  @Setup
+  public void setUp() {
+    Session session = RSessions.newSession();
+    context = session.getTopLevelContext();
+    context.getGlobalEnvironment().setVariable("scorer", new ExternalPtr<Scorer>(new Scorer()));
+
+    methodCalls = RSessions.parse("{ s <- 0; for(i in 1:10000) s <- s + scorer$score(i, 1L); s }");
+    propertyAccess = RSessions.parse("{ s <- 0; for(i in 1:10000) s <- s + scorer$weight; s }");
+  }
+
+  @Benchmark
+  public SEXP methodCalls() {
+    return context.evaluate(methodCalls);
+  }
+
+  @Benchmark
+  public SEXP propertyAccess() {
+    return context.evaluate(propertyAccess);
+  }
+
+  @Benchmark
+  @Fork(jvmArgsAppend = "-Drenjin.invoke.generate=false")
+  public SEXP methodCallsByReflection() {
+    return context.evaluate(methodCalls);
+  }
+
+  @Benchmark
+  @Fork(jvmArgsAppend = "-Drenjin.invoke.generate=false")
+  public SEXP propertyAccessByReflection() {
+    return context.evaluate(propertyAccess);
+  }
+}
@@ -0,0 +1,49 @@
+package org.renjin.benchmarks.jmh;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.renjin.eval.Context;
+import org.renjin.eval.Session;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+
+/**
+ * Runs Simon Urbanek's R Benchmark 2.5 ({@code src/main/R/R-benchmark-25.R}) as a single macro benchmark.
+ * The script repeats each of its tests several times itself, so each invocation is long.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class RBenchmark25 {
+
+  private Context context;
+  private ExpressionVector source;
+
+  @Setup
+  public void setUp() {
+    Session session = RSessions.newSession();
+    context = session.getTopLevelContext();
+
+    File script = new File(RSessions.scriptDirectory(), "R-benchmark-25.R");
+    source = RSessions.parse("source(" + RSessions.quote(script) + ")");
+  }
+
+  @Benchmark
+  public SEXP run() {
+    return context.evaluate(source);
+  }
+}
@@ -0,0 +1,42 @@
+package org.renjin.benchmarks.jmh;
+
+import java.io.File;
+
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+
+/**
+ * Helpers shared by the benchmarks which evaluate R code.
+ */
+class RSessions {
+
+  private RSessions() { }
+
+  public static Session newSession() {
+    return new SessionBuilder().build();
+  }
+
+  public static ExpressionVector parse(String source) {
+    return RParser.parseSource(source + "\n");
+  }
+
+  public static SEXP eval(Session session, String source) {
+    return session.getTopLevelContext().evaluate(parse(source));
+  }
+
+  /**
+   * @return the directory containing the R benchmark scripts, which can be set with
+   * the {@code renjin.benchmarks.dir} system property. Defaults to {@code src/main/R},
+   * relative to the benchmarks module.
+   */
+  public static File scriptDirectory() {
+    return new File(System.getProperty("renjin.benchmarks.dir", "src/main/R"));
+  }
+
+  public static String quote(File file) {
+    return "'" + file.getAbsolutePath().replace("\\", "/") + "'";
+  }
+}
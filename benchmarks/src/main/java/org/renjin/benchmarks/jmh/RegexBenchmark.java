@@ -0,0 +1,70 @@
+package org.renjin.benchmarks.jmh;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.renjin.primitives.text.regex.ExtendedRE;
+import org.renjin.primitives.text.regex.RE;
+import org.renjin.primitives.text.regex.REFactory;
+
+/**
+ * Compares the backtracking {@code ExtendedRE} matcher with the DFA-based matcher
+ * chosen by {@code REFactory}, as used by {@code grepl}, over a column of random strings.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RegexBenchmark {
+
+  @Param({"[[:digit:]]+-[a-z]+$", "(foo|bar|baz)[0-9]?x", "(a|aa)*b"})
+  public String pattern;
+
+  private String[] strings;
+
+  private RE backtracking;
+  private RE dfa;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    strings = new String[10000];
+    for(int i = 0; i != strings.length; ++i) {
+      StringBuilder s = new StringBuilder();
+      int length = 10 + random.nextInt(30);
+      for(int j = 0; j != length; ++j) {
+        s.append("abfoxz0123-a".charAt(random.nextInt(12)));
+      }
+      strings[i] = s.toString();
+    }
+    backtracking = new ExtendedRE(pattern);
+    dfa = REFactory.compile(pattern, false, false, false, false);
+  }
+
+  @Benchmark
+  public int backtracking() {
+    return countMatches(backtracking);
+  }
+
+  @Benchmark
+  public int dfa() {
+    return countMatches(dfa);
+  }
+
+  private int countMatches(RE re) {
+    int count = 0;
+    for(String string : strings) {
+      if(re.match(string)) {
+        count++;
+      }
+    }
+    return count;
+  }
+}
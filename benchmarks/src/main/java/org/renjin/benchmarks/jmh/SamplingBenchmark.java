@@ -0,0 +1,66 @@
+package org.renjin.benchmarks.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.renjin.sexp.IntVector;
+import org.renjin.stats.internals.distributions.LecuyerCMRG;
+import org.renjin.stats.internals.distributions.Sampling;
+
+/**
+ * Measures the algorithms behind {@code sample()}: alias tables for weighted sampling with
+ * replacement, partial Fisher-Yates for uniform sampling without replacement, and
+ * exponential keys for weighted sampling without replacement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SamplingBenchmark {
+
+  @Param({"1000", "1000000"})
+  public int n;
+
+  private double[] prob;
+  private LecuyerCMRG rng;
+
+  @Setup
+  public void setUp() {
+    rng = new LecuyerCMRG(42);
+    prob = new double[n];
+    double sum = 0;
+    for (int i = 0; i != n; ++i) {
+      prob[i] = rng.unif_rand();
+      sum += prob[i];
+    }
+    for (int i = 0; i != n; ++i) {
+      prob[i] /= sum;
+    }
+  }
+
+  @Benchmark
+  public IntVector weightedWithReplacement() {
+    return Sampling.sampleWithReplacement(rng, n, prob);
+  }
+
+  @Benchmark
+  public IntVector uniformWithoutReplacement() {
+    return Sampling.sampleUniformWithoutReplacement(rng, n, n);
+  }
+
+  @Benchmark
+  public IntVector uniformWithoutReplacementSmall() {
+    return Sampling.sampleUniformWithoutReplacement(rng, n, 10);
+  }
+
+  @Benchmark
+  public IntVector weightedWithoutReplacement() {
+    return Sampling.sampleWithoutReplacement(rng, n / 2, prob);
+  }
+}
@@ -0,0 +1,75 @@
+package org.renjin.benchmarks.jmh;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.renjin.eval.Context;
+import org.renjin.eval.Session;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+
+/**
+ * Wraps the suites in {@code src/main/R/benchmarks} as macro benchmarks.
+ *
+ * <p>Each script registers its suites with {@code registerBenchmarkSuite()}, as it does when run by
+ * {@code runner.R}. One benchmark invocation runs the {@code init} and {@code run} expressions of
+ * every benchmark in the script, in a new environment each time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ScriptBenchmark {
+
+  /**
+   * Definitions of the functions which the benchmark scripts expect from {@code runner.R}
+   */
+  private static final String HARNESS =
+      "suites <- list()\n" +
+      "registerBenchmarkSuite <- function(...) suites[[length(suites)+1]] <<- list(...)\n" +
+      "newBenchmark <- function(name, run, init={}, enclosure=parent.frame()) " +
+      "  list(name=name, init=substitute(init), run=substitute(run), enclosure=enclosure)\n";
+
+  private static final String RUN_ALL =
+      "for(suite in suites) for(benchmark in suite$benchmarks) { " +
+      "  env <- new.env(parent=benchmark$enclosure); " +
+      "  eval(benchmark$init, env); " +
+      "  eval(benchmark$run, env) " +
+      "}";
+
+  @Param({"cleaning.R", "dcor.R", "matrix-calc.R", "mean-var-online.R", "programmation.R"})
+  public String script;
+
+  private Context context;
+  private ExpressionVector runAll;
+
+  @Setup
+  public void setUp() {
+    Session session = RSessions.newSession();
+    context = session.getTopLevelContext();
+
+    File scriptFile = new File(new File(RSessions.scriptDirectory(), "benchmarks"), script);
+    RSessions.eval(session, HARNESS);
+    RSessions.eval(session, "source(" + RSessions.quote(scriptFile) + ")");
+
+    runAll = RSessions.parse(RUN_ALL);
+  }
+
+  @Benchmark
+  public SEXP runSuites() {
+    return context.evaluate(runAll);
+  }
+}
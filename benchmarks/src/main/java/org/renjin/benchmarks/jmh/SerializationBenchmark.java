@@ -0,0 +1,61 @@
+package org.renjin.benchmarks.jmh;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.renjin.eval.Context;
+import org.renjin.eval.Session;
+import org.renjin.primitives.io.serialization.RDataReader;
+import org.renjin.primitives.io.serialization.RDataWriter;
+import org.renjin.sexp.SEXP;
+
+/**
+ * Measures deserialization with {@link RDataReader} of a large numeric vector, and of
+ * a list of closures similar to those loaded from package lazy-load frames.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SerializationBenchmark {
+
+  private Context context;
+
+  private byte[] numericVector;
+  private byte[] closures;
+
+  @Setup
+  public void setUp() throws IOException {
+    Session session = RSessions.newSession();
+    context = session.getTopLevelContext();
+
+    numericVector = serialize(RSessions.eval(session, "as.double(1:100000)"));
+    closures = serialize(RSessions.eval(session, "list(paste, format, lapply, sapply, mapply, seq.default)"));
+  }
+
+  private byte[] serialize(SEXP value) throws IOException {
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    RDataWriter writer = new RDataWriter(context, baos);
+    writer.serialize(value);
+    baos.close();
+    return baos.toByteArray();
+  }
+
+  @Benchmark
+  public SEXP readNumericVector() throws IOException {
+    return new RDataReader(context, new ByteArrayInputStream(numericVector)).readFile();
+  }
+
+  @Benchmark
+  public SEXP readClosures() throws IOException {
+    return new RDataReader(context, new ByteArrayInputStream(closures)).readFile();
+  }
+}
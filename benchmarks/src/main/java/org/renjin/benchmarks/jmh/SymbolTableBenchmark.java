@@ -0,0 +1,56 @@
+package org.renjin.benchmarks.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.renjin.sexp.Symbol;
+
+/**
+ * Measures {@code Symbol.get} when called concurrently from many threads, as when
+ * many sessions parse code or dispatch S3 methods at the same time in one JVM.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SymbolTableBenchmark {
+
+  private String[] names;
+
+  @Setup
+  public void setUp() {
+    names = new String[1024];
+    for(int i = 0; i != names.length; ++i) {
+      names[i] = "print.class" + i;
+      Symbol.get(names[i]);
+    }
+  }
+
+  @Benchmark
+  @Threads(1)
+  public Symbol lookupSingleThread(ThreadIndex index) {
+    return Symbol.get(names[index.next()]);
+  }
+
+  @Benchmark
+  @Threads(32)
+  public Symbol lookupContended(ThreadIndex index) {
+    return Symbol.get(names[index.next()]);
+  }
+
+  @State(Scope.Thread)
+  public static class ThreadIndex {
+    private int i;
+
+    int next() {
+      i = (i + 1) & 1023;
+      return i;
+    }
+  }
+}
@@ -0,0 +1,88 @@
+package org.renjin.benchmarks.jmh;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.renjin.eval.Context;
+import org.renjin.eval.Session;
+import org.renjin.sexp.ExpressionVector;
+import org.renjin.sexp.SEXP;
+
+/**
+ * Measures the vector primitives behind {@code match}, {@code duplicated}, {@code sort}
+ * and subsetting on vectors of increasing size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class VectorPrimitivesBenchmark {
+
+  @Param({"1000", "100000"})
+  public int size;
+
+  private Context context;
+
+  private ExpressionVector matchDoubles;
+  private ExpressionVector matchStrings;
+  private ExpressionVector duplicated;
+  private ExpressionVector sort;
+  private ExpressionVector subsetByIndex;
+  private ExpressionVector subsetByLogical;
+
+  @Setup
+  public void setUp() {
+    Session session = RSessions.newSession();
+    context = session.getTopLevelContext();
+
+    RSessions.eval(session, "set.seed(42)");
+    RSessions.eval(session, "x <- floor(runif(" + size + ") * " + size + ")");
+    RSessions.eval(session, "table <- seq_len(" + size + ")");
+    RSessions.eval(session, "s <- as.character(x)");
+    RSessions.eval(session, "stable <- as.character(table)");
+    RSessions.eval(session, "i <- sample.int(" + size + ")");
+
+    matchDoubles = RSessions.parse("match(x, table)");
+    matchStrings = RSessions.parse("match(s, stable)");
+    duplicated = RSessions.parse("duplicated(x)");
+    sort = RSessions.parse("sort(x)");
+    subsetByIndex = RSessions.parse("x[i]");
+    subsetByLogical = RSessions.parse("x[x > " + (size / 2) + "]");
+  }
+
+  @Benchmark
+  public SEXP matchDoubles() {
+    return context.evaluate(matchDoubles);
+  }
+
+  @Benchmark
+  public SEXP matchStrings() {
+    return context.evaluate(matchStrings);
+  }
+
+  @Benchmark
+  public SEXP duplicated() {
+    return context.evaluate(duplicated);
+  }
+
+  @Benchmark
+  public SEXP sort() {
+    return context.evaluate(sort);
+  }
+
+  @Benchmark
+  public SEXP subsetByIndex() {
+    return context.evaluate(subsetByIndex);
+  }
+
+  @Benchmark
+  public SEXP subsetByLogical() {
+    return context.evaluate(subsetByLogical);
+  }
+}
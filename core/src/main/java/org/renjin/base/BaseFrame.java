@@ -30,6 +30,7 @@ import java.util.Set;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.packaging.LazyLoadFrame;
+import org.renjin.packaging.LazyLoadImage;
 import org.renjin.primitives.Primitives;
 import org.renjin.sexp.*;
 import org.renjin.util.FileSystemUtils;
@@ -178,8 +179,32 @@ public class BaseFrame implements Frame {
     return false;
   }
   
+  /**
+   * Loads the R-language functions of the base package. If the precompiled base image is available
+   * on the classpath, it is used, unless the {@code renjin.base.noimage} system property is set.
+   * Otherwise we fall back to the lazy-load frame written by {@link BasePackageCompiler}.
+   */
   public void load(Context context) throws IOException {
-    Iterable<NamedValue> frame = LazyLoadFrame.load(context, new com.google.common.base.Function<String, InputStream>() {
+    URL image = getClass().getResource("/org/renjin/base/image");
+    Iterable<NamedValue> frame;
+    if(image != null && System.getProperty("renjin.base.noimage") == null) {
+      frame = LazyLoadImage.load(image);
+    } else {
+      frame = loadLazyLoadFrame(context);
+    }
+    for(NamedValue name : frame) {
+      loaded.put(Symbol.get(name.getName()), name.getValue());
+    }
+   
+    // aliases
+    addPrimitiveAlias("as.double", "as.numeric");
+    addPrimitiveAlias("as.double", "as.real");
+    addPrimitiveAlias("is.symbol", "is.name");
+    
+  }
+
+  private Iterable<NamedValue> loadLazyLoadFrame(Context context) throws IOException {
+    return LazyLoadFrame.load(context, new com.google.common.base.Function<String, InputStream>() {
 
       @Override
       public InputStream apply(String name) {
@@ -191,15 +216,6 @@ public class BaseFrame implements Frame {
         return in;
       }
     });
-    for(NamedValue name : frame) {
-      loaded.put(Symbol.get(name.getName()), name.getValue());
-    }
-   
-    // aliases
-    addPrimitiveAlias("as.double", "as.numeric");
-    addPrimitiveAlias("as.double", "as.real");
-    addPrimitiveAlias("is.symbol", "is.name");
-    
   }
 
   private void addPrimitiveAlias(String primitiveName, String alias) {
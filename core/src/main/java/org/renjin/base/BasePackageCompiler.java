@@ -50,7 +50,7 @@ public class BasePackageCompiler {
         ".Last.value", ".AutoloadEnv", ".BaseNamespaceEnv", 
         ".Device", ".Devices", ".Machine", ".Options", ".Platform");
     
-    new LazyLoadFrameBuilder(context)
+    LazyLoadFrameBuilder builder = new LazyLoadFrameBuilder(context)
     .outputTo(new File("target/classes/org/renjin/base"))
     .filter(new Predicate<NamedValue>() {
       public boolean apply(NamedValue namedValue) {
@@ -62,8 +62,11 @@ public class BasePackageCompiler {
         }
         return true;
       }
-    })
-    .build(baseNamespaceEnv);
+    });
+    builder.build(baseNamespaceEnv);
+    
+    // also write a single-file image which can be mapped and loaded lazily at startup
+    builder.buildImage(baseNamespaceEnv);
   }
 
   private static void evalSources(Context evalContext, File dir) throws IOException {
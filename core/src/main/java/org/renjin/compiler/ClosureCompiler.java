@@ -11,6 +11,7 @@ import org.objectweb.asm.Opcodes;
 import org.objectweb.asm.util.TraceClassVisitor;
 import org.renjin.compiler.cfg.BasicBlock;
 import org.renjin.compiler.cfg.ControlFlowGraph;
+import org.renjin.compiler.ir.tac.CannotBuildTacException;
 import org.renjin.compiler.ir.tac.IRBodyBuilder;
 import org.renjin.compiler.ir.tac.IRFunction;
 import org.renjin.compiler.ir.tac.IRFunctionTable;
@@ -35,6 +36,32 @@ public class ClosureCompiler implements Opcodes {
     IRBodyBuilder builder = new IRBodyBuilder(functionTable);
     return compileAndLoad(new IRFunction(closureSexp.getFormals(), closureSexp.getBody(), builder.build(closureSexp.getBody())));
   }
+
+  /**
+   * Compiles and loads a closure whose compiled body does not reference any other
+   * generated class. Compiled thunks and nested closures are not generated by this
+   * compiler, so bodies which need them would fail with a {@code NoClassDefFoundError}
+   * the first time the missing class is reached.
+   *
+   * @throws CannotBuildTacException if the compiled body would require thunk or nested
+   * closure classes
+   */
+  public static Class<Closure> compileAndLoadSelfContained(Closure closureSexp) {
+    IRFunctionTable functionTable = new IRFunctionTable();
+    IRBodyBuilder builder = new IRBodyBuilder(functionTable);
+    IRFunction function = new IRFunction(closureSexp.getFormals(), closureSexp.getBody(),
+        builder.build(closureSexp.getBody()));
+
+    ClosureCompiler compiler = new ClosureCompiler("Closure" + System.identityHashCode(function));
+    byte[] classFile = compiler.doCompile(function);
+    if(!compiler.getThunkMap().keySet().isEmpty()) {
+      throw new CannotBuildTacException("body requires compiled thunks");
+    }
+    if(!compiler.getNestedClosures().isEmpty()) {
+      throw new CannotBuildTacException("body requires compiled nested closures");
+    }
+    return compiler.defineClass(classFile);
+  }
   
   public static byte[] compile(String className, IRFunction closure) {
     return new ClosureCompiler(className)
@@ -62,7 +89,11 @@ public class ClosureCompiler implements Opcodes {
   }
 
   public Class<Closure> doCompileAndLoad(IRFunction closure) {
-    return new MyClassLoader().defineClass(generationContext.getClassName().replace('/', '.'), doCompile(closure)); 
+    return defineClass(doCompile(closure));
+  }
+
+  private Class<Closure> defineClass(byte[] classFile) {
+    return new MyClassLoader().defineClass(generationContext.getClassName().replace('/', '.'), classFile);
   }
   
   private void startClass() {
@@ -155,7 +186,9 @@ public class ClosureCompiler implements Opcodes {
     ControlFlowGraph cfg = new ControlFlowGraph(closure.getBody());
     for(BasicBlock bb : cfg.getBasicBlocks()) {
       
-      System.out.println(bb.statementsToString());
+      if(TieredCompiler.DEBUG) {
+        System.out.println(bb.statementsToString());
+      }
       
       visitor.startBasicBlock(bb);
       
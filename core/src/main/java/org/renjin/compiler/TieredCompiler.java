@@ -0,0 +1,108 @@
+package org.renjin.compiler;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import org.renjin.compiler.ir.tac.CannotBuildTacException;
+import org.renjin.sexp.Closure;
+import org.renjin.sexp.Environment;
+
+/**
+ * Promotes hot closures from the AST-walking interpreter to JVM bytecode.
+ *
+ * <p>Each {@link Closure} counts its invocations and the loop back-edges taken
+ * while its body is being interpreted. Once the sum of the two crosses
+ * {@link #THRESHOLD}, the closure is queued here and compiled in the
+ * background with the {@link ClosureCompiler}. The compiled body is swapped
+ * into the original closure and used from the next invocation onwards; calls
+ * already in progress continue in the interpreter.
+ *
+ * <p>Closures which cannot be translated (for example, those whose bodies raise
+ * a {@link CannotBuildTacException}, or which would need compiled thunks for
+ * non-trivial call arguments) are marked as such and are never queued
+ * again.
+ *
+ * <p>Tiered compilation is off by default and can be enabled by setting the
+ * {@code renjin.jit} system property. The threshold can be adjusted with
+ * {@code renjin.jit.threshold}.
+ */
+public class TieredCompiler {
+
+  public static final boolean ENABLED = System.getProperty("renjin.jit") != null;
+
+  public static final boolean DEBUG = System.getProperty("renjin.jit.debug") != null;
+
+  public static final int THRESHOLD = Integer.getInteger("renjin.jit.threshold", 1000);
+
+  public static final TieredCompiler INSTANCE = new TieredCompiler();
+
+  private final ExecutorService executor;
+
+  private TieredCompiler() {
+    executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "renjin-closure-compiler");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Queues the given closure for background compilation.
+   */
+  public void submit(final Closure closure) {
+    executor.submit(new Runnable() {
+      @Override
+      public void run() {
+        closure.setCompiledBody(compile(closure));
+      }
+    });
+  }
+
+  /**
+   * Compiles the body of the given closure to JVM bytecode.
+   *
+   * @return a compiled {@code Closure} with the same formals, body and enclosing
+   * environment, or {@code null} if the closure could not be compiled.
+   */
+  public Closure compile(Closure closure) {
+    long startTime = System.nanoTime();
+    try {
+      Class<Closure> compiledClass = ClosureCompiler.compileAndLoadSelfContained(closure);
+      Closure compiled = compiledClass
+          .getConstructor(Environment.class)
+          .newInstance(closure.getEnclosingEnvironment());
+
+      if(DEBUG) {
+        System.err.println("jit: compiled " + closure + " in " +
+            ((System.nanoTime() - startTime) / 1e6) + "ms");
+      }
+      return compiled;
+
+    } catch(CannotBuildTacException e) {
+      if(DEBUG) {
+        System.err.println("jit: cannot compile " + closure + ": " + e.getMessage());
+      }
+      return null;
+
+    } catch(Exception e) {
+      return failed(closure, e);
+
+    } catch(LinkageError e) {
+      // thrown if the generated bytecode fails verification
+      return failed(closure, e);
+    }
+  }
+
+  private Closure failed(Closure closure, Throwable e) {
+    if(DEBUG) {
+      System.err.println("jit: failed to compile " + closure);
+      e.printStackTrace();
+    }
+    return null;
+  }
+}
@@ -0,0 +1,151 @@
+package org.renjin.compiler.pipeline;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.renjin.compiler.pipeline.reduce.Reduction;
+import org.renjin.primitives.summary.DeferredReduction;
+import org.renjin.primitives.vector.MemoizedComputation;
+import org.renjin.sexp.Vector;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Computes one or more memoized reductions of the same operand, such as {@code sum}, {@code min}
+ * or {@code var}, in a single pass by splitting the elements of the operand into chunks,
+ * computing the partial states of all the reductions for each chunk, and then combining
+ * the partial states.
+ *
+ * <p>Chunks are independent {@code Runnable}s and can be run
+ * on any thread, in any order.
+ */
+public class ChunkedReduction {
+
+  private final List<DeferredNode> nodes;
+  private final List<Reduction> reductions;
+  private final JittedRangeComputation computation;
+  private final Vector[] operands;
+  private final int length;
+  private final double[][] partials;
+  private final AtomicInteger remaining;
+
+  public ChunkedReduction(DeferredNode node, int chunkCount) {
+    this(Collections.singletonList(node), chunkCount);
+  }
+
+  /**
+   * @param nodes reductions which all have the same operand node
+   */
+  public ChunkedReduction(List<DeferredNode> nodes, int chunkCount) {
+    DeferredNode input = nodes.get(0).getOperand(0);
+    this.nodes = nodes;
+    this.reductions = ReductionJitter.reductionsOf(nodes);
+    this.computation = DeferredJitCache.INSTANCE.compileReduction(nodes);
+    this.operands = input.flattenVectors();
+    this.length = input.getVector().length();
+
+    int chunks = Math.max(1, Math.min(chunkCount, length));
+    this.partials = new double[chunks][];
+    this.remaining = new AtomicInteger(chunks);
+  }
+
+  /**
+   * @return true if the given node is a reduction that can be computed in chunks
+   */
+  public static boolean accept(DeferredNode node) {
+    return node.isMemoized() && DeferredJitter.supportsReduction(node);
+  }
+
+  /**
+   * Groups reductions of the same operand node together, so that they can be computed in
+   * a single pass. Other nodes are each placed in a group of their own.
+   */
+  public static List<List<DeferredNode>> group(Iterable<DeferredNode> nodes) {
+    List<List<DeferredNode>> groups = Lists.newArrayList();
+    Map<DeferredNode, List<DeferredNode>> reductionsByOperand = Maps.newIdentityHashMap();
+    for(DeferredNode node : nodes) {
+      if(accept(node)) {
+        List<DeferredNode> group = reductionsByOperand.get(node.getOperand(0));
+        if(group == null) {
+          group = Lists.newArrayList();
+          reductionsByOperand.put(node.getOperand(0), group);
+          groups.add(group);
+        }
+        group.add(node);
+      } else {
+        groups.add(Lists.newArrayList(node));
+      }
+    }
+    return groups;
+  }
+
+  public List<DeferredNode> getNodes() {
+    return nodes;
+  }
+
+  /**
+   * @return a task for each chunk. When the last chunk completes, the partial results
+   * are combined and stored as the nodes' results.
+   */
+  public List<Runnable> getChunks() {
+    List<Runnable> tasks = Lists.newArrayList();
+    int chunkSize = (int)Math.ceil((double)length / partials.length);
+    for(int i=0;i!=partials.length;++i) {
+      final int chunk = i;
+      final int start = Math.min(length, i * chunkSize);
+      final int end = Math.min(length, start + chunkSize);
+      tasks.add(new Runnable() {
+        @Override
+        public void run() {
+          partials[chunk] = computation.computeRange(operands, start, end);
+          if(remaining.decrementAndGet() == 0) {
+            combine();
+          }
+        }
+      });
+    }
+    return tasks;
+  }
+
+  /**
+   * Computes all chunks on the current thread.
+   */
+  public void run() {
+    for(Runnable chunk : getChunks()) {
+      chunk.run();
+    }
+  }
+
+  public boolean isDone() {
+    return remaining.get() == 0;
+  }
+
+  private void combine() {
+    // partial states are combined in order, as floating point addition is not quite associative
+    double[] state = partials[0];
+    for(int i=1;i<partials.length;++i) {
+      int offset = 0;
+      for(Reduction reduction : reductions) {
+        reduction.combine(state, offset, partials[i]);
+        offset += reduction.getStateSize();
+      }
+    }
+
+    int offset = 0;
+    for(int i=0;i!=nodes.size();++i) {
+      Reduction reduction = reductions.get(i);
+      DeferredNode node = nodes.get(i);
+      Vector result = reduction.finish(state, offset, length);
+      if(node.getVector() instanceof DeferredReduction) {
+        ((DeferredReduction) node.getVector()).setWarnings(reduction.getWarnings(state, offset));
+      }
+      offset += reduction.getStateSize();
+
+      ((MemoizedComputation)node.getVector()).setResult(result);
+      node.setResult(result);
+    }
+  }
+}
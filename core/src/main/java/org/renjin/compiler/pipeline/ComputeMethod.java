@@ -3,14 +3,23 @@ package org.renjin.compiler.pipeline;
 import org.objectweb.asm.MethodVisitor;
 
 public class ComputeMethod {
-  private int localCount = 2; // includes instance pointer and argument
+  private int localCount;
 
   private MethodVisitor visitor;
   private int maxStackSize = 0;
   private int currentStack = 0;
 
   public ComputeMethod(MethodVisitor visitor) {
+    this(visitor, 2); // includes instance pointer and argument
+  }
+
+  /**
+   * @param parameterLocals the number of local slots occupied by the instance pointer
+   *                        and the method's parameters
+   */
+  public ComputeMethod(MethodVisitor visitor, int parameterLocals) {
     this.visitor = visitor;
+    this.localCount = parameterLocals;
   }
 
   public MethodVisitor getVisitor() {
@@ -38,6 +47,22 @@ public class ComputeMethod {
     return 1;
   }
 
+  /**
+   * @return the index of the local containing the start of the range, for
+   * {@link JittedRangeComputation}s
+   */
+  public int getStartLocalIndex() {
+    return 2;
+  }
+
+  /**
+   * @return the index of the local containing the (exclusive) end of the range, for
+   * {@link JittedRangeComputation}s
+   */
+  public int getEndLocalIndex() {
+    return 3;
+  }
+
   public int getMaxLocals() {
     return localCount;
   }
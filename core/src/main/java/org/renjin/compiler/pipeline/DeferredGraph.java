@@ -14,6 +14,7 @@ import java.io.PrintWriter;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.ListIterator;
+import java.util.Map;
 
 /**
  * Directed, acyclic graph (DAG) of a deferred computation.
@@ -29,15 +30,31 @@ public class DeferredGraph {
   private int nextNodeId = 1;
   private IdentityHashMap<Vector, DeferredNode> nodeMap = Maps.newIdentityHashMap();
 
+  /**
+   * Maps the {@link DeferredNode#equivalenceKey()} of each node to the single
+   * node in the graph with that key.
+   */
+  private Map<Object, DeferredNode> canonicalNodes = Maps.newHashMap();
+
   public DeferredGraph(DeferredComputation root) {
+    long startTime = System.nanoTime();
+
     this.rootNode = new DeferredNode(nextNodeId(), root);
     nodes.add(rootNode);
     nodeMap.put(root, rootNode);
     addChildren(this.rootNode);
 
+    long buildTime = System.nanoTime() - startTime;
+
     Optimizers optimizers = new Optimizers();
     optimizers.optimize(this);
     removeOrphans();
+
+    if(VectorPipeliner.DEBUG) {
+      long optimizeTime = System.nanoTime() - startTime - buildTime;
+      System.out.println("graph: " + nodes.size() + " nodes, build: " + (buildTime/1e6) + "ms, " +
+          "optimize: " + (optimizeTime/1e6) + "ms");
+    }
   }
 
   private int nextNodeId() {
@@ -61,10 +78,13 @@ public class DeferredGraph {
   }
 
   private DeferredNode tryMerge(DeferredNode newNode) {
-    for(DeferredNode node : nodeMap.values()) {
-      if(node.equivalent(newNode)) {
-        return node;
+    Object key = newNode.equivalenceKey();
+    if(key != null) {
+      DeferredNode existing = canonicalNodes.get(key);
+      if(existing != null) {
+        return existing;
       }
+      canonicalNodes.put(key, newNode);
     }
     nodes.add(newNode);
     return newNode;
@@ -2,33 +2,181 @@ package org.renjin.compiler.pipeline;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.io.Files;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Maintains a cache of recently used JITted classes.
+ *
+ * <p>Optionally, the bytecode of generated classes can also be stored in a persistent
+ * cache directory, so that new JVMs can load previously generated classes rather than
+ * generating them again. The directory can be set with the {@code renjin.jit.cache.dir} system
+ * property or with {@link #setCacheDirectory(File)}.
  */
 public class DeferredJitCache {
 
   public static final DeferredJitCache INSTANCE = new DeferredJitCache();
 
   private final Cache<JitKey, JittedComputation> cache;
+  private final Cache<JitKey, JittedRangeComputation> rangeCache;
+
+  private volatile File cacheDirectory;
+
+  private final AtomicLong memoryHits = new AtomicLong();
+  private final AtomicLong diskHits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong compileTime = new AtomicLong();
 
   private DeferredJitCache() {
     cache = CacheBuilder.newBuilder()
             .softValues()
             .maximumSize(100)
             .build();
+    rangeCache = CacheBuilder.newBuilder()
+            .softValues()
+            .maximumSize(100)
+            .build();
+
+    String dir = System.getProperty("renjin.jit.cache.dir");
+    if(dir != null) {
+      setCacheDirectory(new File(dir));
+    }
+  }
+
+  /**
+   * Sets the directory in which to persist generated classes, or {@code null} to
+   * keep generated classes only in memory.
+   */
+  public void setCacheDirectory(File cacheDirectory) {
+    if(cacheDirectory != null && !cacheDirectory.isDirectory() && !cacheDirectory.mkdirs()) {
+      throw new IllegalArgumentException("Could not create jit cache directory " + cacheDirectory);
+    }
+    this.cacheDirectory = cacheDirectory;
+  }
+
+  public File getCacheDirectory() {
+    return cacheDirectory;
+  }
+
+  /**
+   * Discards the classes held in memory, as if this were a new JVM. Classes persisted
+   * in the cache directory are kept.
+   */
+  void invalidateMemory() {
+    cache.invalidateAll();
+    rangeCache.invalidateAll();
+  }
+
+  public JitStatistics getStatistics() {
+    return new JitStatistics(memoryHits.get(), diskHits.get(), misses.get(), compileTime.get());
   }
 
   public JittedComputation compile(DeferredNode node) {
     JitKey key = node.jitKey();
     JittedComputation computation = cache.getIfPresent(key);
     if(computation != null) {
+      memoryHits.incrementAndGet();
       return computation;
     }
-    DeferredJitter jitter = new DeferredJitter();
-    computation = jitter.compile(node);
+    computation = (JittedComputation) loadPersisted("compute", key);
+    if(computation == null) {
+      long startTime = System.nanoTime();
+      byte[] classBytes = new DeferredJitter().generate(node);
+      recordCompilation("compute", key, classBytes, startTime);
+      computation = (JittedComputation) DeferredJitter.load(classBytes);
+    }
     cache.put(key, computation);
 
     return computation;
   }
+
+  /**
+   * Compiles one or more reductions of the same operand, such as {@code min(x)} and {@code max(x)},
+   * into a single class.
+   */
+  public JittedRangeComputation compileReduction(List<DeferredNode> nodes) {
+    JitKey key = ReductionJitter.jitKey(nodes);
+    JittedRangeComputation computation = rangeCache.getIfPresent(key);
+    if(computation != null) {
+      memoryHits.incrementAndGet();
+      return computation;
+    }
+    computation = (JittedRangeComputation) loadPersisted("reduce", key);
+    if(computation == null) {
+      long startTime = System.nanoTime();
+      byte[] classBytes = new DeferredJitter().generateReduction(nodes);
+      recordCompilation("reduce", key, classBytes, startTime);
+      computation = (JittedRangeComputation) DeferredJitter.load(classBytes);
+    }
+    rangeCache.put(key, computation);
+
+    return computation;
+  }
+
+  private void recordCompilation(String kind, JitKey key, byte[] classBytes, long startTime) {
+    misses.incrementAndGet();
+    compileTime.addAndGet(System.nanoTime() - startTime);
+
+    File file = persistedFile(kind, key);
+    if(file != null) {
+      // write to a temporary file first so that concurrent readers, possibly
+      // in other JVMs, never see a partially written class
+      try {
+        File tempFile = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+        Files.write(classBytes, tempFile);
+        if(!tempFile.renameTo(file)) {
+          tempFile.delete();
+        }
+      } catch (IOException e) {
+        if(VectorPipeliner.DEBUG) {
+          System.err.println("Failed to write jitted class to " + file + ": " + e.getMessage());
+        }
+      }
+    }
+  }
+
+  /**
+   * Loads a previously generated class from the cache directory
+   * @return an instance of the class, or {@code null} if there is no cache directory,
+   * or if the class has not been persisted or cannot be loaded.
+   */
+  private Object loadPersisted(String kind, JitKey key) {
+    File file = persistedFile(kind, key);
+    if(file == null || !file.exists()) {
+      return null;
+    }
+    try {
+      Object instance = DeferredJitter.load(Files.toByteArray(file));
+      diskHits.incrementAndGet();
+      return instance;
+
+    } catch (IOException e) {
+      return null;
+
+    } catch (LinkageError e) {
+      // corrupt or incompatible class file: discard it and regenerate
+      file.delete();
+      return null;
+    }
+  }
+
+  /**
+   * @return the file in which the class for {@code key} is persisted, or {@code null} if there
+   * is no cache directory, or if the key has no stable hash, so that the class is not persisted.
+   */
+  private File persistedFile(String kind, JitKey key) {
+    File dir = cacheDirectory;
+    if(dir == null) {
+      return null;
+    }
+    String hash = key.stableHash();
+    if(hash == null) {
+      return null;
+    }
+    return new File(dir, kind + "-" + hash + ".class");
+  }
 }
@@ -3,6 +3,9 @@ package org.renjin.compiler.pipeline;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
 import org.objectweb.asm.MethodVisitor;
+import org.renjin.compiler.pipeline.reduce.Reductions;
+
+import java.util.List;
 
 import static org.objectweb.asm.Opcodes.*;
 
@@ -48,6 +51,21 @@ public class DeferredJitter {
   }
 
   public JittedComputation compile(DeferredNode node)  {
+    return (JittedComputation) load(generate(node));
+  }
+
+  /**
+   * Compiles one or more reductions of the same input into a class which computes their
+   * partial states over a range of elements.
+   */
+  public JittedRangeComputation compileReduction(List<DeferredNode> nodes) {
+    return (JittedRangeComputation) load(generateReduction(nodes));
+  }
+
+  /**
+   * Generates the bytecode of a {@link JittedComputation} class for the given node
+   */
+  public byte[] generate(DeferredNode node) {
     long startTime = System.nanoTime();
     ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
     cv = cw;
@@ -63,20 +81,64 @@ public class DeferredJitter {
 
     cv.visitEnd();
 
+    return toByteArray(cw, startTime);
+  }
+
+  /**
+   * Generates the bytecode of a {@link JittedRangeComputation} class for the given reductions,
+   * which must all have the same operand.
+   */
+  public byte[] generateReduction(List<DeferredNode> nodes) {
+    long startTime = System.nanoTime();
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS);
+    cv = cw;
+    cv.visit(V1_6, ACC_PUBLIC + ACC_SUPER, className, null, "java/lang/Object",
+            new String[]{"org/renjin/compiler/pipeline/JittedRangeComputation"});
+
+    writeConstructor();
+    writeComputeRange(nodes);
+
+    cv.visitEnd();
+
+    return toByteArray(cw, startTime);
+  }
+
+  /**
+   * @return true if the given node can be compiled with {@link #compileReduction(List)}
+   */
+  public static boolean supportsReduction(DeferredNode node) {
+    return node.getOperands().size() == 1 &&
+        Reductions.get(node.getComputation().getComputationName()) != null;
+  }
+
+  private byte[] toByteArray(ClassWriter cw, long startTime) {
     byte[] classBytes = cw.toByteArray();
     long compileTime = System.nanoTime() - startTime;
 
-    Class jitClass = new MyClassLoader().defineClass(className, classBytes);
+    if(VectorPipeliner.DEBUG) {
+      System.out.println("compile: " + (compileTime/1e6) + "ms");
+    }
+    return classBytes;
+  }
+
+  /**
+   * Defines a class previously generated by this jitter in a new class loader, and
+   * returns a new instance.
+   */
+  public static Object load(byte[] classBytes) {
+    long startTime = System.nanoTime();
+
+    // the class name is read from the class bytes
+    Class jitClass = new MyClassLoader().defineClass(null, classBytes);
 
-    long loadTime = System.nanoTime() - startTime - compileTime;
+    long loadTime = System.nanoTime() - startTime;
 
     if(VectorPipeliner.DEBUG) {
-      System.out.println("compile: " + (compileTime/1e6) + "ms");
       System.out.println("load: " + (loadTime/1e6) + "ms");
     }
 
     try {
-      return (JittedComputation) jitClass.newInstance();
+      return jitClass.newInstance();
     } catch (Exception e) {
       throw new RuntimeException("Could not invoke jitted computation", e);
     }
@@ -105,17 +167,36 @@ public class DeferredJitter {
     mv.visitEnd();
   }
 
+  private void writeComputeRange(List<DeferredNode> nodes) {
+    MethodVisitor mv = cv.visitMethod(ACC_PUBLIC, "computeRange", "([Lorg/renjin/sexp/Vector;II)[D", null, null);
+    mv.visitCode();
+
+    // this, operands, start, end
+    ComputeMethod methodContext = new ComputeMethod(mv, 4);
+
+    new ReductionJitter(nodes).compute(methodContext);
+
+    mv.visitMaxs(1, methodContext.getMaxLocals());
+    mv.visitEnd();
+  }
+
   private FunctionJitter getFunction(DeferredNode node) {
     if(node.getComputation().getComputationName().equals("mean")) {
       return new MeanJitter();
     } else if(node.getComputation().getComputationName().equals("rowMeans")) {
       return new RowMeanJitter();
+    } else if(Reductions.getScan(node.getComputation().getComputationName()) != null) {
+      return new ScanJitter();
     } else {
       throw new UnsupportedOperationException(node.toString());
     }
   }
 
-  class MyClassLoader extends ClassLoader {
+  static class MyClassLoader extends ClassLoader {
+    MyClassLoader() {
+      super(DeferredJitter.class.getClassLoader());
+    }
+
     public Class defineClass(String name, byte[] b) {
       return defineClass(name, b, 0, b.length);
     }
@@ -1,6 +1,7 @@
 package org.renjin.compiler.pipeline;
 
 import com.google.common.base.Joiner;
+import com.google.common.base.Objects;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import org.renjin.primitives.sequence.RepDoubleVector;
@@ -10,6 +11,7 @@ import org.renjin.sexp.DoubleArrayVector;
 import org.renjin.sexp.IntArrayVector;
 import org.renjin.sexp.Vector;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 
@@ -92,7 +94,8 @@ public class DeferredNode {
    * Checks if this node is "equivalent" (can replace)
    * the given {@code newNode}. Two nodes are equivalent if they are
    * <ul>
-   *   <li>Are both {@link DeferredComputation}s with equal {@code class}es with equivalent operands</li>
+   *   <li>Are both {@link DeferredComputation}s with equal {@code class}es and computation names,
+   *   with equivalent operands</li>
    *   <li>Are both ArrayVectors with the same memory address</li>
    *   <li>Are both scalars with equal values</li>
    * </ul>
@@ -104,6 +107,9 @@ public class DeferredNode {
       return false;
     }
     if(isComputation()) {
+      if(!getComputation().getComputationName().equals(newNode.getComputation().getComputationName())) {
+        return false;
+      }
       if(getOperands().size() != newNode.getOperands().size()) {
         return false;
       }
@@ -133,6 +139,67 @@ public class DeferredNode {
     }
   }
 
+  /**
+   * Returns a key for hash-consing nodes: two nodes have equal keys only if they
+   * are {@link #equivalent(DeferredNode)}. Operand nodes must already have been merged,
+   * as computations are keyed on the ids of their operands.
+   *
+   * @return the key, or {@code null} if this node cannot be merged with any other node.
+   */
+  public Object equivalenceKey() {
+    if(isComputation()) {
+      long[] operandIds = new long[operands.size()];
+      for(int i=0;i!=operandIds.length;++i) {
+        operandIds[i] = operands.get(i).getId();
+      }
+      return new EquivalenceKey(vector.getClass(), getComputation().getComputationName(), operandIds);
+
+    } else if((vector instanceof IntArrayVector || vector instanceof DoubleArrayVector) && vector.length() <= 10) {
+      long[] values = new long[vector.length()];
+      for(int i=0;i!=values.length;++i) {
+        if(vector instanceof IntArrayVector) {
+          values[i] = vector.getElementAsInt(i);
+        } else {
+          values[i] = Double.doubleToLongBits(vector.getElementAsDouble(i));
+        }
+      }
+      return new EquivalenceKey(vector.getClass(), null, values);
+
+    } else {
+      return null;
+    }
+  }
+
+  private static class EquivalenceKey {
+    private final Class vectorClass;
+    private final String computationName;
+    private final long[] components;
+    private final int hashCode;
+
+    private EquivalenceKey(Class vectorClass, String computationName, long[] components) {
+      this.vectorClass = vectorClass;
+      this.computationName = computationName;
+      this.components = components;
+      this.hashCode = 31 * vectorClass.hashCode() + Arrays.hashCode(components);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if(!(obj instanceof EquivalenceKey)) {
+        return false;
+      }
+      EquivalenceKey other = (EquivalenceKey) obj;
+      return vectorClass.equals(other.vectorClass) &&
+          Objects.equal(computationName, other.computationName) &&
+          Arrays.equals(components, other.components);
+    }
+  }
+
   @Override
   public String toString() {
     if(operands.isEmpty()) {
@@ -167,10 +234,13 @@ public class DeferredNode {
   public JitKey jitKey() {
     List<DeferredNode> nodes = flatten();
     Class[] classes = new Class[nodes.size()];
+    String[] names = new String[nodes.size()];
     for(int i=0;i!=classes.length;++i) {
-      classes[i] = nodes.get(i).getVector().getClass();
+      DeferredNode node = nodes.get(i);
+      classes[i] = node.getVector().getClass();
+      names[i] = node.isComputation() ? node.getComputation().getComputationName() : "";
     }
-    return new JitKey(classes);
+    return new JitKey(classes, names);
   }
 
   public void setResult(Vector result) {
@@ -1,5 +1,6 @@
 package org.renjin.compiler.pipeline;
 
+import org.renjin.compiler.pipeline.reduce.Reductions;
 import org.renjin.primitives.vector.MemoizedComputation;
 import org.renjin.sexp.DoubleArrayVector;
 import org.renjin.sexp.Vector;
@@ -21,8 +22,8 @@ public class DeferredNodeComputer implements Runnable {
     // TODO: at the moment, we can compile only a small number of summary
     // function, eventually we want to generate bytecode on the fly based
     // on their implementations elsewhere.
-    if(node.getComputation().getComputationName().equals("mean") ||
-        node.getComputation().getComputationName().equals("rowMeans")) {
+    String name = node.getComputation().getComputationName();
+    if(name.equals("mean") || name.equals("rowMeans") || Reductions.getScan(name) != null) {
       try {
         Vector[] operands = node.flattenVectors();
         JittedComputation computer = DeferredJitCache.INSTANCE.compile(node);
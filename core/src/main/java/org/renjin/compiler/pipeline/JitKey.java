@@ -1,18 +1,150 @@
 package org.renjin.compiler.pipeline;
 
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import org.renjin.compiler.pipeline.accessor.*;
+import org.renjin.compiler.pipeline.reduce.Reduction;
+import org.renjin.compiler.pipeline.reduce.Reductions;
+
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
+import java.util.List;
 
 /**
  * Uniquely identifies a Jitted computation subgraph.
+ *
+ * <p>Instances of the same vector class may compute different functions, such as
+ * the reductions {@code min} and {@code max}, so the key also includes the computation
+ * names of the nodes.
  */
 public class JitKey {
 
+  /**
+   * The classes whose code determines the bytecode generated for a given key
+   */
+  private static final Class[] GENERATOR_CLASSES = {
+      DeferredJitter.class, ComputeMethod.class, FunctionJitter.class, MeanJitter.class,
+      RowMeanJitter.class, ScanJitter.class, ReductionJitter.class, Reduction.class, Reductions.class,
+      Accessor.class, Accessors.class, BinaryVectorOpAccessor.class, ComputationAccessor.class,
+      DistanceMatrixAccessor.class, DoubleArrayAccessor.class, InputGraph.class, IntArrayAccessor.class,
+      RepeatingAccessor.class, TransposingAccessor.class, UnaryVectorOpAccessor.class, VirtualAccessor.class };
+
+  private static boolean generatorHashed;
+  private static String generatorHash;
+
   private Class[] classes;
+  private String[] names;
   private int hash;
 
   public JitKey(Class[] classes) {
+    this(classes, new String[0]);
+  }
+
+  public JitKey(Class[] classes, String[] names) {
     this.classes = classes;
-    this.hash = Arrays.hashCode(classes);
+    this.names = names;
+    this.hash = 31 * Arrays.hashCode(classes) + Arrays.hashCode(names);
+  }
+
+  /**
+   * @return a new key which also includes the given names
+   */
+  public JitKey extend(List<String> moreNames) {
+    String[] extended = Arrays.copyOf(names, names.length + moreNames.size());
+    for(int i=0;i!=moreNames.size();++i) {
+      extended[names.length + i] = moreNames.get(i);
+    }
+    return new JitKey(classes, extended);
+  }
+
+  /**
+   * @return a hash of this key that is stable across JVMs, suitable for naming
+   * persisted classes. The hash includes the bytecode of the jitter classes, as the generated
+   * code changes with the generator, and of the vector classes, whose internals the generated
+   * code depends on.
+   *
+   * @return the hash, or {@code null} if the class file of one of these classes cannot be read,
+   * in which case the computation should not be persisted.
+   */
+  public String stableHash() {
+    String generator = generatorHash();
+    if(generator == null) {
+      return null;
+    }
+    Hasher hasher = Hashing.sha1().newHasher();
+    hasher.putString(generator);
+    for(Class vectorClass : classes) {
+      String classHash = classFileHash(vectorClass);
+      if(classHash == null) {
+        return null;
+      }
+      hasher.putString(";");
+      hasher.putString(classHash);
+    }
+    for(Class vectorClass : classes) {
+      hasher.putString(";");
+      hasher.putString(vectorClass.getName());
+    }
+    for(String name : names) {
+      hasher.putString(";");
+      hasher.putString(name);
+    }
+    return hasher.hash().toString();
+  }
+
+  /**
+   * @return a hash of the generator classes, or {@code null} if one of their class files
+   * cannot be read
+   */
+  private static synchronized String generatorHash() {
+    if(!generatorHashed) {
+      generatorHashed = true;
+      Hasher hasher = Hashing.sha1().newHasher();
+      for(Class generatorClass : GENERATOR_CLASSES) {
+        if(!putClassFileHash(hasher, generatorClass)) {
+          return null;
+        }
+        for(Class nestedClass : generatorClass.getDeclaredClasses()) {
+          if(!putClassFileHash(hasher, nestedClass)) {
+            return null;
+          }
+        }
+      }
+      generatorHash = hasher.hash().toString();
+    }
+    return generatorHash;
+  }
+
+  private static boolean putClassFileHash(Hasher hasher, Class clazz) {
+    String hash = classFileHash(clazz);
+    if(hash == null) {
+      return false;
+    }
+    hasher.putString(hash);
+    return true;
+  }
+
+  /**
+   * @return a hash of the class file from which {@code clazz} was loaded, or {@code null}
+   * if the class file cannot be read
+   */
+  private static String classFileHash(Class clazz) {
+    String resourceName = "/" + clazz.getName().replace('.', '/') + ".class";
+    InputStream in = clazz.getResourceAsStream(resourceName);
+    if(in == null) {
+      return null;
+    }
+    try {
+      try {
+        return Hashing.sha1().hashBytes(ByteStreams.toByteArray(in)).toString();
+      } finally {
+        in.close();
+      }
+    } catch (IOException e) {
+      return null;
+    }
   }
 
   @Override
@@ -26,6 +158,6 @@ public class JitKey {
       return false;
     }
     JitKey other = (JitKey)obj;
-    return Arrays.equals(classes, other.classes);
+    return Arrays.equals(classes, other.classes) && Arrays.equals(names, other.names);
   }
 }
@@ -0,0 +1,56 @@
+package org.renjin.compiler.pipeline;
+
+/**
+ * Snapshot of the activity of the {@link DeferredJitCache}
+ */
+public class JitStatistics {
+
+  private final long memoryHits;
+  private final long diskHits;
+  private final long misses;
+  private final long compileTimeNanos;
+
+  public JitStatistics(long memoryHits, long diskHits, long misses, long compileTimeNanos) {
+    this.memoryHits = memoryHits;
+    this.diskHits = diskHits;
+    this.misses = misses;
+    this.compileTimeNanos = compileTimeNanos;
+  }
+
+  /**
+   * @return the number of requests for a jitted class which were served from memory
+   */
+  public long getMemoryHits() {
+    return memoryHits;
+  }
+
+  /**
+   * @return the number of requests for a jitted class which were loaded from the
+   * persistent cache directory
+   */
+  public long getDiskHits() {
+    return diskHits;
+  }
+
+  /**
+   * @return the number of requests for a jitted class which required generating new bytecode
+   */
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * @return the total time spent generating bytecode, in nanoseconds
+   */
+  public long getCompileTimeNanos() {
+    return compileTimeNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "JitStatistics{memoryHits=" + memoryHits +
+        ", diskHits=" + diskHits +
+        ", misses=" + misses +
+        ", compileTime=" + (compileTimeNanos / 1e6) + "ms}";
+  }
+}
@@ -0,0 +1,20 @@
+package org.renjin.compiler.pipeline;
+
+import org.renjin.sexp.Vector;
+
+/**
+ * A Just-in-time compiled reduction which computes a partial
+ * result over a range of its input's elements, allowing the input
+ * to be split into chunks which are computed concurrently.
+ */
+public interface JittedRangeComputation {
+
+  /**
+   *
+   * @param operands the flattened set of vectors from a {@link DeferredNode} and its descendants.
+   * @param start the index of the first element to include
+   * @param end the index after the last element to include
+   * @return the partial result for elements {@code [start, end)}
+   */
+  public double[] computeRange(Vector[] operands, int start, int end);
+}
@@ -1,25 +1,62 @@
 package org.renjin.compiler.pipeline;
 
 import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
-import com.google.common.collect.Sets;
 import org.renjin.primitives.vector.DeferredComputation;
 import org.renjin.sexp.Vector;
 
-import java.util.Collection;
-import java.util.Iterator;
-import java.util.Set;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 
-
+/**
+ * Computes deferred computations using a pool of threads.
+ *
+ * <p>Memoized nodes in the graph which do not depend on one another are computed
+ * concurrently. In addition, large reductions such as {@code sum(x*y+z)} are split
+ * into many more chunks than there are threads, so that threads which finish
+ * their chunks early pick up the remaining ones and all cores stay busy until the
+ * reduction is complete. Reductions of the same operand which are ready at the same time,
+ * such as those in {@code c(min(x), max(x))}, are computed together in a single pass.
+ *
+ * <p>The pool, parallelism and chunking threshold can be configured by binding an instance
+ * with {@link org.renjin.eval.SessionBuilder#bind(Class, Object)}.
+ */
 public class MultiThreadedVectorPipeliner implements VectorPipeliner {
 
+  /**
+   * The minimum number of elements a reduction must have before it is split into chunks
+   */
+  public static final int DEFAULT_CHUNK_THRESHOLD = 100000;
+
+  /**
+   * The number of chunks per thread into which reductions are split
+   */
+  private static final int CHUNKS_PER_THREAD = 4;
+
   private final ExecutorService executorService;
+  private final int parallelism;
+  private final int chunkThreshold;
 
   public MultiThreadedVectorPipeliner(ExecutorService executorService) {
+    this(executorService, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_THRESHOLD);
+  }
+
+  /**
+   *
+   * @param executorService the pool of threads on which to compute nodes
+   * @param parallelism the number of threads available in {@code executorService}
+   * @param chunkThreshold the minimum number of elements a reduction must have before it is
+   *                       split into chunks
+   */
+  public MultiThreadedVectorPipeliner(ExecutorService executorService, int parallelism, int chunkThreshold) {
     this.executorService = executorService;
+    this.parallelism = parallelism;
+    this.chunkThreshold = chunkThreshold;
   }
 
   @Override
@@ -59,48 +96,94 @@ public class MultiThreadedVectorPipeliner implements VectorPipeliner {
     Multimap<DeferredNode, DeferredNode> dependencies = HashMultimap.create();
     findDependencies(graph.getRoot(), graph.getRoot(), dependencies);
 
-    // define set of nodes to be computed
-    Set<DeferredNode> toCompute = Sets.newHashSet();
+    // count the dependencies of each memoized node, and record which
+    // nodes are waiting on each node
+    Map<DeferredNode, Integer> pendingDependencies = Maps.newHashMap();
+    Multimap<DeferredNode, DeferredNode> dependents = HashMultimap.create();
+    List<DeferredNode> ready = Lists.newArrayList();
     for(DeferredNode node : graph.getNodes()) {
       if(node.isMemoized()) {
-        toCompute.add(node);
+        int pending = 0;
+        for(DeferredNode dependency : dependencies.get(node)) {
+          if(!dependency.isComputed()) {
+            dependents.put(dependency, node);
+            pending++;
+          }
+        }
+        if(pending == 0) {
+          ready.add(node);
+        } else {
+          pendingDependencies.put(node, pending);
+        }
       }
     }
 
     // execute in parallel
     ExecutorCompletionService<DeferredNode> service = new ExecutorCompletionService<DeferredNode>(executorService);
 
+    // the number of submitted tasks that have not yet completed for each group,
+    // keyed by the first node in the group
+    Map<DeferredNode, Integer> outstandingTasks = Maps.newHashMap();
+    Map<DeferredNode, List<DeferredNode>> groups = Maps.newHashMap();
     int running = 0;
-    while(!toCompute.isEmpty() || running > 0) {
+
+    while(!ready.isEmpty() || running > 0) {
 
       // queue all memoized values with no remaining dependencies
-      Iterator<DeferredNode> it = toCompute.iterator();
-      while(it.hasNext()) {
-        DeferredNode node = it.next();
-        if(allComputed(dependencies.get(node))) {
-          if(VectorPipeliner.DEBUG) {
-            System.out.println("Starting " + node);
-          }
-          service.submit(new DeferredNodeComputer(node), node);
-          running ++;
-          it.remove();
+      for(List<DeferredNode> group : ChunkedReduction.group(ready)) {
+        DeferredNode leader = group.get(0);
+        if(VectorPipeliner.DEBUG) {
+          System.out.println("Starting " + group);
         }
+        List<Runnable> tasks = tasksFor(group);
+        for(Runnable task : tasks) {
+          service.submit(task, leader);
+        }
+        outstandingTasks.put(leader, tasks.size());
+        groups.put(leader, group);
+        running += tasks.size();
       }
-      DeferredNode computed = service.take().get();
+      ready.clear();
+
+      // wait for the next task to complete
+      DeferredNode leader = service.take().get();
       running --;
-      if(VectorPipeliner.DEBUG) {
-        System.out.println("Completed " + computed);
+
+      int outstanding = outstandingTasks.get(leader) - 1;
+      if(outstanding > 0) {
+        outstandingTasks.put(leader, outstanding);
+        continue;
+      }
+      outstandingTasks.remove(leader);
+
+      for(DeferredNode node : groups.remove(leader)) {
+        if(VectorPipeliner.DEBUG) {
+          System.out.println("Completed " + node);
+        }
+
+        // release any nodes waiting on this one
+        for(DeferredNode dependent : dependents.get(node)) {
+          int pending = pendingDependencies.get(dependent) - 1;
+          if(pending == 0) {
+            pendingDependencies.remove(dependent);
+            ready.add(dependent);
+          } else {
+            pendingDependencies.put(dependent, pending);
+          }
+        }
       }
     }
   }
 
-  private boolean allComputed(Collection<DeferredNode> deferredNodes) {
-    for(DeferredNode node : deferredNodes) {
-      if(!node.isComputed()) {
-        return false;
-      }
+  private List<Runnable> tasksFor(List<DeferredNode> group) {
+    DeferredNode node = group.get(0);
+    if(!ChunkedReduction.accept(node)) {
+      return Lists.<Runnable>newArrayList(new DeferredNodeComputer(node));
+    } else if(node.getOperand(0).getVector().length() >= chunkThreshold) {
+      return new ChunkedReduction(group, parallelism * CHUNKS_PER_THREAD).getChunks();
+    } else {
+      return new ChunkedReduction(group, 1).getChunks();
     }
-    return true;
   }
 
   private void findDependencies(DeferredNode parentMemo, DeferredNode node, Multimap<DeferredNode, DeferredNode> dependencies) {
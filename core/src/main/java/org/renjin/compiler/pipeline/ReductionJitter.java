@@ -0,0 +1,125 @@
+package org.renjin.compiler.pipeline;
+
+import com.google.common.collect.Lists;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.renjin.compiler.pipeline.accessor.Accessor;
+import org.renjin.compiler.pipeline.accessor.Accessors;
+import org.renjin.compiler.pipeline.accessor.InputGraph;
+import org.renjin.compiler.pipeline.reduce.Reduction;
+import org.renjin.compiler.pipeline.reduce.Reductions;
+
+import java.util.List;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Computes the partial states of one or more reductions of the same input
+ * over a range of its elements, in a single loop. For example, {@code c(min(x*y), max(x*y))}
+ * computes each element of {@code x*y} only once.
+ *
+ * <p>The generated {@link JittedRangeComputation} is passed the flattened vectors of the
+ * shared input node, and returns the states of the reductions, one after another.
+ */
+public class ReductionJitter {
+
+  private final DeferredNode input;
+  private final List<Reduction> reductions;
+
+  public ReductionJitter(List<DeferredNode> nodes) {
+    this.input = nodes.get(0).getOperand(0);
+    this.reductions = reductionsOf(nodes);
+  }
+
+  /**
+   * @return the reduction computed by each of the given nodes
+   */
+  public static List<Reduction> reductionsOf(List<DeferredNode> nodes) {
+    List<Reduction> reductions = Lists.newArrayList();
+    for(DeferredNode node : nodes) {
+      Reduction reduction = Reductions.get(node.getComputation().getComputationName());
+      if(reduction == null) {
+        throw new UnsupportedOperationException(node.toString());
+      }
+      reductions.add(reduction);
+    }
+    return reductions;
+  }
+
+  /**
+   * @return a key identifying the class generated for these reductions of their input
+   */
+  public static JitKey jitKey(List<DeferredNode> nodes) {
+    List<String> names = Lists.newArrayList();
+    for(DeferredNode node : nodes) {
+      names.add(node.getComputation().getComputationName());
+    }
+    return nodes.get(0).getOperand(0).jitKey().extend(names);
+  }
+
+  public void compute(ComputeMethod method) {
+
+    InputGraph inputGraph = new InputGraph(input);
+
+    Accessor accessor = Accessors.create(input, inputGraph);
+    accessor.init(method);
+
+    MethodVisitor mv = method.getVisitor();
+
+    // initialize the state of each reduction
+    int[] stateLocals = new int[reductions.size()];
+    int stateSize = 0;
+    for(int i=0;i!=stateLocals.length;++i) {
+      double[] initialState = reductions.get(i).getInitialState();
+      stateLocals[i] = method.reserveLocal(initialState.length * 2);
+      for(int j=0;j!=initialState.length;++j) {
+        mv.visitLdcInsn(initialState[j]);
+        mv.visitVarInsn(DSTORE, stateLocals[i] + (j * 2));
+      }
+      stateSize += initialState.length;
+    }
+
+    int elementLocal = method.reserveLocal(2);
+
+    // start the counter at the beginning of the range
+    int counterLocal = method.reserveLocal(1);
+    mv.visitVarInsn(ILOAD, method.getStartLocalIndex());
+    mv.visitVarInsn(ISTORE, counterLocal);
+
+    Label loop = new Label();
+    mv.visitLabel(loop);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    mv.visitVarInsn(ILOAD, method.getEndLocalIndex());
+
+    Label done = new Label();
+    mv.visitJumpInsn(IF_ICMPGE, done);
+
+    // compute the element once, and update each reduction with it
+    mv.visitVarInsn(ILOAD, counterLocal);
+    accessor.pushDouble(method);
+    mv.visitVarInsn(DSTORE, elementLocal);
+
+    for(int i=0;i!=stateLocals.length;++i) {
+      reductions.get(i).emitUpdate(mv, stateLocals[i], elementLocal);
+    }
+
+    mv.visitIincInsn(counterLocal, 1);
+    mv.visitJumpInsn(GOTO, loop);
+    mv.visitLabel(done);
+
+    // return the states of all reductions in a single array
+    mv.visitLdcInsn(stateSize);
+    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+    int index = 0;
+    for(int i=0;i!=stateLocals.length;++i) {
+      int size = reductions.get(i).getStateSize();
+      for(int j=0;j!=size;++j) {
+        mv.visitInsn(DUP);
+        mv.visitLdcInsn(index++);
+        mv.visitVarInsn(DLOAD, stateLocals[i] + (j * 2));
+        mv.visitInsn(DASTORE);
+      }
+    }
+    mv.visitInsn(ARETURN);
+  }
+}
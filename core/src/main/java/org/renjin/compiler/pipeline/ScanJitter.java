@@ -0,0 +1,83 @@
+package org.renjin.compiler.pipeline;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.renjin.compiler.pipeline.accessor.Accessor;
+import org.renjin.compiler.pipeline.accessor.Accessors;
+import org.renjin.compiler.pipeline.accessor.InputGraph;
+import org.renjin.compiler.pipeline.reduce.Reduction;
+import org.renjin.compiler.pipeline.reduce.Reductions;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Computes a cumulative function such as {@code cumsum} by storing the running
+ * value of the corresponding {@link Reduction} after each element.
+ */
+public class ScanJitter implements FunctionJitter {
+
+  @Override
+  public void compute(ComputeMethod method, DeferredNode node) {
+
+    Reduction reduction = Reductions.getScan(node.getComputation().getComputationName());
+
+    InputGraph inputGraph = new InputGraph(node);
+
+    Accessor accessor = Accessors.create(node.getOperands().get(0), inputGraph);
+    accessor.init(method);
+
+    MethodVisitor mv = method.getVisitor();
+
+    // get the length of the vector
+    int lengthLocal = method.reserveLocal(1);
+    accessor.pushLength(method);
+    mv.visitVarInsn(ISTORE, lengthLocal);
+
+    // allocate the result
+    int resultLocal = method.reserveLocal(1);
+    mv.visitVarInsn(ILOAD, lengthLocal);
+    mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+    mv.visitVarInsn(ASTORE, resultLocal);
+
+    // initialize the state of the reduction
+    double[] initialState = reduction.getInitialState();
+    int stateLocal = method.reserveLocal(initialState.length * 2);
+    for(int i=0;i!=initialState.length;++i) {
+      mv.visitLdcInsn(initialState[i]);
+      mv.visitVarInsn(DSTORE, stateLocal + (i * 2));
+    }
+
+    int elementLocal = method.reserveLocal(2);
+
+    int counterLocal = method.reserveLocal(1);
+    mv.visitInsn(ICONST_0);
+    mv.visitVarInsn(ISTORE, counterLocal);
+
+    Label loop = new Label();
+    mv.visitLabel(loop);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    mv.visitVarInsn(ILOAD, lengthLocal);
+
+    Label done = new Label();
+    mv.visitJumpInsn(IF_ICMPGE, done);
+
+    mv.visitVarInsn(ILOAD, counterLocal);
+    accessor.pushDouble(method);
+    mv.visitVarInsn(DSTORE, elementLocal);
+
+    reduction.emitUpdate(mv, stateLocal, elementLocal);
+
+    // result[i] = current value
+    mv.visitVarInsn(ALOAD, resultLocal);
+    mv.visitVarInsn(ILOAD, counterLocal);
+    reduction.emitCurrent(mv, stateLocal);
+    mv.visitInsn(DASTORE);
+
+    mv.visitIincInsn(counterLocal, 1);
+    mv.visitJumpInsn(GOTO, loop);
+    mv.visitLabel(done);
+
+    mv.visitVarInsn(ALOAD, resultLocal);
+    mv.visitInsn(ARETURN);
+  }
+}
@@ -2,11 +2,17 @@ package org.renjin.compiler.pipeline;
 
 
 import org.renjin.primitives.vector.DeferredComputation;
+import org.renjin.primitives.vector.MemoizedComputation;
 import org.renjin.primitives.vector.MemoizedDoubleVector;
 import org.renjin.sexp.DoubleArrayVector;
 import org.renjin.sexp.DoubleVector;
 import org.renjin.sexp.Vector;
 
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
 public class SimpleVectorPipeliner implements VectorPipeliner {
   @Override
   public Vector materialize(DeferredComputation root) {
@@ -18,7 +24,7 @@ public class SimpleVectorPipeliner implements VectorPipeliner {
     }
 
 
-    forceMemoizedValues(graph.getRoot());
+    forceMemoizedValues(graph.getRoot(), groupReductions(graph));
 
     return graph.getRoot().getVector();
   }
@@ -42,12 +48,37 @@ public class SimpleVectorPipeliner implements VectorPipeliner {
     }
   }
 
-  private void forceMemoizedValues(DeferredNode node) {
+  /**
+   * @return the reductions in the graph which share an operand with each reduction
+   */
+  private Map<DeferredNode, List<DeferredNode>> groupReductions(DeferredGraph graph) {
+    Map<DeferredNode, List<DeferredNode>> groups = Maps.newIdentityHashMap();
+    for(List<DeferredNode> group : ChunkedReduction.group(graph.getNodes())) {
+      if(ChunkedReduction.accept(group.get(0))) {
+        for(DeferredNode node : group) {
+          groups.put(node, group);
+        }
+      }
+    }
+    return groups;
+  }
+
+  private void forceMemoizedValues(DeferredNode node, Map<DeferredNode, List<DeferredNode>> reductions) {
     for(DeferredNode child : node.getOperands()) {
-      forceMemoizedValues(child);
+      forceMemoizedValues(child, reductions);
     }
-    if(node.isMemoized()) {
-      new DeferredNodeComputer(node).run();
+    if(node.isMemoized() && !((MemoizedComputation) node.getVector()).isCalculated()) {
+      List<DeferredNode> group = reductions.get(node);
+      if(group != null) {
+        // the other reductions of this node's operand are computed in the same pass,
+        // and so must not be computed again when they are reached
+        new ChunkedReduction(group, 1).run();
+        for(DeferredNode member : group) {
+          reductions.remove(member);
+        }
+      } else {
+        new DeferredNodeComputer(node).run();
+      }
     }
   }
 }
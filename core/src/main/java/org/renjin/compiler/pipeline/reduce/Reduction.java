@@ -0,0 +1,154 @@
+package org.renjin.compiler.pipeline.reduce;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.renjin.sexp.Vector;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * An associative reduction of a double vector, such as {@code sum} or {@code min}.
+ *
+ * <p>A reduction keeps a fixed number of doubles of state, which are updated with each element
+ * in turn. The same update can either be applied directly, through
+ * {@link #update(double[], int, double)}, or emitted into a jitted loop, where the state is held
+ * in local variables and several reductions can share a single pass over their input.
+ *
+ * <p>Because the reductions are associative, the input can be split into ranges, and the
+ * states of the ranges merged with {@link #combine(double[], int, double[])}.
+ */
+public abstract class Reduction {
+
+  private final String name;
+  protected final boolean removeNA;
+
+  protected Reduction(String name, boolean removeNA) {
+    this.name = name;
+    this.removeNA = removeNA;
+  }
+
+  /**
+   * @return the computation name of this reduction, which includes whether missing values
+   * are removed, for example "min" or "min.na.rm"
+   */
+  public String getName() {
+    return removeNA ? name + ".na.rm" : name;
+  }
+
+  public boolean isRemoveNA() {
+    return removeNA;
+  }
+
+  /**
+   * @return the initial state of this reduction, before any elements have been seen
+   */
+  public abstract double[] getInitialState();
+
+  public final int getStateSize() {
+    return getInitialState().length;
+  }
+
+  /**
+   * @return the length of the vector returned by {@link #finish(double[], int, int)}
+   */
+  public int getResultLength() {
+    return 1;
+  }
+
+  /**
+   * Updates the state beginning at {@code state[offset]} with the element {@code x}
+   */
+  public abstract void update(double[] state, int offset, double x);
+
+  /**
+   * Merges the state of a following range of elements, {@code other[offset]...}, into
+   * the state beginning at {@code state[offset]}
+   */
+  public abstract void combine(double[] state, int offset, double[] other);
+
+  /**
+   * @param length the number of elements in the input
+   * @return the result of the reduction from its final state
+   */
+  public abstract Vector finish(double[] state, int offset, int length);
+
+  /**
+   * @return the warnings which R signals along with the result computed from the final
+   * state beginning at {@code state[offset]}, such as for {@code min} of no non-missing values
+   */
+  public List<String> getWarnings(double[] state, int offset) {
+    return Collections.emptyList();
+  }
+
+  /**
+   * @return the running value of this reduction, for cumulative functions
+   * such as {@code cumsum}
+   */
+  public double current(double[] state, int offset) {
+    return state[offset];
+  }
+
+  /**
+   * Emits the equivalent of {@link #update(double[], int, double)}, where element {@code i} of the
+   * state is held in the double local {@code stateLocal + 2*i}, and the element in
+   * the double local {@code xLocal}.
+   */
+  public abstract void emitUpdate(MethodVisitor mv, int stateLocal, int xLocal);
+
+  /**
+   * Emits the equivalent of {@link #current(double[], int)}, leaving the value on the stack
+   */
+  public void emitCurrent(MethodVisitor mv, int stateLocal) {
+    mv.visitVarInsn(DLOAD, stateLocal);
+  }
+
+  protected static int local(int stateLocal, int index) {
+    return stateLocal + (index * 2);
+  }
+
+  /**
+   * Emits the handling of a missing element: if the element is NA or NaN, it is either skipped,
+   * or, if missing values are not removed, merged into the double local {@code naLocal}
+   * as by {@link Reductions#mergeNA(double, double)}, and control jumps to {@code done}.
+   */
+  protected final void emitMissingCheck(MethodVisitor mv, int xLocal, int naLocal, Label done) {
+    Label notNaN = new Label();
+    mv.visitVarInsn(DLOAD, xLocal);
+    mv.visitVarInsn(DLOAD, xLocal);
+    mv.visitInsn(DCMPL);
+    mv.visitJumpInsn(IFEQ, notNaN);
+    if(!removeNA) {
+      mv.visitVarInsn(DLOAD, naLocal);
+      mv.visitVarInsn(DLOAD, xLocal);
+      mv.visitMethodInsn(INVOKESTATIC, "org/renjin/compiler/pipeline/reduce/Reductions", "mergeNA", "(DD)D");
+      mv.visitVarInsn(DSTORE, naLocal);
+    }
+    mv.visitJumpInsn(GOTO, done);
+    mv.visitLabel(notNaN);
+  }
+
+  /**
+   * Emits the equivalent of {@code Double.isNaN(na) ? na : value}
+   */
+  protected static void emitValueOrNA(MethodVisitor mv, int valueLocal, int naLocal) {
+    Label noNA = new Label();
+    Label done = new Label();
+    mv.visitVarInsn(DLOAD, naLocal);
+    mv.visitVarInsn(DLOAD, naLocal);
+    mv.visitInsn(DCMPL);
+    mv.visitJumpInsn(IFEQ, noNA);
+    mv.visitVarInsn(DLOAD, naLocal);
+    mv.visitJumpInsn(GOTO, done);
+    mv.visitLabel(noNA);
+    mv.visitVarInsn(DLOAD, valueLocal);
+    mv.visitLabel(done);
+  }
+
+  @Override
+  public String toString() {
+    return getName();
+  }
+}
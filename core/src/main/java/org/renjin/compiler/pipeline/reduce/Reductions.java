@@ -0,0 +1,595 @@
+package org.renjin.compiler.pipeline.reduce;
+
+import com.google.common.collect.Maps;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.renjin.sexp.DoubleArrayVector;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.Logical;
+import org.renjin.sexp.LogicalArrayVector;
+import org.renjin.sexp.Vector;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * The reductions which can be computed by the deferred pipeline, looked up by
+ * their computation names.
+ */
+public class Reductions {
+
+  private static final Map<String, Reduction> REDUCTIONS = Maps.newHashMap();
+  private static final Map<String, Reduction> SCANS = Maps.newHashMap();
+
+  static {
+    for(boolean removeNA : new boolean[] { false, true }) {
+      register(new Sum("sum", removeNA, false));
+      register(new Sum("prod", removeNA, true));
+      register(new Mean(removeNA));
+      register(new Extreme("min", removeNA, false));
+      register(new Extreme("max", removeNA, true));
+      register(new Range(removeNA));
+      register(new AnyAll("any", removeNA, true));
+      register(new AnyAll("all", removeNA, false));
+      register(new Variance(removeNA));
+    }
+    SCANS.put("cumsum", get("sum", false));
+    SCANS.put("cumprod", get("prod", false));
+    SCANS.put("cummin", get("min", false));
+    SCANS.put("cummax", get("max", false));
+  }
+
+  private static void register(Reduction reduction) {
+    REDUCTIONS.put(reduction.getName(), reduction);
+  }
+
+  /**
+   * @return the reduction with the given computation name, such as "sum" or "min.na.rm",
+   * or {@code null} if there is no such reduction
+   */
+  public static Reduction get(String computationName) {
+    return REDUCTIONS.get(computationName);
+  }
+
+  public static Reduction get(String name, boolean removeNA) {
+    Reduction reduction = REDUCTIONS.get(removeNA ? name + ".na.rm" : name);
+    if(reduction == null) {
+      throw new IllegalArgumentException("No such reduction: " + name);
+    }
+    return reduction;
+  }
+
+  /**
+   * @return the reduction whose running value is computed by the cumulative function
+   * with the given name, such as "cumsum", or {@code null} if there is no such function
+   */
+  public static Reduction getScan(String computationName) {
+    return SCANS.get(computationName);
+  }
+
+  /**
+   * Computes a reduction directly from the elements of {@code vector}
+   */
+  public static Vector reduce(Reduction reduction, Vector vector) {
+    return reduction.finish(reduceState(reduction, vector), 0, vector.length());
+  }
+
+  /**
+   * Computes the final state of a reduction directly from the elements of {@code vector}
+   */
+  public static double[] reduceState(Reduction reduction, Vector vector) {
+    double[] state = reduction.getInitialState();
+    int length = vector.length();
+    for(int i=0;i!=length;++i) {
+      reduction.update(state, 0, vector.getElementAsDouble(i));
+    }
+    return state;
+  }
+
+  /**
+   * @return the warning which R signals when {@code min} or {@code max} has no non-missing values
+   */
+  public static String noNonMissingWarning(boolean max) {
+    return max ? "no non-missing arguments to max; returning -Inf" :
+                 "no non-missing arguments to min; returning Inf";
+  }
+
+  /**
+   * Computes the running values of a reduction directly from the elements of {@code vector}
+   */
+  public static double[] scan(Reduction reduction, Vector vector) {
+    double[] state = reduction.getInitialState();
+    double[] values = new double[vector.length()];
+    for(int i=0;i!=values.length;++i) {
+      reduction.update(state, 0, vector.getElementAsDouble(i));
+      values[i] = reduction.current(state, 0);
+    }
+    return values;
+  }
+
+  /**
+   * Merges a missing value into the missing value already encountered, if any. As in
+   * GNU R, {@code NA} takes precedence over {@code NaN}.
+   *
+   * @param na the missing value encountered so far, or zero if none
+   * @param x a missing value, or zero
+   */
+  public static double mergeNA(double na, double x) {
+    if(DoubleVector.isNA(x)) {
+      return x;
+    } else if(Double.isNaN(na)) {
+      return na;
+    } else {
+      return x;
+    }
+  }
+
+  /**
+   * Sums or multiplies the elements.
+   *
+   * <p>State: the sum or product, and the missing value encountered, if any
+   */
+  private static class Sum extends Reduction {
+    private final boolean product;
+
+    private Sum(String name, boolean removeNA, boolean product) {
+      super(name, removeNA);
+      this.product = product;
+    }
+
+    @Override
+    public double[] getInitialState() {
+      return new double[] { product ? 1 : 0, 0 };
+    }
+
+    @Override
+    public void update(double[] state, int offset, double x) {
+      if(Double.isNaN(x)) {
+        if(!removeNA) {
+          state[offset+1] = mergeNA(state[offset+1], x);
+        }
+      } else {
+        state[offset] = product ? state[offset] * x : state[offset] + x;
+      }
+    }
+
+    @Override
+    public void combine(double[] state, int offset, double[] other) {
+      state[offset] = product ? state[offset] * other[offset] : state[offset] + other[offset];
+      state[offset+1] = mergeNA(state[offset+1], other[offset+1]);
+    }
+
+    @Override
+    public double current(double[] state, int offset) {
+      return Double.isNaN(state[offset+1]) ? state[offset+1] : state[offset];
+    }
+
+    @Override
+    public Vector finish(double[] state, int offset, int length) {
+      return new DoubleArrayVector(current(state, offset));
+    }
+
+    @Override
+    public void emitUpdate(MethodVisitor mv, int stateLocal, int xLocal) {
+      Label done = new Label();
+      emitMissingCheck(mv, xLocal, local(stateLocal, 1), done);
+      mv.visitVarInsn(DLOAD, stateLocal);
+      mv.visitVarInsn(DLOAD, xLocal);
+      mv.visitInsn(product ? DMUL : DADD);
+      mv.visitVarInsn(DSTORE, stateLocal);
+      mv.visitLabel(done);
+    }
+
+    @Override
+    public void emitCurrent(MethodVisitor mv, int stateLocal) {
+      emitValueOrNA(mv, stateLocal, local(stateLocal, 1));
+    }
+  }
+
+  /**
+   * State: sum, count, and the missing value encountered, if any
+   */
+  private static class Mean extends Reduction {
+
+    private Mean(boolean removeNA) {
+      super("mean", removeNA);
+    }
+
+    @Override
+    public double[] getInitialState() {
+      return new double[] { 0, 0, 0 };
+    }
+
+    @Override
+    public void update(double[] state, int offset, double x) {
+      if(Double.isNaN(x)) {
+        if(!removeNA) {
+          state[offset+2] = mergeNA(state[offset+2], x);
+        }
+      } else {
+        state[offset] += x;
+        state[offset+1] += 1;
+      }
+    }
+
+    @Override
+    public void combine(double[] state, int offset, double[] other) {
+      state[offset] += other[offset];
+      state[offset+1] += other[offset+1];
+      state[offset+2] = mergeNA(state[offset+2], other[offset+2]);
+    }
+
+    @Override
+    public Vector finish(double[] state, int offset, int length) {
+      double na = state[offset+2];
+      return new DoubleArrayVector(Double.isNaN(na) ? na : state[offset] / state[offset+1]);
+    }
+
+    @Override
+    public void emitUpdate(MethodVisitor mv, int stateLocal, int xLocal) {
+      Label done = new Label();
+      emitMissingCheck(mv, xLocal, local(stateLocal, 2), done);
+      mv.visitVarInsn(DLOAD, stateLocal);
+      mv.visitVarInsn(DLOAD, xLocal);
+      mv.visitInsn(DADD);
+      mv.visitVarInsn(DSTORE, stateLocal);
+
+      mv.visitVarInsn(DLOAD, local(stateLocal, 1));
+      mv.visitInsn(DCONST_1);
+      mv.visitInsn(DADD);
+      mv.visitVarInsn(DSTORE, local(stateLocal, 1));
+      mv.visitLabel(done);
+    }
+  }
+
+  /**
+   * State: the extreme value so far, the missing value encountered, if any, and whether
+   * any non-missing value has been seen, as 0 or 1
+   */
+  private static class Extreme extends Reduction {
+    private final boolean max;
+
+    private Extreme(String name, boolean removeNA, boolean max) {
+      super(name, removeNA);
+      this.max = max;
+    }
+
+    @Override
+    public double[] getInitialState() {
+      return new double[] { max ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY, 0, 0 };
+    }
+
+    @Override
+    public void update(double[] state, int offset, double x) {
+      if(Double.isNaN(x)) {
+        if(!removeNA) {
+          state[offset+1] = mergeNA(state[offset+1], x);
+        }
+      } else {
+        if(max ? x > state[offset] : x < state[offset]) {
+          state[offset] = x;
+        }
+        state[offset+2] = 1;
+      }
+    }
+
+    @Override
+    public void combine(double[] state, int offset, double[] other) {
+      state[offset] = max ? Math.max(state[offset], other[offset]) : Math.min(state[offset], other[offset]);
+      state[offset+1] = mergeNA(state[offset+1], other[offset+1]);
+      state[offset+2] = Math.max(state[offset+2], other[offset+2]);
+    }
+
+    @Override
+    public List<String> getWarnings(double[] state, int offset) {
+      if(state[offset+2] == 0 && !Double.isNaN(state[offset+1])) {
+        return Collections.singletonList(noNonMissingWarning(max));
+      }
+      return Collections.emptyList();
+    }
+
+    @Override
+    public double current(double[] state, int offset) {
+      return Double.isNaN(state[offset+1]) ? state[offset+1] : state[offset];
+    }
+
+    @Override
+    public Vector finish(double[] state, int offset, int length) {
+      return new DoubleArrayVector(current(state, offset));
+    }
+
+    @Override
+    public void emitUpdate(MethodVisitor mv, int stateLocal, int xLocal) {
+      Label done = new Label();
+      emitMissingCheck(mv, xLocal, local(stateLocal, 1), done);
+      emitCompareAndStore(mv, stateLocal, xLocal, max);
+      emitSeen(mv, local(stateLocal, 2));
+      mv.visitLabel(done);
+    }
+
+    @Override
+    public void emitCurrent(MethodVisitor mv, int stateLocal) {
+      emitValueOrNA(mv, stateLocal, local(stateLocal, 1));
+    }
+  }
+
+  /**
+   * Emits {@code seen = 1}, for an element which is known not to be NaN.
+   */
+  private static void emitSeen(MethodVisitor mv, int seenLocal) {
+    mv.visitInsn(DCONST_1);
+    mv.visitVarInsn(DSTORE, seenLocal);
+  }
+
+  /**
+   * Emits {@code if(x > m) m = x}, or {@code if(x < m) m = x}, for an element which is
+   * known not to be NaN.
+   */
+  private static void emitCompareAndStore(MethodVisitor mv, int extremeLocal, int xLocal, boolean max) {
+    Label skip = new Label();
+    mv.visitVarInsn(DLOAD, xLocal);
+    mv.visitVarInsn(DLOAD, extremeLocal);
+    if(max) {
+      mv.visitInsn(DCMPL);
+      mv.visitJumpInsn(IFLE, skip);
+    } else {
+      mv.visitInsn(DCMPG);
+      mv.visitJumpInsn(IFGE, skip);
+    }
+    mv.visitVarInsn(DLOAD, xLocal);
+    mv.visitVarInsn(DSTORE, extremeLocal);
+    mv.visitLabel(skip);
+  }
+
+  /**
+   * State: minimum, maximum, the missing value encountered, if any, and whether any
+   * non-missing value has been seen, as 0 or 1
+   */
+  private static class Range extends Reduction {
+
+    private Range(boolean removeNA) {
+      super("range", removeNA);
+    }
+
+    @Override
+    public int getResultLength() {
+      return 2;
+    }
+
+    @Override
+    public double[] getInitialState() {
+      return new double[] { Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 0, 0 };
+    }
+
+    @Override
+    public void update(double[] state, int offset, double x) {
+      if(Double.isNaN(x)) {
+        if(!removeNA) {
+          state[offset+2] = mergeNA(state[offset+2], x);
+        }
+      } else {
+        if(x < state[offset]) {
+          state[offset] = x;
+        }
+        if(x > state[offset+1]) {
+          state[offset+1] = x;
+        }
+        state[offset+3] = 1;
+      }
+    }
+
+    @Override
+    public void combine(double[] state, int offset, double[] other) {
+      state[offset] = Math.min(state[offset], other[offset]);
+      state[offset+1] = Math.max(state[offset+1], other[offset+1]);
+      state[offset+2] = mergeNA(state[offset+2], other[offset+2]);
+      state[offset+3] = Math.max(state[offset+3], other[offset+3]);
+    }
+
+    @Override
+    public List<String> getWarnings(double[] state, int offset) {
+      if(state[offset+3] == 0 && !Double.isNaN(state[offset+2])) {
+        // range() is computed by R as c(min(x), max(x))
+        return Arrays.asList(noNonMissingWarning(false), noNonMissingWarning(true));
+      }
+      return Collections.emptyList();
+    }
+
+    @Override
+    public Vector finish(double[] state, int offset, int length) {
+      double na = state[offset+2];
+      if(Double.isNaN(na)) {
+        return new DoubleArrayVector(na, na);
+      } else {
+        return new DoubleArrayVector(state[offset], state[offset+1]);
+      }
+    }
+
+    @Override
+    public void emitUpdate(MethodVisitor mv, int stateLocal, int xLocal) {
+      Label done = new Label();
+      emitMissingCheck(mv, xLocal, local(stateLocal, 2), done);
+      emitCompareAndStore(mv, local(stateLocal, 0), xLocal, false);
+      emitCompareAndStore(mv, local(stateLocal, 1), xLocal, true);
+      emitSeen(mv, local(stateLocal, 3));
+      mv.visitLabel(done);
+    }
+  }
+
+  /**
+   * State: whether a deciding element (non-zero for {@code any}, zero for {@code all})
+   * has been seen, and whether a missing value has been seen, each as 0 or 1.
+   */
+  private static class AnyAll extends Reduction {
+    private final boolean any;
+
+    private AnyAll(String name, boolean removeNA, boolean any) {
+      super(name, removeNA);
+      this.any = any;
+    }
+
+    @Override
+    public double[] getInitialState() {
+      return new double[] { 0, 0 };
+    }
+
+    @Override
+    public void update(double[] state, int offset, double x) {
+      if(Double.isNaN(x)) {
+        if(!removeNA) {
+          state[offset+1] = 1;
+        }
+      } else if(any ? x != 0 : x == 0) {
+        state[offset] = 1;
+      }
+    }
+
+    @Override
+    public void combine(double[] state, int offset, double[] other) {
+      state[offset] = Math.max(state[offset], other[offset]);
+      state[offset+1] = Math.max(state[offset+1], other[offset+1]);
+    }
+
+    @Override
+    public Vector finish(double[] state, int offset, int length) {
+      if(state[offset] != 0) {
+        return new LogicalArrayVector(any ? Logical.TRUE : Logical.FALSE);
+      } else if(state[offset+1] != 0) {
+        return new LogicalArrayVector(Logical.NA);
+      } else {
+        return new LogicalArrayVector(any ? Logical.FALSE : Logical.TRUE);
+      }
+    }
+
+    @Override
+    public void emitUpdate(MethodVisitor mv, int stateLocal, int xLocal) {
+      Label notNaN = new Label();
+      Label done = new Label();
+      mv.visitVarInsn(DLOAD, xLocal);
+      mv.visitVarInsn(DLOAD, xLocal);
+      mv.visitInsn(DCMPL);
+      mv.visitJumpInsn(IFEQ, notNaN);
+      if(!removeNA) {
+        mv.visitInsn(DCONST_1);
+        mv.visitVarInsn(DSTORE, local(stateLocal, 1));
+      }
+      mv.visitJumpInsn(GOTO, done);
+
+      mv.visitLabel(notNaN);
+      mv.visitVarInsn(DLOAD, xLocal);
+      mv.visitInsn(DCONST_0);
+      mv.visitInsn(DCMPL);
+      mv.visitJumpInsn(any ? IFEQ : IFNE, done);
+      mv.visitInsn(DCONST_1);
+      mv.visitVarInsn(DSTORE, stateLocal);
+      mv.visitLabel(done);
+    }
+  }
+
+  /**
+   * The sample variance, computed in a single pass with Welford's method, and combined
+   * with the pairwise update of Chan, Golub and LeVeque. As for {@code var(x)} in GNU R, the
+   * result is NA if there is any missing value, or fewer than two values.
+   *
+   * <p>State: count, mean, sum of squared deviations from the mean, and the missing value
+   * encountered, if any
+   */
+  private static class Variance extends Reduction {
+
+    private Variance(boolean removeNA) {
+      super("var", removeNA);
+    }
+
+    @Override
+    public double[] getInitialState() {
+      return new double[] { 0, 0, 0, 0 };
+    }
+
+    @Override
+    public void update(double[] state, int offset, double x) {
+      if(Double.isNaN(x)) {
+        if(!removeNA) {
+          state[offset+3] = mergeNA(state[offset+3], x);
+        }
+      } else {
+        double n = state[offset] + 1;
+        double delta = x - state[offset+1];
+        double mean = state[offset+1] + delta / n;
+        state[offset] = n;
+        state[offset+1] = mean;
+        state[offset+2] += delta * (x - mean);
+      }
+    }
+
+    @Override
+    public void combine(double[] state, int offset, double[] other) {
+      state[offset+3] = mergeNA(state[offset+3], other[offset+3]);
+
+      double n1 = state[offset];
+      double n2 = other[offset];
+      if(n2 == 0) {
+        return;
+      }
+      double n = n1 + n2;
+      double delta = other[offset+1] - state[offset+1];
+      state[offset] = n;
+      state[offset+1] = state[offset+1] + delta * n2 / n;
+      state[offset+2] = state[offset+2] + other[offset+2] + delta * delta * n1 * n2 / n;
+    }
+
+    @Override
+    public Vector finish(double[] state, int offset, int length) {
+      double n = state[offset];
+      if(n < 2 || Double.isNaN(state[offset+3])) {
+        return new DoubleArrayVector(DoubleVector.NA);
+      }
+      return new DoubleArrayVector(state[offset+2] / (n - 1));
+    }
+
+    @Override
+    public void emitUpdate(MethodVisitor mv, int stateLocal, int xLocal) {
+      int nLocal = local(stateLocal, 0);
+      int meanLocal = local(stateLocal, 1);
+      int m2Local = local(stateLocal, 2);
+
+      Label done = new Label();
+      emitMissingCheck(mv, xLocal, local(stateLocal, 3), done);
+
+      // n = n + 1
+      mv.visitVarInsn(DLOAD, nLocal);
+      mv.visitInsn(DCONST_1);
+      mv.visitInsn(DADD);
+      mv.visitVarInsn(DSTORE, nLocal);
+
+      // push m2 and (x - mean), before the mean is updated
+      mv.visitVarInsn(DLOAD, m2Local);
+      mv.visitVarInsn(DLOAD, xLocal);
+      mv.visitVarInsn(DLOAD, meanLocal);
+      mv.visitInsn(DSUB);
+
+      // mean = mean + (x - mean) / n
+      mv.visitVarInsn(DLOAD, meanLocal);
+      mv.visitVarInsn(DLOAD, xLocal);
+      mv.visitVarInsn(DLOAD, meanLocal);
+      mv.visitInsn(DSUB);
+      mv.visitVarInsn(DLOAD, nLocal);
+      mv.visitInsn(DDIV);
+      mv.visitInsn(DADD);
+      mv.visitVarInsn(DSTORE, meanLocal);
+
+      // m2 = m2 + (x - oldMean) * (x - mean)
+      mv.visitVarInsn(DLOAD, xLocal);
+      mv.visitVarInsn(DLOAD, meanLocal);
+      mv.visitInsn(DSUB);
+      mv.visitInsn(DMUL);
+      mv.visitInsn(DADD);
+      mv.visitVarInsn(DSTORE, m2Local);
+
+      mv.visitLabel(done);
+    }
+  }
+}
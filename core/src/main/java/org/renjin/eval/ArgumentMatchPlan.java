@@ -0,0 +1,163 @@
+package org.renjin.eval;
+
+import org.renjin.sexp.*;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * The outcome of matching the actual arguments of a call to the formals of a closure,
+ * recorded as positions rather than values, so that it can be reused by later calls
+ * from the same {@link FunctionCall} with the same shape.
+ *
+ * <p>A plan depends only on the closure's formals and on the tags of the actual arguments,
+ * never on their values. It is valid for any later call to the same formals whose
+ * (expanded) actual arguments have the same tags in the same order.
+ *
+ * <p>Plans are computed by {@link ClosureDispatcher#matchArguments(PairList, PairList)} itself, so
+ * they follow the same exact, partial and positional matching rules. Instances are immutable so that
+ * they can be safely shared between threads evaluating the same call.
+ */
+public final class ArgumentMatchPlan {
+
+  private static final int MISSING = -1;
+  private static final int DOTS = -2;
+
+  /**
+   * Placeholder recorded on call sites whose plan no longer applied, which
+   * match their arguments without a plan from then on. It applies to no arguments.
+   */
+  public static final ArgumentMatchPlan UNCACHEABLE = new ArgumentMatchPlan(null, new SEXP[0],
+      new Symbol[0], new SEXP[0], new int[0], new int[0]);
+
+  private final PairList formals;
+
+  /**
+   * The raw tags of the actual arguments: a {@code Symbol} or {@code Null.INSTANCE}
+   */
+  private final SEXP[] actualTags;
+
+  private final Symbol[] formalNames;
+  private final SEXP[] defaultValues;
+
+  /**
+   * For each formal, the index of the actual argument bound to it, or {@code MISSING}, or {@code DOTS}
+   */
+  private final int[] actualIndexes;
+
+  /**
+   * The indexes of the actual arguments collected by {@code ...}
+   */
+  private final int[] dotsIndexes;
+
+  private ArgumentMatchPlan(PairList formals, SEXP[] actualTags, Symbol[] formalNames, SEXP[] defaultValues,
+                            int[] actualIndexes, int[] dotsIndexes) {
+    this.formals = formals;
+    this.actualTags = actualTags;
+    this.formalNames = formalNames;
+    this.defaultValues = defaultValues;
+    this.actualIndexes = actualIndexes;
+    this.dotsIndexes = dotsIndexes;
+  }
+
+  /**
+   * Matches {@code actuals} to {@code formals} and records the result as a plan.
+   *
+   * @throws EvalException if the arguments cannot be matched
+   */
+  public static ArgumentMatchPlan compute(PairList formals, PairList actuals) {
+
+    // match placeholders carrying the position of each actual argument
+    int actualCount = actuals.length();
+    SEXP[] actualTags = new SEXP[actualCount];
+    PairList.Builder placeholders = new PairList.Builder();
+    int actualIndex = 0;
+    for(PairList.Node node : actuals.nodes()) {
+      actualTags[actualIndex] = node.getRawTag();
+      placeholders.add(node.getRawTag(), new IntArrayVector(actualIndex));
+      actualIndex++;
+    }
+
+    Map<Symbol, SEXP> matched = new IdentityHashMap<Symbol, SEXP>();
+    for(PairList.Node node : ClosureDispatcher.matchArguments(formals, placeholders.build()).nodes()) {
+      matched.put(node.getTag(), node.getValue());
+    }
+
+    int formalCount = formals.length();
+    Symbol[] formalNames = new Symbol[formalCount];
+    SEXP[] defaultValues = new SEXP[formalCount];
+    int[] actualIndexes = new int[formalCount];
+    int[] dotsIndexes = new int[0];
+
+    int formalIndex = 0;
+    for(PairList.Node formal : formals.nodes()) {
+      SEXP placeholder = matched.get(formal.getTag());
+      formalNames[formalIndex] = formal.getTag();
+      defaultValues[formalIndex] = formal.getValue();
+      if(placeholder == Symbol.MISSING_ARG) {
+        actualIndexes[formalIndex] = MISSING;
+      } else if(Symbols.ELLIPSES.equals(formal.getTag())) {
+        actualIndexes[formalIndex] = DOTS;
+        dotsIndexes = new int[placeholder.length()];
+        int dotsIndex = 0;
+        if(placeholder instanceof PairList) {
+          for(PairList.Node node : ((PairList) placeholder).nodes()) {
+            dotsIndexes[dotsIndex++] = ((IntVector) node.getValue()).getElementAsInt(0);
+          }
+        }
+      } else {
+        actualIndexes[formalIndex] = ((IntVector) placeholder).getElementAsInt(0);
+      }
+      formalIndex++;
+    }
+
+    return new ArgumentMatchPlan(formals, actualTags, formalNames, defaultValues, actualIndexes, dotsIndexes);
+  }
+
+  /**
+   * @return true if this plan can be used to match {@code actuals} to {@code formals}
+   */
+  public boolean appliesTo(PairList formals, PairList actuals) {
+    if(this.formals != formals) {
+      return false;
+    }
+    int actualIndex = 0;
+    for(PairList.Node node : actuals.nodes()) {
+      if(actualIndex == actualTags.length || node.getRawTag() != actualTags[actualIndex]) {
+        return false;
+      }
+      actualIndex++;
+    }
+    return actualIndex == actualTags.length;
+  }
+
+  /**
+   * Binds the actual arguments to the formals in {@code innerEnv}, as
+   * {@link ClosureDispatcher#matchArgumentsInto(PairList, PairList, Context, Environment)} would.
+   */
+  public void bind(PairList actuals, Environment innerEnv) {
+    SEXP[] values = new SEXP[actualTags.length];
+    int actualIndex = 0;
+    for(PairList.Node node : actuals.nodes()) {
+      values[actualIndex++] = node.getValue();
+    }
+
+    for(int i = 0; i != formalNames.length; ++i) {
+      int index = actualIndexes[i];
+      SEXP value;
+      if(index == DOTS) {
+        PromisePairList.Builder promises = new PromisePairList.Builder();
+        for(int dotsIndex : dotsIndexes) {
+          promises.add(actualTags[dotsIndex], values[dotsIndex]);
+        }
+        value = promises.build();
+      } else {
+        value = index == MISSING ? Symbol.MISSING_ARG : values[index];
+        if(value == Symbol.MISSING_ARG && defaultValues[i] != Symbol.MISSING_ARG) {
+          value = Promise.repromise(innerEnv, defaultValues[i]);
+        }
+      }
+      innerEnv.setVariable(formalNames[i], value);
+    }
+  }
+}
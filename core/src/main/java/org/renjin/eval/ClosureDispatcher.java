@@ -71,7 +71,7 @@ public class ClosureDispatcher {
     Environment functionEnvironment = functionContext.getEnvironment();
 
     try {
-      matchArgumentsInto(closure.getFormals(), promisedArgs, functionContext, functionEnvironment);
+      matchArgumentsInto(call, closure.getFormals(), promisedArgs, functionContext, functionEnvironment);
 
       if(dispatchChain != null) {
         dispatchChain.populateEnvironment(functionEnvironment);
@@ -114,6 +114,35 @@ public class ClosureDispatcher {
     return null;
   }
   
+  /**
+   * Binds the actual arguments of {@code call} to the formals, reusing the plan
+   * recorded on the call if the arguments have the same shape as the last time.
+   *
+   * <p>Call sites which call closures with different formals, or with arguments of
+   * different shapes, such as {@code UseMethod} or {@code do.call}, would have to
+   * compute a new plan on every call. After the first such miss the call site is marked as
+   * {@link ArgumentMatchPlan#UNCACHEABLE} and its arguments are matched directly.
+   */
+  public static void matchArgumentsInto(FunctionCall call, PairList formals, PairList actuals,
+      Context innerContext, Environment innerEnv) {
+
+    if(call == null) {
+      matchArgumentsInto(formals, actuals, innerContext, innerEnv);
+      return;
+    }
+    ArgumentMatchPlan plan = call.getMatchPlan();
+    if(plan == null) {
+      plan = ArgumentMatchPlan.compute(formals, actuals);
+      call.setMatchPlan(plan);
+
+    } else if(plan == ArgumentMatchPlan.UNCACHEABLE || !plan.appliesTo(formals, actuals)) {
+      call.setMatchPlan(ArgumentMatchPlan.UNCACHEABLE);
+      matchArgumentsInto(formals, actuals, innerContext, innerEnv);
+      return;
+    }
+    plan.bind(actuals, innerEnv);
+  }
+
   public static void matchArgumentsInto(PairList formals, PairList actuals, 
       Context innerContext, Environment innerEnv) {
 
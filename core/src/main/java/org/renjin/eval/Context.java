@@ -27,6 +27,7 @@ import java.io.InputStreamReader;
 import java.io.Reader;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
@@ -35,11 +36,14 @@ import org.renjin.base.BaseFrame;
 import org.renjin.compiler.pipeline.VectorPipeliner;
 import org.renjin.parser.RParser;
 import org.renjin.primitives.packaging.NamespaceRegistry;
+import org.renjin.primitives.summary.DeferredReduction;
 import org.renjin.primitives.vector.DeferredComputation;
+import org.renjin.primitives.vector.MemoizedComputation;
 import org.renjin.sexp.*;
 
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 /**
  * Contexts are the internal mechanism used to keep track of where a
@@ -163,18 +167,43 @@ public class Context {
   
   /**
    * If the S-Expression is an {@code DeferredComputation}, then it is executed with the
-   * VectorPipeliner.
+   * VectorPipeliner. Warnings of the {@code DeferredReduction}s computed here are signaled
+   * in this context.
    * @param sexp
    * @return
    */
   public SEXP materialize(SEXP sexp) {
     if(sexp instanceof DeferredComputation && !((DeferredComputation) sexp).isConstantAccessTime()) {
-      return session.getVectorEngine().materialize((DeferredComputation)sexp);
+      List<DeferredReduction> reductions = Lists.newArrayList();
+      findPendingReductions(sexp, reductions, Sets.<SEXP>newIdentityHashSet());
+      SEXP result = session.getVectorEngine().materialize((DeferredComputation)sexp);
+      for(DeferredReduction reduction : reductions) {
+        reduction.signalWarnings(this);
+      }
+      return result;
     } else {
       return sexp;
     }
   }
 
+  /**
+   * Finds the reductions in the graph of {@code sexp} which have not yet been computed
+   */
+  private static void findPendingReductions(SEXP sexp, List<DeferredReduction> reductions, Set<SEXP> visited) {
+    if(!(sexp instanceof DeferredComputation) || !visited.add(sexp)) {
+      return;
+    }
+    if(sexp instanceof MemoizedComputation && ((MemoizedComputation) sexp).isCalculated()) {
+      return;
+    }
+    if(sexp instanceof DeferredReduction) {
+      reductions.add((DeferredReduction) sexp);
+    }
+    for(Vector operand : ((DeferredComputation) sexp).getOperands()) {
+      findPendingReductions(operand, reductions, visited);
+    }
+  }
+
   public SEXP simplify(SEXP sexp) {
     if(sexp instanceof DeferredComputation &&
         ((DeferredComputation) sexp).getComputationDepth() > VectorPipeliner.MAX_DEPTH) {
@@ -257,14 +286,15 @@ public class Context {
 
   private SEXP evaluateCall(FunctionCall call, Environment rho) {
     clearInvisibleFlag();
-    Function functionExpr = evaluateFunction(call.getFunction(), rho);
+    Function functionExpr = evaluateFunction(call, rho);
     return functionExpr.apply(this, rho, call, call.getArguments());
   }
 
-  private Function evaluateFunction(SEXP functionExp, Environment rho) {
+  private Function evaluateFunction(FunctionCall call, Environment rho) {
+    SEXP functionExp = call.getFunction();
     if(functionExp instanceof Symbol) {
       Symbol symbol = (Symbol) functionExp;
-      Function fn = rho.findFunction(this, symbol);
+      Function fn = findFunction(call, symbol, rho);
       if(fn == null) {
         throw new EvalException("could not find function '%s'", symbol.getPrintName());      
       }
@@ -278,6 +308,47 @@ public class Context {
     }
   }
 
+  /**
+   * Resolves the function named by {@code symbol}, using the call's {@link InlineCache} to
+   * skip the search of the enclosing environments if none of them have changed since the
+   * last time this call was evaluated.
+   */
+  private Function findFunction(FunctionCall call, Symbol symbol, Environment rho) {
+    if(rho == Environment.EMPTY) {
+      return null;
+    }
+    Frame frame = rho.getFrame();
+    if(frame.isMissingArgument(symbol)) {
+      throw new EvalException("argument '%s' is missing, with no default", symbol.toString());
+    }
+    Function fn = frame.getFunction(this, symbol);
+    if(fn != null) {
+      return fn;
+    }
+    Environment parent = rho.getParent();
+    InlineCache cache = call.getInlineCache();
+    if(cache != null) {
+      fn = cache.lookup(symbol, parent);
+      if(fn != null) {
+        return fn;
+      }
+    }
+    // record the versions before the search, so that modifications made while forcing
+    // promises during the search invalidate the entry
+    EnvironmentPath path = EnvironmentPath.record(parent);
+    Environment definingEnvironment = parent.findFunctionEnvironment(this, symbol);
+    if(definingEnvironment == null) {
+      return null;
+    }
+    fn = definingEnvironment.getFrame().getFunction(this, symbol);
+    path = path.upTo(definingEnvironment);
+    if(path != null) {
+      call.setInlineCache(new InlineCache(symbol, path,
+          definingEnvironment.getFrame().getVariable(symbol), fn));
+    }
+    return fn;
+  }
+
   /**
    *
    * @return the {@link FileSystemManager} associated with this Context. All R primitives that
@@ -350,6 +421,17 @@ public class Context {
     return nframe;
   }
 
+  /**
+   * Notifies the closure being evaluated in this context, if any, that a
+   * loop has started a new iteration. Used to identify hot closures for
+   * compilation.
+   */
+  public void onLoopBackEdge() {
+    if(closure != null) {
+      closure.onLoopBackEdge();
+    }
+  }
+
   public Context getParent() {
     return parent;
   }
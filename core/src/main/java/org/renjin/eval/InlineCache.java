@@ -0,0 +1,51 @@
+package org.renjin.eval;
+
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.EnvironmentPath;
+import org.renjin.sexp.Function;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Symbol;
+
+/**
+ * Monomorphic inline cache attached to a {@link org.renjin.sexp.FunctionCall}, recording
+ * the function to which the call's symbol was last resolved.
+ *
+ * <p>The lookup is cached starting from the <em>parent</em> of the evaluation environment: within
+ * a closure body the evaluation environment is new for every invocation, but its parent,
+ * the closure's enclosing environment, is not. The entry is valid as long as none of the
+ * environments from that parent up to the one in which the function was found has changed,
+ * and the symbol is still bound to the same value in the latter.
+ *
+ * <p>Instances are immutable so that they can be safely shared between threads evaluating
+ * the same call.
+ */
+public final class InlineCache {
+
+  private final Symbol symbol;
+  private final EnvironmentPath path;
+  private final SEXP binding;
+  private final Function function;
+
+  /**
+   * @param path the environments searched, ending with the one in which the function was found
+   * @param binding the value bound to {@code symbol} in the last environment of {@code path}
+   */
+  InlineCache(Symbol symbol, EnvironmentPath path, SEXP binding, Function function) {
+    this.symbol = symbol;
+    this.path = path;
+    this.binding = binding;
+    this.function = function;
+  }
+
+  /**
+   * @return the cached function, or {@code null} if the cache does not apply to a lookup
+   * of {@code symbol} starting from {@code start}.
+   */
+  Function lookup(Symbol symbol, Environment start) {
+    if(this.symbol == symbol && path.getStart() == start && path.isCurrent() &&
+        path.getEnd().getFrame().getVariable(symbol) == binding) {
+      return function;
+    }
+    return null;
+  }
+}
@@ -36,6 +36,15 @@ public class Options {
     map.put("OutDec", new StringArrayVector("."));
   }
 
+  /**
+   * @return a new set of options, initialized to the values of this one.
+   */
+  public Options copy() {
+    Options copy = new Options();
+    copy.map.putAll(map);
+    return copy;
+  }
+
   public SEXP get(String name) {
     SEXP value = map.get(name);
     return value == null ? Null.INSTANCE : value;
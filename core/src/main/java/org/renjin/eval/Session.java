@@ -2,12 +2,15 @@ package org.renjin.eval;
 
 import java.io.IOException;
 import java.io.PrintWriter;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemManager;
+import org.renjin.compiler.pipeline.DeferredJitCache;
+import org.renjin.compiler.pipeline.JitStatistics;
 import org.renjin.compiler.pipeline.MultiThreadedVectorPipeliner;
 import org.renjin.compiler.pipeline.SimpleVectorPipeliner;
 import org.renjin.compiler.pipeline.VectorPipeliner;
@@ -16,9 +19,12 @@ import org.renjin.primitives.packaging.NamespaceRegistry;
 import org.renjin.primitives.packaging.PackageLoader;
 import org.renjin.sexp.Environment;
 import org.renjin.sexp.IntVector;
+import org.renjin.sexp.OverlayFrame;
+import org.renjin.sexp.SEXP;
 import org.renjin.sexp.StringArrayVector;
 import org.renjin.sexp.StringVector;
 import org.renjin.sexp.Symbol;
+import org.renjin.sexp.Symbols;
 import org.renjin.stats.internals.distributions.RNG;
 import org.renjin.util.FileSystemUtils;
 
@@ -87,6 +93,13 @@ public class Session {
   
   private VectorPipeliner vectorPipeliner;
 
+  /**
+   * For a forked session, the top level context of the session from which it was forked,
+   * and the map from that session's environments to the corresponding environments of this one.
+   */
+  private final Context parentContext;
+  private final Map<Environment, Environment> parentEnvironments;
+
   /**
    * Whether the result of the evaluation should be "invisible" in a
    * REPL
@@ -104,6 +117,8 @@ public class Session {
     this.baseNamespaceEnv = Environment.createBaseNamespaceEnvironment(globalEnvironment);
     this.baseNamespaceEnv.setVariable(Symbol.get(".BaseNamespaceEnv"), baseNamespaceEnv);
     this.topLevelContext = new Context(this);
+    this.parentContext = null;
+    this.parentEnvironments = Maps.newIdentityHashMap();
 
     namespaceRegistry = new NamespaceRegistry((PackageLoader) bindings.get(PackageLoader.class),  topLevelContext, baseNamespaceEnv);
     securityManager = new SecurityManager(); 
@@ -120,6 +135,95 @@ public class Session {
     globalEnvironment.setVariable(".Random.seed", IntVector.valueOf(1)); 
   }
 
+  /**
+   * Creates a new session which shares the global and base environments of
+   * {@code parent} copy-on-write.
+   */
+  private Session(Session parent) {
+    this.fileSystemManager = parent.fileSystemManager;
+    this.homeDirectory = parent.homeDirectory;
+    this.workingDirectory = parent.workingDirectory;
+    this.systemEnvironment = Maps.newHashMap(parent.systemEnvironment);
+    this.commandLineArguments = parent.commandLineArguments;
+    this.vectorPipeliner = parent.vectorPipeliner;
+
+    // values read from the parent's frames are rebound to our own environments
+    Map<Environment, Environment> environments = Maps.newIdentityHashMap();
+    Context parentContext = parent.topLevelContext;
+    this.globalEnvironment = Environment.createGlobalEnvironment(
+        new OverlayFrame(parent.globalEnvironment.getFrame(), parentContext, environments),
+        new OverlayFrame(parent.baseEnvironment.getFrame(), parentContext, environments));
+    this.baseEnvironment = globalEnvironment.getBaseEnvironment();
+    this.baseNamespaceEnv = Environment.createBaseNamespaceEnvironment(globalEnvironment);
+    this.baseNamespaceEnv.setVariable(Symbol.get(".BaseNamespaceEnv"), baseNamespaceEnv);
+    environments.put(parent.globalEnvironment, globalEnvironment);
+    environments.put(parent.baseEnvironment, baseEnvironment);
+    environments.put(parent.baseNamespaceEnv, baseNamespaceEnv);
+
+    this.topLevelContext = new Context(this);
+    this.parentContext = parentContext;
+    this.parentEnvironments = environments;
+    this.namespaceRegistry = new NamespaceRegistry(parent.namespaceRegistry.getPackageLoader(),
+        topLevelContext, baseNamespaceEnv);
+    this.namespaceRegistry.shareNamespaces(parent.namespaceRegistry, parentContext, environments);
+
+    // attach the same packages, in the same order, sharing their exports copy-on-write
+    List<Environment> attached = Lists.newArrayList();
+    Environment env = parent.globalEnvironment.getParent();
+    while(env != parent.baseEnvironment && env != Environment.EMPTY) {
+      attached.add(env);
+      env = env.getParent();
+    }
+    for(Environment packageEnv : Lists.reverse(attached)) {
+      Environment copy = globalEnvironment.insertAbove(
+          new OverlayFrame(packageEnv.getFrame(), parentContext, environments));
+      copy.setAttribute(Symbols.NAME, packageEnv.getAttribute(Symbols.NAME));
+      environments.put(packageEnv, copy);
+    }
+    this.securityManager = new SecurityManager();
+    this.singletons.put(Options.class, parent.getSingleton(Options.class).copy());
+  }
+
+  /**
+   * Creates a new session that shares the already loaded base package and the
+   * contents of the global environment with this session.
+   *
+   * <p>The new session's global and base environments are initially empty
+   * {@link OverlayFrame}s: variables are read from this session's frames, and
+   * assignments are recorded only in the new session. Closures are rebound to the
+   * new session's environments the first time they are looked up, so creating a
+   * fork is cheap and each fork only uses memory for what it reads or modifies.
+   * Unnamed environments reachable from the global environment, such as those captured
+   * by closures, are copied in the same way, so that assignments to them, including with
+   * {@code <<-}, are not visible to this session. Their unevaluated promises are evaluated
+   * by the fork, and remain unevaluated in this session.
+   *
+   * <p>This session acts as a template and should not be modified once it has been forked.
+   * Packages attached to this session's search path are attached to the fork as well, and
+   * their exports and all loaded namespaces are shared copy-on-write in the same way, so that
+   * closures of those packages are rebound to the fork's copies of their namespaces, and the
+   * lazily loaded values of the namespaces are evaluated by the fork. Namespaces which are
+   * not yet loaded are loaded again by the fork if needed.
+   * Options are copied; other session state, such as the random number generator and
+   * connections, is not.
+   */
+  public Session fork() {
+    return new Session(this);
+  }
+
+  /**
+   * Translates a closure, environment or promise of the session from which this session was
+   * forked to the equivalent in this session, in the same way as values read through
+   * the global environment. Other values, and all values in a session which was not forked,
+   * are returned unchanged.
+   */
+  public SEXP adopt(SEXP value) {
+    if(parentContext == null) {
+      return value;
+    }
+    return OverlayFrame.translate(value, parentContext, parentEnvironments);
+  }
+
   /** 
    * Sets the paths in which to search for libraries.
    *
@@ -187,6 +291,15 @@ public class Session {
   public VectorPipeliner getVectorEngine() {
     return vectorPipeliner;
   }
+
+  /**
+   * @return statistics on the hits, misses and time spent compiling in the
+   * cache of jitted deferred computations. Note that this cache is shared by
+   * all sessions in the JVM.
+   */
+  public JitStatistics getJitStatistics() {
+    return DeferredJitCache.INSTANCE.getStatistics();
+  }
   
   public void setCommandLineArguments(String executableName, String... arguments) {
     commandLineArguments = new StringArrayVector(Lists.asList(executableName, arguments));
@@ -105,6 +105,7 @@ public class RecycleLoopBuilder {
   public void build() {
 
     computeResultLength();
+    hoistInvariantArguments();
     initializeBuilder();
     loop();
     copyAttributes();
@@ -144,6 +145,21 @@ public class RecycleLoopBuilder {
     }
   }
 
+  /**
+   * Converts the arguments which are not recycled once, before entering the loop,
+   * rather than once for each element. For example, {@code gsub(pattern, replacement, x)} only
+   * needs to convert {@code pattern} and {@code replacement} to strings a single time.
+   */
+  private void hoistInvariantArguments() {
+    for(JvmMethod.Argument argument : overload.getAllArguments()) {
+      if(!argument.isRecycle()) {
+        JVar var = parent.decl(codeModel._ref(argument.getClazz()), "invariant" + argument.getIndex(),
+            argumentMap.get(argument));
+        argumentMap.put(argument, var);
+      }
+    }
+  }
+
   private List<JExpression> deferredArgumentList() {
 
     // make sure all args are recycled
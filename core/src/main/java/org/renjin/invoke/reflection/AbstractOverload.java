@@ -102,6 +102,19 @@ public abstract class AbstractOverload {
   public boolean isVarArgs() {
     return varArgs;
   }
+
+  /**
+   * @return true if whether this overload {@link #accept(List) accepts} a list of arguments
+   * depends only on the number and classes of the arguments
+   */
+  public boolean acceptsByClass() {
+    for(int i=0;i!=baseArgCount;++i) {
+      if(!Converters.acceptsByClass(argumentConverters[i])) {
+        return false;
+      }
+    }
+    return !varArgs || Converters.acceptsByClass(varArgConverter);
+  }
   
   public boolean accept(List<SEXP> args) {
     if(args.size() < baseArgCount) {
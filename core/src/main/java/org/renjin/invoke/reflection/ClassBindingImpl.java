@@ -6,6 +6,7 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
@@ -22,17 +23,20 @@ import com.google.common.collect.Sets;
 
 public class ClassBindingImpl implements ClassBinding {
   
-  private static final IdentityHashMap<Class, ClassBindingImpl> TABLE = Maps.newIdentityHashMap();
+  private static final ConcurrentMap<Class, ClassBindingImpl> TABLE = Maps.newConcurrentMap();
   
   public static ClassBindingImpl get(Class clazz) {
-    synchronized (TABLE) {
-      ClassBindingImpl binding = TABLE.get(clazz);
-      if(binding == null) {
-        binding = new ClassBindingImpl(clazz);
-        TABLE.put(clazz, binding);
+    ClassBindingImpl binding = TABLE.get(clazz);
+    if(binding == null) {
+      // bindings are immutable, so if two threads bind the same class at the same
+      // time, either binding can be used
+      binding = new ClassBindingImpl(clazz);
+      ClassBindingImpl existing = TABLE.putIfAbsent(clazz, binding);
+      if(existing != null) {
+        binding = existing;
       }
-      return binding;
     }
+    return binding;
   }
   
   private Class clazz;
@@ -1,7 +1,6 @@
 package org.renjin.invoke.reflection;
 
 import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Modifier;
 import java.util.List;
 
@@ -46,25 +45,21 @@ public class ConstructorBinding implements MemberBinding {
 
   public static class Overload extends AbstractOverload {
     private Constructor constructor;
+    private Invoker invoker;
 
     
     public Overload(Constructor constructor) {
       super(constructor.getParameterTypes(), 
           constructor.getParameterAnnotations(), constructor.isVarArgs());
       this.constructor = constructor;
+      this.invoker = Invoker.of(constructor);
     }
     
    
     public Object newInstance(Context context, List<SEXP> args) {
       try {
-        return constructor.newInstance(convertArguments(context, args));
-      } catch (IllegalArgumentException e) {
-        throw new RuntimeException(e);
-      } catch (InstantiationException e) {
-        throw new RuntimeException(e);
-      } catch (IllegalAccessException e) {
-        throw new RuntimeException(e);
-      } catch (InvocationTargetException e) {
+        return invoker.invoke(null, convertArguments(context, args));
+      } catch (Exception e) {
         throw new RuntimeException(e);
       }  
     }
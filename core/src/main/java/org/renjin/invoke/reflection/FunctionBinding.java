@@ -12,7 +12,6 @@ import org.renjin.sexp.ListVector;
 import org.renjin.sexp.PairList;
 import org.renjin.sexp.SEXP;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.List;
 
@@ -24,12 +23,31 @@ public class FunctionBinding {
 
   private List<Overload> overloads = Lists.newArrayList();
   private int maxArgCount;
+
+  /**
+   * True if the choice of overload depends only on the classes of the arguments,
+   * so that the last choice can be reused for arguments of the same classes.
+   */
+  private final boolean dispatchByClass;
+
+  /**
+   * The overload chosen for the most recent call, if {@code dispatchByClass} is true
+   */
+  private volatile Dispatch lastDispatch;
   
   public FunctionBinding(Iterable<Method> overloads) {
     for(Method method : overloads) {
       addOverload(method);
     }
     AbstractOverload.sortOverloads(this.overloads);
+
+    boolean dispatchByClass = true;
+    for(Overload overload : this.overloads) {
+      if(!overload.acceptsByClass()) {
+        dispatchByClass = false;
+      }
+    }
+    this.dispatchByClass = dispatchByClass;
   }
 
   /**
@@ -57,6 +75,7 @@ public class FunctionBinding {
 
   public static class Overload extends AbstractOverload {
     private Method method;
+    private Invoker invoker;
     private Converter returnValueConverter;
     
     public Overload(Method method) {
@@ -64,12 +83,8 @@ public class FunctionBinding {
             method.getParameterAnnotations(), 
             method.isVarArgs());
       this.method = method;
+      this.invoker = Invoker.of(method);
       this.returnValueConverter = Converters.get(method.getReturnType());    
-    
-      // workaround reflection problem calling 
-      // public methods on private subclasses
-      // see http://download.oracle.com/javase/tutorial/reflect/member/methodTrouble.html
-      this.method.setAccessible(true);
     }
     
     public Class getDeclaringClass() {
@@ -82,21 +97,15 @@ public class FunctionBinding {
     
     public SEXP invoke(Context context, Object instance, List<SEXP> args) {
       Object[] converted = convertArguments(context, args);
+      Object result;
       try {
-        Object result = method.invoke(instance, converted);
-        return returnValueConverter.convertToR(result);
-        
-      } catch (IllegalArgumentException e) {
-        throw new RuntimeException(e);
-      } catch (IllegalAccessException e) {
+        result = invoker.invoke(instance, converted);
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
         throw new RuntimeException("Exception invoking " + method, e);
-      } catch (InvocationTargetException e) {
-        if(e.getCause() instanceof RuntimeException) {
-          throw (RuntimeException)e.getCause();
-        } else {
-          throw new RuntimeException(e);
-        }
       }
+      return returnValueConverter.convertToR(result);
     }
     
     @Override
@@ -135,9 +144,18 @@ public class FunctionBinding {
   }
 
   private SEXP invoke(Object instance, Context context, List<SEXP> args) {
+    // reuse the last overload if the arguments are of the same classes
+    Dispatch dispatch = lastDispatch;
+    if(dispatch != null && dispatch.matches(args)) {
+      return dispatch.overload.invoke(context, instance, args);
+    }
+
     // find overload
     for(Overload overload : overloads) {
       if(overload.accept(args)) {
+        if(dispatchByClass) {
+          lastDispatch = new Dispatch(args, overload);
+        }
         return overload.invoke(context, instance, args);
       }
     }
@@ -149,4 +167,29 @@ public class FunctionBinding {
   public String toString() {
     return getName();
   }
+
+  private static class Dispatch {
+    private final Class[] argumentClasses;
+    private final Overload overload;
+
+    private Dispatch(List<SEXP> args, Overload overload) {
+      this.argumentClasses = new Class[args.size()];
+      for(int i=0;i!=argumentClasses.length;++i) {
+        argumentClasses[i] = args.get(i).getClass();
+      }
+      this.overload = overload;
+    }
+
+    public boolean matches(List<SEXP> args) {
+      if(args.size() != argumentClasses.length) {
+        return false;
+      }
+      for(int i=0;i!=argumentClasses.length;++i) {
+        if(args.get(i).getClass() != argumentClasses[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
 }
@@ -0,0 +1,131 @@
+package org.renjin.invoke.reflection;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+
+/**
+ * Invokes a JVM method or constructor with arguments which have already been converted
+ * to their JVM types.
+ *
+ * <p>Invokers start out calling through the Reflection API. Once a method has been called
+ * {@link #GENERATE_THRESHOLD} times, a class which calls the method directly is
+ * generated by {@link InvokerGenerator}, avoiding the access checks and argument copying
+ * of {@link Method#invoke(Object, Object...)}.
+ *
+ * <p>Generation can be disabled by setting the system property {@code renjin.invoke.generate}
+ * to {@code false}.
+ */
+public abstract class Invoker {
+
+  /**
+   * The number of calls through reflection after which a direct invoker is generated
+   */
+  public static final int GENERATE_THRESHOLD = 16;
+
+  private static final boolean GENERATE = !"false".equals(System.getProperty("renjin.invoke.generate"));
+
+  protected Invoker() {
+  }
+
+  /**
+   * Invokes the method or constructor.
+   *
+   * @param instance the instance on which to invoke the method, or {@code null} for static methods
+   *                 and constructors
+   * @param arguments the converted arguments
+   * @return the return value of the method, boxed if primitive, {@code null} if {@code void},
+   * or the new instance for constructors
+   * @throws Exception any exception thrown by the method itself, which is not wrapped in an
+   * {@link InvocationTargetException}
+   */
+  public abstract Object invoke(Object instance, Object[] arguments) throws Exception;
+
+  public static Invoker of(Method method) {
+    return new TieredInvoker(method, new MethodInvoker(method));
+  }
+
+  public static Invoker of(Constructor constructor) {
+    return new TieredInvoker(constructor, new ConstructorInvoker(constructor));
+  }
+
+  private static class TieredInvoker extends Invoker {
+    private final Member member;
+    private volatile Invoker delegate;
+    private boolean generated;
+    private int calls;
+
+    private TieredInvoker(Member member, Invoker reflective) {
+      this.member = member;
+      this.delegate = reflective;
+      this.generated = !GENERATE;
+    }
+
+    @Override
+    public Object invoke(Object instance, Object[] arguments) throws Exception {
+      // the count is not synchronized; at worst the invoker is generated a few calls late, or twice
+      if(!generated && ++calls > GENERATE_THRESHOLD) {
+        generated = true;
+        Invoker direct = InvokerGenerator.generate(member);
+        if(direct != null) {
+          delegate = direct;
+        }
+      }
+      return delegate.invoke(instance, arguments);
+    }
+
+    @Override
+    public String toString() {
+      return member.toString();
+    }
+  }
+
+  private static class MethodInvoker extends Invoker {
+    private final Method method;
+
+    private MethodInvoker(Method method) {
+      this.method = method;
+      // workaround reflection problem calling
+      // public methods on private subclasses
+      // see http://download.oracle.com/javase/tutorial/reflect/member/methodTrouble.html
+      this.method.setAccessible(true);
+    }
+
+    @Override
+    public Object invoke(Object instance, Object[] arguments) throws Exception {
+      try {
+        return method.invoke(instance, arguments);
+      } catch (InvocationTargetException e) {
+        throw unwrap(e);
+      }
+    }
+  }
+
+  private static class ConstructorInvoker extends Invoker {
+    private final Constructor constructor;
+
+    private ConstructorInvoker(Constructor constructor) {
+      this.constructor = constructor;
+    }
+
+    @Override
+    public Object invoke(Object instance, Object[] arguments) throws Exception {
+      try {
+        return constructor.newInstance(arguments);
+      } catch (InvocationTargetException e) {
+        throw unwrap(e);
+      }
+    }
+  }
+
+  private static Exception unwrap(InvocationTargetException e) {
+    if(e.getCause() instanceof Error) {
+      throw (Error) e.getCause();
+    } else if(e.getCause() instanceof Exception) {
+      return (Exception) e.getCause();
+    } else {
+      return e;
+    }
+  }
+}
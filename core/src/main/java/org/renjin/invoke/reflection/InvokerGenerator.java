@@ -0,0 +1,250 @@
+package org.renjin.invoke.reflection;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Generates {@link Invoker}s which call a public method or constructor directly, unboxing
+ * and casting each argument to the declared parameter type.
+ *
+ * <p>Each invoker is defined in its own class loader, whose parent is the class loader of the
+ * method's declaring class, so that it can refer to the declaring class and the parameter types
+ * by name.
+ */
+class InvokerGenerator {
+
+  private static final Logger LOGGER = Logger.getLogger(InvokerGenerator.class.getName());
+
+  private static final String INVOKER_CLASS = Type.getInternalName(Invoker.class);
+
+  private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+  private InvokerGenerator() { }
+
+  /**
+   * @return a new invoker which calls {@code member} directly, or {@code null} if the
+   * member is not accessible from generated code
+   */
+  public static Invoker generate(Member member) {
+    InvokerClassLoader loader = new InvokerClassLoader(member.getDeclaringClass().getClassLoader());
+    if(!canGenerate(member, loader)) {
+      LOGGER.fine("Not generating invoker for " + member + ": not accessible from generated code");
+      return null;
+    }
+    String className = "org/renjin/invoke/reflection/GeneratedInvoker" + NEXT_ID.incrementAndGet();
+    try {
+      byte[] classBytes = generateClass(className, member);
+      Class invokerClass = loader.defineClass(className.replace('/', '.'), classBytes);
+      return (Invoker) invokerClass.newInstance();
+    } catch (Exception e) {
+      return failed(member, e);
+    } catch (LinkageError e) {
+      return failed(member, e);
+    }
+  }
+
+  private static Invoker failed(Member member, Throwable e) {
+    LOGGER.log(Level.FINE, "Failed to generate invoker for " + member + ", calling through reflection", e);
+    return null;
+  }
+
+  /**
+   * @return true if the member, its declaring class, and all of its parameter types are public,
+   * and can be resolved by name from {@code loader}.
+   */
+  static boolean canGenerate(Member member, ClassLoader loader) {
+    Class declaringClass = member.getDeclaringClass();
+    if(!Modifier.isPublic(member.getModifiers()) ||
+       !isAccessible(declaringClass, loader)) {
+      return false;
+    }
+    Class[] parameterTypes;
+    if(member instanceof Method) {
+      Method method = (Method) member;
+      if(!isAccessible(method.getReturnType(), loader)) {
+        return false;
+      }
+      // static interface methods cannot be called from version 6 classes
+      if(declaringClass.isInterface() && Modifier.isStatic(method.getModifiers())) {
+        return false;
+      }
+      parameterTypes = method.getParameterTypes();
+    } else {
+      if(Modifier.isAbstract(declaringClass.getModifiers())) {
+        return false;
+      }
+      parameterTypes = ((Constructor) member).getParameterTypes();
+    }
+    for(Class parameterType : parameterTypes) {
+      if(!isAccessible(parameterType, loader)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isAccessible(Class clazz, ClassLoader loader) {
+    Class elementClass = clazz;
+    while(elementClass.isArray()) {
+      elementClass = elementClass.getComponentType();
+    }
+    if(elementClass.isPrimitive()) {
+      return true;
+    }
+    if(!Modifier.isPublic(elementClass.getModifiers())) {
+      return false;
+    }
+    try {
+      return Class.forName(clazz.getName(), false, loader) == clazz;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  static byte[] generateClass(String className, Member member) {
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+    cw.visit(V1_6, ACC_PUBLIC + ACC_SUPER + ACC_FINAL, className, null, INVOKER_CLASS, null);
+
+    MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+    mv.visitCode();
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitMethodInsn(INVOKESPECIAL, INVOKER_CLASS, "<init>", "()V");
+    mv.visitInsn(RETURN);
+    mv.visitMaxs(1, 1);
+    mv.visitEnd();
+
+    // this, instance, arguments
+    mv = cw.visitMethod(ACC_PUBLIC, "invoke", "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;", null,
+        new String[] { "java/lang/Exception" });
+    mv.visitCode();
+
+    if(member instanceof Method) {
+      writeMethodCall(mv, (Method) member);
+    } else {
+      writeConstructorCall(mv, (Constructor) member);
+    }
+    mv.visitInsn(ARETURN);
+    mv.visitMaxs(1, 3);
+    mv.visitEnd();
+
+    cw.visitEnd();
+    return cw.toByteArray();
+  }
+
+  private static void writeMethodCall(MethodVisitor mv, Method method) {
+    String owner = Type.getInternalName(method.getDeclaringClass());
+    boolean isStatic = Modifier.isStatic(method.getModifiers());
+    if(!isStatic) {
+      mv.visitVarInsn(ALOAD, 1);
+      mv.visitTypeInsn(CHECKCAST, owner);
+    }
+    pushArguments(mv, method.getParameterTypes());
+
+    int opcode;
+    if(isStatic) {
+      opcode = INVOKESTATIC;
+    } else if(method.getDeclaringClass().isInterface()) {
+      opcode = INVOKEINTERFACE;
+    } else {
+      opcode = INVOKEVIRTUAL;
+    }
+    mv.visitMethodInsn(opcode, owner, method.getName(), Type.getMethodDescriptor(method));
+
+    Class returnType = method.getReturnType();
+    if(returnType == void.class) {
+      mv.visitInsn(ACONST_NULL);
+    } else if(returnType.isPrimitive()) {
+      box(mv, returnType);
+    }
+  }
+
+  private static void writeConstructorCall(MethodVisitor mv, Constructor constructor) {
+    String owner = Type.getInternalName(constructor.getDeclaringClass());
+    mv.visitTypeInsn(NEW, owner);
+    mv.visitInsn(DUP);
+    pushArguments(mv, constructor.getParameterTypes());
+    mv.visitMethodInsn(INVOKESPECIAL, owner, "<init>", Type.getConstructorDescriptor(constructor));
+  }
+
+  /**
+   * Pushes each element of the arguments array, cast or unboxed to the parameter type
+   */
+  private static void pushArguments(MethodVisitor mv, Class[] parameterTypes) {
+    for(int i=0;i!=parameterTypes.length;++i) {
+      mv.visitVarInsn(ALOAD, 2);
+      mv.visitLdcInsn(i);
+      mv.visitInsn(AALOAD);
+      if(parameterTypes[i].isPrimitive()) {
+        unbox(mv, parameterTypes[i]);
+      } else if(parameterTypes[i] != Object.class) {
+        mv.visitTypeInsn(CHECKCAST, Type.getInternalName(parameterTypes[i]));
+      }
+    }
+  }
+
+  private static void unbox(MethodVisitor mv, Class type) {
+    if(type == boolean.class) {
+      mv.visitTypeInsn(CHECKCAST, "java/lang/Boolean");
+      mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Boolean", "booleanValue", "()Z");
+    } else if(type == char.class) {
+      mv.visitTypeInsn(CHECKCAST, "java/lang/Character");
+      mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Character", "charValue", "()C");
+    } else {
+      // accept any number, as the converters may produce a different boxed type
+      // than the parameter, for example a Double for a float parameter
+      mv.visitTypeInsn(CHECKCAST, "java/lang/Number");
+      mv.visitMethodInsn(INVOKEVIRTUAL, "java/lang/Number", type.getName() + "Value",
+          "()" + Type.getDescriptor(type));
+    }
+  }
+
+  private static void box(MethodVisitor mv, Class type) {
+    String wrapper;
+    if(type == boolean.class) {
+      wrapper = "java/lang/Boolean";
+    } else if(type == char.class) {
+      wrapper = "java/lang/Character";
+    } else if(type == int.class) {
+      wrapper = "java/lang/Integer";
+    } else {
+      // byte, short, long, float, double
+      String name = type.getName();
+      wrapper = "java/lang/" + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+    mv.visitMethodInsn(INVOKESTATIC, wrapper, "valueOf", "(" + Type.getDescriptor(type) + ")L" + wrapper + ";");
+  }
+
+  /**
+   * Loads classes from the class loader of the invoked member, except for the {@link Invoker}
+   * superclass, which the member's class loader may not be able to see.
+   */
+  private static class InvokerClassLoader extends ClassLoader {
+
+    InvokerClassLoader(ClassLoader memberLoader) {
+      super(memberLoader);
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+      if(name.equals(Invoker.class.getName())) {
+        return Invoker.class;
+      }
+      return super.loadClass(name, resolve);
+    }
+
+    public Class defineClass(String name, byte[] b) {
+      return defineClass(name, b, 0, b.length);
+    }
+  }
+}
@@ -1,6 +1,5 @@
 package org.renjin.invoke.reflection;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.Collection;
 import java.util.List;
@@ -20,8 +19,11 @@ import com.google.common.collect.Lists;
  */
 public class PropertyBinding implements MemberBinding {
 
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
   private Symbol name;
   private Method getter;
+  private Invoker getterInvoker;
   private Converter getterConverter;
   
   private List<Setter> setters;
@@ -30,6 +32,7 @@ public class PropertyBinding implements MemberBinding {
       Collection<Method> setters) {
     this.name = name;
     this.getter = getter;
+    this.getterInvoker = Invoker.of(getter);
     this.getterConverter = Converters.get(getter.getReturnType());
     
     this.setters = Lists.newArrayList();
@@ -39,38 +42,31 @@ public class PropertyBinding implements MemberBinding {
   }
   
   public SEXP getValue(Object instance) {
+    Object value;
     try {
-      return getterConverter.convertToR(getter.invoke(instance));
-    } catch (IllegalArgumentException e) {
-      // shouldn't happen, we're not passing arguments to the getter!
-      throw new RuntimeException(e);
-    } catch (IllegalAccessException e) {
-      // shouldn't happen, we've already checked that the method is public
-      throw new RuntimeException(e);
-    } catch (InvocationTargetException e) {
+      value = getterInvoker.invoke(instance, NO_ARGUMENTS);
+    } catch (Exception e) {
       throw new RuntimeException(e);
     }
+    return getterConverter.convertToR(value);
   }
   
   private static class Setter {
     private Method method;
+    private Invoker invoker;
     private Converter converter;
     
     public Setter(Method method) {
       this.method = method;
+      this.invoker = Invoker.of(method);
       this.converter = Converters.get(method.getParameterTypes()[0]);
     } 
     
     public void setValue(Object instance, SEXP value) {
+      Object[] arguments = new Object[] { converter.convertToJava(value) };
       try {
-        method.invoke(instance, converter.convertToJava(value));
-      } catch (IllegalArgumentException e) {
-        // should not happen since we're handling the conversion
-        throw new RuntimeException(e);
-      } catch (IllegalAccessException e) {
-        // should not happen since we've already made sure the setter is public
-        throw new RuntimeException(e);
-      } catch (InvocationTargetException e) {
+        invoker.invoke(instance, arguments);
+      } catch (Exception e) {
         throw new EvalException("Exception thrown while calling setter '%s' on instance of class '%s'", 
             method.getName(), method.getDeclaringClass().getName());
       }
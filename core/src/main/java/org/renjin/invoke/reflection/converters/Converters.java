@@ -56,6 +56,22 @@ public class Converters  {
     }
   }
 
+  /**
+   * @return true if {@code converter} accepts or rejects an S-expression based only on its class,
+   * and not on its length or contents
+   */
+  public static boolean acceptsByClass(Converter converter) {
+    return converter instanceof BooleanConverter ||
+           converter instanceof IntegerConverter ||
+           converter instanceof LongConverter ||
+           converter instanceof DoubleConverter ||
+           converter instanceof SexpConverter ||
+           converter instanceof EnumConverter ||
+           converter instanceof StringArrayConverter ||
+           converter instanceof IntegerArrayConverter ||
+           converter instanceof DoubleArrayConverter;
+  }
+
   public static SEXP fromJava(Object obj) {
     return get(obj.getClass()).convertToR(obj);
   }
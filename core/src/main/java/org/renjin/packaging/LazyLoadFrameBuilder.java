@@ -70,6 +70,39 @@ public class LazyLoadFrameBuilder {
     indexOut.close();
   }
 
+  /**
+   * Writes the values of the environment to a single {@code image} file in the output
+   * directory, which can be read by {@link LazyLoadImage}. The file starts with an index of
+   * names, offsets and lengths, and is followed by the serialized values themselves.
+   */
+  public void buildImage(Environment env) throws IOException {
+
+    ByteArrayOutputStream data = new ByteArrayOutputStream();
+    ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+    DataOutputStream index = new DataOutputStream(indexBytes);
+
+    index.writeInt(LazyLoadImage.MAGIC);
+    index.writeInt(LazyLoadImage.VERSION);
+    index.writeInt(Iterables.size(Iterables.filter(env.namedValues(), filter)));
+
+    for(NamedValue namedValue : Iterables.filter(env.namedValues(), filter)) {
+      byte[] bytes = serializeSymbol(namedValue);
+      index.writeUTF(namedValue.getName());
+      index.writeInt(data.size());
+      index.writeInt(bytes.length);
+      data.write(bytes);
+    }
+    index.close();
+
+    OutputStream out = new FileOutputStream(new File(outputDir, "image"));
+    try {
+      indexBytes.writeTo(out);
+      data.writeTo(out);
+    } finally {
+      out.close();
+    }
+  }
+
   private byte[] serializeSymbol(NamedValue namedValue) throws IOException {
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
     RDataWriter writer = new RDataWriter(context, baos);
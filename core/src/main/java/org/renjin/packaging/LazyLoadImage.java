@@ -0,0 +1,174 @@
+package org.renjin.packaging;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+import org.renjin.eval.Context;
+import org.renjin.eval.EvalException;
+import org.renjin.primitives.io.serialization.RDataReader;
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.NamedValue;
+import org.renjin.sexp.Null;
+import org.renjin.sexp.Promise;
+import org.renjin.sexp.SEXP;
+
+import com.google.common.collect.Lists;
+import com.google.common.io.Resources;
+
+/**
+ * Reads a snapshot of an environment written by {@link LazyLoadFrameBuilder#buildImage(Environment)}.
+ *
+ * <p>Unlike the {@link LazyLoadFrame} format, the image is a single file which consists of an
+ * index of names and offsets followed by the serialized values. Loading an image only reads the
+ * index: each value is bound to a promise which deserializes its slice of the image when it
+ * is first forced. If the image is a file on disk (rather than an entry in a jar),
+ * it is memory-mapped so that the pages of functions which are never called are never read.
+ */
+public class LazyLoadImage {
+
+  static final int MAGIC = 0x52494D47; // 'RIMG'
+  static final int VERSION = 1;
+
+  public static Iterable<NamedValue> load(URL resource) throws IOException {
+    return load(map(resource));
+  }
+
+  public static Iterable<NamedValue> load(ByteBuffer image) throws IOException {
+    ByteBuffer indexBuffer = image.duplicate();
+    DataInputStream index = new DataInputStream(new ByteBufferInputStream(indexBuffer));
+    if(index.readInt() != MAGIC) {
+      throw new IOException("Not a lazy load image");
+    }
+    int version = index.readInt();
+    if(version != VERSION) {
+      throw new IOException("Unsupported image version: " + version);
+    }
+    int count = index.readInt();
+    String[] names = new String[count];
+    int[] offsets = new int[count];
+    int[] lengths = new int[count];
+    for(int i=0;i!=count;++i) {
+      names[i] = index.readUTF();
+      offsets[i] = index.readInt();
+      lengths[i] = index.readInt();
+    }
+
+    // offsets are relative to the end of the index
+    int dataStart = indexBuffer.position();
+    List<NamedValue> values = Lists.newArrayListWithCapacity(count);
+    for(int i=0;i!=count;++i) {
+      values.add(new ImageEntry(names[i], new ImagePromise(image, dataStart + offsets[i], lengths[i])));
+    }
+    return values;
+  }
+
+  private static ByteBuffer map(URL resource) throws IOException {
+    if("file".equals(resource.getProtocol())) {
+      File file;
+      try {
+        file = new File(resource.toURI());
+      } catch (URISyntaxException e) {
+        throw new IOException(e);
+      }
+      RandomAccessFile raf = new RandomAccessFile(file, "r");
+      try {
+        // the mapping remains valid after the channel is closed
+        return raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+      } finally {
+        raf.close();
+      }
+    }
+    return ByteBuffer.wrap(Resources.toByteArray(resource));
+  }
+
+  private static class ImageEntry implements NamedValue {
+    private final String name;
+    private final SEXP value;
+
+    public ImageEntry(String name, SEXP value) {
+      this.name = name;
+      this.value = value;
+    }
+
+    @Override
+    public boolean hasName() {
+      return true;
+    }
+
+    @Override
+    public String getName() {
+      return name;
+    }
+
+    @Override
+    public SEXP getValue() {
+      return value;
+    }
+  }
+
+  private static class ImagePromise extends Promise {
+
+    private final ByteBuffer image;
+    private final int offset;
+    private final int length;
+
+    public ImagePromise(ByteBuffer image, int offset, int length) {
+      super(Environment.EMPTY, Null.INSTANCE);
+      this.image = image;
+      this.offset = offset;
+      this.length = length;
+    }
+
+    @Override
+    protected SEXP doEval(Context context) {
+      // work on a private view so that promises can be forced from several threads
+      ByteBuffer slice = image.duplicate();
+      slice.position(offset);
+      slice.limit(offset + length);
+      try {
+        return new RDataReader(context, new ByteBufferInputStream(slice)).readFile();
+      } catch (IOException e) {
+        throw new EvalException(e);
+      }
+    }
+  }
+
+  private static class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    public ByteBufferInputStream(ByteBuffer buffer) {
+      this.buffer = buffer;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if(!buffer.hasRemaining()) {
+        return -1;
+      }
+      return buffer.get() & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] bytes, int off, int len) throws IOException {
+      if(!buffer.hasRemaining()) {
+        return -1;
+      }
+      int count = Math.min(len, buffer.remaining());
+      buffer.get(bytes, off, count);
+      return count;
+    }
+
+    @Override
+    public int available() throws IOException {
+      return buffer.remaining();
+    }
+  }
+}
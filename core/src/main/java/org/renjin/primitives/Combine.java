@@ -29,9 +29,11 @@ import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.*;
 import org.renjin.primitives.sequence.IntSequence;
+import org.renjin.primitives.summary.DeferredReduction;
 import org.renjin.primitives.vector.CombinedDoubleVector;
 import org.renjin.primitives.vector.CombinedStringVector;
 import org.renjin.primitives.vector.ConstantStringVector;
+import org.renjin.primitives.vector.DeferredComputation;
 import org.renjin.primitives.vector.PrefixedStringVector;
 import org.renjin.sexp.*;
 
@@ -55,9 +57,12 @@ public class Combine {
    * @return
    */
   @Builtin
-  public static SEXP c(@ArgumentList ListVector arguments,
+  public static SEXP c(@Current Context context,
+                       @ArgumentList ListVector arguments,
                        @NamedFlag("recursive") boolean recursive) {
 
+    materializeReductions(context, arguments);
+
     // Iterate over all the vectors in the argument
     // list to determine which vector type to use
     Inspector inspector = new Inspector(recursive);
@@ -77,6 +82,28 @@ public class Combine {
 
   }
 
+  /**
+   * Computes deferred reductions among the arguments together, so that reductions of the same
+   * vector, as in {@code c(min(x), max(x), sum(x))}, are computed in a single pass rather than
+   * one after another as their elements are read.
+   */
+  private static void materializeReductions(Context context, ListVector arguments) {
+    List<DeferredReduction> pending = Lists.newArrayList();
+    for(SEXP argument : arguments) {
+      if(argument instanceof DeferredReduction && !((DeferredReduction) argument).isCalculated()) {
+        pending.add((DeferredReduction) argument);
+      }
+    }
+    if(pending.size() > 1) {
+      DoubleVector combined = CombinedDoubleVector.combine(pending.toArray(new Vector[pending.size()]),
+          AttributeMap.EMPTY);
+      context.getSession().getVectorEngine().materialize((DeferredComputation) combined);
+      for(DeferredReduction reduction : pending) {
+        reduction.signalWarnings(context);
+      }
+    }
+  }
+
   private static SEXP newDoubleView(ListVector arguments) {
     Vector[] vectors = new Vector[arguments.length()];
     Vector[] nameVectors = new Vector[arguments.length()];
@@ -3,7 +3,6 @@ package org.renjin.primitives;
 import java.awt.Graphics;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.lang.reflect.Type;
 import java.util.List;
 
 import org.renjin.base.Base;
@@ -21,7 +20,6 @@ import org.renjin.sexp.*;
 import org.renjin.sexp.ExternalPtr;
 
 import com.google.common.base.Strings;
-import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
 
 public class Native {
@@ -39,7 +37,7 @@ public class Native {
                           @NamedFlag("DUP") boolean dup,
                           @NamedFlag("ENCODING") boolean encoding) {
 
-    Method method;
+    NativeMethod method;
 
     if(methodExp instanceof StringVector) {
       String methodName = ((StringVector) methodExp).getElementAsString(0);
@@ -49,42 +47,16 @@ public class Native {
         return delegateToJavaMethod(context, Base.class, methodName, callArguments);
       }
 
-      method = Iterables.getOnlyElement(findMethod(getPackageClass(packageName), methodName));
+      method = NativeMethod.forC(getPackageClass(packageName), methodName);
 
     } else if(methodExp instanceof ExternalPtr && ((ExternalPtr) methodExp).getInstance() instanceof Method) {
-      method = (Method) ((ExternalPtr) methodExp).getInstance();
+      method = NativeMethod.of((Method) ((ExternalPtr) methodExp).getInstance());
 
     } else {
       throw new EvalException("Invalid method argument of type %s", methodExp.getTypeName());
     }
 
-    Object[] nativeArguments = new Object[method.getParameterTypes().length];
-    for(int i=0;i!=nativeArguments.length;++i) {
-      Type type = method.getParameterTypes()[i];
-      if(type.equals(IntPtr.class)) {
-        nativeArguments[i] = intPtrFromVector(callArguments.get(i));
-      } else if(type.equals(DoublePtr.class)) {
-        nativeArguments[i] = doublePtrFromVector(callArguments.get(i));
-      } else {
-         throw new EvalException("Don't know how to marshall type " + callArguments.get(i).getClass().getName() +
-                 " to for C argument " +  type + " in call to " + method.getName());
-      }
-    }
-
-    try {
-      method.invoke(null, nativeArguments);
-    } catch (Exception e) {
-      throw new EvalException(e);
-    }
-
-    ListVector.NamedBuilder builder = new ListVector.NamedBuilder();
-    for(int i=0;i!=nativeArguments.length;++i) {
-      if(DEBUG) {
-        java.lang.System.out.println(callArguments.getName(i) + " = " + nativeArguments[i].toString());
-      }
-      builder.add(callArguments.getName(i), sexpFromPointer(nativeArguments[i]));
-    }
-    return builder.build();
+    return method.invoke(callArguments, false);
   }
 
   private static void dumpCall(String methodName, String packageName, ListVector callArguments) {
@@ -160,76 +132,24 @@ public class Native {
     // TODO: map package names to implementation classes
 
 
-    Method method;
+    NativeMethod method;
     if(methodExp instanceof StringVector) {
       if("base".equals(packageName)) {
         className = "org.renjin.appl.Appl";
       }
       String methodName = ((StringVector) methodExp).getElementAsString(0);
-      method = findFortranMethod(className, methodName);
+      method = NativeMethod.forFortran(className, methodName);
 
     } else if(methodExp instanceof ExternalPtr && ((ExternalPtr) methodExp).getInstance() instanceof Method) {
-      method = (Method) ((ExternalPtr) methodExp).getInstance();
+      method = NativeMethod.of((Method) ((ExternalPtr) methodExp).getInstance());
     } else {
       throw new EvalException("Invalid argument type for method = %s", methodExp.getTypeName());
     }
 
-    Class<?>[] fortranTypes = method.getParameterTypes();
-    if(fortranTypes.length != callArguments.length()) {
-      throw new EvalException("Invalid number of args");
-    }
-
-    Object[] fortranArgs = new Object[fortranTypes.length];
-    ListVector.NamedBuilder returnValues = ListVector.newNamedBuilder();
-
-    // For .Fortran() calls, we make a copy of the arguments, pass them by
-    // reference to the fortran subroutine, and then return the modified arguments
-    // as a ListVector.
-
-    for(int i=0;i!=callArguments.length();++i) {
-      AtomicVector vector = (AtomicVector) callArguments.get(i);
-      if(fortranTypes[i].equals(DoublePtr.class)) {
-        double[] array = vector.toDoubleArray();
-        fortranArgs[i] = new DoublePtr(array, 0);
-        returnValues.add(callArguments.getName(i), DoubleArrayVector.unsafe(array, vector.getAttributes()));
-
-      } else if(fortranTypes[i].equals(IntPtr.class)) {
-        int[] array = vector.toIntArray();
-        fortranArgs[i] = new IntPtr(array, 0);
-        returnValues.add(callArguments.getName(i), IntArrayVector.unsafe(array, vector.getAttributes()));
-      } else {
-        throw new UnsupportedOperationException("fortran type: " + fortranTypes[i]);
-      }
-    }
-
-    try {
-      method.invoke(null, fortranArgs);
-    } catch (Exception e) {
-      throw new EvalException("Exception thrown while executing " + method.getName(), e);
-    }
-
-    return returnValues.build();
-  }
-
-
-  private static Method findFortranMethod(String className, String methodName) {
-    Class<?> declaringClass = null;
-    try {
-      declaringClass = Class.forName(className);
-    } catch (ClassNotFoundException e) {
-      throw new EvalException(String.format("Could not find class named %s", className), e);
-    }
-
-    String mangledName = methodName.toLowerCase() + "_";
-
-    for(Method method : declaringClass.getMethods()) {
-      if(method.getName().equals(mangledName) &&
-          Modifier.isPublic(method.getModifiers()) &&
-          Modifier.isStatic(method.getModifiers())) {
-        return method;
-      }
-    }
-    throw new EvalException("Could not find method %s in class %s", methodName, className);
+    // For .Fortran() calls, we pass the arguments by reference to the fortran subroutine,
+    // and then return the modified arguments as a ListVector. The subroutine is always
+    // passed copies of the arguments: DUP = FALSE is accepted, but has no effect.
+    return method.invoke(callArguments, true);
   }
 
   @Builtin(".Call")
@@ -263,13 +183,7 @@ public class Native {
                                           String methodName,
                                           ListVector arguments) {
 
-    List<Method> overloads = findMethod(clazz, methodName);
-
-    if(overloads.isEmpty()) {
-      throw new EvalException("Method " + methodName + " not defined in " + clazz.getName());
-    }
-
-    FunctionBinding binding = new FunctionBinding(overloads);
+    FunctionBinding binding = NativeMethod.binding(clazz, methodName);
     return binding.invoke(null, context, arguments);
   }
 
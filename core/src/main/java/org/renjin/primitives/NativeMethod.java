@@ -0,0 +1,227 @@
+package org.renjin.primitives;
+
+import com.google.common.collect.Maps;
+import org.renjin.eval.EvalException;
+import org.renjin.gcc.runtime.DoublePtr;
+import org.renjin.gcc.runtime.IntPtr;
+import org.renjin.invoke.reflection.FunctionBinding;
+import org.renjin.sexp.*;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A routine translated from C or Fortran, resolved once and then invoked through
+ * {@code .C} or {@code .Fortran} with a marshaller bound to each of its parameters.
+ *
+ * <p>Resolved routines are cached by package or class and symbol name, so that
+ * routines called repeatedly from R loops do not have to be looked up
+ * with reflection on each call.
+ */
+class NativeMethod {
+
+  private static final ConcurrentMap<String, NativeMethod> SYMBOLS = Maps.newConcurrentMap();
+  private static final ConcurrentMap<Method, NativeMethod> METHODS = Maps.newConcurrentMap();
+  private static final ConcurrentMap<String, FunctionBinding> BINDINGS = Maps.newConcurrentMap();
+
+  private final Method method;
+  private final Marshaller[] marshallers;
+
+  private NativeMethod(Method method) {
+    this.method = method;
+    this.method.setAccessible(true);
+
+    Class<?>[] parameterTypes = method.getParameterTypes();
+    this.marshallers = new Marshaller[parameterTypes.length];
+    for(int i=0;i!=parameterTypes.length;++i) {
+      if(parameterTypes[i].equals(DoublePtr.class)) {
+        marshallers[i] = Marshaller.DOUBLE_PTR;
+      } else if(parameterTypes[i].equals(IntPtr.class)) {
+        marshallers[i] = Marshaller.INT_PTR;
+      } else {
+        throw new EvalException("Don't know how to marshall argument %d of type %s in call to %s",
+            i+1, parameterTypes[i].getName(), method.getName());
+      }
+    }
+  }
+
+  /**
+   * @return the routine {@code symbol} defined by {@code packageClass}, for calls through {@code .C}
+   */
+  public static NativeMethod forC(Class packageClass, String symbol) {
+    String key = packageClass.getName() + "#" + symbol;
+    NativeMethod nativeMethod = SYMBOLS.get(key);
+    if(nativeMethod == null) {
+      List<Method> overloads = Native.findMethod(packageClass, symbol);
+      if(overloads.size() != 1) {
+        throw new EvalException("Expected a single method named '%s' in %s, found %d",
+            symbol, packageClass.getName(), overloads.size());
+      }
+      nativeMethod = of(overloads.get(0));
+      SYMBOLS.putIfAbsent(key, nativeMethod);
+    }
+    return nativeMethod;
+  }
+
+  /**
+   * @return the subroutine {@code symbol} defined by the class {@code className}, for calls
+   * through {@code .Fortran}
+   */
+  public static NativeMethod forFortran(String className, String symbol) {
+    String key = className + "#" + symbol + "_";
+    NativeMethod nativeMethod = SYMBOLS.get(key);
+    if(nativeMethod == null) {
+      nativeMethod = of(findFortranMethod(className, symbol));
+      SYMBOLS.putIfAbsent(key, nativeMethod);
+    }
+    return nativeMethod;
+  }
+
+  /**
+   * @return the routine for a method which has already been resolved, for example through
+   * {@code getNativeSymbolInfo}
+   */
+  public static NativeMethod of(Method method) {
+    NativeMethod nativeMethod = METHODS.get(method);
+    if(nativeMethod == null) {
+      nativeMethod = new NativeMethod(method);
+      METHODS.putIfAbsent(method, nativeMethod);
+    }
+    return nativeMethod;
+  }
+
+  /**
+   * @return a binding to the public static methods named {@code methodName} in {@code clazz}
+   */
+  public static FunctionBinding binding(Class clazz, String methodName) {
+    String key = clazz.getName() + "#" + methodName;
+    FunctionBinding binding = BINDINGS.get(key);
+    if(binding == null) {
+      List<Method> overloads = Native.findMethod(clazz, methodName);
+      if(overloads.isEmpty()) {
+        throw new EvalException("Method " + methodName + " not defined in " + clazz.getName());
+      }
+      binding = new FunctionBinding(overloads);
+      BINDINGS.putIfAbsent(key, binding);
+    }
+    return binding;
+  }
+
+  private static Method findFortranMethod(String className, String methodName) {
+    Class<?> declaringClass;
+    try {
+      declaringClass = Class.forName(className);
+    } catch (ClassNotFoundException e) {
+      throw new EvalException(String.format("Could not find class named %s", className), e);
+    }
+
+    String mangledName = methodName.toLowerCase() + "_";
+
+    for(Method method : declaringClass.getMethods()) {
+      if(method.getName().equals(mangledName) &&
+          Modifier.isPublic(method.getModifiers()) &&
+          Modifier.isStatic(method.getModifiers())) {
+        return method;
+      }
+    }
+    throw new EvalException("Could not find method %s in class %s", methodName, className);
+  }
+
+  public String getName() {
+    return method.getName();
+  }
+
+  /**
+   * Invokes the routine with pointers to copies of the elements of {@code callArguments}, and
+   * returns the copies after the call, as modified by the routine.
+   *
+   * <p>The arguments are always copied, even for calls made with {@code DUP = FALSE}: a vector
+   * may be bound to several variables, or shared with a session forked from this one, and
+   * nothing records whether it is, so modifying it in place could change values elsewhere.
+   *
+   * @param keepAttributes true if the returned vectors should keep the attributes of
+   *                       the arguments
+   */
+  public ListVector invoke(ListVector callArguments, boolean keepAttributes) {
+    if(callArguments.length() != marshallers.length) {
+      throw new EvalException("Invalid number of arguments in call to %s: expected %d, got %d",
+          method.getName(), marshallers.length, callArguments.length());
+    }
+
+    Object[] pointers = new Object[marshallers.length];
+    for(int i=0;i!=pointers.length;++i) {
+      SEXP argument = callArguments.get(i);
+      if(!(argument instanceof AtomicVector)) {
+        throw new EvalException("Argument %d in call to %s must be an atomic vector, found %s",
+            i+1, method.getName(), argument.getTypeName());
+      }
+      pointers[i] = marshallers[i].toPointer((AtomicVector) argument);
+    }
+
+    try {
+      method.invoke(null, pointers);
+    } catch (InvocationTargetException e) {
+      throw new EvalException("Exception thrown while executing " + method.getName(), e.getCause());
+    } catch (IllegalAccessException e) {
+      throw new EvalException(e);
+    }
+
+    ListVector.NamedBuilder builder = ListVector.newNamedBuilder();
+    for(int i=0;i!=pointers.length;++i) {
+      if(Native.DEBUG) {
+        java.lang.System.out.println(callArguments.getName(i) + " = " + pointers[i].toString());
+      }
+      AttributeMap attributes = keepAttributes ? callArguments.get(i).getAttributes() : AttributeMap.EMPTY;
+      builder.add(callArguments.getName(i), marshallers[i].toVector(pointers[i], attributes));
+    }
+    return builder.build();
+  }
+
+  private enum Marshaller {
+    DOUBLE_PTR {
+      @Override
+      public Object toPointer(AtomicVector vector) {
+        if(vector.getClass() == DoubleArrayVector.class) {
+          double[] array = ((DoubleArrayVector) vector).toDoubleArrayUnsafe();
+          return new DoublePtr(Arrays.copyOf(array, array.length), 0);
+        }
+        return new DoublePtr(vector.toDoubleArray(), 0);
+      }
+
+      @Override
+      public SEXP toVector(Object pointer, AttributeMap attributes) {
+        return DoubleArrayVector.unsafe(((DoublePtr) pointer).array, attributes);
+      }
+    },
+
+    INT_PTR {
+      @Override
+      public Object toPointer(AtomicVector vector) {
+        if(vector.getClass() == IntArrayVector.class) {
+          int[] array = ((IntArrayVector) vector).toIntArrayUnsafe();
+          return new IntPtr(Arrays.copyOf(array, array.length), 0);
+        }
+        return new IntPtr(vector.toIntArray(), 0);
+      }
+
+      @Override
+      public SEXP toVector(Object pointer, AttributeMap attributes) {
+        return IntArrayVector.unsafe(((IntPtr) pointer).array, attributes);
+      }
+    };
+
+    /**
+     * @return a pointer to a copy of the elements of {@code vector}
+     */
+    public abstract Object toPointer(AtomicVector vector);
+
+    /**
+     * @return a vector wrapping the array of a pointer created by {@link #toPointer(AtomicVector)}
+     */
+    public abstract SEXP toVector(Object pointer, AttributeMap attributes);
+  }
+}
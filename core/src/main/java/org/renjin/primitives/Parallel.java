@@ -0,0 +1,248 @@
+package org.renjin.primitives;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.renjin.eval.Context;
+import org.renjin.eval.EvalException;
+import org.renjin.eval.Session;
+import org.renjin.invoke.annotations.Current;
+import org.renjin.invoke.annotations.Internal;
+import org.renjin.sexp.*;
+import org.renjin.stats.internals.distributions.LecuyerCMRG;
+import org.renjin.stats.internals.distributions.RNG;
+import org.renjin.stats.internals.distributions.RNGtype;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Applies a function to the elements of a vector concurrently, for the {@code parallel} package.
+ *
+ * <p>Each worker thread evaluates its elements in its own {@linkplain Session#fork() fork} of
+ * the calling session, so assignments to the global environment, options, the random number
+ * generator and {@code last.warning} are private to the worker. The calling session is
+ * blocked, and so unmodified, while the workers run.
+ */
+public class Parallel {
+
+  private static final Symbol RANDOM_SEED = Symbol.get(".Random.seed");
+
+  /**
+   * Threads are shared by all sessions, and created as needed so that nested calls never wait
+   * for a thread held by their caller. Each call uses at most {@code mc.cores} of them.
+   */
+  private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("renjin-worker-%d").build());
+
+  @Internal
+  public static int detectCores() {
+    return Runtime.getRuntime().availableProcessors();
+  }
+
+  /**
+   * Evaluates {@code FUN(X[[i]], ...)} for each element of {@code X} on up to {@code cores}
+   * threads.
+   *
+   * <p>The elements are divided into consecutive chunks of {@code chunkSize} elements, which
+   * idle workers claim in order. Results are returned in the order of {@code X} regardless
+   * of which worker computed them. If {@code setSeed} is true and the session is using the
+   * L'Ecuyer-CMRG generator, element {@code i} is evaluated with the {@code i}-th
+   * {@linkplain RNG#nextStreams(int) stream} of the session's generator, so the results are
+   * reproducible after {@code set.seed()} however the elements are divided into chunks and
+   * however many threads are used.
+   *
+   * <p>Warnings raised by the workers are added to the caller's {@code last.warning}
+   * in the order of the elements which raised them. If the function signals an error, the error
+   * for the first such element is rethrown in the calling thread, and no further chunks are started.
+   *
+   * <p>Arguments passed through {@code ...} are forced before the workers start. Closures and
+   * environments are rebound to each worker's session as described by {@link Session#adopt(SEXP)}.
+   * The enclosing environments of functions defined inside other functions are copied by each
+   * worker, so their assignments are private to the worker, and unevaluated promises in those
+   * environments, such as the arguments of the enclosing function, are evaluated by each worker
+   * which needs them rather than in the calling session. Functions of loaded namespaces are
+   * likewise rebound to each worker's copy of their namespace, so the lazily loaded values of
+   * the namespaces are evaluated by the workers, and the calling session's namespaces are not modified.
+   */
+  @Internal
+  public static ListVector mclapply(@Current Context context, @Current Environment rho, Vector vector,
+                                    Function function, int cores, int chunkSize, boolean setSeed) {
+    if(cores < 1 || cores == IntVector.NA) {
+      throw new EvalException("'mc.cores' must be >= 1");
+    }
+    if(chunkSize < 1 || chunkSize == IntVector.NA) {
+      throw new EvalException("invalid '%s' argument", "chunk.size");
+    }
+
+    // promises must be forced here, as they are bound to the calling session
+    PairList.Builder extraArgs = new PairList.Builder();
+    for(PairList.Node node : ((PairList) rho.getVariable(Symbols.ELLIPSES)).nodes()) {
+      extraArgs.add(node.getRawTag(), node.getValue().force(context));
+    }
+
+    Session session = context.getSession();
+    int numChunks = (vector.length() + chunkSize - 1) / chunkSize;
+    int numWorkers = Math.min(cores, numChunks);
+
+    SEXP seedKind = null;
+    LecuyerCMRG[] streams = null;
+    if(setSeed && numChunks > 0 && session.rng.RNG_kind == RNGtype.LECUYER_CMRG) {
+      streams = session.rng.nextStreams(vector.length());
+      seedKind = session.getGlobalEnvironment().getVariable(RANDOM_SEED);
+    }
+
+    ParallelApply apply = new ParallelApply(vector, chunkSize, numChunks, streams, seedKind);
+
+    // workers are forked here, before any of them run, while the session is not being modified
+    List<Future<Void>> futures = Lists.newArrayList();
+    for(int i = 0; i < numWorkers; ++i) {
+      futures.add(EXECUTOR.submit(apply.newWorker(session.fork(), function, extraArgs.build())));
+    }
+    try {
+      for(Future<Void> future : futures) {
+        future.get();
+      }
+    } catch(InterruptedException e) {
+      for(Future<Void> future : futures) {
+        future.cancel(true);
+      }
+      Thread.currentThread().interrupt();
+      throw new EvalException("interrupted");
+    } catch(ExecutionException e) {
+      // errors in user code are recorded by the worker, so this is a failure of the worker itself
+      throw new EvalException("worker failed: " + e.getCause().getMessage(), e.getCause());
+    }
+
+    apply.addWarningsTo(context, session.getBaseEnvironment());
+    apply.rethrowFirstError();
+
+    ListVector.Builder result = ListVector.newBuilder();
+    for(SEXP value : apply.results) {
+      result.add(value);
+    }
+    result.copySomeAttributesFrom(vector, Symbols.NAMES);
+    return result.build();
+  }
+
+  /**
+   * The state of a single call to {@code mclapply()}, shared by its workers
+   */
+  private static class ParallelApply {
+    private final Vector vector;
+    private final int chunkSize;
+    private final int numChunks;
+    private final LecuyerCMRG[] streams;
+    private final SEXP seedKind;
+
+    private final SEXP[] results;
+    private final ListVector[] warnings;
+    private final RuntimeException[] errors;
+
+    private final AtomicInteger nextChunk = new AtomicInteger(0);
+    private volatile boolean failed = false;
+
+    ParallelApply(Vector vector, int chunkSize, int numChunks, LecuyerCMRG[] streams, SEXP seedKind) {
+      this.vector = vector;
+      this.chunkSize = chunkSize;
+      this.numChunks = numChunks;
+      this.streams = streams;
+      this.seedKind = seedKind;
+      this.results = new SEXP[vector.length()];
+      this.warnings = new ListVector[numChunks];
+      this.errors = new RuntimeException[numChunks];
+    }
+
+    Callable<Void> newWorker(final Session worker, Function function, PairList extraArgs) {
+      final SEXP workerFunction = worker.adopt(function);
+      PairList.Builder args = new PairList.Builder();
+      for(PairList.Node node : extraArgs.nodes()) {
+        args.add(node.getRawTag(), worker.adopt(node.getValue()));
+      }
+      final PairList workerArgs = args.build();
+
+      // only this worker's own warnings should be collected, not those inherited from the caller
+      worker.getBaseEnvironment().remove(Warning.LAST_WARNING);
+
+      return new Callable<Void>() {
+        @Override
+        public Void call() {
+          int chunk;
+          while(!failed && (chunk = nextChunk.getAndIncrement()) < numChunks) {
+            evaluateChunk(worker, chunk, workerFunction, workerArgs);
+          }
+          return null;
+        }
+      };
+    }
+
+    private void evaluateChunk(Session worker, int chunk, SEXP function, PairList extraArgs) {
+      Context context = worker.getTopLevelContext();
+      Environment global = worker.getGlobalEnvironment();
+
+      int end = Math.min(vector.length(), (chunk + 1) * chunkSize);
+      for(int i = chunk * chunkSize; i < end; ++i) {
+        if(streams != null) {
+          global.setVariable(RANDOM_SEED, seedVector(streams[i].getSeeds()));
+        }
+        FunctionCall getElementCall = FunctionCall.newCall(Symbol.get("[["), vector, new IntArrayVector(i + 1));
+        FunctionCall call = new FunctionCall(function, new PairList.Node(getElementCall, extraArgs));
+        try {
+          // deferred results are computed here, rather than later on the calling thread
+          results[i] = context.materialize(context.evaluate(call, global));
+        } catch(RuntimeException e) {
+          errors[chunk] = e;
+          failed = true;
+          break;
+        }
+      }
+
+      Environment baseEnv = worker.getBaseEnvironment();
+      if(baseEnv.hasVariable(Warning.LAST_WARNING)) {
+        warnings[chunk] = (ListVector) baseEnv.getVariable(Warning.LAST_WARNING);
+        baseEnv.remove(Warning.LAST_WARNING);
+      }
+    }
+
+    private SEXP seedVector(int[] seeds) {
+      int[] seed = new int[7];
+      seed[0] = ((IntVector) seedKind).getElementAsInt(0);
+      java.lang.System.arraycopy(seeds, 0, seed, 1, 6);
+      return new IntArrayVector(seed);
+    }
+
+    void addWarningsTo(Context context, Environment baseEnv) {
+      ListVector.NamedBuilder lastWarning = null;
+      for(ListVector chunkWarnings : warnings) {
+        if(chunkWarnings != null) {
+          if(lastWarning == null) {
+            lastWarning = new ListVector.NamedBuilder();
+            if(baseEnv.hasVariable(Warning.LAST_WARNING)) {
+              lastWarning.addAll((ListVector) baseEnv.getVariable(Warning.LAST_WARNING).force(context));
+            }
+          }
+          lastWarning.addAll(chunkWarnings);
+        }
+      }
+      if(lastWarning != null) {
+        baseEnv.setVariable(Warning.LAST_WARNING, lastWarning.build());
+      }
+    }
+
+    /**
+     * Chunks are claimed in order and every claimed chunk is finished, so the error in the
+     * first failed chunk is the error for the first element which failed.
+     */
+    void rethrowFirstError() {
+      for(RuntimeException error : errors) {
+        if(error != null) {
+          throw error;
+        }
+      }
+    }
+  }
+}
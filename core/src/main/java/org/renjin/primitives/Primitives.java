@@ -509,6 +509,8 @@ public class Primitives {
 
     f("RNGkind", RNG.class, 0, 11, 2);
     f("set.seed", RNG.class, 0, 11, 3);
+    f("nextRNGStream", RNG.class, 0, 11, 1);
+    f("nextRNGSubStream", RNG.class, 0, 11, 1);
 
 /* Data Summaries */
 /* sum, min, max, prod, range are group generic and so need to eval args */
@@ -732,6 +734,8 @@ public class Primitives {
     f("eapply", /*eapply*/ null, 0, 10, 4);
     f("lapply", Evaluation.class, 1, 10, 2);
     f("vapply", Evaluation.class, 1, 10, 4);
+    f("mclapply", Parallel.class, 0, 11, 5);
+    f("detectCores", Parallel.class, 0, 11, 0);
     f("rapply", /*rapply*/ null, 0, 11, 5);
     f("islistfactor",  Types.class, 0, 11, 2);
     f("colSums", Matrices.class, 0, 11, 4);
@@ -911,8 +915,9 @@ public class Primitives {
     f("stderr", Connections.class, 0, 11, 0);
     f("readLines",Connections.class, 0, 11, 5);
     f("writeLines", Connections.class, 0, 11, 4);
-    f("readBin", /*readbin*/ null, 0, 11, 6);
-    f("writeBin", /*writebin*/ null, 0, 211, 5);
+    f("readBin", Connections.class, 0, 11, 6);
+    f("writeBin", Connections.class, 0, 211, 5);
+    f("mapBin", Connections.class, 0, 11, 5);
     f("readChar", Connections.class, 0, 11, 3);
     f("writeChar", /*writechar*/ null, 0, 211, 5);
     f("open", Connections.class, 0, 11, 3);
@@ -487,35 +487,104 @@ public class S3 {
 
     public GenericMethod findNext() {
       Environment methodTable = getMethodTable();
-      GenericMethod method;
-      
+
+      if(callingEnvironment == Environment.EMPTY) {
+        return resolve(null, methodTable).toMethod(this);
+      }
+
+      S3DispatchCache cache = context.getSession().getSingleton(S3DispatchCache.class);
+      S3DispatchCache.Key key = new S3DispatchCache.Key(genericMethodName, group, classes,
+          callingEnvironment.getParent(), methodTable);
+
+      S3DispatchCache.Entry entry = cache.get(key, callingEnvironment);
+      if(entry != null) {
+        return toMethod(entry);
+      }
+
+      Resolution resolution = resolve(key, methodTable);
+      if(resolution.cacheable) {
+        cache.put(key, resolution.entry);
+      }
+      return resolution.toMethod(this);
+    }
+
+    private GenericMethod toMethod(S3DispatchCache.Entry entry) {
+      if(entry.getMethod() == null) {
+        return null;
+      }
+      return new GenericMethod(this, entry.getMethod(), entry.getClassName(), entry.getFunction());
+    }
+
+    /**
+     * Searches for a method for each of the classes in turn.
+     */
+    private Resolution resolve(S3DispatchCache.Key key, Environment methodTable) {
+
+      // record the versions before searching, as forcing promises
+      // during the search could modify the environments
+      EnvironmentPath searchPath = key == null ? null : EnvironmentPath.record(key.getStart());
+      EnvironmentPath methodTablePath = methodTable == null ? null :
+          EnvironmentPath.record(methodTable).upTo(methodTable);
+
+      Resolution resolution = new Resolution();
+
       for(String className : classes) {
-        
-        method = findNext(methodTable, genericMethodName, className);
-        if(method != null) {
-          return method;
+        if(resolution.find(methodTable, genericMethodName, className) ||
+           (group != null && resolution.find(methodTable, group, className))) {
+          break;
         }
-        if(group != null) {
-          method = findNext(methodTable, group, className);
-          if(method != null) {
-            return method;
-          }
+      }
+      resolution.entry = new S3DispatchCache.Entry(searchPath, methodTablePath,
+          resolution.candidates, resolution.method, resolution.className, resolution.function,
+          resolution.definingEnvironment, resolution.binding);
+      return resolution;
+    }
+
+    private class Resolution {
+      private List<Symbol> candidates = Lists.newArrayList();
+      private Symbol method;
+      private String className;
+      private Function function;
+      private Environment definingEnvironment;
+      private SEXP binding;
+      private S3DispatchCache.Entry entry;
+
+      /**
+       * False if one of the candidates is bound in the calling environment itself, which
+       * is not covered by the cache.
+       */
+      private boolean cacheable = true;
+
+      private boolean find(Environment methodTable, String name, String className) {
+        Symbol method = Symbol.get(name + "." + className);
+        candidates.add(method);
+        if(callingEnvironment.getFrame().getVariable(method) != Symbol.UNBOUND_VALUE) {
+          cacheable = false;
         }
+        Function function = null;
+        Environment definingEnvironment = callingEnvironment.findFunctionEnvironment(context, method);
+        if(definingEnvironment != null) {
+          function = definingEnvironment.getFrame().getFunction(context, method);
+        } else if(methodTable != null && methodTable.hasVariable(method)) {
+          definingEnvironment = methodTable;
+          function = (Function) methodTable.getVariable(method).force(context);
+        }
+        if(function == null) {
+          return false;
+        }
+        this.method = method;
+        this.className = className;
+        this.function = function;
+        this.definingEnvironment = definingEnvironment;
+        this.binding = definingEnvironment.getFrame().getVariable(method);
+        return true;
       }
-      return null;
-    }
 
-    private GenericMethod findNext(Environment methodTable, String name, String className) {
-      Symbol method = Symbol.get(name + "." + className);
-      SEXP function = callingEnvironment.findFunction(context, method);
-      if(function != null) {
-        return new GenericMethod(this, method, className, (Function) function);
-        
-      } else if(methodTable != null && methodTable.hasVariable(method)) {
-        return new GenericMethod(this, method, className, (Function) methodTable.getVariable(method).force(context));
-      
-      } else {
-        return null;
+      private GenericMethod toMethod(Resolver resolver) {
+        if(method == null) {
+          return null;
+        }
+        return new GenericMethod(resolver, method, className, function);
       }
     }
 
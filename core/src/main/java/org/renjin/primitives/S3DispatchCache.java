@@ -0,0 +1,178 @@
+package org.renjin.primitives;
+
+import com.google.common.base.Objects;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.renjin.invoke.annotations.SessionScoped;
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.EnvironmentPath;
+import org.renjin.sexp.Function;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.Symbol;
+
+import java.util.List;
+
+/**
+ * Caches the outcome of S3 method resolution, so that repeatedly dispatching
+ * {@code print} on a {@code data.frame} or {@code Ops} on a {@code factor} does not
+ * have to build the candidate method names and search the environment tree each time.
+ *
+ * <p>Entries are keyed on the generic, the group, the class vector, the environment in which
+ * the search for methods starts, and the S3 methods table of the environment defining
+ * the generic. An entry remains valid as long as none of the environments searched has changed,
+ * as recorded by an {@link EnvironmentPath}, and the selected method is still bound to the same
+ * value where it was found. Assigning values other than functions, such as data in the global
+ * environment, does not invalidate entries.
+ *
+ * <p>The search starts in the calling environment, which is usually a new function
+ * environment for each call, so entries are keyed on its parent instead, and the
+ * calling environment's own frame is checked for the candidate names on each lookup.
+ */
+@SessionScoped
+public class S3DispatchCache {
+
+  private static final int MAX_SIZE = 1024;
+
+  private final Cache<Key, Entry> cache = CacheBuilder.newBuilder()
+      .maximumSize(MAX_SIZE)
+      .recordStats()
+      .build();
+
+  public S3DispatchCache() {
+  }
+
+  /**
+   * @return statistics on the use of the cache
+   */
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  Entry get(Key key, Environment callingEnvironment) {
+    Entry entry = cache.getIfPresent(key);
+    if(entry != null && !entry.isValid(callingEnvironment)) {
+      cache.invalidate(key);
+      return null;
+    }
+    return entry;
+  }
+
+  void put(Key key, Entry entry) {
+    cache.put(key, entry);
+  }
+
+  static class Key {
+    private final String generic;
+    private final String group;
+    private final List<String> classes;
+    private final Environment start;
+    private final Environment methodTable;
+    private final int hashCode;
+
+    /**
+     * @param start the parent of the calling environment
+     * @param methodTable the S3 methods table of the defining environment, or {@code null} if it has none
+     */
+    Key(String generic, String group, List<String> classes, Environment start, Environment methodTable) {
+      this.generic = generic;
+      this.group = group;
+      this.classes = classes;
+      this.start = start;
+      this.methodTable = methodTable;
+      this.hashCode = Objects.hashCode(generic, group, classes) * 31 +
+          java.lang.System.identityHashCode(start) * 17 + java.lang.System.identityHashCode(methodTable);
+    }
+
+    Environment getStart() {
+      return start;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if(!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return start == other.start &&
+             methodTable == other.methodTable &&
+             generic.equals(other.generic) &&
+             Objects.equal(group, other.group) &&
+             classes.equals(other.classes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * The method selected for a key, or the absence of any method
+   */
+  static class Entry {
+    private final Symbol method;
+    private final String className;
+    private final Function function;
+
+    /**
+     * The candidate method names which were searched for, up to and
+     * including the one selected.
+     */
+    private final List<Symbol> candidates;
+
+    /**
+     * The environments searched for the candidates: the parent of the calling environment
+     * and all of its parents, followed by the methods table
+     */
+    private final EnvironmentPath searchPath;
+    private final EnvironmentPath methodTablePath;
+
+    /**
+     * The environment in which the method was found, and the value bound to the method there
+     */
+    private final Environment definingEnvironment;
+    private final SEXP binding;
+
+    Entry(EnvironmentPath searchPath, EnvironmentPath methodTablePath, List<Symbol> candidates,
+          Symbol method, String className, Function function,
+          Environment definingEnvironment, SEXP binding) {
+      this.searchPath = searchPath;
+      this.methodTablePath = methodTablePath;
+      this.candidates = candidates;
+      this.method = method;
+      this.className = className;
+      this.function = function;
+      this.definingEnvironment = definingEnvironment;
+      this.binding = binding;
+    }
+
+    public Symbol getMethod() {
+      return method;
+    }
+
+    public String getClassName() {
+      return className;
+    }
+
+    public Function getFunction() {
+      return function;
+    }
+
+    private boolean isValid(Environment callingEnvironment) {
+      if(!searchPath.isCurrent() ||
+         (methodTablePath != null && !methodTablePath.isCurrent())) {
+        return false;
+      }
+      if(definingEnvironment != null && definingEnvironment.getFrame().getVariable(method) != binding) {
+        return false;
+      }
+      for(Symbol candidate : candidates) {
+        if(callingEnvironment.getFrame().getVariable(candidate) != Symbol.UNBOUND_VALUE) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+}
@@ -21,9 +21,14 @@
 
 package org.renjin.primitives;
 
+import org.renjin.compiler.pipeline.reduce.Reductions;
+import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.*;
+import org.renjin.primitives.summary.DeferredCumulative;
+import org.renjin.primitives.summary.DeferredLogicalReduction;
 import org.renjin.primitives.summary.DeferredMean;
+import org.renjin.primitives.summary.DeferredReduction;
 import org.renjin.primitives.summary.DeferredSum;
 import org.renjin.primitives.vector.DeferredComputation;
 import org.renjin.sexp.*;
@@ -36,16 +41,38 @@ public class Summary {
 
   private Summary() {}
 
+  /**
+   * Reductions of a double vector which is itself deferred, or which is large, are deferred
+   * so that they can be jitted, and computed together with other reductions of the same vector.
+   */
+  private static boolean isDeferrable(SEXP x) {
+    return x instanceof DoubleVector && (x instanceof DeferredComputation || x.length() > 100000);
+  }
+
+  private static boolean isDeferrable(ListVector arguments) {
+    return arguments.length() == 1 && isDeferrable(arguments.getElementAsSEXP(0));
+  }
+
+  private static SEXP deferredReduction(String name, ListVector arguments, boolean removeNA) {
+    return new DeferredReduction((Vector) arguments.getElementAsSEXP(0), Reductions.get(name, removeNA),
+        AttributeMap.EMPTY);
+  }
+
   @Builtin
   @GroupGeneric
-  public static SEXP min(@ArgumentList ListVector arguments,
+  public static SEXP min(@Current Context context,
+                         @ArgumentList ListVector arguments,
                          @NamedFlag("na.rm") boolean removeNA) {
 
+    if(isDeferrable(arguments)) {
+      return deferredReduction("min", arguments, removeNA);
+    }
+
     try {
       return new RangeCalculator()
         .setRemoveNA(removeNA)
         .addList(arguments)
-        .getMinimum();
+        .getMinimum(context);
     } catch (RangeContainsNA e) {
       return new DoubleArrayVector(DoubleVector.NA);
     }
@@ -53,14 +80,19 @@ public class Summary {
 
   @Builtin
   @GroupGeneric
-  public static SEXP max(@ArgumentList ListVector arguments,
+  public static SEXP max(@Current Context context,
+                         @ArgumentList ListVector arguments,
                          @NamedFlag("na.rm") boolean removeNA) {
 
+    if(isDeferrable(arguments)) {
+      return deferredReduction("max", arguments, removeNA);
+    }
+
     try {
       return new RangeCalculator()
         .setRemoveNA(removeNA)
         .addList(arguments)
-        .getMaximum();
+        .getMaximum(context);
     } catch (RangeContainsNA e) {
       return new DoubleArrayVector(DoubleVector.NA);
     }  
@@ -77,7 +109,8 @@ public class Summary {
    */
   @Builtin
   @GroupGeneric
-  public static Vector range(@ArgumentList ListVector arguments,
+  public static Vector range(@Current Context context,
+                             @ArgumentList ListVector arguments,
                              @NamedFlag("na.rm") boolean removeNA) {
 
     // in the C implementation, this primitive actually delegates back to a
@@ -87,13 +120,17 @@ public class Summary {
     
     // another oddity: the min() and max() functions do not accept lists or 
     // other recursive structures. The range() implementation does.
+
+    if(isDeferrable(arguments)) {
+      return (Vector) deferredReduction("range", arguments, removeNA);
+    }
     
     try {
       return new RangeCalculator()
         .setRemoveNA(removeNA)
         .setRecursive(true)
         .addList(arguments)
-        .getRange();
+        .getRange(context);
     } catch (RangeContainsNA e) {
       return new DoubleArrayVector(DoubleVector.NA, DoubleVector.NA);
     }  
@@ -115,6 +152,12 @@ public class Summary {
      */
     private boolean naEncountered = false;
 
+    /**
+     * Whether all the missing values encountered were {@code NaN} rather than {@code NA}, in
+     * which case the result is {@code NaN}, as it is for the deferred reductions
+     */
+    private boolean onlyNaN = true;
+
     public RangeCalculator setRemoveNA(boolean removeNA) {
       this.removeNA = removeNA;
       return this;
@@ -150,9 +193,14 @@ public class Summary {
       }
  
       for(int i=0;i!=vector.length();++i) {
-        if(vector.isElementNA(i)) {
+        // NaN is missing too, but is not reported by isElementNA()
+        if(vector.isElementNA(i) ||
+            (vector instanceof DoubleVector && ((DoubleVector) vector).isElementNaN(i))) {
           if(!removeNA) {
             naEncountered = true;
+            if(!(vector instanceof DoubleVector) || DoubleVector.isNA(vector.getElementAsDouble(i))) {
+              onlyNaN = false;
+            }
           }
         } else {
           resultType = Vector.Type.widest(resultType, vector.getVectorType());
@@ -168,31 +216,47 @@ public class Summary {
       }
     }
     
-    public Vector getRange() {
-      if(maxValue == null) {
-        return new DoubleArrayVector(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+    public Vector getRange(Context context) {
+      if(naEncountered) {
+        Vector na = buildNA();
+        return resultType.newBuilder().addFrom(na, 0).addFrom(na, 0).build();
+      } else if(maxValue == null) {
+        // range() is computed by R as c(min(x), max(x))
+        Warning.invokeWarning(context, Reductions.noNonMissingWarning(false));
+        Warning.invokeWarning(context, Reductions.noNonMissingWarning(true));
+        return new DoubleArrayVector(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY);
       } else {
-        Vector.Builder result = resultType.newBuilder();
-        if(naEncountered) {
-          result.addNA();
-          result.addNA();
-        } else {
-          result.addFrom(minValue, 0);
-          result.addFrom(maxValue, 0);
-        }
-        return result.build();
+        return resultType.newBuilder()
+            .addFrom(minValue, 0)
+            .addFrom(maxValue, 0)
+            .build();
       }
     }
     
-    public Vector getMinimum() {
-      return naEncountered ? buildNA() : minValue;
+    public Vector getMinimum(Context context) {
+      if(naEncountered) {
+        return buildNA();
+      } else if(minValue == null) {
+        Warning.invokeWarning(context, Reductions.noNonMissingWarning(false));
+        return new DoubleArrayVector(Double.POSITIVE_INFINITY);
+      }
+      return minValue;
     }
     
-    public Vector getMaximum() {
-      return naEncountered ? buildNA() : maxValue;
+    public Vector getMaximum(Context context) {
+      if(naEncountered) {
+        return buildNA();
+      } else if(maxValue == null) {
+        Warning.invokeWarning(context, Reductions.noNonMissingWarning(true));
+        return new DoubleArrayVector(Double.NEGATIVE_INFINITY);
+      }
+      return maxValue;
     }
     
     private Vector buildNA() {
+      if(onlyNaN && resultType == DoubleVector.VECTOR_TYPE) {
+        return new DoubleArrayVector(Double.NaN);
+      }
       return resultType.newBuilder().addNA().build();
     }
   }
@@ -206,21 +270,25 @@ public class Summary {
    */
   @Builtin
   @GroupGeneric
-  public static double prod(@ArgumentList ListVector arguments, @NamedFlag("na.rm") boolean removeNA) {
+  public static SEXP prod(@ArgumentList ListVector arguments, @NamedFlag("na.rm") boolean removeNA) {
+    if(isDeferrable(arguments)) {
+      return deferredReduction("prod", arguments, removeNA);
+    }
+
     double product = 1;
     for(SEXP argument : arguments) {
       AtomicVector vector = EvalException.checkedCast(argument);
       for(int i=0;i!=vector.length();++i) {
         if(vector.isElementNA(i)) {
           if(!removeNA) {
-            return DoubleVector.NA;
+            return new DoubleArrayVector(DoubleVector.NA);
           }
         } else {
           product = product * vector.getElementAsDouble(i);
         }
       }
     }
-    return product;
+    return new DoubleArrayVector(product);
   }
 
   @Builtin
@@ -282,22 +350,27 @@ public class Summary {
    */
   @Builtin
   @GroupGeneric
-  public static Logical any(@ArgumentList ListVector arguments,
-                            @NamedFlag("na.rm") boolean removeNA) {
+  public static SEXP any(@ArgumentList ListVector arguments,
+                         @NamedFlag("na.rm") boolean removeNA) {
+
+    if(isDeferredLogical(arguments)) {
+      return new DeferredLogicalReduction((Vector) arguments.getElementAsSEXP(0),
+          Reductions.get("any", removeNA), AttributeMap.EMPTY);
+    }
 
     for(SEXP argument : arguments) {
       Vector vector = (Vector) argument;
       for(int i=0;i!=vector.length();++i) {
         if(vector.isElementNA(i)) {
           if(!removeNA) {
-            return Logical.NA;
+            return new LogicalArrayVector(Logical.NA);
           }
         } else if(vector.getElementAsDouble(i) != 0) {
-          return Logical.TRUE;
+          return new LogicalArrayVector(Logical.TRUE);
         }
       }
     }
-    return Logical.FALSE;
+    return new LogicalArrayVector(Logical.FALSE);
   }
 
   /**
@@ -314,22 +387,35 @@ public class Summary {
    */
   @Builtin
   @GroupGeneric
-  public static Logical all(@ArgumentList ListVector arguments,
-                            @NamedFlag("na.rm") boolean removeNA) {
+  public static SEXP all(@ArgumentList ListVector arguments,
+                         @NamedFlag("na.rm") boolean removeNA) {
+
+    if(isDeferredLogical(arguments)) {
+      return new DeferredLogicalReduction((Vector) arguments.getElementAsSEXP(0),
+          Reductions.get("all", removeNA), AttributeMap.EMPTY);
+    }
 
     for(SEXP argument : arguments) {
       Vector vector = (Vector) argument;
       for(int i=0;i!=vector.length();++i) {
         if(vector.isElementNA(i)) {
           if(!removeNA) {
-            return Logical.NA;
+            return new LogicalArrayVector(Logical.NA);
           }
         } else if(vector.getElementAsDouble(i) == 0) {
-          return Logical.FALSE;
+          return new LogicalArrayVector(Logical.FALSE);
         }
       }
     }
-    return Logical.TRUE;
+    return new LogicalArrayVector(Logical.TRUE);
+  }
+
+  /**
+   * Unlike the other reductions, {@code any} and {@code all} can stop at the first
+   * deciding element, so they are deferred only if their argument is itself deferred.
+   */
+  private static boolean isDeferredLogical(ListVector arguments) {
+    return arguments.length() == 1 && arguments.getElementAsSEXP(0) instanceof DeferredComputation;
   }
   
 
@@ -359,6 +445,9 @@ public class Summary {
   
   @Builtin
   public static DoubleVector cumsum(Vector source) {
+    if(isDeferrable(source)) {
+      return new DeferredCumulative(source, "cumsum", AttributeMap.EMPTY);
+    }
     DoubleArrayVector.Builder result = new DoubleArrayVector.Builder();
     double sum = source.getElementAsDouble(0);
     result.add(sum);
@@ -375,6 +464,9 @@ public class Summary {
 
   @Builtin
   public static DoubleVector cumprod(Vector source) {
+    if(isDeferrable(source)) {
+      return new DeferredCumulative(source, "cumprod", AttributeMap.EMPTY);
+    }
     DoubleArrayVector.Builder result = new DoubleArrayVector.Builder();
     double sum = source.getElementAsDouble(0);
     result.add(sum);
@@ -391,6 +483,9 @@ public class Summary {
 
   @Builtin
   public static DoubleVector cummax(Vector source) {
+    if(isDeferrable(source)) {
+      return new DeferredCumulative(source, "cummax", AttributeMap.EMPTY);
+    }
     DoubleArrayVector.Builder result = new DoubleArrayVector.Builder();
     double max = source.getElementAsDouble(0);
     result.add(max);
@@ -407,6 +502,9 @@ public class Summary {
 
   @Builtin
   public static DoubleVector cummin(Vector source) {
+    if(isDeferrable(source)) {
+      return new DeferredCumulative(source, "cummin", AttributeMap.EMPTY);
+    }
     DoubleArrayVector.Builder result = new DoubleArrayVector.Builder();
     double min = source.getElementAsDouble(0);
     result.add(min);
@@ -1243,6 +1243,31 @@ public class Types {
     return newEnv;
   }
 
+  @Invisible
+  @Internal
+  public static Environment detach(@Current Context context, int pos) {
+
+    if (pos < 2) {
+      throw new EvalException("invalid '%s' argument", "pos");
+    }
+
+    Environment child = context.getGlobalEnvironment();
+    for (int i = 2; i != pos; ++i) {
+      child = child.getParent();
+      if (child == Environment.EMPTY) {
+        throw new EvalException("invalid '%s' argument", "pos");
+      }
+    }
+
+    Environment detached = child.getParent();
+    if (detached == Environment.EMPTY || detached.getParent() == Environment.EMPTY) {
+      throw new EvalException("detaching \"package:base\" is not allowed");
+    }
+    child.setParent(detached.getParent());
+
+    return detached;
+  }
+
   @Internal
   public static String Encoding(StringVector vector) {
     return "UTF-8";
@@ -0,0 +1,262 @@
+package org.renjin.primitives.io.connections;
+
+import org.apache.commons.math.complex.Complex;
+import org.renjin.eval.EvalException;
+import org.renjin.sexp.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+
+/**
+ * Reads blocks of binary values from a stream for {@code readBin()}.
+ *
+ * <p>Bytes are read a chunk at a time into a single buffer, and decoded through
+ * {@link ByteBuffer} views directly into the primitive array which backs the resulting
+ * vector, so that large files can be read without boxing each element and without
+ * holding more than one chunk of the raw bytes in memory.
+ *
+ * <p>The reader never reads past the last byte of the values requested, so that
+ * successive calls to {@code readBin()} on the same connection see consecutive values.
+ */
+class BinaryReader {
+
+  static final int CHUNK_SIZE = 64 * 1024;
+
+  private final InputStream in;
+  private final byte[] chunk;
+  private final ByteBuffer buffer;
+
+  BinaryReader(InputStream in, ByteOrder order) {
+    this.in = in;
+    this.chunk = new byte[CHUNK_SIZE];
+    this.buffer = ByteBuffer.wrap(chunk).order(order);
+  }
+
+  /**
+   * Reads up to {@code n} values of type {@code what}, each of {@code size} bytes,
+   * or of the natural size of {@code what} if {@code size} is {@code NA}.
+   */
+  public Vector read(String what, int n, int size, boolean signed) throws IOException {
+    if(what.equals("numeric") || what.equals("double")) {
+      return DoubleArrayVector.unsafe(readDoubles(n, size == IntVector.NA ? 8 : size));
+    } else if(what.equals("integer") || what.equals("int")) {
+      return IntArrayVector.unsafe(readInts(n, size == IntVector.NA ? 4 : size, signed));
+    } else if(what.equals("logical")) {
+      return LogicalArrayVector.unsafe(readInts(n, size == IntVector.NA ? 4 : size, true));
+    } else if(what.equals("raw")) {
+      return new RawVector(readBytes(n));
+    } else if(what.equals("character")) {
+      return readStrings(n);
+    } else if(what.equals("complex")) {
+      return readComplex(n, size == IntVector.NA ? 16 : size);
+    } else {
+      throw new EvalException("invalid '%s' argument", "what");
+    }
+  }
+
+  private double[] readDoubles(int n, int size) throws IOException {
+    if(size != 8 && size != 4) {
+      throw new EvalException("size %d is unknown on this machine", size);
+    }
+    double[] values = new double[initialCapacity(n, size)];
+    int count = 0;
+    while(count < n) {
+      int requested = Math.min(n - count, elementsPerChunk(size));
+      int elementsRead = readChunk(requested, size);
+      if(count + elementsRead > values.length) {
+        values = Arrays.copyOf(values, grownCapacity(values.length, count + elementsRead, n));
+      }
+      if(size == 8) {
+        buffer.asDoubleBuffer().get(values, count, elementsRead);
+      } else {
+        FloatBuffer floats = buffer.asFloatBuffer();
+        for(int i = 0; i < elementsRead; ++i) {
+          values[count + i] = floats.get(i);
+        }
+      }
+      count += elementsRead;
+      if(elementsRead < requested) {
+        break;
+      }
+    }
+    return count == values.length ? values : Arrays.copyOf(values, count);
+  }
+
+  private int[] readInts(int n, int size, boolean signed) throws IOException {
+    if(size != 1 && size != 2 && size != 4 && size != 8) {
+      throw new EvalException("size %d is unknown on this machine", size);
+    }
+    int[] values = new int[initialCapacity(n, size)];
+    int count = 0;
+    while(count < n) {
+      int requested = Math.min(n - count, elementsPerChunk(size));
+      int elementsRead = readChunk(requested, size);
+      if(count + elementsRead > values.length) {
+        values = Arrays.copyOf(values, grownCapacity(values.length, count + elementsRead, n));
+      }
+      switch(size) {
+      case 1:
+        for(int i = 0; i < elementsRead; ++i) {
+          values[count + i] = signed ? chunk[i] : (chunk[i] & 0xFF);
+        }
+        break;
+      case 2:
+        ShortBuffer shorts = buffer.asShortBuffer();
+        for(int i = 0; i < elementsRead; ++i) {
+          values[count + i] = signed ? shorts.get(i) : (shorts.get(i) & 0xFFFF);
+        }
+        break;
+      case 4:
+        buffer.asIntBuffer().get(values, count, elementsRead);
+        break;
+      case 8:
+        LongBuffer longs = buffer.asLongBuffer();
+        for(int i = 0; i < elementsRead; ++i) {
+          values[count + i] = (int) longs.get(i);
+        }
+        break;
+      }
+      count += elementsRead;
+      if(elementsRead < requested) {
+        break;
+      }
+    }
+    return count == values.length ? values : Arrays.copyOf(values, count);
+  }
+
+  private byte[] readBytes(int n) throws IOException {
+    byte[] values = new byte[initialCapacity(n, 1)];
+    int count = 0;
+    while(count < n) {
+      int requested = Math.min(n - count, CHUNK_SIZE);
+      int bytesRead = readChunk(requested, 1);
+      if(count + bytesRead > values.length) {
+        values = Arrays.copyOf(values, grownCapacity(values.length, count + bytesRead, n));
+      }
+      System.arraycopy(chunk, 0, values, count, bytesRead);
+      count += bytesRead;
+      if(bytesRead < requested) {
+        break;
+      }
+    }
+    return count == values.length ? values : Arrays.copyOf(values, count);
+  }
+
+  private ComplexVector readComplex(int n, int size) throws IOException {
+    if(size != 16) {
+      throw new EvalException("size %d is unknown on this machine", size);
+    }
+    double[] parts = readDoubles((int) Math.min(2L * n, Integer.MAX_VALUE - 1), 8);
+    Complex[] values = new Complex[parts.length / 2];
+    for(int i = 0; i < values.length; ++i) {
+      values[i] = new Complex(parts[2 * i], parts[2 * i + 1]);
+    }
+    return new ComplexVector(values);
+  }
+
+  /**
+   * Reads up to {@code n} NUL-terminated strings. If the stream supports {@link InputStream#mark(int)},
+   * it is read a chunk at a time, and reset to the end of the last string read. Otherwise, it is
+   * read a byte at a time, so that no bytes after the last string are consumed.
+   */
+  private StringVector readStrings(int n) throws IOException {
+    StringVector.Builder strings = new StringVector.Builder();
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    if(!in.markSupported()) {
+      while(strings.length() < n) {
+        int b = in.read();
+        if(b == -1) {
+          break;
+        }
+        if(b == 0) {
+          strings.add(new String(bytes.toByteArray(), "UTF-8"));
+          bytes.reset();
+        } else {
+          bytes.write(b);
+        }
+      }
+      return strings.build();
+    }
+
+    while(strings.length() < n) {
+      in.mark(CHUNK_SIZE);
+      int bytesRead = in.read(chunk, 0, CHUNK_SIZE);
+      if(bytesRead == -1) {
+        break;
+      }
+      int start = 0;
+      for(int i = 0; i < bytesRead && strings.length() < n; ++i) {
+        if(chunk[i] == 0) {
+          bytes.write(chunk, start, i - start);
+          strings.add(new String(bytes.toByteArray(), "UTF-8"));
+          bytes.reset();
+          start = i + 1;
+        }
+      }
+      if(strings.length() < n) {
+        bytes.write(chunk, start, bytesRead - start);
+      } else if(start < bytesRead) {
+        // return the bytes following the last string to the stream
+        in.reset();
+        skipFully(start);
+      }
+    }
+    return strings.build();
+  }
+
+  private void skipFully(int count) throws IOException {
+    int skipped = 0;
+    while(skipped < count) {
+      long n = in.skip(count - skipped);
+      if(n <= 0) {
+        throw new IOException("could not skip to the end of the last string read");
+      }
+      skipped += n;
+    }
+  }
+
+  /**
+   * Reads the bytes of up to {@code n} elements into the chunk, stopping early only at the end
+   * of the stream, and prepares the buffer for decoding them.
+   *
+   * @return the number of complete elements read
+   */
+  private int readChunk(int n, int size) throws IOException {
+    int length = n * size;
+    int bytesRead = 0;
+    while(bytesRead < length) {
+      int read = in.read(chunk, bytesRead, length - bytesRead);
+      if(read == -1) {
+        break;
+      }
+      bytesRead += read;
+    }
+    buffer.clear();
+    buffer.limit(bytesRead);
+    return bytesRead / size;
+  }
+
+  private static int elementsPerChunk(int size) {
+    return CHUNK_SIZE / size;
+  }
+
+  /**
+   * Results are allocated one chunk at a time, so that a large value of {@code n}, as
+   * is often given to read a whole file, does not allocate more than is actually read.
+   */
+  private static int initialCapacity(int n, int size) {
+    return Math.min(n, elementsPerChunk(size));
+  }
+
+  private static int grownCapacity(int capacity, int required, int n) {
+    long grown = Math.max((long) capacity * 2, required);
+    return (int) Math.min(grown, n);
+  }
+}
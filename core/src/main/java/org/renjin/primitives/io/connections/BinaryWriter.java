@@ -0,0 +1,150 @@
+package org.renjin.primitives.io.connections;
+
+import org.apache.commons.math.complex.Complex;
+import org.renjin.eval.EvalException;
+import org.renjin.sexp.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Writes the elements of a vector to a stream in binary form for {@code writeBin()}.
+ *
+ * <p>Values are encoded a chunk at a time into a single {@link ByteBuffer}, which
+ * is then written to the stream, so that large vectors are written without
+ * an intermediate copy of all their bytes.
+ */
+class BinaryWriter {
+
+  private final OutputStream out;
+  private final byte[] chunk;
+  private final ByteBuffer buffer;
+
+  BinaryWriter(OutputStream out, ByteOrder order) {
+    this.out = out;
+    this.chunk = new byte[BinaryReader.CHUNK_SIZE];
+    this.buffer = ByteBuffer.wrap(chunk).order(order);
+  }
+
+  /**
+   * Writes all elements of {@code object}, each of {@code size} bytes, or of the natural size of
+   * the vector's type if {@code size} is {@code NA}.
+   */
+  public void write(Vector object, int size) throws IOException {
+    if(object instanceof DoubleVector) {
+      writeDoubles((DoubleVector) object, size == IntVector.NA ? 8 : size);
+    } else if(object instanceof IntVector || object instanceof LogicalVector) {
+      writeInts((AtomicVector) object, size == IntVector.NA ? 4 : size);
+    } else if(object instanceof RawVector) {
+      writeBytes(((RawVector) object).getAsByteArray());
+    } else if(object instanceof StringVector) {
+      writeStrings((StringVector) object);
+    } else if(object instanceof ComplexVector) {
+      writeComplex((ComplexVector) object, size == IntVector.NA ? 16 : size);
+    } else {
+      throw new EvalException("can only write vector objects");
+    }
+  }
+
+  private void writeDoubles(DoubleVector object, int size) throws IOException {
+    if(size != 8 && size != 4) {
+      throw new EvalException("size %d is unknown on this machine", size);
+    }
+    int length = object.length();
+    double[] array = object instanceof DoubleArrayVector ?
+        ((DoubleArrayVector) object).toDoubleArrayUnsafe() : null;
+    int elementsPerChunk = chunk.length / size;
+    for(int start = 0; start < length; start += elementsPerChunk) {
+      int count = Math.min(elementsPerChunk, length - start);
+      buffer.clear();
+      if(size == 8) {
+        DoubleBuffer doubles = buffer.asDoubleBuffer();
+        if(array != null) {
+          doubles.put(array, start, count);
+        } else {
+          for(int i = 0; i < count; ++i) {
+            doubles.put(object.getElementAsDouble(start + i));
+          }
+        }
+      } else {
+        for(int i = 0; i < count; ++i) {
+          buffer.putFloat((float) object.getElementAsDouble(start + i));
+        }
+      }
+      out.write(chunk, 0, count * size);
+    }
+  }
+
+  private void writeInts(AtomicVector object, int size) throws IOException {
+    if(size != 1 && size != 2 && size != 4 && size != 8) {
+      throw new EvalException("size %d is unknown on this machine", size);
+    }
+    int length = object.length();
+    int[] array = object instanceof IntArrayVector ?
+        ((IntArrayVector) object).toIntArrayUnsafe() : null;
+    int elementsPerChunk = chunk.length / size;
+    for(int start = 0; start < length; start += elementsPerChunk) {
+      int count = Math.min(elementsPerChunk, length - start);
+      buffer.clear();
+      if(size == 4 && array != null) {
+        IntBuffer ints = buffer.asIntBuffer();
+        ints.put(array, start, count);
+      } else {
+        for(int i = 0; i < count; ++i) {
+          int value = object.getElementAsInt(start + i);
+          switch(size) {
+          case 1:
+            buffer.put((byte) value);
+            break;
+          case 2:
+            buffer.putShort((short) value);
+            break;
+          case 4:
+            buffer.putInt(value);
+            break;
+          case 8:
+            buffer.putLong(value);
+            break;
+          }
+        }
+      }
+      out.write(chunk, 0, count * size);
+    }
+  }
+
+  private void writeBytes(byte[] bytes) throws IOException {
+    out.write(bytes);
+  }
+
+  private void writeComplex(ComplexVector object, int size) throws IOException {
+    if(size != 16) {
+      throw new EvalException("size %d is unknown on this machine", size);
+    }
+    double[] parts = new double[object.length() * 2];
+    for(int i = 0; i < object.length(); ++i) {
+      Complex value = object.getElementAsComplex(i);
+      parts[2 * i] = value.getReal();
+      parts[2 * i + 1] = value.getImaginary();
+    }
+    writeDoubles(DoubleArrayVector.unsafe(parts), 8);
+  }
+
+  /**
+   * Writes each string followed by a nul byte
+   */
+  private void writeStrings(StringVector object) throws IOException {
+    for(int i = 0; i < object.length(); ++i) {
+      String value = object.getElementAsString(i);
+      out.write((value == null ? "NA" : value).getBytes("UTF-8"));
+      out.write(0);
+    }
+  }
+
+  public void flush() throws IOException {
+    out.flush();
+  }
+}
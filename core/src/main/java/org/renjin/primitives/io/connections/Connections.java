@@ -23,7 +23,10 @@ package org.renjin.primitives.io.connections;
 import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
+import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
+import org.apache.commons.vfs2.Selectors;
+import org.apache.commons.vfs2.provider.local.LocalFile;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.Builtin;
@@ -31,13 +34,20 @@ import org.renjin.invoke.annotations.Current;
 import org.renjin.invoke.annotations.Internal;
 import org.renjin.invoke.annotations.Recycle;
 import org.renjin.primitives.io.connections.Connection.Type;
+import org.renjin.primitives.vector.MappedDoubleVector;
+import org.renjin.primitives.vector.MappedIntVector;
 import org.renjin.sexp.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.PrintWriter;
 import java.io.Reader;
 import java.net.URL;
+import java.nio.ByteOrder;
 import java.net.UnknownHostException;
 
 /**
@@ -204,6 +214,100 @@ public class Connections {
     }
   }
 
+  /**
+   * Reads binary values from a connection or a raw vector.
+   *
+   * @param swap true if the values are stored in the opposite byte order to {@code .Platform$endian},
+   *             which for Renjin, as for the JVM, is big-endian
+   */
+  @Internal
+  public static Vector readBin(@Current Context context, SEXP con, String what, int n, int size,
+                               boolean signed, boolean swap) throws IOException {
+    if(n < 0 || n == IntVector.NA) {
+      throw new EvalException("invalid '%s' argument", "n");
+    }
+    InputStream in;
+    if(con instanceof RawVector) {
+      in = new ByteArrayInputStream(((RawVector) con).getAsByteArray());
+    } else {
+      Connection connection = getConnection(context, con);
+      if(!connection.canRead()) {
+        throw new EvalException("cannot read from this connection");
+      }
+      in = connection.getInputStream();
+    }
+    return new BinaryReader(in, byteOrder(swap)).read(what, n, size, signed);
+  }
+
+  /**
+   * Writes the elements of a vector to a connection in binary form, or, if {@code con} is
+   * a raw vector, returns them as a new raw vector.
+   */
+  @Internal
+  public static SEXP writeBin(@Current Context context, Vector object, SEXP con, int size,
+                              boolean swap, boolean useBytes) throws IOException {
+    if(con instanceof RawVector) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      new BinaryWriter(out, byteOrder(swap)).write(object, size);
+      return new RawVector(out.toByteArray());
+    }
+    Connection connection = getConnection(context, con);
+    if(!connection.canWrite()) {
+      throw new EvalException("cannot write to this connection");
+    }
+    BinaryWriter writer = new BinaryWriter(connection.getOutputStream(), byteOrder(swap));
+    writer.write(object, size);
+    writer.flush();
+    return Null.INSTANCE;
+  }
+
+  /**
+   * Maps a file of binary values into memory as a read-only vector, rather than reading it,
+   * so that only the pages which are actually used are read from disk.
+   *
+   * @param n the number of values to map, or {@code NA} to map the remainder of the file
+   * @param offset the number of bytes at the start of the file to skip
+   */
+  @Internal
+  public static Vector mapBin(@Current Context context, String path, String what, int n, double offset,
+                              boolean swap) throws IOException {
+    FileObject fileObject = context.resolveFile(path);
+    if(!(fileObject instanceof LocalFile)) {
+      throw new EvalException("can only map files on the local file system");
+    }
+    if(Double.isNaN(offset) || offset < 0) {
+      throw new EvalException("invalid '%s' argument", "offset");
+    }
+    // the local file system returns the file itself rather than a copy
+    File file = fileObject.getFileSystem().replicateFile(fileObject, Selectors.SELECT_SELF);
+    int size;
+    if(what.equals("numeric") || what.equals("double")) {
+      size = 8;
+    } else if(what.equals("integer") || what.equals("int")) {
+      size = 4;
+    } else {
+      throw new EvalException("cannot map values of type '%s'", what);
+    }
+    if(n == IntVector.NA) {
+      long available = (file.length() - (long) offset) / size;
+      if(available > Integer.MAX_VALUE) {
+        throw new EvalException("file '%s' is too large to map as a single vector", path);
+      }
+      n = (int) Math.max(0, available);
+    } else if(n < 0) {
+      throw new EvalException("invalid '%s' argument", "n");
+    }
+    if(size == 8) {
+      return MappedDoubleVector.map(file, (long) offset, n, byteOrder(swap));
+    } else {
+      return MappedIntVector.map(file, (long) offset, n, byteOrder(swap));
+    }
+  }
+
+  private static ByteOrder byteOrder(boolean swap) {
+    return swap ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+  }
+
   @Internal("readLines")
   public static StringVector readLines(@Current Context context, SEXP connection, int numLines, boolean ok, 
       boolean warn, String encoding) throws IOException {
@@ -5,6 +5,7 @@ import org.apache.commons.vfs2.FileObject;
 import org.apache.commons.vfs2.FileSystemException;
 import org.renjin.eval.EvalException;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -64,10 +65,12 @@ public class FileConnection extends AbstractConnection {
     int b2 = in.read();
     in.unread(b2);
     in.unread(b1);
+    // the stream is buffered, and so supports mark(), so that readBin() can scan
+    // ahead for the end of strings without consuming the bytes which follow
     if(b1 == GzFileConnection.GZIP_MAGIC_BYTE1 && b2 == GzFileConnection.GZIP_MAGIC_BYTE2) {
-      return new GZIPInputStream(in);
+      return new BufferedInputStream(new GZIPInputStream(in));
     } else {
-      return in;
+      return new BufferedInputStream(in);
     }
   }
   
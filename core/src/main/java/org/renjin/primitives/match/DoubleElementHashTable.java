@@ -0,0 +1,88 @@
+package org.renjin.primitives.match;
+
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.Vector;
+
+/**
+ * {@link ElementHashTable} for double elements.
+ *
+ * <p>Keys are compared following R's semantics for {@code match()}: NA only matches NA,
+ * NaN only matches NaN, and 0 and -0 are equal.
+ */
+class DoubleElementHashTable extends ElementHashTable {
+
+  private static final long NA_KEY = Double.doubleToRawLongBits(DoubleVector.NA);
+  private static final long NAN_KEY = Double.doubleToRawLongBits(DoubleVector.NaN);
+
+  private long[] keys;
+
+  DoubleElementHashTable(int expectedSize) {
+    super(DoubleVector.VECTOR_TYPE, expectedSize);
+    this.keys = new long[indexes.length];
+  }
+
+  static long keyOf(double value) {
+    if(Double.isNaN(value)) {
+      return DoubleVector.isNA(value) ? NA_KEY : NAN_KEY;
+    } else if(value == 0) {
+      // collapse -0 and +0
+      return 0L;
+    } else {
+      return Double.doubleToRawLongBits(value);
+    }
+  }
+
+  private static int hash(long key) {
+    return (int)(key ^ (key >>> 32));
+  }
+
+  @Override
+  public int add(Vector source, int sourceIndex) {
+    long key = keyOf(source.getElementAsDouble(sourceIndex));
+    int slot = slot(hash(key));
+    while(true) {
+      int index = indexes[slot];
+      if(index == EMPTY) {
+        indexes[slot] = sourceIndex;
+        keys[slot] = key;
+        added();
+        return -1;
+      }
+      if(keys[slot] == key) {
+        return index;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  @Override
+  public int indexOf(Vector vector, int vectorIndex) {
+    long key = keyOf(vector.getElementAsDouble(vectorIndex));
+    int slot = slot(hash(key));
+    while(true) {
+      int index = indexes[slot];
+      if(index == EMPTY || keys[slot] == key) {
+        return index;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  @Override
+  protected void rehash(int newCapacity) {
+    int[] oldIndexes = indexes;
+    long[] oldKeys = keys;
+    allocate(newCapacity);
+    keys = new long[newCapacity];
+    for(int i=0;i!=oldIndexes.length;++i) {
+      if(oldIndexes[i] != EMPTY) {
+        int slot = slot(hash(oldKeys[i]));
+        while(indexes[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        indexes[slot] = oldIndexes[i];
+        keys[slot] = oldKeys[i];
+      }
+    }
+  }
+}
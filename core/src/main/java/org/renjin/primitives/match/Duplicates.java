@@ -70,11 +70,47 @@ public class Duplicates {
       DuplicateSearchAlgorithm<ResultType> algorithm) {
    
     algorithm.init(x);
+
+    ElementHashTable table = null;
+    if(x instanceof AtomicVector) {
+      table = ElementHashTable.create(x.getVectorType(), 0);
+    }
+    if(table == null) {
+      return searchObjects(x, fromLast, algorithm);
+    }
+    
+    int length = x.length();
+    for(int i=0;i!=length;++i) {
+      int index = fromLast ? length - 1 - i : i;
+      int originalIndex = table.add(x, index);
+      
+      if(originalIndex == -1) {
+        algorithm.onUnique(index);
+      
+      } else {
+        if(algorithm.onDuplicate(index, originalIndex) == Action.STOP) {
+          break;
+        }
+      }
+    }
+    return algorithm.getResult();
+  }
+
+  /**
+   * Searches for duplicates among the elements of lists and other vectors for which
+   * there is no specialized {@link ElementHashTable}
+   */
+  private static <ResultType> ResultType searchObjects(
+      Vector x, 
+      boolean fromLast,
+      DuplicateSearchAlgorithm<ResultType> algorithm) {
     
     /** Maps elements -> first encountered index */
     HashMap<Object, Integer> seen = Maps.newHashMap();
    
-    for(Integer index : new IndexSequence(x, fromLast)) {
+    int length = x.length();
+    for(int i=0;i!=length;++i) {
+      int index = fromLast ? length - 1 - i : i;
       
       Object element = x.getElementAsObject(index);
       
@@ -86,7 +122,7 @@ public class Duplicates {
       
       } else {
         if(algorithm.onDuplicate(index, originalIndex) == Action.STOP) {
-          return algorithm.getResult();
+          break;
         }
       }
     }
@@ -0,0 +1,150 @@
+package org.renjin.primitives.match;
+
+import java.util.Arrays;
+
+import org.renjin.sexp.AtomicVector;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.IntVector;
+import org.renjin.sexp.LogicalVector;
+import org.renjin.sexp.StringVector;
+import org.renjin.sexp.Vector;
+
+/**
+ * Open-addressing hash table which maps the elements of a
+ * source vector to the index at which they were first added.
+ *
+ * <p>The table does not retain a reference to the source vector: callers
+ * must pass the same vector to each call to {@link #add(Vector, int)}.
+ *
+ * <p>Elements are stored as unboxed keys specialized for the
+ * type to which the elements are compared (int, double or String), so
+ * adding or looking up an element does not allocate.
+ */
+abstract class ElementHashTable {
+
+  protected static final int EMPTY = -1;
+
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final Vector.Type keyType;
+
+  /**
+   * Maps each slot to the index in the source vector, or {@code EMPTY}
+   */
+  protected int[] indexes;
+
+  protected int mask;
+  protected int shift;
+  protected int size;
+  private int threshold;
+
+  protected ElementHashTable(Vector.Type keyType, int expectedSize) {
+    this.keyType = keyType;
+    allocate(capacityFor(expectedSize));
+  }
+
+  /**
+   * Creates an empty hash table whose keys are elements coerced to {@code keyType}.
+   *
+   * @return a new table, or {@code null} if there is no
+   * specialized table for the given key type.
+   */
+  public static ElementHashTable create(Vector.Type keyType, int expectedSize) {
+    if(keyType == StringVector.VECTOR_TYPE) {
+      return new StringElementHashTable(expectedSize);
+    } else if(keyType == DoubleVector.VECTOR_TYPE) {
+      return new DoubleElementHashTable(expectedSize);
+    } else if(keyType == IntVector.VECTOR_TYPE || keyType == LogicalVector.VECTOR_TYPE) {
+      return new IntElementHashTable(keyType, expectedSize);
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * Finds the type to which elements of {@code x} and {@code table}
+   * must be coerced before they can be compared.
+   *
+   * @return the common type, or {@code null} if either vector is not atomic.
+   */
+  public static Vector.Type commonKeyType(Vector x, Vector table) {
+    if(!(x instanceof AtomicVector) || !(table instanceof AtomicVector)) {
+      return null;
+    }
+    return Vector.Type.widest(x.getVectorType(), table.getVectorType());
+  }
+
+  public Vector.Type getKeyType() {
+    return keyType;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Adds the element at {@code sourceIndex} in {@code source} to this table.
+   *
+   * @return the source index of a previously added element which is equal to the
+   * element at {@code sourceIndex}, or {@code -1} if the element was not yet
+   * present and has been added.
+   */
+  public abstract int add(Vector source, int sourceIndex);
+
+  /**
+   * Adds all elements of {@code source}, in order.
+   */
+  public final void addAll(Vector source) {
+    int length = source.length();
+    for(int i=0;i!=length;++i) {
+      add(source, i);
+    }
+  }
+
+  /**
+   * @return the source index of the first added element which is equal to the element
+   * {@code vectorIndex} of {@code vector}, or {@code -1} if there is no such element.
+   */
+  public abstract int indexOf(Vector vector, int vectorIndex);
+
+  /**
+   * Allocates a new, empty, set of slots. Subclasses must
+   * allocate their key arrays with the same capacity.
+   */
+  protected void allocate(int capacity) {
+    indexes = new int[capacity];
+    Arrays.fill(indexes, EMPTY);
+    mask = capacity - 1;
+    shift = 32 - Integer.numberOfTrailingZeros(capacity);
+    threshold = capacity / 2;
+  }
+
+  /**
+   * Records that a new key has been added and grows the table
+   * if the load factor has been exceeded.
+   */
+  protected final void added() {
+    size++;
+    if(size > threshold) {
+      rehash(indexes.length * 2);
+    }
+  }
+
+  protected abstract void rehash(int newCapacity);
+
+  /**
+   * Maps a hash code to a slot using Fibonacci hashing, which spreads
+   * sequential keys well.
+   */
+  protected final int slot(int hashCode) {
+    return (hashCode * 0x9E3779B9) >>> shift;
+  }
+
+  private static int capacityFor(int expectedSize) {
+    int capacity = INITIAL_CAPACITY;
+    while(capacity / 2 < expectedSize && capacity < (1 << 30)) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+}
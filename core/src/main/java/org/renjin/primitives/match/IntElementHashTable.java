@@ -0,0 +1,66 @@
+package org.renjin.primitives.match;
+
+import org.renjin.sexp.Vector;
+
+/**
+ * {@link ElementHashTable} for integer, logical and factor elements.
+ */
+class IntElementHashTable extends ElementHashTable {
+
+  private int[] keys;
+
+  IntElementHashTable(Vector.Type keyType, int expectedSize) {
+    super(keyType, expectedSize);
+    this.keys = new int[indexes.length];
+  }
+
+  @Override
+  public int add(Vector source, int sourceIndex) {
+    int key = source.getElementAsInt(sourceIndex);
+    int slot = slot(key);
+    while(true) {
+      int index = indexes[slot];
+      if(index == EMPTY) {
+        indexes[slot] = sourceIndex;
+        keys[slot] = key;
+        added();
+        return -1;
+      }
+      if(keys[slot] == key) {
+        return index;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  @Override
+  public int indexOf(Vector vector, int vectorIndex) {
+    int key = vector.getElementAsInt(vectorIndex);
+    int slot = slot(key);
+    while(true) {
+      int index = indexes[slot];
+      if(index == EMPTY || keys[slot] == key) {
+        return index;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  @Override
+  protected void rehash(int newCapacity) {
+    int[] oldIndexes = indexes;
+    int[] oldKeys = keys;
+    allocate(newCapacity);
+    keys = new int[newCapacity];
+    for(int i=0;i!=oldIndexes.length;++i) {
+      if(oldIndexes[i] != EMPTY) {
+        int slot = slot(oldKeys[i]);
+        while(indexes[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        indexes[slot] = oldIndexes[i];
+        keys[slot] = oldKeys[i];
+      }
+    }
+  }
+}
@@ -23,6 +23,8 @@ import com.google.common.collect.UnmodifiableIterator;
 
 package org.renjin.primitives.match;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.renjin.eval.Calls;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
@@ -40,6 +42,17 @@ public class Match {
   private static final int UNMATCHED = -1;
   private static final int MULTIPLE_MATCH = -2;
 
+  /**
+   * Hash tables built for recently matched {@code table} vectors, so that
+   * repeatedly matching against the same table, for example with {@code %in%}
+   * inside a loop, only hashes the table once. Keys are compared by identity.
+   */
+  private static final Cache<Vector, ElementHashTable> TABLE_CACHE = CacheBuilder.newBuilder()
+      .weakKeys()
+      .softValues()
+      .maximumSize(32)
+      .build();
+
   private Match() { }
 
   /**
@@ -61,6 +74,7 @@ public class Match {
     // We need to handle factors specially here -
     // treat them as strings if one of the other arguments
     // is a string
+    Vector originalTable = table;
     if(search instanceof StringVector || table instanceof StringVector) {
       if(search.inherits("factor")) {
         search = new FactorString(search);
@@ -70,6 +84,45 @@ public class Match {
       }
     }
 
+    Vector.Type keyType = ElementHashTable.commonKeyType(search, table);
+    if(keyType != null) {
+      ElementHashTable hashTable = hashTable(originalTable, table, keyType);
+      if(hashTable != null) {
+        return hashedMatch(search, hashTable, noMatch, incomparables);
+      }
+    }
+
+    return linearMatch(search, table, noMatch, incomparables);
+  }
+
+  private static ElementHashTable hashTable(Vector originalTable, Vector table, Vector.Type keyType) {
+    ElementHashTable hashTable = TABLE_CACHE.getIfPresent(originalTable);
+    if(hashTable != null && hashTable.getKeyType() == keyType) {
+      return hashTable;
+    }
+    hashTable = ElementHashTable.create(keyType, table.length());
+    if(hashTable != null) {
+      hashTable.addAll(table);
+      TABLE_CACHE.put(originalTable, hashTable);
+    }
+    return hashTable;
+  }
+
+  private static int[] hashedMatch(Vector search, ElementHashTable table, int noMatch, AtomicVector incomparables) {
+    boolean checkIncomparables = incomparables.length() > 0;
+    int[] matches = new int[search.length()];
+    for(int i=0;i!=matches.length;++i) {
+      if(checkIncomparables && incomparables.contains(search, i)) {
+        matches[i] = noMatch;
+      } else {
+        int pos = table.indexOf(search, i);
+        matches[i] = pos >= 0 ? pos+1 : noMatch;
+      }
+    }
+    return matches;
+  }
+
+  private static int[] linearMatch(Vector search, Vector table, int noMatch, AtomicVector incomparables) {
     int[] matches = new int[search.length()];
     for(int i=0;i!=search.length();++i) {
       if( incomparables.contains(search, i)) {
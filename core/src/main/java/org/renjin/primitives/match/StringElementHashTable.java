@@ -0,0 +1,76 @@
+package org.renjin.primitives.match;
+
+import org.renjin.sexp.StringVector;
+import org.renjin.sexp.Vector;
+
+/**
+ * {@link ElementHashTable} for character elements. NA elements
+ * are stored as {@code null} keys and only match other NAs.
+ */
+class StringElementHashTable extends ElementHashTable {
+
+  private String[] keys;
+
+  StringElementHashTable(int expectedSize) {
+    super(StringVector.VECTOR_TYPE, expectedSize);
+    this.keys = new String[indexes.length];
+  }
+
+  private static int hash(String key) {
+    return key == null ? 0 : key.hashCode();
+  }
+
+  private static boolean equal(String a, String b) {
+    return a == b || (a != null && a.equals(b));
+  }
+
+  @Override
+  public int add(Vector source, int sourceIndex) {
+    String key = source.getElementAsString(sourceIndex);
+    int slot = slot(hash(key));
+    while(true) {
+      int index = indexes[slot];
+      if(index == EMPTY) {
+        indexes[slot] = sourceIndex;
+        keys[slot] = key;
+        added();
+        return -1;
+      }
+      if(equal(keys[slot], key)) {
+        return index;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  @Override
+  public int indexOf(Vector vector, int vectorIndex) {
+    String key = vector.getElementAsString(vectorIndex);
+    int slot = slot(hash(key));
+    while(true) {
+      int index = indexes[slot];
+      if(index == EMPTY || equal(keys[slot], key)) {
+        return index;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  @Override
+  protected void rehash(int newCapacity) {
+    int[] oldIndexes = indexes;
+    String[] oldKeys = keys;
+    allocate(newCapacity);
+    keys = new String[newCapacity];
+    for(int i=0;i!=oldIndexes.length;++i) {
+      if(oldIndexes[i] != EMPTY) {
+        int slot = slot(hash(oldKeys[i]));
+        while(indexes[slot] != EMPTY) {
+          slot = (slot + 1) & mask;
+        }
+        indexes[slot] = oldIndexes[i];
+        keys[slot] = oldKeys[i];
+      }
+    }
+  }
+}
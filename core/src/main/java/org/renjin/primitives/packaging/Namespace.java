@@ -21,6 +21,15 @@ public class Namespace {
     this.namespaceEnvironment = namespaceEnvironment;
   }
   
+  /**
+   * Creates a namespace with the same name, package and exports as {@code namespace},
+   * but backed by another environment.
+   */
+  Namespace(Namespace namespace, Environment namespaceEnvironment) {
+    this(namespace.pkg, namespace.name, namespaceEnvironment);
+    this.exports.addAll(namespace.exports);
+  }
+
   public String getName() {
     return name;
   }
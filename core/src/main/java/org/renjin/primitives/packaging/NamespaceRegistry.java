@@ -36,6 +36,10 @@ public class NamespaceRegistry {
 	  envirMap.put(baseNamespaceEnv, baseNamespace);
 	}
 
+	public PackageLoader getPackageLoader() {
+	  return loader;
+	}
+
 	public Namespace getBaseNamespace() {
 	  return namespaces.get(BASE);
 	}
@@ -154,6 +158,43 @@ public class NamespaceRegistry {
     return namespace;
   }
 
+  /**
+   * Registers a copy-on-write copy of each namespace loaded in another session, for
+   * a {@linkplain org.renjin.eval.Session#fork() forked} session.
+   *
+   * <p>The namespace and imports environments of the copies are backed by {@link OverlayFrame}s,
+   * and are added to {@code environments} so that closures defined in the shared namespaces
+   * are rebound to the copies when they are read. Promises of the shared namespaces are thus
+   * evaluated by this session, and never modify the other session's namespaces.
+   *
+   * @param shared the registry of the session from which this session was forked
+   * @param sharedContext the top level context of that session
+   * @param environments map from the environments of that session to the corresponding
+   *                     environments of this session
+   */
+  public void shareNamespaces(NamespaceRegistry shared, Context sharedContext,
+                              Map<Environment, Environment> environments) {
+    for(Map.Entry<Symbol, Namespace> entry : shared.namespaces.entrySet()) {
+      if(entry.getKey() == BASE) {
+        continue;
+      }
+      Namespace namespace = entry.getValue();
+      Environment sharedImports = namespace.getImportsEnvironment();
+      Environment sharedNamespaceEnv = namespace.getNamespaceEnvironment();
+
+      Environment imports = Environment.createNamedEnvironment(getBaseNamespaceEnv(), sharedImports.getName(),
+          new OverlayFrame(sharedImports.getFrame(), sharedContext, environments));
+      Environment namespaceEnv = Environment.createNamedEnvironment(imports, sharedNamespaceEnv.getName(),
+          new OverlayFrame(sharedNamespaceEnv.getFrame(), sharedContext, environments));
+      environments.put(sharedImports, imports);
+      environments.put(sharedNamespaceEnv, namespaceEnv);
+
+      Namespace copy = new Namespace(namespace, namespaceEnv);
+      namespaces.put(entry.getKey(), copy);
+      envirMap.put(namespaceEnv, copy);
+    }
+  }
+
   public boolean isNamespaceEnv(Environment envir) {
     return envirMap.containsKey(envir);
   }
@@ -23,6 +23,7 @@ package org.renjin.primitives.special;
 
 import org.renjin.compiler.ir.exception.InvalidSyntaxException;
 import org.renjin.eval.Context;
+import org.renjin.primitives.subset.InPlaceReplacement;
 import org.renjin.sexp.*;
 
 
@@ -58,6 +59,17 @@ public class AssignLeftFunction extends SpecialFunction {
     // class(x$a[3]) <- "foo"
 
     SEXP evaluatedValue = context.evaluate( value, rho);
+
+    // x[i] <- value can often be done without copying x
+    SEXP source = null;
+    if(allowsInPlaceReplacement()) {
+      if(InPlaceReplacement.tryReplace(context, rho, lhs, evaluatedValue)) {
+        context.setInvisibleFlag();
+        return evaluatedValue;
+      }
+      source = InPlaceReplacement.getSource(context, rho, lhs);
+    }
+
     SEXP rhs = new Promise(value, evaluatedValue);
 
     while(lhs instanceof FunctionCall) {
@@ -90,6 +102,7 @@ public class AssignLeftFunction extends SpecialFunction {
     if(rhs instanceof Promise) {
       rhs = rhs.force(context);
     }
+    InPlaceReplacement.markIfNew(source, rhs, evaluatedValue);
     assignResult(rho, target, rhs);
 
     context.setInvisibleFlag();
@@ -97,6 +110,14 @@ public class AssignLeftFunction extends SpecialFunction {
     return evaluatedValue;
   }
 
+  /**
+   * @return true if simple replacements may modify the value of the target in
+   * place, which is only possible if the target is bound in the current environment.
+   */
+  protected boolean allowsInPlaceReplacement() {
+    return true;
+  }
+
   protected void assignResult(Environment rho, Symbol target, SEXP rhs) {
     rho.setVariable(target, rhs);
   }
@@ -64,6 +64,7 @@ public class ForFunction extends SpecialFunction {
       } catch (NextException e) {
         // next iteration
       }
+      context.onLoopBackEdge();
     }
 
     context.setInvisibleFlag();
@@ -31,6 +31,11 @@ public class ReassignLeftFunction extends AssignLeftFunction {
     super("<<-");
   }
   
+  @Override
+  protected boolean allowsInPlaceReplacement() {
+    return false;
+  }
+
   @Override
   protected void assignResult(Environment rho, Symbol lhs, SEXP rhs) {
 
@@ -47,6 +47,7 @@ public class RepeatFunction extends SpecialFunction {
       } catch(NextException e) {
         // next loop iteration
       }
+      context.onLoopBackEdge();
     }
     context.setInvisibleFlag();
     return Null.INSTANCE;
@@ -51,6 +51,7 @@ public class WhileFunction extends SpecialFunction {
       } catch(NextException e) {
         // next loop iteration
       }
+      context.onLoopBackEdge();
     }
     context.setInvisibleFlag();
     return Null.INSTANCE;
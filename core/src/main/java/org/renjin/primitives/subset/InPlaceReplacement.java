@@ -0,0 +1,222 @@
+package org.renjin.primitives.subset;
+
+import org.renjin.eval.Context;
+import org.renjin.primitives.Primitives;
+import org.renjin.sexp.*;
+
+/**
+ * Performs simple replacements such as {@code x[i] <- v}, {@code x[[i]] <- v} and {@code x$name <- v}
+ * by modifying the vector bound to {@code x} in place, rather than copying it.
+ *
+ * <p>This is only safe if no one else holds a reference to the vector. The first replacement
+ * always goes through the {@code [<-} builtin, which returns a new copy: that copy is
+ * marked as {@link AbstractSEXP#isUnshared() unshared} before it is bound to {@code x}. The
+ * {@link HashFrame} clears the mark as soon as the binding is read in any other way, for example
+ * when {@code x} is passed to a function, assigned to another variable, or captured by a promise.
+ * Until then, later replacements can update the vector directly, so that filling a preallocated
+ * vector element by element takes linear rather than quadratic time.
+ *
+ * <p>Only replacements of a single, existing element with a scalar of the same type are handled here,
+ * and only when the replacement function is the builtin and the vector has no class attribute.
+ * Everything else falls back to the builtin replacement functions.
+ */
+public class InPlaceReplacement {
+
+  private static final Symbol SUBSET = Symbol.get("[");
+  private static final Symbol SUBSET2 = Symbol.get("[[");
+  private static final Symbol DOLLAR = Symbol.get("$");
+
+  private InPlaceReplacement() { }
+
+  /**
+   * Attempts to carry out the assignment {@code lhs <- value} by modifying the
+   * target vector in place.
+   *
+   * @param value the evaluated right-hand side of the assignment
+   * @return true if the assignment was carried out.
+   */
+  public static boolean tryReplace(Context context, Environment rho, SEXP lhs, SEXP value) {
+    if(!isCandidate(lhs)) {
+      return false;
+    }
+    FunctionCall call = (FunctionCall) lhs;
+    Symbol target = call.getArgument(0);
+    if(!(rho.getFrame() instanceof HashFrame) || rho.bindingIsLocked(target)) {
+      return false;
+    }
+    HashFrame frame = (HashFrame) rho.getFrame();
+    if(frame.getUnsharedVariable(target) == null || !isBuiltin(context, rho, call)) {
+      return false;
+    }
+
+    SEXP indexExp = call.getArgument(1);
+    SEXP index;
+    if(call.getFunction() == DOLLAR) {
+      index = indexExp;
+    } else if(indexExp instanceof Symbol || indexExp instanceof AtomicVector) {
+      // evaluating a symbol or a constant has no side effects, so we can safely
+      // evaluate it again if we end up falling back to the builtin
+      index = context.evaluate(indexExp, rho);
+    } else {
+      return false;
+    }
+
+    // evaluating the index may have read the target itself
+    AbstractSEXP vector = frame.getUnsharedVariable(target);
+    if(vector == null || vector.isObject()) {
+      return false;
+    }
+
+    if(call.getFunction() == DOLLAR) {
+      return replaceByName(vector, index, value);
+    } else {
+      return replaceByPosition(call.getFunction() == SUBSET2, vector, index, value);
+    }
+  }
+
+  /**
+   * Called after the builtin replacement function has produced {@code result} from {@code source}
+   * and before it is assigned to the target of {@code lhs}. Marks the result as unshared
+   * if it is a new object that only the target will reference.
+   *
+   * @param source the value of the target before the replacement, as returned by {@link #getSource(Context, Environment, SEXP)}
+   */
+  public static void markIfNew(SEXP source, SEXP result, SEXP value) {
+    if(source == null || result == source || result == value || result.length() == 0) {
+      return;
+    }
+    Class resultClass = result.getClass();
+    if(resultClass == DoubleArrayVector.class || resultClass == IntArrayVector.class ||
+       resultClass == StringArrayVector.class || resultClass == ListVector.class) {
+      ((AbstractSEXP) result).setUnshared(true);
+    }
+  }
+
+  /**
+   * @return the current value of the target of the assignment, if the assignment is
+   * a simple replacement which will be handled by a builtin replacement function, or {@code null} otherwise.
+   * Also {@code null} if the target is not bound in a {@link HashFrame}, because only the
+   * {@code HashFrame} clears the mark when the binding is read.
+   */
+  public static SEXP getSource(Context context, Environment rho, SEXP lhs) {
+    if(!isCandidate(lhs) || !(rho.getFrame() instanceof HashFrame)) {
+      return null;
+    }
+    FunctionCall call = (FunctionCall) lhs;
+    SEXP source = rho.findVariable((Symbol) call.getArgument(0));
+    if(!(source instanceof AbstractSEXP && source instanceof Vector) || source.isObject() || !isBuiltin(context, rho, call)) {
+      return null;
+    }
+    return source;
+  }
+
+  private static boolean isCandidate(SEXP lhs) {
+    if(!(lhs instanceof FunctionCall)) {
+      return false;
+    }
+    FunctionCall call = (FunctionCall) lhs;
+    SEXP function = call.getFunction();
+    if(function != SUBSET && function != SUBSET2 && function != DOLLAR) {
+      return false;
+    }
+    PairList arguments = call.getArguments();
+    if(arguments.length() != 2 || !(call.getArgument(0) instanceof Symbol)) {
+      return false;
+    }
+    for(PairList.Node node : arguments.nodes()) {
+      if(node.hasTag()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean isBuiltin(Context context, Environment rho, FunctionCall call) {
+    Symbol setter = Symbol.get(((Symbol) call.getFunction()).getPrintName() + "<-");
+    return rho.findFunction(context, setter) == Primitives.getBuiltin(setter);
+  }
+
+  private static boolean replaceByName(AbstractSEXP vector, SEXP nameExp, SEXP value) {
+    if(vector.getClass() != ListVector.class || value == Null.INSTANCE) {
+      return false;
+    }
+    String name;
+    if(nameExp instanceof Symbol) {
+      name = ((Symbol) nameExp).getPrintName();
+    } else if(nameExp instanceof StringVector && nameExp.length() == 1) {
+      name = ((StringVector) nameExp).getElementAsString(0);
+    } else {
+      return false;
+    }
+    ListVector list = (ListVector) vector;
+    int index = list.indexOfName(name);
+    if(index == -1) {
+      return false;
+    }
+    list.setElementInPlace(index, value);
+    return true;
+  }
+
+  private static boolean replaceByPosition(boolean single, AbstractSEXP vector, SEXP indexValue, SEXP value) {
+    int index = scalarIndex(indexValue, vector.length());
+    if(index == -1) {
+      return false;
+    }
+    Class vectorClass = vector.getClass();
+    if(vectorClass == ListVector.class) {
+      // x[i] <- v unpacks lists, and assigning NULL removes elements
+      if(!single || value == Null.INSTANCE) {
+        return false;
+      }
+      ((ListVector) vector).setElementInPlace(index, value);
+      return true;
+    }
+
+    if(value.length() != 1 || value.isObject()) {
+      return false;
+    }
+    if(vectorClass == DoubleArrayVector.class && value instanceof DoubleVector) {
+      ((DoubleArrayVector) vector).setElementInPlace(index, ((DoubleVector) value).getElementAsDouble(0));
+      return true;
+
+    } else if(vectorClass == IntArrayVector.class && value instanceof IntVector) {
+      ((IntArrayVector) vector).setElementInPlace(index, ((IntVector) value).getElementAsInt(0));
+      return true;
+
+    } else if(vectorClass == StringArrayVector.class && value instanceof StringVector) {
+      ((StringArrayVector) vector).setElementInPlace(index, ((StringVector) value).getElementAsString(0));
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * @return the zero-based index of an existing element selected by {@code indexValue}, or -1 if
+   * {@code indexValue} is not a single positive index within bounds.
+   */
+  private static int scalarIndex(SEXP indexValue, int length) {
+    if(indexValue.length() != 1 || indexValue.hasAttributes()) {
+      return -1;
+    }
+    int index;
+    if(indexValue instanceof IntVector) {
+      IntVector vector = (IntVector) indexValue;
+      if(vector.isElementNA(0)) {
+        return -1;
+      }
+      index = vector.getElementAsInt(0);
+    } else if(indexValue instanceof DoubleVector) {
+      double d = ((DoubleVector) indexValue).getElementAsDouble(0);
+      if(Double.isNaN(d) || d != Math.floor(d) || d > Integer.MAX_VALUE) {
+        return -1;
+      }
+      index = (int) d;
+    } else {
+      return -1;
+    }
+    if(index < 1 || index > length) {
+      return -1;
+    }
+    return index - 1;
+  }
+}
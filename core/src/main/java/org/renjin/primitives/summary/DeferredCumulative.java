@@ -0,0 +1,76 @@
+package org.renjin.primitives.summary;
+
+import org.renjin.compiler.pipeline.reduce.Reduction;
+import org.renjin.compiler.pipeline.reduce.Reductions;
+import org.renjin.primitives.vector.MemoizedComputation;
+import org.renjin.sexp.*;
+
+/**
+ * A deferred cumulative function of a double vector, such as {@code cumsum(x)}, whose
+ * elements are the running values of the corresponding {@link Reduction}.
+ */
+public class DeferredCumulative extends DoubleVector implements MemoizedComputation {
+  private final Vector vector;
+  private final String name;
+  private Vector result;
+
+  /**
+   * @param name the name of the cumulative function, such as "cumsum"
+   */
+  public DeferredCumulative(Vector vector, String name, AttributeMap attributes) {
+    super(attributes);
+    this.vector = vector;
+    this.name = name;
+    if(Reductions.getScan(name) == null) {
+      throw new IllegalArgumentException(name);
+    }
+  }
+
+  @Override
+  public Vector[] getOperands() {
+    return new Vector[] { vector };
+  }
+
+  @Override
+  public String getComputationName() {
+    return name;
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredCumulative(vector, name, attributes);
+  }
+
+  @Override
+  public double getElementAsDouble(int index) {
+    return forceResult().getElementAsDouble(index);
+  }
+
+  @Override
+  public int length() {
+    return vector.length();
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return false;
+  }
+
+  @Override
+  public boolean isCalculated() {
+    return result != null;
+  }
+
+  @Override
+  public Vector forceResult() {
+    if(result == null) {
+      result = DoubleArrayVector.unsafe(Reductions.scan(Reductions.getScan(name), vector));
+    }
+    return result;
+  }
+
+  @Override
+  public void setResult(Vector result) {
+    this.result = result;
+  }
+}
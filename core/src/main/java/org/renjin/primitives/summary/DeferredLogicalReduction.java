@@ -0,0 +1,71 @@
+package org.renjin.primitives.summary;
+
+import org.renjin.compiler.pipeline.reduce.Reduction;
+import org.renjin.compiler.pipeline.reduce.Reductions;
+import org.renjin.primitives.vector.MemoizedComputation;
+import org.renjin.sexp.*;
+
+/**
+ * A deferred {@link Reduction} with a logical result, {@code any(x)} or {@code all(x)}.
+ *
+ * @see DeferredReduction
+ */
+public class DeferredLogicalReduction extends LogicalVector implements MemoizedComputation {
+  private final Vector vector;
+  private final Reduction reduction;
+  private Vector result;
+
+  public DeferredLogicalReduction(Vector vector, Reduction reduction, AttributeMap attributes) {
+    super(attributes);
+    this.vector = vector;
+    this.reduction = reduction;
+  }
+
+  @Override
+  public Vector[] getOperands() {
+    return new Vector[] { vector };
+  }
+
+  @Override
+  public String getComputationName() {
+    return reduction.getName();
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredLogicalReduction(vector, reduction, attributes);
+  }
+
+  @Override
+  public int getElementAsRawLogical(int index) {
+    return ((LogicalVector) forceResult()).getElementAsRawLogical(index);
+  }
+
+  @Override
+  public int length() {
+    return reduction.getResultLength();
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return false;
+  }
+
+  @Override
+  public boolean isCalculated() {
+    return result != null;
+  }
+
+  @Override
+  public Vector forceResult() {
+    if(result == null) {
+      result = Reductions.reduce(reduction, vector);
+    }
+    return result;
+  }
+
+  @Override
+  public void setResult(Vector result) {
+    this.result = result;
+  }
+}
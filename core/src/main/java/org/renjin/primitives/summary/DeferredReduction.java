@@ -0,0 +1,107 @@
+package org.renjin.primitives.summary;
+
+import org.renjin.compiler.pipeline.reduce.Reduction;
+import org.renjin.compiler.pipeline.reduce.Reductions;
+import org.renjin.eval.Context;
+import org.renjin.primitives.Warning;
+import org.renjin.primitives.vector.MemoizedComputation;
+import org.renjin.sexp.*;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A deferred {@link Reduction} of a double vector, such as {@code min(x)} or {@code var(x)}.
+ *
+ * <p>When materialized by the vector pipeliner, reductions of the same operand are computed
+ * together in a single jitted loop.
+ *
+ * <p>Warnings of the reduction, such as for {@code min()} of no non-missing values, are
+ * only signaled when the result is computed by {@link Context#materialize(SEXP)} or by
+ * {@code c()}, in the context which forced it. They are not signaled if the result is
+ * first computed elsewhere, for example when its elements are read.
+ */
+public class DeferredReduction extends DoubleVector implements MemoizedComputation {
+  private final Vector vector;
+  private final Reduction reduction;
+  private Vector result;
+  private List<String> warnings = Collections.emptyList();
+
+  public DeferredReduction(Vector vector, Reduction reduction, AttributeMap attributes) {
+    super(attributes);
+    this.vector = vector;
+    this.reduction = reduction;
+  }
+
+  @Override
+  public Vector[] getOperands() {
+    return new Vector[] { vector };
+  }
+
+  @Override
+  public String getComputationName() {
+    return reduction.getName();
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new DeferredReduction(vector, reduction, attributes);
+  }
+
+  @Override
+  public double getElementAsDouble(int index) {
+    return forceResult().getElementAsDouble(index);
+  }
+
+  @Override
+  public int length() {
+    return reduction.getResultLength();
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return false;
+  }
+
+  @Override
+  public boolean isCalculated() {
+    return result != null;
+  }
+
+  @Override
+  public Vector forceResult() {
+    if(result == null) {
+      double[] state = Reductions.reduceState(reduction, vector);
+      setWarnings(reduction.getWarnings(state, 0));
+      result = reduction.finish(state, 0, vector.length());
+    }
+    return result;
+  }
+
+  @Override
+  public void setResult(Vector result) {
+    this.result = result;
+  }
+
+  /**
+   * Sets the warnings of the result, before it is set by the vector pipeliner
+   */
+  public synchronized void setWarnings(List<String> warnings) {
+    this.warnings = warnings;
+  }
+
+  /**
+   * Signals the warnings of the result in {@code context}. This should only be called by
+   * the caller which forced the result, as the warnings are only signaled once.
+   */
+  public void signalWarnings(Context context) {
+    List<String> pending;
+    synchronized (this) {
+      pending = warnings;
+      warnings = Collections.emptyList();
+    }
+    for(String warning : pending) {
+      Warning.invokeWarning(context, warning);
+    }
+  }
+}
@@ -26,6 +26,7 @@ public abstract class DeferredSummary extends DoubleVector implements MemoizedCo
     }
     if(!calculated) {
       result = calculate();
+      calculated = true;
     }
     return result;
   }
@@ -50,7 +51,8 @@ public abstract class DeferredSummary extends DoubleVector implements MemoizedCo
   @Override
   public final Vector forceResult() {
     if(!calculated) {
-      calculate();
+      result = calculate();
+      calculated = true;
     }
     return new DoubleArrayVector(result);
   }
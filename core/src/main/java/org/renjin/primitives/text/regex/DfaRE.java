@@ -0,0 +1,95 @@
+package org.renjin.primitives.text.regex;
+
+/**
+ * A regular expression which decides whether a string matches using a {@link LazyDFA},
+ * in time linear in the length of the string.
+ *
+ * <p>The automaton only answers whether there is a match. The positions of the match
+ * and its groups, and the results of {@code subst} and {@code split}, are computed by the
+ * backtracking {@link ExtendedRE}, but only for strings which are known to match. This keeps
+ * the leftmost-first semantics of the backtracking matcher, while strings which do not
+ * match, the case in which backtracking is slowest, never reach it.
+ */
+public class DfaRE implements RE {
+
+  private final LazyDFA dfa;
+  private final ExtendedRE backtracking;
+
+  private String search;
+  private boolean matched;
+
+  /**
+   * True if {@code backtracking} holds the groups of the last match
+   */
+  private boolean groupsFound;
+
+  DfaRE(LazyDFA dfa, ExtendedRE backtracking) {
+    this.dfa = dfa;
+    this.backtracking = backtracking;
+  }
+
+  @Override
+  public boolean match(String search) {
+    this.search = search;
+    if(search == null) {
+      matched = backtracking.match(search);
+      groupsFound = true;
+    } else {
+      matched = dfa.matches(search);
+      groupsFound = false;
+    }
+    return matched;
+  }
+
+  @Override
+  public String subst(String substituteIn, String substitution) {
+    groupsFound = false;
+    if(substituteIn != null && !dfa.matches(substituteIn)) {
+      return substituteIn;
+    }
+    return backtracking.subst(substituteIn, substitution);
+  }
+
+  @Override
+  public String subst(String substituteIn, String substitution, int flags) {
+    groupsFound = false;
+    if(substituteIn != null && !dfa.matches(substituteIn)) {
+      return substituteIn;
+    }
+    return backtracking.subst(substituteIn, substitution, flags);
+  }
+
+  @Override
+  public String[] split(String s) {
+    groupsFound = false;
+    if(s != null && s.length() > 0 && !dfa.matches(s)) {
+      return new String[] { s };
+    }
+    return backtracking.split(s);
+  }
+
+  @Override
+  public int getGroupStart(int groupIndex) {
+    if(!matched) {
+      return -1;
+    }
+    findGroups();
+    return backtracking.getGroupStart(groupIndex);
+  }
+
+  @Override
+  public int getGroupEnd(int groupIndex) {
+    if(!matched) {
+      return -1;
+    }
+    findGroups();
+    return backtracking.getGroupEnd(groupIndex);
+  }
+
+  private void findGroups() {
+    if(!groupsFound) {
+      backtracking.match(search);
+      groupsFound = true;
+    }
+  }
+}
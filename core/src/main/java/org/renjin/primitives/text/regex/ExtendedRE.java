@@ -1151,132 +1151,9 @@ public class ExtendedRE implements Serializable, RE {
                             return -1;
                         }
 
-                        switch (opdata)
+                        if (!isPosixClassMember(opdata, search.charAt(idx)))
                         {
-                            case POSIX_CLASS_ALNUM:
-                                if (!Character.isLetterOrDigit(search.charAt(idx)))
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_ALPHA:
-                                if (!Character.isLetter(search.charAt(idx)))
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_DIGIT:
-                                if (!Character.isDigit(search.charAt(idx)))
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_BLANK: // JWL - bugbug: is this right??
-                                if (!Character.isSpaceChar(search.charAt(idx)))
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_SPACE:
-                                if (!Character.isWhitespace(search.charAt(idx)))
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_CNTRL:
-                                if (Character.getType(search.charAt(idx)) != Character.CONTROL)
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_GRAPH: // JWL - bugbug???
-                                switch (Character.getType(search.charAt(idx)))
-                                {
-                                    case Character.MATH_SYMBOL:
-                                    case Character.CURRENCY_SYMBOL:
-                                    case Character.MODIFIER_SYMBOL:
-                                    case Character.OTHER_SYMBOL:
-                                        break;
-
-                                    default:
-                                        return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_LOWER:
-                                if (Character.getType(search.charAt(idx)) != Character.LOWERCASE_LETTER)
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_UPPER:
-                                if (Character.getType(search.charAt(idx)) != Character.UPPERCASE_LETTER)
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_PRINT:
-                                if (Character.getType(search.charAt(idx)) == Character.CONTROL)
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_PUNCT:
-                            {
-                                int type = Character.getType(search.charAt(idx));
-                                switch(type)
-                                {
-                                    case Character.DASH_PUNCTUATION:
-                                    case Character.START_PUNCTUATION:
-                                    case Character.END_PUNCTUATION:
-                                    case Character.CONNECTOR_PUNCTUATION:
-                                    case Character.OTHER_PUNCTUATION:
-                                        break;
-
-                                    default:
-                                        return -1;
-                                }
-                            }
-                            break;
-
-                            case POSIX_CLASS_XDIGIT: // JWL - bugbug??
-                            {
-                                boolean isXDigit = ((search.charAt(idx) >= '0' && search.charAt(idx) <= '9') ||
-                                                    (search.charAt(idx) >= 'a' && search.charAt(idx) <= 'f') ||
-                                                    (search.charAt(idx) >= 'A' && search.charAt(idx) <= 'F'));
-                                if (!isXDigit)
-                                {
-                                    return -1;
-                                }
-                            }
-                            break;
-
-                            case POSIX_CLASS_JSTART:
-                                if (!Character.isJavaIdentifierStart(search.charAt(idx)))
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            case POSIX_CLASS_JPART:
-                                if (!Character.isJavaIdentifierPart(search.charAt(idx)))
-                                {
-                                    return -1;
-                                }
-                                break;
-
-                            default:
-                                internalError("Bad posix class");
-                                break;
+                            return -1;
                         }
 
                         // Matched.
@@ -1740,10 +1617,151 @@ public class ExtendedRE implements Serializable, RE {
      */
     private boolean isNewline(int i)
     {
-        char nextChar = search.charAt(i);
+        return isNewlineChar(search.charAt(i));
+    }
+
+    static boolean isNewlineChar(char c)
+    {
+        return c == '\n' || c == '\r' || c == '\u0085' ||
+               c == '\u2028' || c == '\u2029';
+    }
+
+    /**
+     * Tests whether a character belongs to one of the posix character classes.
+     *
+     * @param opdata One of the POSIX_CLASS_* codes
+     * @param c The character to test
+     * @return True if the character is a member of the class
+     */
+    static boolean isPosixClassMember(int opdata, char c)
+    {
+        switch (opdata)
+        {
+            case POSIX_CLASS_ALNUM:
+                if (!Character.isLetterOrDigit(c))
+                {
+                    return false;
+                }
+                break;
+
+            case POSIX_CLASS_ALPHA:
+                if (!Character.isLetter(c))
+                {
+                    return false;
+                }
+                break;
+
+            case POSIX_CLASS_DIGIT:
+                if (!Character.isDigit(c))
+                {
+                    return false;
+                }
+                break;
+
+            case POSIX_CLASS_BLANK: // JWL - bugbug: is this right??
+                if (!Character.isSpaceChar(c))
+                {
+                    return false;
+                }
+                break;
+
+            case POSIX_CLASS_SPACE:
+                if (!Character.isWhitespace(c))
+                {
+                    return false;
+                }
+                break;
+
+            case POSIX_CLASS_CNTRL:
+                if (Character.getType(c) != Character.CONTROL)
+                {
+                    return false;
+                }
+                break;
+
+            case POSIX_CLASS_GRAPH: // JWL - bugbug???
+                switch (Character.getType(c))
+                {
+                    case Character.MATH_SYMBOL:
+                    case Character.CURRENCY_SYMBOL:
+                    case Character.MODIFIER_SYMBOL:
+                    case Character.OTHER_SYMBOL:
+                        break;
+
+                    default:
+                        return false;
+                }
+                break;
+
+            case POSIX_CLASS_LOWER:
+                if (Character.getType(c) != Character.LOWERCASE_LETTER)
+                {
+                    return false;
+                }
+                break;
 
-        return nextChar == '\n' || nextChar == '\r' || nextChar == '\u0085' ||
-               nextChar == '\u2028' || nextChar == '\u2029';
+            case POSIX_CLASS_UPPER:
+                if (Character.getType(c) != Character.UPPERCASE_LETTER)
+                {
+                    return false;
+                }
+                break;
+
+            case POSIX_CLASS_PRINT:
+                if (Character.getType(c) == Character.CONTROL)
+                {
+                    return false;
+                }
+                break;
+
+            case POSIX_CLASS_PUNCT:
+            {
+                int type = Character.getType(c);
+                switch(type)
+                {
+                    case Character.DASH_PUNCTUATION:
+                    case Character.START_PUNCTUATION:
+                    case Character.END_PUNCTUATION:
+                    case Character.CONNECTOR_PUNCTUATION:
+                    case Character.OTHER_PUNCTUATION:
+                        break;
+
+                    default:
+                        return false;
+                }
+            }
+            break;
+
+            case POSIX_CLASS_XDIGIT: // JWL - bugbug??
+            {
+                boolean isXDigit = ((c >= '0' && c <= '9') ||
+                                    (c >= 'a' && c <= 'f') ||
+                                    (c >= 'A' && c <= 'F'));
+                if (!isXDigit)
+                {
+                    return false;
+                }
+            }
+            break;
+
+            case POSIX_CLASS_JSTART:
+                if (!Character.isJavaIdentifierStart(c))
+                {
+                    return false;
+                }
+                break;
+
+            case POSIX_CLASS_JPART:
+                if (!Character.isJavaIdentifierPart(c))
+                {
+                    return false;
+                }
+                break;
+
+            default:
+                throw new Error("RE internal error: Bad posix class");
+        }
+        return true;
     }
 
     /**
@@ -1755,7 +1773,7 @@ public class ExtendedRE implements Serializable, RE {
      * @return negative, 0, or positive integer as the first character
      *         less than, equal to, or greater then the second.
      */
-    private int compareChars(char c1, char c2, boolean caseIndependent)
+    static int compareChars(char c1, char c2, boolean caseIndependent)
     {
         if (caseIndependent)
         {
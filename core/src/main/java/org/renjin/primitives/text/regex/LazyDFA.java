@@ -0,0 +1,428 @@
+package org.renjin.primitives.text.regex;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tests whether a compiled {@link REProgram} matches a string by simulating it as a
+ * deterministic finite automaton, in time linear in the length of the string.
+ *
+ * <p>The nodes of the program are treated as the states of a nondeterministic automaton,
+ * and each state of the DFA is the set of nodes which can be active at a given position in
+ * the string. DFA states and their transitions are only built the first time they are needed,
+ * so the automaton never grows beyond what the strings actually matched require.
+ *
+ * <p>Programs with back references, reluctant closures or word boundaries cannot be matched this way:
+ * {@link #compile(REProgram, boolean)} returns {@code null} for them.
+ *
+ * <p>Instances can be shared between threads.
+ */
+class LazyDFA {
+
+  /**
+   * Maximum number of DFA states to keep. Beyond this, new states are still computed
+   * but no longer cached.
+   */
+  private static final int MAX_STATES = 4096;
+
+  private static final int ASCII = 128;
+
+  private static final byte NODE = 1;
+  private static final byte ATOM_CHAR = 2;
+
+  private final char[] instruction;
+  private final boolean caseFold;
+
+  /**
+   * The kind of each position in the instruction array: the start of a node,
+   * a character within an atom, or node data.
+   */
+  private final byte[] kinds;
+
+  /**
+   * The index of the atom node to which each atom character belongs.
+   */
+  private final int[] atoms;
+
+  private final Map<State, State> states = new HashMap<State, State>();
+  private final State start;
+  private final boolean matchesEmptyString;
+
+  private LazyDFA(REProgram program, byte[] kinds, int[] atoms, boolean caseFold) {
+    this.instruction = program.instruction;
+    this.kinds = kinds;
+    this.atoms = atoms;
+    this.caseFold = caseFold;
+
+    Closure closure = new Closure(true, false);
+    closure.add(0);
+    this.start = intern(closure.toState());
+
+    Closure empty = new Closure(true, true);
+    empty.add(0);
+    this.matchesEmptyString = empty.accepting;
+  }
+
+  /**
+   * @return a new {@code LazyDFA} for the given program, or {@code null} if the program uses
+   * features which cannot be matched by a finite automaton.
+   */
+  static LazyDFA compile(REProgram program, boolean caseFold) {
+    char[] instruction = program.instruction;
+    int length = program.lenInstruction;
+    byte[] kinds = new byte[length];
+    int[] atoms = new int[length];
+
+    for (int node = 0; node < length; node += ExtendedRE.nodeSize) {
+      kinds[node] = NODE;
+      char opdata = instruction[node + ExtendedRE.offsetOpdata];
+      switch (instruction[node + ExtendedRE.offsetOpcode]) {
+        case ExtendedRE.OP_ANYOF:
+          node += opdata * 2;
+          break;
+
+        case ExtendedRE.OP_ATOM:
+          for (int i = 0; i < opdata; i++) {
+            kinds[node + ExtendedRE.nodeSize + i] = ATOM_CHAR;
+            atoms[node + ExtendedRE.nodeSize + i] = node;
+          }
+          node += opdata;
+          break;
+
+        case ExtendedRE.OP_ESCAPE:
+          if (opdata == ExtendedRE.E_BOUND || opdata == ExtendedRE.E_NBOUND) {
+            return null;
+          }
+          break;
+
+        case ExtendedRE.OP_END:
+        case ExtendedRE.OP_BOL:
+        case ExtendedRE.OP_EOL:
+        case ExtendedRE.OP_ANY:
+        case ExtendedRE.OP_BRANCH:
+        case ExtendedRE.OP_STAR:
+        case ExtendedRE.OP_PLUS:
+        case ExtendedRE.OP_MAYBE:
+        case ExtendedRE.OP_OPEN:
+        case ExtendedRE.OP_CLOSE:
+        case ExtendedRE.OP_OPEN_CLUSTER:
+        case ExtendedRE.OP_CLOSE_CLUSTER:
+        case ExtendedRE.OP_GOTO:
+        case ExtendedRE.OP_NOTHING:
+        case ExtendedRE.OP_CONTINUE:
+        case ExtendedRE.OP_POSIXCLASS:
+          break;
+
+        default:
+          // back references and reluctant closures
+          return null;
+      }
+    }
+    return new LazyDFA(program, kinds, atoms, caseFold);
+  }
+
+  /**
+   * @return true if the program matches any part of {@code search}
+   */
+  public boolean matches(String search) {
+    int length = search.length();
+    if (length == 0) {
+      return matchesEmptyString;
+    }
+    State state = start;
+    for (int i = 0; i < length; i++) {
+      if (state.accepting) {
+        return true;
+      }
+      state = next(state, search.charAt(i));
+      if (state.threads.length == 0 && !state.accepting) {
+        // only possible if the pattern is anchored at the beginning of the string
+        return false;
+      }
+    }
+    return state.accepting || state.acceptsAtEnd(this);
+  }
+
+  /**
+   * @return the number of DFA states built so far
+   */
+  synchronized int getStateCount() {
+    return states.size();
+  }
+
+  private State next(State state, char c) {
+    if (c < ASCII) {
+      State next = state.ascii[c];
+      if (next != null) {
+        return next;
+      }
+    }
+    synchronized (this) {
+      if (c >= ASCII && state.others != null) {
+        State next = state.others.get(c);
+        if (next != null) {
+          return next;
+        }
+      }
+      State next = intern(step(state, c));
+      if (states.size() < MAX_STATES) {
+        if (c < ASCII) {
+          state.ascii[c] = next;
+        } else {
+          if (state.others == null) {
+            state.others = new HashMap<Character, State>();
+          }
+          state.others.put(c, next);
+        }
+      }
+      return next;
+    }
+  }
+
+  private State intern(State state) {
+    State existing = states.get(state);
+    if (existing != null) {
+      return existing;
+    }
+    if (states.size() < MAX_STATES) {
+      states.put(state, state);
+    }
+    return state;
+  }
+
+  /**
+   * Computes the set of nodes active after consuming {@code c}, including a
+   * new attempt to match starting at the following position.
+   */
+  private State step(State state, char c) {
+    Closure closure = new Closure(false, false);
+    for (int thread : state.threads) {
+      if (kinds[thread] == ATOM_CHAR) {
+        if (ExtendedRE.compareChars(c, instruction[thread], caseFold) == 0) {
+          if (thread + 1 < kinds.length && kinds[thread + 1] == ATOM_CHAR) {
+            closure.add(thread + 1);
+          } else {
+            closure.add(next(atoms[thread]));
+          }
+        }
+      } else if (consumes(thread, c)) {
+        closure.add(next(thread));
+      }
+    }
+    closure.add(0);
+    return closure.toState();
+  }
+
+  /**
+   * @return true if the character-matching node {@code node} matches {@code c}
+   */
+  private boolean consumes(int node, char c) {
+    char opdata = instruction[node + ExtendedRE.offsetOpdata];
+    switch (instruction[node + ExtendedRE.offsetOpcode]) {
+      case ExtendedRE.OP_ANY:
+        return !ExtendedRE.isNewlineChar(c);
+
+      case ExtendedRE.OP_ANYOF:
+        int idxRange = node + ExtendedRE.nodeSize;
+        int idxEnd = idxRange + (opdata * 2);
+        for (int i = idxRange; i < idxEnd; i += 2) {
+          if (ExtendedRE.compareChars(c, instruction[i], caseFold) >= 0 &&
+              ExtendedRE.compareChars(c, instruction[i + 1], caseFold) <= 0) {
+            return true;
+          }
+        }
+        return false;
+
+      case ExtendedRE.OP_POSIXCLASS:
+        return ExtendedRE.isPosixClassMember(opdata, c);
+
+      case ExtendedRE.OP_ESCAPE:
+        switch (opdata) {
+          case ExtendedRE.E_ALNUM:
+          case ExtendedRE.E_NALNUM:
+            return (Character.isLetterOrDigit(c) || c == '_') == (opdata == ExtendedRE.E_ALNUM);
+          case ExtendedRE.E_DIGIT:
+          case ExtendedRE.E_NDIGIT:
+            return Character.isDigit(c) == (opdata == ExtendedRE.E_DIGIT);
+          case ExtendedRE.E_SPACE:
+          case ExtendedRE.E_NSPACE:
+            return Character.isWhitespace(c) == (opdata == ExtendedRE.E_SPACE);
+        }
+        throw new IllegalStateException("Unrecognized escape '" + opdata + "'");
+
+      default:
+        // an unsatisfied end-of-line assertion
+        return false;
+    }
+  }
+
+  private int next(int node) {
+    return node + (short) instruction[node + ExtendedRE.offsetNext];
+  }
+
+  /**
+   * Accumulates the epsilon closure of a set of positions in the program, following
+   * the same control flow as {@link ExtendedRE#matchNodes(int, int, int)}.
+   */
+  private class Closure {
+    private final boolean atStart;
+    private final boolean atEnd;
+    private final boolean[] visited = new boolean[kinds.length];
+    private final int[] stack = new int[kinds.length];
+    private int[] threads = new int[8];
+    private int threadCount;
+    private boolean accepting;
+
+    Closure(boolean atStart, boolean atEnd) {
+      this.atStart = atStart;
+      this.atEnd = atEnd;
+    }
+
+    void add(int position) {
+      int top = push(position, 0);
+      while (top > 0) {
+        int pos = stack[--top];
+        if (kinds[pos] == ATOM_CHAR) {
+          addThread(pos);
+          continue;
+        }
+        int node = pos;
+        int next = next(node);
+        switch (instruction[node + ExtendedRE.offsetOpcode]) {
+          case ExtendedRE.OP_END:
+            accepting = true;
+            break;
+
+          case ExtendedRE.OP_BOL:
+            if (atStart) {
+              top = push(next, top);
+            }
+            break;
+
+          case ExtendedRE.OP_EOL:
+            if (atEnd) {
+              top = push(next, top);
+            } else {
+              // kept so that it can be resolved at the end of the string
+              addThread(node);
+            }
+            break;
+
+          case ExtendedRE.OP_ANY:
+          case ExtendedRE.OP_ANYOF:
+          case ExtendedRE.OP_POSIXCLASS:
+          case ExtendedRE.OP_ESCAPE:
+            addThread(node);
+            break;
+
+          case ExtendedRE.OP_ATOM:
+            top = push(node + ExtendedRE.nodeSize, top);
+            break;
+
+          case ExtendedRE.OP_STAR:
+          case ExtendedRE.OP_MAYBE:
+            top = push(node + ExtendedRE.nodeSize, top);
+            top = push(next, top);
+            break;
+
+          case ExtendedRE.OP_PLUS:
+            top = push(next, top);
+            top = push(next(next), top);
+            break;
+
+          case ExtendedRE.OP_CONTINUE:
+            top = push(node + ExtendedRE.nodeSize, top);
+            break;
+
+          case ExtendedRE.OP_BRANCH:
+            if (instruction[next] != ExtendedRE.OP_BRANCH) {
+              top = push(node + ExtendedRE.nodeSize, top);
+            } else {
+              int nextBranch;
+              do {
+                top = push(node + ExtendedRE.nodeSize, top);
+                nextBranch = (short) instruction[node + ExtendedRE.offsetNext];
+                node += nextBranch;
+              } while (nextBranch != 0 && instruction[node] == ExtendedRE.OP_BRANCH);
+            }
+            break;
+
+          default:
+            // groups, clusters, GOTO and NOTHING
+            top = push(next, top);
+            break;
+        }
+      }
+    }
+
+    private int push(int position, int top) {
+      if (!visited[position]) {
+        visited[position] = true;
+        stack[top++] = position;
+      }
+      return top;
+    }
+
+    private void addThread(int position) {
+      if (threadCount == threads.length) {
+        threads = Arrays.copyOf(threads, threadCount * 2);
+      }
+      threads[threadCount++] = position;
+    }
+
+    State toState() {
+      int[] sorted = Arrays.copyOf(threads, threadCount);
+      Arrays.sort(sorted);
+      return new State(sorted, accepting);
+    }
+  }
+
+  private static final class State {
+    private final int[] threads;
+    private final boolean accepting;
+    private final int hashCode;
+
+    private final State[] ascii = new State[ASCII];
+    private Map<Character, State> others;
+
+    /**
+     * Whether the state accepts once the end of the string has been reached:
+     * 0 if not yet computed, 1 if true, -1 if false.
+     */
+    private int acceptsAtEnd;
+
+    State(int[] threads, boolean accepting) {
+      this.threads = threads;
+      this.accepting = accepting;
+      this.hashCode = Arrays.hashCode(threads) * 31 + (accepting ? 1 : 0);
+    }
+
+    boolean acceptsAtEnd(LazyDFA dfa) {
+      if (acceptsAtEnd == 0) {
+        Closure closure = dfa.new Closure(false, true);
+        for (int thread : threads) {
+          if (dfa.kinds[thread] == NODE && dfa.instruction[thread] == ExtendedRE.OP_EOL) {
+            closure.add(thread);
+          }
+        }
+        acceptsAtEnd = closure.accepting ? 1 : -1;
+      }
+      return acceptsAtEnd == 1;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof State)) {
+        return false;
+      }
+      State other = (State) obj;
+      return accepting == other.accepting && Arrays.equals(threads, other.threads);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -21,13 +21,34 @@
 
 package org.renjin.primitives.text.regex;
 
-import org.renjin.eval.EvalException;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
 
 /**
  * Compiles a regular expression based on the supplied options.
+ *
+ * <p>Patterns without back references are matched with a {@link DfaRE}, which decides
+ * whether a string matches in linear time and only runs the backtracking {@link ExtendedRE}
+ * to locate the match once a match is known to exist. Setting the {@code renjin.regex.nodfa}
+ * system property disables this and always uses the backtracking matcher.
+ *
+ * <p>Compiled programs are kept in a bounded, least-recently-used cache, as vectorized
+ * functions such as {@code gsub} and {@code strsplit} will often ask for the same pattern
+ * many times. The size of the cache can be set with the {@code renjin.regex.cache.size}
+ * system property.
  */
 public class REFactory {
 
+  private static final int DEFAULT_CACHE_SIZE = 256;
+
+  private static final boolean USE_DFA = System.getProperty("renjin.regex.nodfa") == null;
+
+  private static final Cache<String, CompiledPattern> PROGRAM_CACHE = CacheBuilder.newBuilder()
+      .maximumSize(Integer.getInteger("renjin.regex.cache.size", DEFAULT_CACHE_SIZE))
+      .recordStats()
+      .build();
+
   /**
    * Compiles the pattern based on the supplied arguments.
    *
@@ -44,7 +65,62 @@ public class REFactory {
     if(fixed) {
       return new FixedRE(pattern);
     } else {
-      return new ExtendedRE(pattern, ignoreCase);
+      CompiledPattern compiled = compileProgram(pattern);
+      ExtendedRE backtracking = new ExtendedRE(compiled.program,
+          ignoreCase ? ExtendedRE.MATCH_CASEINDEPENDENT : ExtendedRE.MATCH_NORMAL);
+      LazyDFA dfa = USE_DFA ? compiled.getDfa(ignoreCase) : null;
+      if(dfa == null) {
+        return backtracking;
+      }
+      return new DfaRE(dfa, backtracking);
     } 
   }
+
+  /**
+   * @return statistics on the use of the cache of compiled regular expressions.
+   */
+  public static CacheStats getCacheStats() {
+    return PROGRAM_CACHE.stats();
+  }
+
+  /**
+   * Compiles the pattern to an {@code REProgram}, or returns the program from the cache
+   * if it has been compiled before. Programs are immutable and can be shared between
+   * {@code ExtendedRE} instances in different threads; the match flags do not affect
+   * compilation, so the pattern alone is sufficient as a key.
+   */
+  private static CompiledPattern compileProgram(String pattern) {
+    CompiledPattern compiled = PROGRAM_CACHE.getIfPresent(pattern);
+    if(compiled == null) {
+      compiled = new CompiledPattern(new RECompiler().compile(pattern));
+      PROGRAM_CACHE.put(pattern, compiled);
+    }
+    return compiled;
+  }
+
+  /**
+   * A compiled program, together with the automata built from it for
+   * case-sensitive and case-insensitive matching.
+   */
+  private static class CompiledPattern {
+    private final REProgram program;
+    private LazyDFA[] dfa;
+
+    private CompiledPattern(REProgram program) {
+      this.program = program;
+    }
+
+    public synchronized LazyDFA getDfa(boolean ignoreCase) {
+      if(dfa == null) {
+        LazyDFA caseSensitive = LazyDFA.compile(program, false);
+        if(caseSensitive == null) {
+          // the program cannot be matched by an automaton
+          dfa = new LazyDFA[2];
+        } else {
+          dfa = new LazyDFA[] { caseSensitive, LazyDFA.compile(program, true) };
+        }
+      }
+      return dfa[ignoreCase ? 1 : 0];
+    }
+  }
 }
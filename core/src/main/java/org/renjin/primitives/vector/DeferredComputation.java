@@ -10,8 +10,8 @@ import org.renjin.sexp.Vector;
  * no matter how many times they are invoked.
  *
  * <p>
- *   Futhermore, a DeferredComputation of a given {@code class} must
- *   produce the same result given equal operands. That is, all details
+ *   Futhermore, a DeferredComputation of a given {@code class} and
+ *   computation name must produce the same result given equal operands. That is, all details
  *   of the computation must be exposed as operands. If attributes play
  *   a role in computations, those attributes must be explicitly exposed
  *   as operands.
@@ -25,8 +25,8 @@ public interface DeferredComputation extends AtomicVector {
   Vector[] getOperands();
 
   /**
-   * @return the name of the computation ("sum", "*", "/", etc), used
-   * mostly for debugging.
+   * @return the name of the computation ("sum", "*", "/", etc). Instances of
+   * the same class with different names may compute different functions.
    */
   String getComputationName();
 
@@ -0,0 +1,70 @@
+package org.renjin.primitives.vector;
+
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.SEXP;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+
+/**
+ * A read-only {@code DoubleVector} backed by a memory-mapped file of 8-byte
+ * IEEE 754 values, such as one written by {@code writeBin()}.
+ *
+ * <p>Elements are read from the mapping on each access and are never copied onto
+ * the heap, so a vector may be much larger than the heap, and a single mapping may be shared
+ * freely between sessions and threads.
+ */
+public class MappedDoubleVector extends DoubleVector {
+
+  /**
+   * 2^27 doubles, or 1 GB, per mapped segment
+   */
+  private static final int SEGMENT_BITS = 27;
+  private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+
+  private final DoubleBuffer[] segments;
+  private final int length;
+
+  private MappedDoubleVector(DoubleBuffer[] segments, int length, AttributeMap attributes) {
+    super(attributes);
+    this.segments = segments;
+    this.length = length;
+  }
+
+  /**
+   * Maps {@code length} doubles stored in {@code order}, starting {@code offset} bytes
+   * into {@code file}.
+   */
+  public static MappedDoubleVector map(File file, long offset, int length, ByteOrder order) throws IOException {
+    ByteBuffer[] bytes = MappedSegments.map(file, offset, length, 8, SEGMENT_BITS, order);
+    DoubleBuffer[] segments = new DoubleBuffer[bytes.length];
+    for(int i = 0; i < bytes.length; ++i) {
+      segments[i] = bytes[i].asDoubleBuffer();
+    }
+    return new MappedDoubleVector(segments, length, AttributeMap.EMPTY);
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new MappedDoubleVector(segments, length, attributes);
+  }
+
+  @Override
+  public double getElementAsDouble(int index) {
+    return segments[index >>> SEGMENT_BITS].get(index & SEGMENT_MASK);
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return true;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+}
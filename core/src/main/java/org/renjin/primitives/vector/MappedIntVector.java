@@ -0,0 +1,68 @@
+package org.renjin.primitives.vector;
+
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.IntVector;
+import org.renjin.sexp.SEXP;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+
+/**
+ * A read-only {@code IntVector} backed by a memory-mapped file of 4-byte
+ * integers, such as one written by {@code writeBin()}.
+ *
+ * @see MappedDoubleVector
+ */
+public class MappedIntVector extends IntVector {
+
+  /**
+   * 2^28 integers, or 1 GB, per mapped segment
+   */
+  private static final int SEGMENT_BITS = 28;
+  private static final int SEGMENT_MASK = (1 << SEGMENT_BITS) - 1;
+
+  private final IntBuffer[] segments;
+  private final int length;
+
+  private MappedIntVector(IntBuffer[] segments, int length, AttributeMap attributes) {
+    super(attributes);
+    this.segments = segments;
+    this.length = length;
+  }
+
+  /**
+   * Maps {@code length} integers stored in {@code order}, starting {@code offset} bytes
+   * into {@code file}.
+   */
+  public static MappedIntVector map(File file, long offset, int length, ByteOrder order) throws IOException {
+    ByteBuffer[] bytes = MappedSegments.map(file, offset, length, 4, SEGMENT_BITS, order);
+    IntBuffer[] segments = new IntBuffer[bytes.length];
+    for(int i = 0; i < bytes.length; ++i) {
+      segments[i] = bytes[i].asIntBuffer();
+    }
+    return new MappedIntVector(segments, length, AttributeMap.EMPTY);
+  }
+
+  @Override
+  protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+    return new MappedIntVector(segments, length, attributes);
+  }
+
+  @Override
+  public int getElementAsInt(int index) {
+    return segments[index >>> SEGMENT_BITS].get(index & SEGMENT_MASK);
+  }
+
+  @Override
+  public boolean isConstantAccessTime() {
+    return true;
+  }
+
+  @Override
+  public int length() {
+    return length;
+  }
+}
@@ -0,0 +1,55 @@
+package org.renjin.primitives.vector;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Maps a region of a file into memory, read-only, as a series of segments.
+ *
+ * <p>A single {@link java.nio.MappedByteBuffer} cannot address more than 2 GB, so
+ * the region is mapped as consecutive segments of {@code 2^segmentBits} elements each,
+ * and element {@code i} is found at {@code i & mask} in segment {@code i >>> segmentBits}.
+ *
+ * <p>Pages are read from the file by the operating system only when they are first
+ * touched, and, because the mapping is read-only, they are shared through the page cache
+ * with every other session and process which maps the same file.
+ */
+class MappedSegments {
+
+  private MappedSegments() { }
+
+  /**
+   * Maps {@code length} elements of {@code elementSize} bytes each, starting
+   * {@code offset} bytes into {@code file}.
+   */
+  static ByteBuffer[] map(File file, long offset, int length, int elementSize, int segmentBits,
+                          ByteOrder order) throws IOException {
+    long segmentLength = 1L << segmentBits;
+    int numSegments = (int) ((length + segmentLength - 1) / segmentLength);
+    ByteBuffer[] segments = new ByteBuffer[numSegments];
+
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel channel = raf.getChannel();
+      long end = offset + (long) length * elementSize;
+      if(end > channel.size()) {
+        throw new IOException("file '" + file + "' is too short: " + channel.size() +
+            " bytes, but " + end + " required");
+      }
+      for(int i = 0; i < numSegments; ++i) {
+        long start = (long) i * segmentLength;
+        long count = Math.min(segmentLength, length - start);
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+            offset + start * elementSize, count * elementSize).order(order);
+      }
+    } finally {
+      // the mapping remains valid once the channel is closed
+      raf.close();
+    }
+    return segments;
+  }
+}
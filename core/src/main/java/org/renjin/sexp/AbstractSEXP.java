@@ -37,6 +37,14 @@ public abstract class AbstractSEXP implements SEXP {
 
   private final boolean object;
 
+  /**
+   * True if this object is known to be referenced only by a single variable binding, and
+   * so can be modified in place by replacement functions like {@code [<-}. The flag is set
+   * when a replacement function returns a new copy, and cleared as soon as the
+   * binding is read by anything else.
+   */
+  private transient boolean unshared;
+
   protected AbstractSEXP() {
     this.attributes = AttributeMap.EMPTY;
     this.object = false;
@@ -48,6 +56,18 @@ public abstract class AbstractSEXP implements SEXP {
     this.object = attributes.hasClass();
   }
 
+  /**
+   * @return true if this object is referenced only by a single variable binding, and
+   * can be safely modified in place.
+   */
+  public final boolean isUnshared() {
+    return unshared;
+  }
+
+  public final void setUnshared(boolean unshared) {
+    this.unshared = unshared;
+  }
+
   protected boolean checkDims() {
     Vector dimVector = attributes.getDim();
     if(dimVector.length() == 0) {
@@ -22,6 +22,7 @@
 package org.renjin.sexp;
 
 import com.google.common.base.Objects;
+import org.renjin.compiler.TieredCompiler;
 import org.renjin.eval.ClosureDispatcher;
 import org.renjin.eval.Context;
 import org.renjin.eval.EvalException;
@@ -44,6 +45,24 @@ public class Closure extends AbstractSEXP implements Function {
   private SEXP body;
   private PairList formals;
 
+  /**
+   * The number of invocations plus loop back-edges taken while
+   * interpreting this closure's body. Updates are deliberately unsynchronized:
+   * the count only needs to be approximately right.
+   */
+  private int hotness;
+
+  /**
+   * True once this closure has been handed to the {@link TieredCompiler}
+   */
+  private volatile boolean compilationQueued;
+
+  /**
+   * This closure's body compiled to JVM bytecode, or {@code null}
+   * if it has not (yet) been compiled.
+   */
+  private volatile Closure compiledBody;
+
   public Closure(Environment enclosingEnvironment, PairList formals, SEXP body, AttributeMap attributes) {
     super(attributes);
     this.enclosingEnvironment = enclosingEnvironment;
@@ -88,7 +107,7 @@ public class Closure extends AbstractSEXP implements Function {
     Context functionContext = callingContext.beginFunction(callingEnvironment, call, this, promisedArgs);
     Environment functionEnvironment = functionContext.getEnvironment();    
 
-    ClosureDispatcher.matchArgumentsInto(getFormals(), promisedArgs, functionContext, functionEnvironment);
+    ClosureDispatcher.matchArgumentsInto(call, getFormals(), promisedArgs, functionContext, functionEnvironment);
 
     SEXP result;
     try {
@@ -105,8 +124,51 @@ public class Closure extends AbstractSEXP implements Function {
   }
 
   public SEXP doApply(Context functionContext) {
+    Closure compiled = compiledBody;
+    if(compiled != null) {
+      return compiled.doApply(functionContext);
+    }
+    if(TieredCompiler.ENABLED) {
+      countTowardsCompilation();
+    }
     return functionContext.evaluate(body);
   }
+
+  /**
+   * Called by the interpreter each time a loop within this closure's body
+   * starts a new iteration.
+   */
+  public void onLoopBackEdge() {
+    if(TieredCompiler.ENABLED && compiledBody == null) {
+      countTowardsCompilation();
+    }
+  }
+
+  private void countTowardsCompilation() {
+    if(!compilationQueued) {
+      hotness++;
+      if(hotness >= TieredCompiler.THRESHOLD) {
+        compilationQueued = true;
+        TieredCompiler.INSTANCE.submit(this);
+      }
+    }
+  }
+
+  /**
+   * Installs a compiled version of this closure's body which will be used
+   * for all subsequent invocations.
+   *
+   * @param compiled a {@code Closure} compiled with the same formals and body, or
+   * {@code null} if compilation failed, in which case the closure remains interpreted.
+   */
+  public void setCompiledBody(Closure compiled) {
+    this.compilationQueued = true;
+    this.compiledBody = compiled;
+  }
+
+  public boolean isCompiled() {
+    return compiledBody != null;
+  }
    
 
   /**
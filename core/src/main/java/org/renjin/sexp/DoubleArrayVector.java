@@ -91,6 +91,17 @@ public final class DoubleArrayVector extends DoubleVector {
     return values[index];
   }
 
+  /**
+   * Replaces the element at {@code index} in place. This is only permitted if the vector
+   * is {@link #isUnshared() unshared}.
+   */
+  public void setElementInPlace(int index, double value) {
+    if(!isUnshared()) {
+      throw new IllegalStateException("Cannot modify a shared vector");
+    }
+    values[index] = value;
+  }
+
   @Override
   public int length() {
     return values.length;
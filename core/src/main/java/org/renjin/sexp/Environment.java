@@ -68,10 +68,19 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
   private Set<Symbol> lockedBindings;
 
   /**
-   * Keeps track of the number of times setVariable() has been called on this 
-   * environment.
+   * Keeps track of the number of times variables have been set or removed in
+   * this environment, or its parent has been changed.
    */
   private transient int modCount = 0;
+
+  /**
+   * Incremented whenever a change to this environment could change the result of a
+   * search for a function through it: when a function or promise is bound, a binding
+   * is removed, or the parent is changed. Assigning other values leaves it unchanged.
+   *
+   * @see EnvironmentPath
+   */
+  transient int version = 0;
   
   /**
    * The root of the environment hierarchy.
@@ -94,21 +103,31 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
    * @return the Global environment
    */
   public static Environment createGlobalEnvironment() {
+    return createGlobalEnvironment(new HashFrame(), new BaseFrame());
+  }
+
+  /**
+   * Creates a new tree of empty, base, and global environments backed by the
+   * given frames.
+   *
+   * @return the Global environment
+   */
+  public static Environment createGlobalEnvironment(Frame globalFrame, Frame baseFrame) {
     Environment global = new Environment();
     global.name = GLOBAL_ENVIRONMENT_NAME;
-    global.baseEnvironment = createBaseEnvironment();
+    global.baseEnvironment = createBaseEnvironment(baseFrame);
     global.parent = global.baseEnvironment;
-    global.frame = new HashFrame();
+    global.frame = globalFrame;
 
     return global;
   }
 
-  private static Environment createBaseEnvironment() {
+  private static Environment createBaseEnvironment(Frame frame) {
     Environment base = new Environment();
     base.name = "base";
     base.baseEnvironment = base;
     base.parent = EMPTY;
-    base.frame = new BaseFrame();
+    base.frame = frame;
     return base;
   }
 
@@ -123,7 +142,11 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
   }
   
   public static Environment createNamedEnvironment(Environment parent, String name) {
-    Environment ns = createChildEnvironment(parent);
+    return createNamedEnvironment(parent, name, new HashFrame());
+  }
+
+  public static Environment createNamedEnvironment(Environment parent, String name, Frame frame) {
+    Environment ns = createChildEnvironment(parent, frame);
     ns.name = name;
     return ns;
   }
@@ -154,10 +177,14 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
 
   public void remove(Symbol symbol) {
     frame.remove(symbol);
+    modCount++;
+    version++;
   }
   
   public void clear() {
     frame.clear();
+    modCount++;
+    version++;
   }
 
 
@@ -172,6 +199,14 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
     }
   }
 
+  /**
+   * @return true if this environment has been given a name, as have the global, base,
+   * namespace and package environments.
+   */
+  boolean isNamed() {
+    return name != null || this.attributes.get(Symbols.NAME) instanceof StringVector;
+  }
+
   public Environment getParent() {
     return parent;
   }
@@ -179,6 +214,7 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
   public void setParent(Environment parent) {
     this.parent = parent;
     modCount ++;
+    version++;
   }
 
   public Environment getBaseEnvironment() {
@@ -224,6 +260,9 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
     }
     frame.setVariable(symbol, value);
     modCount++;
+    if(value instanceof Function || value instanceof Promise || value == Symbol.MISSING_ARG) {
+      version++;
+    }
   }
 
   /**
@@ -301,6 +340,27 @@ public class Environment extends AbstractSEXP implements Recursive, HasNamedValu
     }
     return parent.findFunction(context, symbol);
   }
+
+  /**
+   * Searches this environment and its parents in the same way as
+   * {@link #findFunction(Context, Symbol)}.
+   *
+   * @return the environment in which {@code symbol} is bound to a function, or {@code null}
+   * if there is none
+   */
+  public Environment findFunctionEnvironment(Context context, Symbol symbol) {
+    Environment environment = this;
+    while(environment != EMPTY) {
+      if(environment.frame.isMissingArgument(symbol)) {
+        throw new EvalException("argument '%s' is missing, with no default", symbol.toString());
+      }
+      if(environment.frame.getFunction(context, symbol) != null) {
+        return environment;
+      }
+      environment = environment.parent;
+    }
+    return null;
+  }
   
   public Function findFunctionOrThrow(Context context, Symbol symbol) {
     Function function = findFunction(context, symbol);
@@ -0,0 +1,96 @@
+package org.renjin.sexp;
+
+/**
+ * The versions of an environment and of its parents, recorded before searching them for a
+ * function, so that the result of the search can be reused for as long as none of them has
+ * changed in a way that could give a different result.
+ *
+ * <p>The version of each environment is recorded and compared separately. A sum of the
+ * versions along the path is not enough: attaching an environment to the search path and
+ * detaching it again, followed by an assignment, can bring the sum back to a value it had
+ * while the environment was attached.
+ *
+ * <p>Since changing the parent of an environment increments its version, the path itself is
+ * unchanged as long as the versions are.
+ *
+ * <p>Instances are immutable so that they can be safely shared between threads.
+ */
+public final class EnvironmentPath {
+
+  private final Environment start;
+  private final Environment[] environments;
+  private final int[] versions;
+
+  private EnvironmentPath(Environment start, Environment[] environments, int[] versions) {
+    this.start = start;
+    this.environments = environments;
+    this.versions = versions;
+  }
+
+  /**
+   * Records the current versions of {@code start} and of all its parents.
+   */
+  public static EnvironmentPath record(Environment start) {
+    int length = 0;
+    for(Environment environment = start; environment != Environment.EMPTY; environment = environment.getParent()) {
+      length++;
+    }
+    Environment[] environments = new Environment[length];
+    int[] versions = new int[length];
+    Environment environment = start;
+    for(int i = 0; i != length; ++i) {
+      environments[i] = environment;
+      versions[i] = environment.version;
+      environment = environment.getParent();
+    }
+    return new EnvironmentPath(start, environments, versions);
+  }
+
+  /**
+   * @return the environment in which the path starts
+   */
+  public Environment getStart() {
+    return start;
+  }
+
+  /**
+   * @return the last environment of the path, or {@code null} if the path
+   * starts at the empty environment
+   */
+  public Environment getEnd() {
+    return environments.length == 0 ? null : environments[environments.length - 1];
+  }
+
+  /**
+   * @return the part of this path which ends with {@code last}, or {@code null} if
+   * {@code last} is not on this path
+   */
+  public EnvironmentPath upTo(Environment last) {
+    for(int i = 0; i != environments.length; ++i) {
+      if(environments[i] == last) {
+        int length = i + 1;
+        if(length == environments.length) {
+          return this;
+        }
+        Environment[] prefix = new Environment[length];
+        int[] prefixVersions = new int[length];
+        System.arraycopy(environments, 0, prefix, 0, length);
+        System.arraycopy(versions, 0, prefixVersions, 0, length);
+        return new EnvironmentPath(start, prefix, prefixVersions);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return true if none of the environments on this path has changed since it was recorded
+   */
+  public boolean isCurrent() {
+    for(int i = 0; i != environments.length; ++i) {
+      if(environments[i].version != versions[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
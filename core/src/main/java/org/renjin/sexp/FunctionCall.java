@@ -21,6 +21,9 @@
 
 package org.renjin.sexp;
 
+import org.renjin.eval.ArgumentMatchPlan;
+import org.renjin.eval.InlineCache;
+
 /**
  * Expression representing a call to an R function, consisting of
  * a function reference and a list of arguments.
@@ -31,6 +34,16 @@ package org.renjin.sexp;
 public class FunctionCall extends PairList.Node {
   public static final String TYPE_NAME = "language";
   public static final String IMPLICIT_CLASS = "call";
+
+  /**
+   * The function to which this call was last resolved
+   */
+  private transient InlineCache inlineCache;
+
+  /**
+   * The plan used to match arguments the last time a closure was called from here
+   */
+  private transient ArgumentMatchPlan matchPlan;
   
   public FunctionCall(SEXP function, PairList arguments) {
     super(function, arguments);
@@ -52,6 +65,22 @@ public class FunctionCall extends PairList.Node {
     return value;
   }
  
+  public InlineCache getInlineCache() {
+    return inlineCache;
+  }
+
+  public void setInlineCache(InlineCache inlineCache) {
+    this.inlineCache = inlineCache;
+  }
+
+  public ArgumentMatchPlan getMatchPlan() {
+    return matchPlan;
+  }
+
+  public void setMatchPlan(ArgumentMatchPlan matchPlan) {
+    this.matchPlan = matchPlan;
+  }
+
   public PairList getArguments() {
     return nextNode == null ? Null.INSTANCE : nextNode;
   }
@@ -47,7 +47,29 @@ public class HashFrame implements Frame{
   @Override
   public SEXP getVariable(Symbol name) {
     SEXP value = values.get(name);
-    return value == null ? Symbol.UNBOUND_VALUE : value;
+    if(value == null) {
+      return Symbol.UNBOUND_VALUE;
+    }
+    // once read, the value may be referenced from elsewhere
+    if(value instanceof AbstractSEXP && ((AbstractSEXP) value).isUnshared()) {
+      ((AbstractSEXP) value).setUnshared(false);
+    }
+    return value;
+  }
+
+  /**
+   * Retrieves the value bound to {@code name} if it is referenced only by this binding,
+   * without otherwise marking it as shared.
+   *
+   * @return the value, or {@code null} if the variable is not bound in this frame or if its
+   * value may be shared.
+   */
+  public AbstractSEXP getUnsharedVariable(Symbol name) {
+    SEXP value = values.get(name);
+    if(value instanceof AbstractSEXP && ((AbstractSEXP) value).isUnshared()) {
+      return (AbstractSEXP) value;
+    }
+    return null;
   }
 
   @Override
@@ -58,6 +58,17 @@ public class IntArrayVector extends IntVector {
     return values[i];
   }
 
+  /**
+   * Replaces the element at {@code index} in place. This is only permitted if the vector
+   * is {@link #isUnshared() unshared}.
+   */
+  public void setElementInPlace(int index, int value) {
+    if(!isUnshared()) {
+      throw new IllegalStateException("Cannot modify a shared vector");
+    }
+    values[index] = value;
+  }
+
   @Override
   protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
     IntArrayVector clone = new IntArrayVector(attributes);
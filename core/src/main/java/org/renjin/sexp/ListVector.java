@@ -149,6 +149,17 @@ public class ListVector extends AbstractVector implements Iterable<SEXP>, HasNam
     return values.get(index);
   }
 
+  /**
+   * Replaces the element at {@code index} in place. This is only permitted if the vector
+   * is {@link #isUnshared() unshared}.
+   */
+  public void setElementInPlace(int index, SEXP value) {
+    if(!isUnshared()) {
+      throw new IllegalStateException("Cannot modify a shared vector");
+    }
+    values.set(index, value);
+  }
+
   @Override
   public double getElementAsDouble(int index) {
     SEXP value = values.get(index);
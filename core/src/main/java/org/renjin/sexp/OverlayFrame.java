@@ -0,0 +1,239 @@
+package org.renjin.sexp;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.renjin.eval.Context;
+import org.renjin.eval.EvalException;
+
+import com.google.common.collect.Sets;
+
+/**
+ * A copy-on-write {@code Frame} layered over a frame shared with another session.
+ *
+ * <p>Reads fall through to the shared frame, and all writes and removals are recorded locally,
+ * so the shared frame is never modified. Closures and environments read from the shared frame
+ * which refer to environments of the other session are translated to the equivalent
+ * environments of this session the first time they are read, and the translated copy is
+ * kept in this frame. This includes closures and environments which are elements of lists,
+ * such as {@code handlers <- list(f = function() ...)}, at any depth. The function bodies
+ * themselves are shared.
+ *
+ * <p>Unnamed environments whose parents are translated, such as the frames of function calls
+ * captured by closures or environments created with {@code new.env()}, are themselves copied
+ * on first read: the copy is backed by another {@code OverlayFrame}, so that its own bindings
+ * are copy-on-write as well. Other named environments are shared as they are, unless
+ * {@code environments} already maps them to a copy, as a forked session does for its namespaces.
+ *
+ * <p>Unevaluated promises bound in an environment which is copied are copied as well, and
+ * evaluated by this session if needed, so promises of the other session are never forced here.
+ * Other promises in the shared frame, such as lazily loaded values of the base package, are
+ * forced in the context of the session which owns it, so that the shared frame only ever
+ * contains values bound to that session.
+ */
+public class OverlayFrame implements Frame {
+
+  private final Frame shared;
+  private final Context sharedContext;
+  private final Map<Environment, Environment> environments;
+
+  private final IdentityHashMap<Symbol, SEXP> local = new IdentityHashMap<Symbol, SEXP>();
+  private final Set<Symbol> removed = Sets.newIdentityHashSet();
+  private boolean cleared = false;
+
+  /**
+   * Lists from the shared frame which have already been searched and contain nothing to translate
+   */
+  private final Set<SEXP> untranslatedLists = Sets.newIdentityHashSet();
+
+  /**
+   * @param shared the frame to read from
+   * @param sharedContext the top level context of the session owning the shared frame
+   * @param environments map from the environments of the session owning the {@code shared} frame
+   * to the corresponding environments of this session.
+   */
+  public OverlayFrame(Frame shared, Context sharedContext, Map<Environment, Environment> environments) {
+    this.shared = shared;
+    this.sharedContext = sharedContext;
+    this.environments = environments;
+  }
+
+  @Override
+  public Set<Symbol> getSymbols() {
+    if(cleared) {
+      return local.keySet();
+    }
+    return Sets.union(local.keySet(), Sets.difference(shared.getSymbols(), removed));
+  }
+
+  @Override
+  public SEXP getVariable(Symbol name) {
+    SEXP value = local.get(name);
+    if(value != null) {
+      return value;
+    }
+    if(cleared || removed.contains(name)) {
+      return Symbol.UNBOUND_VALUE;
+    }
+    value = shared.getVariable(name);
+    if(value == Symbol.UNBOUND_VALUE || untranslatedLists.contains(value)) {
+      return value;
+    }
+    SEXP translated = translate(value, sharedContext, environments);
+    if(translated != value) {
+      local.put(name, translated);
+    } else if(value instanceof ListVector) {
+      untranslatedLists.add(value);
+    }
+    return translated;
+  }
+
+  @Override
+  public Function getFunction(Context context, Symbol name) {
+    SEXP value = getVariable(name);
+    if(value == Symbol.UNBOUND_VALUE) {
+      return null;
+    }
+    value = value.force(context);
+    if(value == Symbol.MISSING_ARG) {
+      throw new EvalException("argument '%s' is missing with no default", name.toString());
+    }
+    if(value instanceof Function) {
+      return (Function) value;
+    }
+    return null;
+  }
+
+  @Override
+  public boolean isMissingArgument(Symbol name) {
+    return getVariable(name) == Symbol.MISSING_ARG;
+  }
+
+  @Override
+  public void setVariable(Symbol name, SEXP value) {
+    local.put(name, value);
+  }
+
+  @Override
+  public void clear() {
+    local.clear();
+    removed.clear();
+    cleared = true;
+  }
+
+  @Override
+  public void remove(Symbol name) {
+    local.remove(name);
+    removed.add(name);
+  }
+
+  /**
+   * Translates a value owned by another session to the equivalent value in this session.
+   *
+   * @param sharedContext the top level context of the session which owns {@code value}
+   * @param environments map from the environments of that session to the corresponding environments
+   *                     of this session
+   */
+  public static SEXP translate(SEXP value, Context sharedContext, Map<Environment, Environment> environments) {
+    if(value instanceof Promise) {
+      Promise promise = (Promise) value;
+      if(promise.getClass() == Promise.class) {
+        synchronized (promise) {
+          if(!promise.isEvaluated()) {
+            Environment environment = translateEnvironment(promise.getEnvironment(), sharedContext, environments);
+            if(environment != promise.getEnvironment()) {
+              return new Promise(environment, promise.getExpression());
+            }
+          }
+        }
+      }
+      value = forceShared(promise, sharedContext);
+    }
+    if(value instanceof Environment) {
+      return translateEnvironment((Environment) value, sharedContext, environments);
+    }
+    if(value instanceof Closure) {
+      Closure closure = (Closure) value;
+      Environment enclosing = translateEnvironment(closure.getEnclosingEnvironment(), sharedContext, environments);
+      if(enclosing != closure.getEnclosingEnvironment()) {
+        return new Closure(enclosing, closure.getFormals(), closure.getBody(), closure.getAttributes());
+      }
+    }
+    if(value instanceof ListVector) {
+      return translateList((ListVector) value, sharedContext, environments);
+    }
+    return value;
+  }
+
+  /**
+   * Forces a promise of the shared frame in the context of the session which owns it.
+   */
+  private static SEXP forceShared(Promise promise, Context sharedContext) {
+    // promises in the shared frame may be forced concurrently by several sessions
+    synchronized (promise) {
+      if(promise.isEvaluated()) {
+        return promise.force(sharedContext);
+      }
+    }
+    // and the other session's context and namespaces may only be used by one of them at a time
+    synchronized (sharedContext) {
+      synchronized (promise) {
+        return promise.force(sharedContext);
+      }
+    }
+  }
+
+  /**
+   * @return a copy of {@code list} with its elements translated, or {@code list} itself if
+   * none of them needs to be translated
+   */
+  private static ListVector translateList(ListVector list, Context sharedContext,
+                                          Map<Environment, Environment> environments) {
+    SEXP[] elements = null;
+    for(int i=0;i!=list.length();++i) {
+      SEXP element = list.getElementAsSEXP(i);
+      SEXP translated = translate(element, sharedContext, environments);
+      if(translated != element && elements == null) {
+        elements = new SEXP[list.length()];
+        for(int j=0;j!=i;++j) {
+          elements[j] = list.getElementAsSEXP(j);
+        }
+      }
+      if(elements != null) {
+        elements[i] = translated;
+      }
+    }
+    if(elements == null) {
+      return list;
+    }
+    return new ListVector(elements, list.getAttributes());
+  }
+
+  /**
+   * @return the environment of this session corresponding to {@code environment}, copying
+   * it if it is an unnamed environment whose parent has a corresponding environment,
+   * or {@code environment} itself if it should be shared.
+   */
+  private static Environment translateEnvironment(Environment environment, Context sharedContext,
+                                                  Map<Environment, Environment> environments) {
+    if(environment == null || environment == Environment.EMPTY) {
+      return environment;
+    }
+    Environment translated = environments.get(environment);
+    if(translated != null) {
+      return translated;
+    }
+    if(environment.isNamed()) {
+      return environment;
+    }
+    Environment parent = translateEnvironment(environment.getParent(), sharedContext, environments);
+    if(parent == environment.getParent()) {
+      return environment;
+    }
+    translated = Environment.createChildEnvironment(parent,
+        new OverlayFrame(environment.getFrame(), sharedContext, environments));
+    environments.put(environment, translated);
+    return translated;
+  }
+}
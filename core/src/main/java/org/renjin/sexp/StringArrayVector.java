@@ -86,6 +86,17 @@ public class StringArrayVector extends StringVector implements Iterable<String>
     return values[index];
   }
 
+  /**
+   * Replaces the element at {@code index} in place. This is only permitted if the vector
+   * is {@link #isUnshared() unshared}.
+   */
+  public void setElementInPlace(int index, String value) {
+    if(!isUnshared()) {
+      throw new IllegalStateException("Cannot modify a shared vector");
+    }
+    values[index] = value;
+  }
+
   @Override
   public boolean isConstantAccessTime() {
     return true;
@@ -23,10 +23,12 @@ package org.renjin.sexp;
 
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
+import com.google.common.collect.MapMaker;
 import com.google.common.collect.Maps;
 import org.renjin.eval.EvalException;
 
 import java.util.HashMap;
+import java.util.concurrent.ConcurrentMap;
 
 public final class Symbol extends AbstractSEXP {
 
@@ -37,8 +39,19 @@ public final class Symbol extends AbstractSEXP {
    * The global symbol table. We store symbols here so that
    * we can compare symbols using reference equality (==) rather than
    * the equals() method.
+   *
+   * <p>Lookups do not lock, so that sessions running on different threads do not
+   * contend for the table. Symbols are held weakly: a symbol which is no longer
+   * referenced anywhere can be collected, and will simply be created again if needed.
+   */
+  private static final ConcurrentMap<String, Symbol> TABLE = new MapMaker().weakValues().makeMap();
+
+  /**
+   * Symbols with reserved hash bits. These are held strongly, so that they keep their
+   * hash bit for the lifetime of the JVM. The map is not modified after
+   * class initialization, so it can be read without locking.
    */
-  private static final HashMap<String, Symbol> TABLE;
+  private static final HashMap<String, Symbol> RESERVED;
 
   public static final Symbol UNBOUND_VALUE = new Symbol();
   
@@ -61,7 +74,7 @@ public final class Symbol extends AbstractSEXP {
   private static final int NUM_RESERVED_BITS = 4;
   
   static { 
-    TABLE = Maps.newHashMap();
+    RESERVED = Maps.newHashMap();
     addReserved(0, 
         "if", 
         ".Internal",   
@@ -156,7 +169,7 @@ public final class Symbol extends AbstractSEXP {
   
   private static void addReserved(int hashBit, String... names) {
     for(String name : names) {
-      TABLE.put(name, new Symbol(name, 1<<hashBit));
+      RESERVED.put(name, new Symbol(name, 1<<hashBit));
     }
   }
   
@@ -173,14 +186,19 @@ public final class Symbol extends AbstractSEXP {
       throw new EvalException("attempt to use zero-length variable name");
     }
 
-    synchronized (TABLE) {
-      Symbol symbol = TABLE.get(printName);
+    Symbol symbol = RESERVED.get(printName);
+    if(symbol != null) {
+      return symbol;
+    }
+    symbol = TABLE.get(printName);
+    if(symbol == null) {
+      Symbol newSymbol = new Symbol(printName, calcHashBit(printName));
+      symbol = TABLE.putIfAbsent(printName, newSymbol);
       if(symbol == null) {
-        symbol = new Symbol(printName, calcHashBit(printName));
-        TABLE.put(printName, symbol);
+        symbol = newSymbol;
       }
-      return symbol;
     }
+    return symbol;
   }
 
   private Symbol() {
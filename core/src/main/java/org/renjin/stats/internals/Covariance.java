@@ -2,15 +2,24 @@ package org.renjin.stats.internals;
 
 
 
+import org.renjin.compiler.pipeline.reduce.Reductions;
 import org.renjin.eval.EvalException;
 import org.renjin.invoke.annotations.Builtin;
 import org.renjin.invoke.annotations.Internal;
-import org.renjin.sexp.AtomicVector;
-import org.renjin.sexp.DoubleVector;
-import org.renjin.sexp.Vector;
+import org.renjin.primitives.summary.DeferredReduction;
+import org.renjin.primitives.vector.DeferredComputation;
+import org.renjin.sexp.*;
 
 public class Covariance {
 
+  private static final int EVERYTHING = 4;
+  private static final int NA_OR_COMPLETE = 5;
+
+  private static boolean isDeferrable(AtomicVector x) {
+    return x instanceof DoubleVector && x.getAttribute(Symbols.DIM) == Null.INSTANCE &&
+        (x instanceof DeferredComputation || x.length() > 100000);
+  }
+
   @Internal
   public static DoubleVector cor(AtomicVector x, AtomicVector y, int naMethod, boolean kendall) {
 
@@ -30,6 +39,12 @@ public class Covariance {
       throw new EvalException("kendall=true nyi");
     }
 
+    // the variance of a single deferred or large vector is computed in one pass
+    // by the vector pipeline
+    if(y == Null.INSTANCE && isDeferrable(x) && (naMethod == EVERYTHING || naMethod == NA_OR_COMPLETE)) {
+      return new DeferredReduction(x, Reductions.get("var", naMethod == NA_OR_COMPLETE), AttributeMap.dim(1, 1));
+    }
+
     return new VarianceCalculator(x, y, naMethod)
     .withCovarianceMethod()
     .calculate();
@@ -0,0 +1,73 @@
+package org.renjin.stats.internals.distributions;
+
+/**
+ * Walker's alias method, in the form given by Vose, for drawing repeatedly from a
+ * discrete distribution in constant time per draw.
+ *
+ * <p>The range {@code [0, n)} is divided into {@code n} slots of width one. Slot {@code i} is
+ * divided at {@code cutoff[i]} between the index {@code i} itself and one other index,
+ * {@code alias[i]}, so that every index receives a total width of {@code n * p[i]}. A draw
+ * then needs a single uniform deviate: its integer part selects the slot and its
+ * fractional part selects either side of the cutoff.
+ */
+class AliasTable {
+
+  private final double[] cutoff;
+  private final int[] alias;
+
+  /**
+   * @param prob the probabilities of the indices, which must be non-negative and sum to one
+   */
+  AliasTable(double[] prob) {
+    int n = prob.length;
+    cutoff = new double[n];
+    alias = new int[n];
+
+    // work lists of the slots which are under- and over-full, kept as stacks
+    int[] small = new int[n];
+    int[] large = new int[n];
+    int numSmall = 0;
+    int numLarge = 0;
+
+    for (int i = 0; i < n; i++) {
+      cutoff[i] = prob[i] * n;
+      if (cutoff[i] < 1.0) {
+        small[numSmall++] = i;
+      } else {
+        large[numLarge++] = i;
+      }
+    }
+
+    while (numSmall > 0 && numLarge > 0) {
+      int s = small[--numSmall];
+      int l = large[--numLarge];
+      alias[s] = l;
+      cutoff[l] = (cutoff[l] + cutoff[s]) - 1.0;
+      if (cutoff[l] < 1.0) {
+        small[numSmall++] = l;
+      } else {
+        large[numLarge++] = l;
+      }
+    }
+
+    // whatever remains differs from a full slot only by rounding error
+    while (numLarge > 0) {
+      cutoff[large[--numLarge]] = 1.0;
+    }
+    while (numSmall > 0) {
+      cutoff[small[--numSmall]] = 1.0;
+    }
+  }
+
+  /**
+   * @return a zero-based index drawn from the distribution
+   */
+  int sample(UniformSource rng) {
+    double u = rng.unif_rand() * cutoff.length;
+    int slot = (int) u;
+    if (slot == cutoff.length) {
+      slot--;
+    }
+    return (u - slot) < cutoff[slot] ? slot : alias[slot];
+  }
+}
@@ -46,10 +46,14 @@ public class Exponantial {
   };
 
   public static double exp_rand(Session context) {
+    return exp_rand(context.rng);
+  }
+
+  public static double exp_rand(UniformSource rng) {
     double a = 0.;
-    double u = context.rng.unif_rand();    /* precaution if u = 0 is ever returned */
+    double u = rng.unif_rand();    /* precaution if u = 0 is ever returned */
     while (u <= 0. || u >= 1.) {
-      u = context.rng.unif_rand();
+      u = rng.unif_rand();
     }
     for (;;) {
       u += u;
@@ -65,9 +69,9 @@ public class Exponantial {
     }
 
     int i = 0;
-    double ustar = context.rng.unif_rand(), umin = ustar;
+    double ustar = rng.unif_rand(), umin = ustar;
     do {
-      ustar = context.rng.unif_rand();
+      ustar = rng.unif_rand();
       if (umin > ustar) {
         umin = ustar;
       }
@@ -0,0 +1,293 @@
+/*
+ * R : A Computer Language for Statistical Data Analysis
+ * Copyright (C) 1997--2011  The R Development Core Team
+ * Copyright (C) 2010 bedatadriven
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.renjin.stats.internals.distributions;
+
+/**
+ * L'Ecuyer's combined multiple-recursive generator MRG32k3a, as used by R's
+ * {@code RNGkind("L'Ecuyer-CMRG")}.
+ *
+ * <p>The period of the generator, about 2^191, is divided into streams of
+ * length 2^127, each of which is divided into substreams of length 2^76.
+ * {@link #nextStream()} and {@link #nextSubStream()} jump directly to the start of the
+ * next stream or substream, in the same way as {@code nextRNGStream()} and
+ * {@code nextRNGSubStream()} in R's {@code parallel} package, so that independent,
+ * reproducible generators can be handed out to parallel workers.
+ *
+ * <p>Instances are not thread-safe: each worker should use its own stream.
+ */
+public class LecuyerCMRG implements UniformSource {
+
+  static final long M1 = 4294967087L;
+  static final long M2 = 4294944443L;
+
+  private static final double NORMC = 2.328306549295727688e-10;
+  private static final long A12 = 1403580L;
+  private static final long A13N = 810728L;
+  private static final long A21 = 527612L;
+  private static final long A23N = 1370589L;
+
+  /* Jump matrices for the first and second components: A^(2^127) and A^(2^76) */
+
+  private static final long[][] A1P127 = {
+      {2427906178L, 3580155704L, 949770784L},
+      {226153695L, 1230515664L, 3580155704L},
+      {1988835001L, 986791581L, 1230515664L}};
+
+  private static final long[][] A2P127 = {
+      {1464411153L, 277697599L, 1610723613L},
+      {32183930L, 1464411153L, 1022607788L},
+      {2824425944L, 32183930L, 2093834863L}};
+
+  private static final long[][] A1P76 = {
+      {82758667L, 1871391091L, 4127413238L},
+      {3672831523L, 69195019L, 1871391091L},
+      {3672091415L, 3528743235L, 69195019L}};
+
+  private static final long[][] A2P76 = {
+      {1511326704L, 3759209742L, 1610795712L},
+      {4292754251L, 1511326704L, 3889917532L},
+      {3859662829L, 4292754251L, 3708466080L}};
+
+  /**
+   * The six seeds, as unsigned 32-bit integers
+   */
+  private final long[] seed = new long[6];
+
+  public LecuyerCMRG(int seed) {
+    setSeed(seed);
+  }
+
+  /**
+   * Creates a generator from six seeds, as found in elements 2-7 of
+   * {@code .Random.seed}.
+   */
+  public LecuyerCMRG(int[] seeds) {
+    setSeeds(seeds);
+  }
+
+  private LecuyerCMRG(long[] seed) {
+    System.arraycopy(seed, 0, this.seed, 0, 6);
+  }
+
+  /**
+   * Initializes the seeds from a single integer, as {@code set.seed()} does in R.
+   */
+  public void setSeed(int initial) {
+    int s = initial;
+    /* Initial scrambling */
+    for (int j = 0; j < 50; j++) {
+      s = (69069 * s + 1);
+    }
+    for (int j = 0; j < 6; j++) {
+      s = (69069 * s + 1);
+      while (unsigned(s) >= M2) {
+        s = (69069 * s + 1);
+      }
+      seed[j] = unsigned(s);
+    }
+  }
+
+  /**
+   * Sets the six seeds, which are interpreted as unsigned 32-bit integers.
+   *
+   * @throws IllegalArgumentException if the seeds are not valid for this generator
+   */
+  public void setSeeds(int[] seeds) {
+    if (seeds.length != 6) {
+      throw new IllegalArgumentException("L'Ecuyer-CMRG requires 6 seeds");
+    }
+    if (!isValid(seeds, 0, M1) || !isValid(seeds, 3, M2)) {
+      throw new IllegalArgumentException("invalid seeds for L'Ecuyer-CMRG");
+    }
+    for (int j = 0; j < 6; j++) {
+      seed[j] = unsigned(seeds[j]);
+    }
+  }
+
+  private static boolean isValid(int[] seeds, int offset, long m) {
+    boolean notAllZero = false;
+    for (int j = offset; j < offset + 3; j++) {
+      long s = unsigned(seeds[j]);
+      if (s >= m) {
+        return false;
+      }
+      if (s != 0) {
+        notAllZero = true;
+      }
+    }
+    return notAllZero;
+  }
+
+  /**
+   * @return the six seeds as signed integers, in the form in which R stores
+   * them in {@code .Random.seed}
+   */
+  public int[] getSeeds() {
+    int[] seeds = new int[6];
+    for (int j = 0; j < 6; j++) {
+      seeds[j] = (int) seed[j];
+    }
+    return seeds;
+  }
+
+  @Override
+  public double unif_rand() {
+    long p1 = A12 * seed[1] - A13N * seed[0];
+    p1 %= M1;
+    if (p1 < 0) {
+      p1 += M1;
+    }
+    seed[0] = seed[1];
+    seed[1] = seed[2];
+    seed[2] = p1;
+
+    long p2 = A21 * seed[5] - A23N * seed[3];
+    p2 %= M2;
+    if (p2 < 0) {
+      p2 += M2;
+    }
+    seed[3] = seed[4];
+    seed[4] = seed[5];
+    seed[5] = p2;
+
+    return ((p1 > p2) ? (p1 - p2) : (p1 - p2 + M1)) * NORMC;
+  }
+
+  /**
+   * Fills {@code x[from..to)} with uniform deviates, keeping the state in locals so that
+   * long runs avoid the field loads and stores of repeated calls to {@link #unif_rand()}.
+   * The values are identical to those of successive calls to {@code unif_rand()}.
+   */
+  public void unif_rand(double[] x, int from, int to) {
+    long s0 = seed[0], s1 = seed[1], s2 = seed[2];
+    long s3 = seed[3], s4 = seed[4], s5 = seed[5];
+    for (int i = from; i < to; i++) {
+      long p1 = (A12 * s1 - A13N * s0) % M1;
+      if (p1 < 0) {
+        p1 += M1;
+      }
+      s0 = s1;
+      s1 = s2;
+      s2 = p1;
+
+      long p2 = (A21 * s5 - A23N * s3) % M2;
+      if (p2 < 0) {
+        p2 += M2;
+      }
+      s3 = s4;
+      s4 = s5;
+      s5 = p2;
+
+      x[i] = ((p1 > p2) ? (p1 - p2) : (p1 - p2 + M1)) * NORMC;
+    }
+    seed[0] = s0; seed[1] = s1; seed[2] = s2;
+    seed[3] = s3; seed[4] = s4; seed[5] = s5;
+  }
+
+  /**
+   * Returns a new generator with the current state of this one, and advances this
+   * generator 2^127 steps to the next stream.
+   *
+   * <p>Calling this {@code n} times on a freshly seeded generator yields {@code n} generators whose
+   * sequences do not overlap for 2^127 draws, and which depend only on the seed and {@code n}.
+   */
+  public LecuyerCMRG split() {
+    LecuyerCMRG stream = new LecuyerCMRG(seed);
+    nextStream();
+    return stream;
+  }
+
+  /**
+   * Advances this generator 2^127 steps, to the next stream.
+   */
+  public void nextStream() {
+    long[] next = jump(seed, A1P127, A2P127);
+    System.arraycopy(next, 0, seed, 0, 6);
+  }
+
+  /**
+   * Advances this generator 2^76 steps, to the next substream.
+   */
+  public void nextSubStream() {
+    long[] next = jump(seed, A1P76, A2P76);
+    System.arraycopy(next, 0, seed, 0, 6);
+  }
+
+  /**
+   * Computes the seeds of the next stream from the six seeds in
+   * {@code .Random.seed} format, as {@code nextRNGStream()} does.
+   */
+  public static int[] nextStream(int[] seeds) {
+    return toSigned(jump(toUnsigned(seeds), A1P127, A2P127));
+  }
+
+  /**
+   * Computes the seeds of the next substream from the six seeds in
+   * {@code .Random.seed} format, as {@code nextRNGSubStream()} does.
+   */
+  public static int[] nextSubStream(int[] seeds) {
+    return toSigned(jump(toUnsigned(seeds), A1P76, A2P76));
+  }
+
+  private static long[] jump(long[] seed, long[][] a1, long[][] a2) {
+    long[] next = new long[6];
+    for (int i = 0; i < 3; i++) {
+      next[i] = dot(a1[i], seed, 0, M1);
+      next[i + 3] = dot(a2[i], seed, 3, M2);
+    }
+    return next;
+  }
+
+  private static long dot(long[] row, long[] v, int offset, long m) {
+    long sum = 0;
+    for (int j = 0; j < 3; j++) {
+      sum = (sum + multModM(row[j], v[offset + j], m)) % m;
+    }
+    return sum;
+  }
+
+  /**
+   * @return (a * s) mod m for 0 <= a, s < 2^32, without overflowing 64 bits
+   */
+  static long multModM(long a, long s, long m) {
+    long hi = ((a >>> 16) * s) % m;
+    long lo = ((a & 0xFFFF) * s) % m;
+    return ((hi << 16) % m + lo) % m;
+  }
+
+  private static long[] toUnsigned(int[] seeds) {
+    long[] s = new long[6];
+    for (int j = 0; j < 6; j++) {
+      s[j] = unsigned(seeds[j]);
+    }
+    return s;
+  }
+
+  private static int[] toSigned(long[] seeds) {
+    int[] s = new int[6];
+    for (int j = 0; j < 6; j++) {
+      s[j] = (int) seeds[j];
+    }
+    return s;
+  }
+
+  private static long unsigned(int x) {
+    return x & 0xFFFFFFFFL;
+  }
+}
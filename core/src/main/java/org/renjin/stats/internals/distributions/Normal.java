@@ -92,6 +92,10 @@ public class Normal {
 
   
   public static double norm_rand(Session context) {
+    return norm_rand(context.rng);
+  }
+
+  public static double norm_rand(UniformSource rng) {
     double s, u1, w, y, u2, u3, aa, tt, theta, R;
     int i;
 
@@ -99,7 +103,7 @@ public class Normal {
 
       case AHRENS_DIETER: /* see Reference above */
 
-        u1 = context.rng.unif_rand();
+        u1 = rng.unif_rand();
         s = 0.0;
         if (u1 > 0.5) {
           s = 1.0;
@@ -114,7 +118,7 @@ public class Normal {
           u2 = u1 - i;
           aa = a[i - 1];
           while (u2 <= t[i - 1]) {
-            u1 = context.rng.unif_rand();
+            u1 = rng.unif_rand();
             w = u1 * (a[i] - aa);
             tt = (w * 0.5 + aa) * w;
             for (;;) {
@@ -123,14 +127,14 @@ public class Normal {
                 return (s == 1.0) ? -y : y;
               }
 
-              u1 = context.rng.unif_rand();
+              u1 = rng.unif_rand();
               if (u2 < u1) {
                 break;
               }
               tt = u1;
-              u2 = context.rng.unif_rand();
+              u2 = rng.unif_rand();
             }
-            u2 = context.rng.unif_rand();
+            u2 = rng.unif_rand();
           }
           w = (u2 - t[i - 1]) * h[i - 1];
         } else {
@@ -149,18 +153,18 @@ public class Normal {
             w = u1 * d[i - 1];
             tt = (w * 0.5 + aa) * w;
             for (;;) {
-              u2 = context.rng.unif_rand();
+              u2 = rng.unif_rand();
               if (u2 > tt) {
                 y = aa + w;
                 return (s == 1.0) ? -y : y;
               }
-              u1 = context.rng.unif_rand();
+              u1 = rng.unif_rand();
               if (u2 < u1) {
                 break;
               }
               tt = u1;
             }
-            u1 = context.rng.unif_rand();
+            u1 = rng.unif_rand();
           }
 
         }
@@ -174,16 +178,16 @@ public class Normal {
         /* note: this has problems, but is retained for
          * reproducibility of older codes, with the same
          * numeric code */
-        u1 = context.rng.unif_rand();
+        u1 = rng.unif_rand();
         if (u1 < 0.884070402298758) {
-          u2 = context.rng.unif_rand();
+          u2 = rng.unif_rand();
           return A * (1.13113163544180 * u1 + u2 - 1);
         }
 
         if (u1 >= 0.973310954173898) { /* tail: */
           for (;;) {
-            u2 = context.rng.unif_rand();
-            u3 = context.rng.unif_rand();
+            u2 = rng.unif_rand();
+            u3 = rng.unif_rand();
             tt = (A * A - 2 * Math.log(u3));
             if (u2 * u2 < (A * A) / tt) {
               return (u1 < 0.986655477086949) ? Math.sqrt(tt) : -Math.sqrt(tt);
@@ -193,8 +197,8 @@ public class Normal {
 
         if (u1 >= 0.958720824790463) { /* region3: */
           for (;;) {
-            u2 = context.rng.unif_rand();
-            u3 = context.rng.unif_rand();
+            u2 = rng.unif_rand();
+            u3 = rng.unif_rand();
             tt = A - 0.630834801921960 * Math.min(u2, u3);
             if (Math.max(u2, u3) <= 0.755591531667601) {
               return (u2 < u3) ? tt : -tt;
@@ -207,8 +211,8 @@ public class Normal {
 
         if (u1 >= 0.911312780288703) { /* region2: */
           for (;;) {
-            u2 = context.rng.unif_rand();
-            u3 = context.rng.unif_rand();
+            u2 = rng.unif_rand();
+            u3 = rng.unif_rand();
             tt = 0.479727404222441 + 1.105473661022070 * Math.min(u2, u3);
             if (Math.max(u2, u3) <= 0.872834976671790) {
               return (u2 < u3) ? tt : -tt;
@@ -221,8 +225,8 @@ public class Normal {
 
         /* ELSE	 region1: */
         for (;;) {
-          u2 = context.rng.unif_rand();
-          u3 = context.rng.unif_rand();
+          u2 = rng.unif_rand();
+          u3 = rng.unif_rand();
           tt = 0.479727404222441 - 0.595507138015940 * Math.min(u2, u3);
           if (Math.max(u2, u3) <= 0.805577924423817) {
             return (u2 < u3) ? tt : -tt;
@@ -237,22 +241,22 @@ public class Normal {
       case INVERSION:
         int BIG = 134217728; /* 2^27 */
         /* unif_rand() alone is not of high enough precision */
-        u1 = context.rng.unif_rand();
-        u1 = (int) (BIG * u1) + context.rng.unif_rand();
+        u1 = rng.unif_rand();
+        u1 = (int) (BIG * u1) + rng.unif_rand();
         return qnorm5(u1 / BIG, 0.0, 1.0, 1, 0);
       case KINDERMAN_RAMAGE: /* see Reference above */
         /* corrected version from Josef Leydold
          * */
-        u1 = context.rng.unif_rand();
+        u1 = rng.unif_rand();
         if (u1 < 0.884070402298758) {
-          u2 = context.rng.unif_rand();
+          u2 = rng.unif_rand();
           return A * (1.131131635444180 * u1 + u2 - 1);
         }
 
         if (u1 >= 0.973310954173898) { /* tail: */
           for (;;) {
-            u2 = context.rng.unif_rand();
-            u3 = context.rng.unif_rand();
+            u2 = rng.unif_rand();
+            u3 = rng.unif_rand();
             tt = (A * A - 2 * Math.log(u3));
             if (u2 * u2 < (A * A) / tt) {
               return (u1 < 0.986655477086949) ? Math.sqrt(tt) : -Math.sqrt(tt);
@@ -262,8 +266,8 @@ public class Normal {
 
         if (u1 >= 0.958720824790463) { /* region3: */
           for (;;) {
-            u2 = context.rng.unif_rand();
-            u3 = context.rng.unif_rand();
+            u2 = rng.unif_rand();
+            u3 = rng.unif_rand();
             tt = A - 0.630834801921960 * Math.min(u2, u3);
             if (Math.max(u2, u3) <= 0.755591531667601) {
               return (u2 < u3) ? tt : -tt;
@@ -276,8 +280,8 @@ public class Normal {
 
         if (u1 >= 0.911312780288703) { /* region2: */
           for (;;) {
-            u2 = context.rng.unif_rand();
-            u3 = context.rng.unif_rand();
+            u2 = rng.unif_rand();
+            u3 = rng.unif_rand();
             tt = 0.479727404222441 + 1.105473661022070 * Math.min(u2, u3);
             if (Math.max(u2, u3) <= 0.872834976671790) {
               return (u2 < u3) ? tt : -tt;
@@ -290,8 +294,8 @@ public class Normal {
 
         /* ELSE	 region1: */
         for (;;) {
-          u2 = context.rng.unif_rand();
-          u3 = context.rng.unif_rand();
+          u2 = rng.unif_rand();
+          u3 = rng.unif_rand();
           tt = 0.479727404222441 - 0.595507138015940 * Math.min(u2, u3);
           if (tt < 0.) {
             continue;
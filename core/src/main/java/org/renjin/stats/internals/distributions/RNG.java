@@ -14,10 +14,20 @@ import org.renjin.invoke.annotations.Current;
 import org.renjin.invoke.annotations.Internal;
 import org.renjin.sexp.*;
 
+import java.util.Arrays;
 
-public class RNG {
+
+public class RNG implements UniformSource {
+
+  private static final Symbol RANDOM_SEED = Symbol.get(".Random.seed");
+
+  /**
+   * The number of normal deviates generated at a time by the bulk path of {@code rnorm}
+   */
+  private static final int NORMAL_CHUNK_SIZE = 512;
 
   public MersenneTwister mersenneTwisterAlg = null;
+  public LecuyerCMRG lecuyerAlg = null;
   public RNGtype RNG_kind = RNGtype.MERSENNE_TWISTER; //default
   public N01type N01_kind = N01type.INVERSION; //default
   int[] dummy = new int[625];
@@ -26,6 +36,12 @@ public class RNG {
   static double i2_32m1 = 2.328306437080797e-10;/* = 1/(2^32 - 1) */
   public Session context;
 
+  /**
+   * The value of {@code .Random.seed} last written by {@link #putRNGstate()}, used to detect
+   * assignments to {@code .Random.seed} from R code.
+   */
+  private SEXP savedSeed = null;
+
 
   RNGTAB[] RNG_Table = new RNGTAB[]{
       new RNGTAB(RNGtype.WICHMANN_HILL, N01type.BUGGY_KINDERMAN_RAMAGE, "Wichmann-Hill"),
@@ -34,7 +50,8 @@ public class RNG {
       new RNGTAB(RNGtype.MERSENNE_TWISTER, N01type.BUGGY_KINDERMAN_RAMAGE, "Mersenne-Twister"),
       new RNGTAB(RNGtype.KNUTH_TAOCP, N01type.BUGGY_KINDERMAN_RAMAGE, "Knuth-TAOCP"),
       new RNGTAB(RNGtype.USER_UNIF, N01type.BUGGY_KINDERMAN_RAMAGE, "User-supplied"),
-      new RNGTAB(RNGtype.KNUTH_TAOCP2, N01type.BUGGY_KINDERMAN_RAMAGE, "Knuth-TAOCP-2002")};
+      new RNGTAB(RNGtype.KNUTH_TAOCP2, N01type.BUGGY_KINDERMAN_RAMAGE, "Knuth-TAOCP-2002"),
+      new RNGTAB(RNGtype.LECUYER_CMRG, N01type.BUGGY_KINDERMAN_RAMAGE, "L'Ecuyer-CMRG")};
 
   public RNG(Session globals){
     this.context = globals;
@@ -46,11 +63,20 @@ public class RNG {
     
     if(kindExp != Null.INSTANCE) {
       int kind = ((AtomicVector)kindExp).getElementAsInt(0);
+      RNGtype previousKind = rng.RNG_kind;
       try {
         rng.RNG_kind = RNGtype.values()[kind];
       } catch (Exception e) {
         throw new EvalException("RNGkind: unimplemented RNG kind " + kind);
       }
+      if(rng.RNG_kind == RNGtype.LECUYER_CMRG) {
+        // as in R, the new generator is seeded from the old one on every call, even if it is
+        // already L'Ecuyer-CMRG, converting to an unsigned 32-bit integer, which a direct cast
+        // to int would saturate
+        rng.getRNGstate();
+        rng.lecuyerAlg = new LecuyerCMRG((int) (long) (rng.unif_rand(previousKind) * 4294967295.0));
+        rng.putRNGstate();
+      }
     }
     if(normalkindExp != Null.INSTANCE) {
       int normalkind = ((AtomicVector)normalkindExp).getElementAsInt(0);
@@ -90,6 +116,15 @@ public class RNG {
       }
       return;
 
+    case LECUYER_CMRG:
+      if (rng.lecuyerAlg == null) {
+        rng.lecuyerAlg = new LecuyerCMRG(seed);
+      } else {
+        rng.lecuyerAlg.setSeed(seed);
+      }
+      rng.putRNGstate();
+      return;
+
     case KNUTH_TAOCP:
     case KNUTH_TAOCP2:
       throw new EvalException(rng.RNG_kind + " not implemented yet");
@@ -100,199 +135,454 @@ public class RNG {
     }
   }
 
+  /**
+   * Computes the seed of the next L'Ecuyer-CMRG stream, 2^127 steps after {@code seed}, as
+   * {@code parallel::nextRNGStream} does.
+   *
+   * @param seed a value of {@code .Random.seed} for the L'Ecuyer-CMRG generator
+   */
   @Internal
-  public static DoubleVector runif(@Current Context context, int n, double a, double b) {
-    RNG rng = context.getSession().rng;
-    DoubleArrayVector.Builder vb = DoubleArrayVector.Builder.withInitialCapacity(n);
+  public static IntVector nextRNGStream(IntVector seed) {
+    int[] seeds = lecuyerSeeds(seed);
+    return lecuyerSeedVector(seed.getElementAsInt(0), LecuyerCMRG.nextStream(seeds));
+  }
+
+  /**
+   * Computes the seed of the next L'Ecuyer-CMRG substream, 2^76 steps after {@code seed}, as
+   * {@code parallel::nextRNGSubStream} does.
+   */
+  @Internal
+  public static IntVector nextRNGSubStream(IntVector seed) {
+    int[] seeds = lecuyerSeeds(seed);
+    return lecuyerSeedVector(seed.getElementAsInt(0), LecuyerCMRG.nextSubStream(seeds));
+  }
+
+  private static int[] lecuyerSeeds(IntVector seed) {
+    if(seed.length() != 7 || seed.getElementAsInt(0) % 100 != RNGtype.LECUYER_CMRG.ordinal()) {
+      throw new EvalException("invalid value of 'seed'");
+    }
+    int[] seeds = new int[6];
+    for (int i = 0; i < 6; i++) {
+      seeds[i] = seed.getElementAsInt(i + 1);
+    }
+    return seeds;
+  }
+
+  private static IntVector lecuyerSeedVector(int kinds, int[] seeds) {
+    int[] vector = new int[7];
+    vector[0] = kinds;
+    System.arraycopy(seeds, 0, vector, 1, 6);
+    return new IntArrayVector(vector);
+  }
+
+  /**
+   * Returns a new L'Ecuyer-CMRG generator for each of {@code n} workers, starting from
+   * successive streams of this session's generator, and advances this session's generator past them.
+   *
+   * <p>The streams depend only on the state of this session's generator, so a computation which
+   * gives worker {@code i} the {@code i}-th stream is reproducible after {@code set.seed()}
+   * whatever the number of threads actually used.
+   *
+   * @throws EvalException if the current RNG kind is not L'Ecuyer-CMRG
+   */
+  public LecuyerCMRG[] nextStreams(int n) {
+    if (RNG_kind != RNGtype.LECUYER_CMRG) {
+      throw new EvalException("independent RNG streams require RNGkind(\"L'Ecuyer-CMRG\")");
+    }
+    getRNGstate();
+    if (lecuyerAlg == null) {
+      unif_rand();
+    }
+    LecuyerCMRG[] streams = new LecuyerCMRG[n];
     for (int i = 0; i < n; i++) {
-      vb.add(a + rng.unif_rand() * (b - a));
+      streams[i] = lecuyerAlg.split();
+    }
+    putRNGstate();
+    return streams;
+  }
+
+  /**
+   * Loads the state of the L'Ecuyer-CMRG generator from {@code .Random.seed} in the global environment
+   * if it has been assigned since it was last saved, as {@code GetRNGstate()} does in R.
+   *
+   * <p>The state of the other generators is not stored in {@code .Random.seed}.
+   */
+  void getRNGstate() {
+    SEXP seed = context.getGlobalEnvironment().getVariable(RANDOM_SEED);
+    if (seed == savedSeed || !(seed instanceof IntVector) || seed.length() != 7 ||
+        ((IntVector) seed).getElementAsInt(0) % 100 != RNGtype.LECUYER_CMRG.ordinal()) {
+      return;
+    }
+    try {
+      int[] seeds = lecuyerSeeds((IntVector) seed);
+      if (lecuyerAlg == null) {
+        lecuyerAlg = new LecuyerCMRG(seeds);
+      } else {
+        lecuyerAlg.setSeeds(seeds);
+      }
+    } catch (IllegalArgumentException e) {
+      throw new EvalException("'.Random.seed' is not a valid L'Ecuyer-CMRG seed");
+    }
+    RNG_kind = RNGtype.LECUYER_CMRG;
+    savedSeed = seed;
+  }
+
+  /**
+   * Saves the state of the L'Ecuyer-CMRG generator to {@code .Random.seed} in the global environment,
+   * as {@code PutRNGstate()} does in R.
+   */
+  void putRNGstate() {
+    if (RNG_kind == RNGtype.LECUYER_CMRG && lecuyerAlg != null) {
+      savedSeed = lecuyerSeedVector(RNG_kind.ordinal() + 100 * N01_kind.ordinal(), lecuyerAlg.getSeeds());
+      context.getGlobalEnvironment().setVariable(RANDOM_SEED, savedSeed);
+    }
+  }
+
+  /**
+   * Fills {@code x[from..to)} with uniform deviates, in the same order as successive calls
+   * to {@link #unif_rand()}.
+   */
+  public void unif_rand(double[] x, int from, int to) {
+    if (RNG_kind == RNGtype.LECUYER_CMRG && lecuyerAlg != null) {
+      lecuyerAlg.unif_rand(x, from, to);
+    } else {
+      for (int i = from; i < to; i++) {
+        x[i] = unif_rand();
+      }
+    }
+  }
+
+  /**
+   * @return the generator to use for a run of draws: the L'Ecuyer-CMRG generator itself, when it
+   * is selected, so that the run does not select the generator again for each draw.
+   */
+  private UniformSource uniformSource() {
+    if (RNG_kind == RNGtype.LECUYER_CMRG) {
+      if (lecuyerAlg == null) {
+        unif_rand();
+      }
+      return lecuyerAlg;
+    }
+    return this;
+  }
+
+  /**
+   * Fills {@code x} with deviates from the uniform distribution on {@code [a, b]}.
+   */
+  public static void fillUniform(UniformSource source, double[] x, double a, double b) {
+    if (source instanceof LecuyerCMRG) {
+      ((LecuyerCMRG) source).unif_rand(x, 0, x.length);
+    } else if (source instanceof RNG) {
+      ((RNG) source).unif_rand(x, 0, x.length);
+    } else {
+      for (int i = 0; i < x.length; i++) {
+        x[i] = source.unif_rand();
+      }
+    }
+    double range = b - a;
+    for (int i = 0; i < x.length; i++) {
+      x[i] = a + x[i] * range;
+    }
+  }
+
+  /**
+   * Fills {@code x} with deviates from the normal distribution with the given mean and
+   * standard deviation.
+   */
+  public static void fillNormal(UniformSource source, double[] x, double mean, double sd) {
+    if (Double.isNaN(mean) || Double.isInfinite(sd) || !(sd >= 0)) {
+      Arrays.fill(x, Double.NaN);
+      return;
+    }
+    if (sd == 0 || Double.isInfinite(mean)) {
+      Arrays.fill(x, mean);
+      return;
+    }
+    if (Normal.N01_kind == N01type.INVERSION && source instanceof LecuyerCMRG) {
+      // Inversion uses exactly two uniform deviates for each normal deviate,
+      // so they can be drawn in bulk
+      LecuyerCMRG stream = (LecuyerCMRG) source;
+      double[] u = new double[2 * Math.min(x.length, NORMAL_CHUNK_SIZE)];
+      int BIG = 134217728; /* 2^27 */
+      for (int start = 0; start < x.length; start += NORMAL_CHUNK_SIZE) {
+        int count = Math.min(x.length - start, NORMAL_CHUNK_SIZE);
+        stream.unif_rand(u, 0, 2 * count);
+        for (int i = 0; i < count; i++) {
+          double u1 = (int) (BIG * u[2 * i]) + u[2 * i + 1];
+          x[start + i] = mean + sd * Normal.qnorm5(u1 / BIG, 0.0, 1.0, 1, 0);
+        }
+      }
+    } else {
+      for (int i = 0; i < x.length; i++) {
+        x[i] = mean + sd * Normal.norm_rand(source);
+      }
+    }
+  }
+
+  /**
+   * Fills {@code x} with deviates from the exponential distribution with the given scale.
+   */
+  public static void fillExponential(UniformSource source, double[] x, double scale) {
+    if (!(scale > 0)) {
+      Arrays.fill(x, scale == 0 ? 0 : Double.NaN);
+      return;
+    }
+    for (int i = 0; i < x.length; i++) {
+      x[i] = scale * Exponantial.exp_rand(source);
     }
-    return (vb.build());
+  }
+
+  @Internal
+  public static DoubleVector runif(@Current Context context, int n, double a, double b) {
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
+    double[] x = new double[n];
+    fillUniform(rng.uniformSource(), x, a, b);
+    rng.putRNGstate();
+    return DoubleArrayVector.unsafe(x);
   }
 
   @Internal
   public static DoubleVector rnorm(@Current Context context, int n, double mean, double sd) {
-    DoubleArrayVector.Builder vb = DoubleArrayVector.Builder.withInitialCapacity(n);
-    for (int i = 0; i < n; i++) {
-      vb.add(Normal.rnorm(context.getSession(), mean, sd));
-    }
-    return (vb.build());
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
+    double[] x = new double[n];
+    fillNormal(rng.uniformSource(), x, mean, sd);
+    rng.putRNGstate();
+    return DoubleArrayVector.unsafe(x);
   }
 
   @Internal
   public static DoubleVector rgamma(@Current Context context, int n, double shape, double scale) {
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = DoubleArrayVector.Builder.withInitialCapacity(n);
     for (int i = 0; i < n; i++) {
       vb.add(Gamma.rgamma(context.getSession(), shape, scale));
     }
+    rng.putRNGstate();
     return (vb.build());
   }
 
   @Internal
   public static DoubleVector rchisq(@Current Context context, int n, double df) {
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = DoubleArrayVector.Builder.withInitialCapacity(n);
     for (int i = 0; i < n; i++) {
       vb.add(ChiSquare.rchisq(context.getSession(), df));
     }
+    rng.putRNGstate();
     return (vb.build());
   }
 
   @Internal
   public static DoubleVector rnchisq(@Current Context context, int n, double df, double ncp) {
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
     for (int i = 0; i < n; i++) {
       vb.add(ChiSquare.rnchisq(context.getSession(), df, ncp));
     }
+    rng.putRNGstate();
     return (vb.build());
   }
 
   @Internal
   public static DoubleVector rexp(@Current Context context, int n, double invrate) {
-    DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
-    for (int i = 0; i < n; i++) {
-      vb.add(Exponantial.rexp(context.getSession(), invrate));
-    }
-    return (vb.build());
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
+    double[] x = new double[n];
+    fillExponential(rng.uniformSource(), x, invrate);
+    rng.putRNGstate();
+    return DoubleArrayVector.unsafe(x);
   }
 
   @Internal
   public static DoubleVector rpois(@Current Context context, int n, double mu) {
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
     for (int i = 0; i < n; i++) {
       vb.add(Poisson.rpois(context.getSession(), mu));
     }
+    rng.putRNGstate();
     return (vb.build());
   }
 
   @Internal
   public static DoubleVector rsignrank(@Current Context context, int nn, double n) {
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
     for (int i = 0; i < nn; i++) {
       vb.add(SignRank.rsignrank(context.getSession(), n));
     }
+    rng.putRNGstate();
     return (vb.build());
   }
 
   @Internal
   public static DoubleVector rwilcox(@Current Context context, int nn, double m, double n) {
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
     for (int i = 0; i < nn; i++) {
       vb.add(Wilcox.rwilcox(context.getSession(), m, n));
     }
+    rng.putRNGstate();
     return (vb.build());
   }
 
   @Internal
   public static DoubleVector rgeom(@Current Context context, int n, double p) {
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
     for (int i = 0; i < n; i++) {
       vb.add(Geometric.rgeom(context.getSession(), p));
     }
+    rng.putRNGstate();
     return (vb.build());
   }
 
   @Internal
   public static DoubleVector rt(@Current Context context, int n, double df) {
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
     for (int i = 0; i < n; i++) {
       vb.add(StudentsT.rt(context.getSession(), df));
     }
+    rng.putRNGstate();
     return (vb.build());
   }
 
   @Internal
   public static DoubleVector rcauchy(@Current Context context, int n, double location, double scale) {
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
     for (int i = 0; i < n; i++) {
       vb.add(Cauchy.rcauchy(context.getSession(), location, scale));
     }
+    rng.putRNGstate();
     return (vb.build());
   }
 
   @Internal
   public static DoubleVector rlnorm(@Current Context context, int n, double meanlog, double sdlog) {
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
     for (int i = 0; i < n; i++) {
       vb.add(LNorm.rlnorm(context.getSession(), meanlog, sdlog));
     }
+    rng.putRNGstate();
     return (vb.build());
   }
 
   @Internal
   public static DoubleVector rlogis(@Current Context context, int n, double location, double scale) {
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
     for (int i = 0; i < n; i++) {
       vb.add(RLogis.rlogis(context.getSession(), location, scale));
     }
+    rng.putRNGstate();
     return (vb.build());
   }
 
   @Internal
   public static DoubleVector rweibull(@Current Context context, int n, double shape, double scale) {
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
     for (int i = 0; i < n; i++) {
       vb.add(Weibull.rweibull(context.getSession(), shape, scale));
     }
+    rng.putRNGstate();
     return (vb.build());
   }
 
   @Internal
   public static DoubleVector rnbinom(@Current Context context, int n, double size, double prob) {
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
     for (int i = 0; i < n; i++) {
       vb.add(NegativeBinom.rnbinom(context.getSession(), size, prob));
     }
+    rng.putRNGstate();
     return (vb.build());
   }
 
   @Internal
   public static DoubleVector rnbinom_mu(@Current Context context, int n, double size, double mu) {
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
     for (int i = 0; i < n; i++) {
       vb.add(NegativeBinom.rnbinom_mu(context.getSession(), size, mu));
     }
+    rng.putRNGstate();
     return (vb.build());
   }
 
   @Internal
   public static DoubleVector rbinom(@Current Context context, int n, double size, double prob) {
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
     for (int i = 0; i < n; i++) {
       vb.add(Binom.rbinom(context.getSession(), size, prob));
     }
+    rng.putRNGstate();
     return (vb.build());
   }
 
 
   @Internal
   public static DoubleVector rf(@Current Context context, int n, double df1, double df2) {
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
     for (int i = 0; i < n; i++) {
       vb.add(F.rf(context.getSession(), df1, df2));
     }
+    rng.putRNGstate();
     return (vb.build());
   }
 
   @Internal
   public static DoubleVector rbeta(@Current Context context, int n, double shape1, double shape2) {
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
     for (int i = 0; i < n; i++) {
       vb.add(Beta.rbeta(context.getSession(), shape1, shape2));
     }
+    rng.putRNGstate();
     return (vb.build());
   }
 
   @Internal
   public static DoubleVector rhyper(@Current Context context, int nn, double m, double n, double k){
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
     for (int i = 0; i < nn; i++) {
       vb.add(HyperGeometric.Random_hyper_geometric.rhyper(context.getSession(), m, n, k));
     }
+    rng.putRNGstate();
     return (vb.build());
   }
 
   @Internal
   public static DoubleVector rmultinom(@Current Context context, int n, int size, DoubleVector prob){
+    RNG rng = context.getSession().rng;
+    rng.getRNGstate();
     DoubleArrayVector.Builder vb = new DoubleArrayVector.Builder();
     int[] RN = new int[prob.length()];
     for (int i=0;i<n;i++){
@@ -302,6 +592,7 @@ public class RNG {
       }
     }
     vb.setAttribute(Symbols.DIM, new IntArrayVector(prob.length(), n));
+    rng.putRNGstate();
     return (vb.build());
   }
   /*
@@ -327,36 +618,49 @@ public class RNG {
    * 
    * mhsatman
    */
+  @Override
   public double unif_rand() {
-    double value;
+    return unif_rand(this.RNG_kind);
+  }
 
-    switch (this.RNG_kind) {
+  private double unif_rand(RNGtype kind) {
+    switch (kind) {
 
     case WICHMANN_HILL:
-      throw new EvalException(RNG_kind + " not implemented yet");
+      throw new EvalException(kind + " not implemented yet");
 
     case MARSAGLIA_MULTICARRY:
-      throw new EvalException(RNG_kind + " not implemented yet");
+      throw new EvalException(kind + " not implemented yet");
 
     case SUPER_DUPER:
-      throw new EvalException(RNG_kind + " not implemented yet");
+      throw new EvalException(kind + " not implemented yet");
 
     case MERSENNE_TWISTER:
       if (mersenneTwisterAlg == null) {
         if (this.randomseed == 0) {
-          Randomize(RNG_kind);
+          Randomize(kind);
         }
         mersenneTwisterAlg = new MersenneTwister((long) this.randomseed);
       }
       return (mersenneTwisterAlg.nextDouble());
 
+    case LECUYER_CMRG:
+      if (lecuyerAlg == null) {
+        if (this.randomseed == 0) {
+          Randomize(kind);
+        } else {
+          lecuyerAlg = new LecuyerCMRG(this.randomseed);
+        }
+      }
+      return (lecuyerAlg.unif_rand());
+
     case KNUTH_TAOCP:
     case KNUTH_TAOCP2:
-      throw new EvalException(RNG_kind + " not implemented yet");
+      throw new EvalException(kind + " not implemented yet");
     case USER_UNIF:
-      throw new EvalException(RNG_kind + " not implemented yet");
+      throw new EvalException(kind + " not implemented yet");
     default:
-      throw new EvalException(RNG_kind + " not implemented yet");
+      throw new EvalException(kind + " not implemented yet");
     }
   }
 
@@ -367,7 +671,7 @@ public class RNG {
     int sseed;
     sseed = (int) (new java.util.Date()).getTime();
     this.randomseed = sseed;
-    switch (RNG_kind) {
+    switch (kind) {
 
     case WICHMANN_HILL:
       throw new EvalException(RNG_kind + " not implemented yet");
@@ -386,6 +690,14 @@ public class RNG {
       }
       return;
 
+    case LECUYER_CMRG:
+      if (lecuyerAlg == null) {
+        lecuyerAlg = new LecuyerCMRG(sseed);
+      } else {
+        lecuyerAlg.setSeed(sseed);
+      }
+      return;
+
     case KNUTH_TAOCP:
     case KNUTH_TAOCP2:
       throw new EvalException(RNG_kind + " not implemented yet");
@@ -3,103 +3,234 @@ package org.renjin.stats.internals.distributions;
 import org.renjin.eval.EvalException;
 import org.renjin.eval.Session;
 import org.renjin.invoke.annotations.Current;
-import org.renjin.invoke.annotations.Builtin;
 import org.renjin.invoke.annotations.Internal;
-import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.AtomicVector;
 import org.renjin.sexp.IntArrayVector;
 import org.renjin.sexp.IntVector;
+import org.renjin.sexp.Null;
 import org.renjin.sexp.SEXP;
 
+import java.util.HashMap;
+import java.util.Map;
+
 
 public class Sampling {
 
-  /*
-   * Nice function name, hah? :-) 
-   * A big reference goes to Holland and Goldberg
+  /**
+   * Populations larger than this, sampled without replacement, keep only the swapped
+   * entries of the Fisher-Yates permutation in a map rather than allocating the whole permutation.
    */
-  public static int RouletteWheel(double[] cumulativeDist, double rand) {
-    int result = 0;
-    for (int i = 0; i < cumulativeDist.length - 1; i++) {
-      if (rand > cumulativeDist[i] && rand < cumulativeDist[i + 1]) {
-        return (i + 1);
-      }
+  private static final int SPARSE_PERMUTATION_RATIO = 16;
+
+  /**
+   * Draws {@code size} indices in {@code 1..n} with replacement, each with equal probability.
+   */
+  public static IntVector sampleUniformWithReplacement(UniformSource rng, int n, int size) {
+    int[] result = new int[size];
+    for (int i = 0; i < size; i++) {
+      result[i] = uniformIndex(rng, n) + 1;
     }
-    return (result);
+    return new IntArrayVector(result);
   }
 
-  public static IntVector sampleWithReplacement(Session context, int size, double[] prob) {
-    double[] cumProbs = new double[prob.length];
-    IntArrayVector.Builder resultb = IntArrayVector.Builder.withInitialCapacity(size);
-    cumProbs[0] = prob[0];
-    for (int i = 1; i < cumProbs.length; i++) {
-      cumProbs[i] = prob[i] + cumProbs[i - 1];
+  /**
+   * Draws {@code size} indices in {@code 1..n} without replacement, each with equal probability,
+   * by running the first {@code size} steps of a Fisher-Yates shuffle.
+   *
+   * <p>When {@code size} is much smaller than {@code n}, only the entries of the permutation which
+   * have been displaced are stored, so the cost is proportional to {@code size} rather than {@code n}.
+   * The result does not depend on which representation is used.
+   */
+  public static IntVector sampleUniformWithoutReplacement(UniformSource rng, int n, int size) {
+    int[] result = new int[size];
+    if (size < n / SPARSE_PERMUTATION_RATIO) {
+      Map<Integer, Integer> displaced = new HashMap<Integer, Integer>();
+      int remaining = n;
+      for (int i = 0; i < size; i++) {
+        int j = uniformIndex(rng, remaining);
+        remaining--;
+        Integer selected = displaced.get(j);
+        Integer last = displaced.remove(remaining);
+        result[i] = (selected == null ? j : selected) + 1;
+        if (j != remaining) {
+          displaced.put(j, last == null ? remaining : last);
+        }
+      }
+    } else {
+      int[] permutation = new int[n];
+      for (int i = 0; i < n; i++) {
+        permutation[i] = i;
+      }
+      int remaining = n;
+      for (int i = 0; i < size; i++) {
+        int j = uniformIndex(rng, remaining);
+        result[i] = permutation[j] + 1;
+        permutation[j] = permutation[--remaining];
+      }
     }
+    return new IntArrayVector(result);
+  }
+
+  /**
+   * Draws {@code size} indices in {@code 1..prob.length} with replacement, using an
+   * {@link AliasTable} so that each draw takes constant time.
+   *
+   * @param prob the probabilities of each index, normalized to sum to one
+   */
+  public static IntVector sampleWithReplacement(UniformSource rng, int size, double[] prob) {
+    AliasTable table = new AliasTable(prob);
+    int[] result = new int[size];
     for (int i = 0; i < size; i++) {
-      double arand = context.rng.unif_rand();
-      int index = RouletteWheel(cumProbs, arand);
-      resultb.add(index + 1);
+      result[i] = table.sample(rng) + 1;
     }
-    return (resultb.build());
+    return new IntArrayVector(result);
   }
 
-  /*
-   * This algorithm is my own choice and somebody must speed it up at next level.
-   * I plan to select the first index from {1,2,3,4,...,N} and
-   * select the second one from {1,2,3,4,...,N-1} - {1st} and
-   * select the third one from {1,2,3,4,...,N-2} - {1st, 2nd} and so on.
-   * this operation requires more array copying but operations reduce geometrically by iterations.
-   * Because of the first stage aim, I am leaving it as a running but in-efficient algorithm.
-   * Tests were passed :)
+  /**
+   * Draws {@code size} indices in {@code 1..prob.length} without replacement, with
+   * probabilities proportional to {@code prob} at each draw.
+   *
+   * <p>Each index is given the key {@code E / prob[i]}, where {@code E} is an exponential
+   * deviate, and the indices with the {@code size} smallest keys are returned in order of their keys
+   * (Efraimidis and Spirakis). This takes O(n log size) time and exactly one deviate per index.
+   *
+   * @param prob the probabilities of each index, with at least {@code size} of them positive
    */
-  public static IntVector sampleWithoutReplacement(Session context, int size, double[] prob) {
-    double[] cumProbs = new double[prob.length];
-    int[] selectedIndices = new int[prob.length];
-    int numItems = 0;
-    IntArrayVector.Builder resultb = new IntArrayVector.Builder();
-    cumProbs[0] = prob[0];
-    for (int i = 1; i < cumProbs.length; i++) {
-      cumProbs[i] = prob[i] + cumProbs[i - 1];
-    }
-
-    while (numItems < size) {
-      double arand = context.rng.unif_rand();
-      int index = RouletteWheel(cumProbs, arand);
-      if (selectedIndices[index] == 0) {
-        selectedIndices[index] = 1;
-        resultb.add(index + 1);
-        numItems++;
+  public static IntVector sampleWithoutReplacement(UniformSource rng, int size, double[] prob) {
+    // a max-heap of the smallest keys seen so far
+    double[] heapKeys = new double[size];
+    int[] heapIndexes = new int[size];
+    int heapSize = 0;
+
+    for (int i = 0; i < prob.length; i++) {
+      if (prob[i] > 0) {
+        double key = Exponantial.exp_rand(rng) / prob[i];
+        if (heapSize < size) {
+          siftUp(heapKeys, heapIndexes, heapSize++, key, i);
+        } else if (size > 0 && key < heapKeys[0]) {
+          siftDown(heapKeys, heapIndexes, heapSize, key, i);
+        }
       }
     }
-    return (resultb.build());
+
+    // remove the largest key repeatedly to produce the indexes in order of increasing key
+    int[] result = new int[size];
+    while (heapSize > 0) {
+      result[heapSize - 1] = heapIndexes[0] + 1;
+      heapSize--;
+      siftDown(heapKeys, heapIndexes, heapSize, heapKeys[heapSize], heapIndexes[heapSize]);
+    }
+    return new IntArrayVector(result);
   }
 
-  @Internal
-  public static IntVector sample(@Current Session context, int x, int size, boolean replace, SEXP prob) {
-    double[] probs = new double[x];
-    int mysize = size;
+  private static void siftUp(double[] keys, int[] indexes, int pos, double key, int index) {
+    while (pos > 0) {
+      int parent = (pos - 1) / 2;
+      if (keys[parent] >= key) {
+        break;
+      }
+      keys[pos] = keys[parent];
+      indexes[pos] = indexes[parent];
+      pos = parent;
+    }
+    keys[pos] = key;
+    indexes[pos] = index;
+  }
 
-    if (prob != org.renjin.sexp.Null.INSTANCE) {
-      if (prob.length() != x) {
-        throw new EvalException("Length of x and probs are not equal");
+  /**
+   * Replaces the root of the heap with {@code key} and restores the heap property
+   */
+  private static void siftDown(double[] keys, int[] indexes, int heapSize, double key, int index) {
+    if (heapSize == 0) {
+      return;
+    }
+    int pos = 0;
+    while (true) {
+      int child = 2 * pos + 1;
+      if (child >= heapSize) {
+        break;
       }
+      if (child + 1 < heapSize && keys[child + 1] > keys[child]) {
+        child++;
+      }
+      if (keys[child] <= key) {
+        break;
+      }
+      keys[pos] = keys[child];
+      indexes[pos] = indexes[child];
+      pos = child;
     }
+    keys[pos] = key;
+    indexes[pos] = index;
+  }
 
+  private static int uniformIndex(UniformSource rng, int n) {
+    int index = (int) (n * rng.unif_rand());
+    return index == n ? n - 1 : index;
+  }
 
-    for (int i = 0; i < x; i++) {
-      if (prob == org.renjin.sexp.Null.INSTANCE) {
-        probs[i] = 1.0 / probs.length;
-      } else {
-        probs[i] = ((DoubleVector)prob).get(i);
+  /**
+   * Checks the probabilities given to {@code sample()} and normalizes them to sum to one.
+   */
+  private static double[] normalizedProbabilities(AtomicVector prob, int n, int size, boolean replace) {
+    if (prob.length() != n) {
+      throw new EvalException("incorrect number of probabilities");
+    }
+    double[] p = new double[n];
+    double sum = 0;
+    int numPositive = 0;
+    for (int i = 0; i < n; i++) {
+      p[i] = prob.getElementAsDouble(i);
+      if (Double.isNaN(p[i]) || Double.isInfinite(p[i])) {
+        throw new EvalException("NA in probability vector");
+      }
+      if (p[i] < 0) {
+        throw new EvalException("negative probability");
+      }
+      if (p[i] > 0) {
+        numPositive++;
+        sum += p[i];
       }
     }
+    if (numPositive == 0 || (!replace && size > numPositive)) {
+      throw new EvalException("too few positive probabilities");
+    }
+    for (int i = 0; i < n; i++) {
+      p[i] /= sum;
+    }
+    return p;
+  }
 
+  @Internal
+  public static IntVector sample(@Current Session context, int x, int size, boolean replace, SEXP prob) {
+    if (x < 0 || x == IntVector.NA || (x == 0 && size > 0)) {
+      throw new EvalException("invalid first argument");
+    }
+    if (size < 0 || size == IntVector.NA) {
+      throw new EvalException("invalid 'size' argument");
+    }
+    if (!replace && size > x) {
+      throw new EvalException("cannot take a sample larger than the population when 'replace = FALSE'");
+    }
 
-    if (replace) {
-      return (sampleWithReplacement(context, mysize, probs));
+    RNG rng = context.rng;
+    rng.getRNGstate();
+    IntVector result;
+    if (prob == Null.INSTANCE) {
+      if (replace) {
+        result = sampleUniformWithReplacement(rng, x, size);
+      } else {
+        result = sampleUniformWithoutReplacement(rng, x, size);
+      }
     } else {
-      return (sampleWithoutReplacement(context, mysize, probs));
+      double[] probs = normalizedProbabilities((AtomicVector) prob, x, size, replace);
+      if (replace) {
+        result = sampleWithReplacement(rng, size, probs);
+      } else {
+        result = sampleWithoutReplacement(rng, size, probs);
+      }
     }
-
-
+    rng.putRNGstate();
+    return result;
   }
 }
@@ -0,0 +1,11 @@
+package org.renjin.stats.internals.distributions;
+
+/**
+ * A source of uniform deviates in (0, 1), from which the other distributions
+ * are generated.
+ */
+public interface UniformSource {
+
+  double unif_rand();
+
+}
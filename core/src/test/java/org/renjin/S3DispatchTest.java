@@ -23,12 +23,14 @@ package org.renjin;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.renjin.primitives.S3DispatchCache;
 import org.renjin.sexp.Logical;
 
 import java.io.IOException;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 public class S3DispatchTest extends EvalTestCase {
 
@@ -135,4 +137,63 @@ public class S3DispatchTest extends EvalTestCase {
 
   }
 
+  @Test
+  public void redefinedMethodInvalidatesDispatchCache() {
+    assumingBasePackagesLoad();
+    eval("describe <- function(x) UseMethod('describe')");
+    eval("describe.foo <- function(x) 'foo'");
+    eval("describe.default <- function(x) 'default'");
+    eval("x <- structure(1, class=c('bar', 'foo'))");
+
+    assertThat(eval("describe(x)"), equalTo(c("foo")));
+    assertThat(eval("describe(x)"), equalTo(c("foo")));
+
+    eval("describe.bar <- function(x) 'bar'");
+    assertThat(eval("describe(x)"), equalTo(c("bar")));
+
+    eval("rm(describe.bar, describe.foo)");
+    assertThat(eval("describe(x)"), equalTo(c("default")));
+  }
+
+  @Test
+  public void methodsInCallingFrameAreNotCached() {
+    assumingBasePackagesLoad();
+    eval("g <- function(x, local) { if(local) `[.foo` <- function(x, i) 'local'; y <- x[1]; identical(y, 'local') }");
+    eval("x <- structure(1:3, class='foo')");
+
+    assertThat(eval("g(x, TRUE)"), equalTo(c(true)));
+    assertThat(eval("g(x, FALSE)"), equalTo(c(false)));
+    assertThat(eval("g(x, TRUE)"), equalTo(c(true)));
+  }
+
+  @Test
+  public void detachedMethodIsNotDispatched() {
+    assumingBasePackagesLoad();
+    eval("describe <- function(x) UseMethod('describe')");
+    eval("describe.default <- function(x) 'default'");
+    eval("x <- structure(1, class='foo')");
+
+    eval(".Internal(attach(list(describe.foo = function(x) 'attached'), 2L, 'attached'))");
+    assertThat(eval("describe(x)"), equalTo(c("attached")));
+
+    eval(".Internal(detach(2L))");
+    eval("y <- 1");
+    assertThat(eval("describe(x)"), equalTo(c("default")));
+  }
+
+  @Test
+  public void assignmentsOfValuesKeepDispatchCache() {
+    assumingBasePackagesLoad();
+    eval("describe <- function(x) UseMethod('describe')");
+    eval("describe.foo <- function(x) 'foo'");
+    eval("x <- structure(1, class='foo')");
+    assertThat(eval("describe(x)"), equalTo(c("foo")));
+
+    S3DispatchCache cache = topLevelContext.getSession().getSingleton(S3DispatchCache.class);
+    long hits = cache.getStats().hitCount();
+
+    eval("y <- 1");
+    assertThat(eval("describe(x)"), equalTo(c("foo")));
+    assertTrue(cache.getStats().hitCount() > hits);
+  }
 }
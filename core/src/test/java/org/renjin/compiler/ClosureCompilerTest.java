@@ -10,7 +10,9 @@ import java.io.InputStreamReader;
 import java.lang.reflect.InvocationTargetException;
 
 import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
 
 
 public class ClosureCompilerTest extends EvalTestCase {
@@ -57,6 +59,28 @@ public class ClosureCompilerTest extends EvalTestCase {
     compileClosure("Map", "Map.compiled");
   }
 
+  @Test
+  public void tieredCompilationSwapsInCompiledBody() throws Exception {
+    eval("f <- function(a,b) a+b");
+    Closure f = (Closure) topLevelContext.getEnvironment().getVariable("f");
+    assertThat(eval("f(1,2)"), equalTo(c(3)));
+
+    f.setCompiledBody(TieredCompiler.INSTANCE.compile(f));
+    assertTrue(f.isCompiled());
+    assertThat(eval("f(2,6)"), equalTo(c(8)));
+  }
+
+  @Test
+  public void tieredCompilationSkipsClosuresNeedingThunks() throws Exception {
+    eval("g <- function(x) x * 2");
+    eval("f <- function(x) g(g(x))");
+    Closure f = (Closure) topLevelContext.getEnvironment().getVariable("f");
+
+    f.setCompiledBody(TieredCompiler.INSTANCE.compile(f));
+    assertFalse(f.isCompiled());
+    assertThat(eval("f(3)"), equalTo(c(12)));
+  }
+
   private void source(String string) throws IOException {
     ExpressionVector source = RParser.parseSource(new InputStreamReader(getClass().getResourceAsStream(string)));
     topLevelContext.evaluate(source);
@@ -0,0 +1,59 @@
+package org.renjin.compiler.pipeline;
+
+import org.junit.Test;
+import org.renjin.primitives.R$primitive$$times$deferred_dd;
+import org.renjin.primitives.summary.DeferredMean;
+import org.renjin.primitives.summary.DeferredSum;
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.DoubleArrayVector;
+import org.renjin.sexp.Vector;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.junit.Assert.assertThat;
+
+public class ChunkedReductionTest {
+
+  @Test
+  public void chunkedSum() {
+    DoubleArrayVector x = sequence(1001);
+    DeferredSum sum = new DeferredSum(x, AttributeMap.EMPTY);
+    DeferredGraph graph = new DeferredGraph(sum);
+
+    new ChunkedReduction(graph.getRoot(), 7).run();
+
+    assertThat(graph.getRoot().getVector().getElementAsDouble(0), closeTo(1001d * 1002d / 2d, 0d));
+  }
+
+  @Test
+  public void parallelMeanOfProduct() {
+    DoubleArrayVector x = sequence(10000);
+    Vector product = new R$primitive$$times$deferred_dd(x, x, AttributeMap.EMPTY);
+    DeferredMean mean = new DeferredMean(product, AttributeMap.EMPTY);
+
+    double expected = 0;
+    for(int i=1;i<=10000;++i) {
+      expected += (double)i * i;
+    }
+    expected /= 10000;
+
+    ExecutorService pool = Executors.newFixedThreadPool(3);
+    try {
+      MultiThreadedVectorPipeliner pipeliner = new MultiThreadedVectorPipeliner(pool, 3, 100);
+      Vector result = pipeliner.materialize(mean);
+      assertThat(result.getElementAsDouble(0), closeTo(expected, 1e-6));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private DoubleArrayVector sequence(int n) {
+    double[] values = new double[n];
+    for(int i=0;i!=n;++i) {
+      values[i] = i+1;
+    }
+    return new DoubleArrayVector(values);
+  }
+}
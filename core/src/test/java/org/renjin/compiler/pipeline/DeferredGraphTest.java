@@ -0,0 +1,47 @@
+package org.renjin.compiler.pipeline;
+
+import org.junit.Test;
+import org.renjin.compiler.pipeline.optimize.SquareOptimizer;
+import org.renjin.primitives.R$primitive$$times$deferred_dd;
+import org.renjin.primitives.summary.DeferredSum;
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.DoubleArrayVector;
+import org.renjin.sexp.Vector;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertThat;
+
+public class DeferredGraphTest {
+
+  @Test
+  public void commonSubexpressionsAreMerged() {
+    DoubleArrayVector a = new DoubleArrayVector(1,2,3);
+    DoubleArrayVector b = new DoubleArrayVector(4,5,6);
+
+    Vector ab1 = new R$primitive$$times$deferred_dd(a, b, AttributeMap.EMPTY);
+    Vector ab2 = new R$primitive$$times$deferred_dd(a, b, AttributeMap.EMPTY);
+    Vector product = new R$primitive$$times$deferred_dd(ab1, ab2, AttributeMap.EMPTY);
+
+    DeferredGraph graph = new DeferredGraph(new DeferredSum(product, AttributeMap.EMPTY));
+
+    // (a*b)*(a*b) can only be rewritten as a square once both operands are merged
+    DeferredNode productNode = graph.getRoot().getOperand(0);
+    assertThat(productNode.getVector(), instanceOf(SquareOptimizer.Square.class));
+  }
+
+  @Test
+  public void deepGraph() {
+    DoubleArrayVector x = new DoubleArrayVector(1,2,3);
+    DoubleArrayVector two = new DoubleArrayVector(2);
+
+    Vector result = x;
+    for(int i=0;i!=2000;++i) {
+      result = new R$primitive$$times$deferred_dd(result, two, AttributeMap.EMPTY);
+    }
+    DeferredGraph graph = new DeferredGraph(new DeferredSum(result, AttributeMap.EMPTY));
+
+    // root, 2000 products, x and the scalar 2
+    assertThat(graph.getNodes().size(), equalTo(2003));
+  }
+}
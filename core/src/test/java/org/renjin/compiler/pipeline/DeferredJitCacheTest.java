@@ -0,0 +1,62 @@
+package org.renjin.compiler.pipeline;
+
+import com.google.common.io.Files;
+import org.junit.Test;
+import org.renjin.compiler.pipeline.reduce.Reductions;
+import org.renjin.eval.Session;
+import org.renjin.eval.SessionBuilder;
+import org.renjin.primitives.R$primitive$$times$deferred_dd;
+import org.renjin.primitives.summary.DeferredReduction;
+import org.renjin.primitives.vector.CombinedDoubleVector;
+import org.renjin.primitives.vector.DeferredComputation;
+import org.renjin.sexp.AttributeMap;
+import org.renjin.sexp.DoubleArrayVector;
+import org.renjin.sexp.Vector;
+
+import java.io.File;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class DeferredJitCacheTest {
+
+  @Test
+  public void persistedClassesAreLoadedByNewSessions() {
+    DeferredJitCache cache = DeferredJitCache.INSTANCE;
+    File previousDirectory = cache.getCacheDirectory();
+    File dir = Files.createTempDir();
+    cache.setCacheDirectory(dir);
+    cache.invalidateMemory();
+    try {
+      double sum = sumOfSquares(new SessionBuilder().withoutBasePackage().build());
+      assertThat(dir.listFiles().length, equalTo(1));
+
+      cache.invalidateMemory();
+      long diskHits = cache.getStatistics().getDiskHits();
+      long misses = cache.getStatistics().getMisses();
+
+      assertThat(sumOfSquares(new SessionBuilder().withoutBasePackage().build()), equalTo(sum));
+      assertThat(cache.getStatistics().getDiskHits(), equalTo(diskHits + 1));
+      assertThat(cache.getStatistics().getMisses(), equalTo(misses));
+
+    } finally {
+      cache.setCacheDirectory(previousDirectory);
+      cache.invalidateMemory();
+    }
+  }
+
+  private double sumOfSquares(Session session) {
+    double[] values = new double[1000];
+    for(int i=0;i!=values.length;++i) {
+      values[i] = i;
+    }
+    DoubleArrayVector x = new DoubleArrayVector(values);
+    Vector product = new R$primitive$$times$deferred_dd(x, x, AttributeMap.EMPTY);
+    DeferredReduction sum = new DeferredReduction(product, Reductions.get("sum", false), AttributeMap.EMPTY);
+    DeferredReduction max = new DeferredReduction(product, Reductions.get("max", false), AttributeMap.EMPTY);
+
+    Vector result = session.getVectorEngine().materialize((DeferredComputation)
+        CombinedDoubleVector.combine(new Vector[] { sum, max }, AttributeMap.EMPTY));
+    return result.getElementAsDouble(0);
+  }
+}
@@ -0,0 +1,34 @@
+package org.renjin.compiler.pipeline;
+
+import org.junit.Test;
+import org.renjin.sexp.DoubleArrayVector;
+import org.renjin.sexp.IntArrayVector;
+
+import java.lang.reflect.Proxy;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class JitKeyTest {
+
+  @Test
+  public void stableHashDependsOnlyOnClasses() {
+    JitKey key1 = new JitKey(new Class[] { DoubleArrayVector.class, IntArrayVector.class });
+    JitKey key2 = new JitKey(new Class[] { DoubleArrayVector.class, IntArrayVector.class });
+    JitKey key3 = new JitKey(new Class[] { IntArrayVector.class, DoubleArrayVector.class });
+
+    assertThat(key1.stableHash(), equalTo(key2.stableHash()));
+    assertThat(key1.stableHash(), not(equalTo(key3.stableHash())));
+  }
+
+  @Test
+  public void noStableHashWithoutClassFile() {
+    // proxy classes are generated at runtime and have no class file
+    Class proxyClass = Proxy.getProxyClass(getClass().getClassLoader(), Runnable.class);
+    JitKey key = new JitKey(new Class[] { DoubleArrayVector.class, proxyClass });
+
+    assertThat(key.stableHash(), nullValue());
+  }
+}
@@ -0,0 +1,199 @@
+package org.renjin.compiler.pipeline;
+
+import org.junit.Test;
+import org.renjin.compiler.pipeline.reduce.Reduction;
+import org.renjin.compiler.pipeline.reduce.Reductions;
+import org.renjin.primitives.R$primitive$$times$deferred_dd;
+import org.renjin.primitives.summary.DeferredCumulative;
+import org.renjin.primitives.summary.DeferredLogicalReduction;
+import org.renjin.primitives.summary.DeferredReduction;
+import org.renjin.primitives.vector.CombinedDoubleVector;
+import org.renjin.primitives.vector.DeferredComputation;
+import org.renjin.sexp.*;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class ReductionJitterTest {
+
+  private static final String[] REDUCTIONS = { "sum", "prod", "mean", "min", "max", "range", "var" };
+
+  @Test
+  public void fusedReductionsMatchDirectComputation() {
+    DoubleArrayVector x = values(2000, false);
+    Vector product = new R$primitive$$times$deferred_dd(x, x, AttributeMap.EMPTY);
+
+    for(boolean removeNA : new boolean[] { false, true }) {
+      assertFusedMatchesDirect(product, removeNA, new SimpleVectorPipeliner());
+    }
+  }
+
+  @Test
+  public void fusedReductionsWithMissingValues() {
+    DoubleArrayVector x = values(2000, true);
+    Vector product = new R$primitive$$times$deferred_dd(x, x, AttributeMap.EMPTY);
+
+    for(boolean removeNA : new boolean[] { false, true }) {
+      assertFusedMatchesDirect(product, removeNA, new SimpleVectorPipeliner());
+    }
+  }
+
+  @Test
+  public void chunkedReductionsWithMissingValues() {
+    DoubleArrayVector x = values(10000, true);
+    Vector product = new R$primitive$$times$deferred_dd(x, x, AttributeMap.EMPTY);
+
+    ExecutorService pool = Executors.newFixedThreadPool(3);
+    try {
+      for(boolean removeNA : new boolean[] { false, true }) {
+        assertFusedMatchesDirect(product, removeNA, new MultiThreadedVectorPipeliner(pool, 3, 100));
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void minAndMaxAreNotMerged() {
+    DoubleArrayVector x = values(100, false);
+    DeferredReduction min = new DeferredReduction(x, Reductions.get("min", false), AttributeMap.EMPTY);
+    DeferredReduction max = new DeferredReduction(x, Reductions.get("max", false), AttributeMap.EMPTY);
+
+    DeferredGraph graph = new DeferredGraph((DeferredComputation)
+        CombinedDoubleVector.combine(new Vector[] { min, max }, AttributeMap.EMPTY));
+
+    assertThat(graph.getNodes().size(), equalTo(4));
+  }
+
+  @Test
+  public void fusedReductionsMakeOnePass() {
+    CountingVector x = new CountingVector(1000);
+    Vector[] deferred = new Vector[] {
+        new DeferredReduction(x, Reductions.get("min", false), AttributeMap.EMPTY),
+        new DeferredReduction(x, Reductions.get("max", false), AttributeMap.EMPTY),
+        new DeferredReduction(x, Reductions.get("sum", false), AttributeMap.EMPTY) };
+
+    Vector result = new SimpleVectorPipeliner().materialize((DeferredComputation)
+        CombinedDoubleVector.combine(deferred, AttributeMap.EMPTY));
+
+    assertThat(result.getElementAsDouble(0), equalTo(0d));
+    assertThat(result.getElementAsDouble(1), equalTo(999d));
+    assertThat(result.getElementAsDouble(2), equalTo(499500d));
+    assertThat(x.passes, equalTo(1));
+  }
+
+  @Test
+  public void anyAndAll() {
+    Vector x = new LogicalArrayVector(Logical.FALSE, Logical.NA, Logical.TRUE);
+    Vector allFalse = new LogicalArrayVector(Logical.FALSE, Logical.FALSE);
+
+    DeferredLogicalReduction any = new DeferredLogicalReduction(x, Reductions.get("any", false), AttributeMap.EMPTY);
+    DeferredLogicalReduction all = new DeferredLogicalReduction(x, Reductions.get("all", false), AttributeMap.EMPTY);
+    DeferredLogicalReduction allRemoved = new DeferredLogicalReduction(x, Reductions.get("all", true), AttributeMap.EMPTY);
+    DeferredLogicalReduction none = new DeferredLogicalReduction(allFalse, Reductions.get("any", false), AttributeMap.EMPTY);
+
+    new SimpleVectorPipeliner().materialize((DeferredComputation)
+        CombinedDoubleVector.combine(new Vector[] { any, all, allRemoved, none }, AttributeMap.EMPTY));
+
+    assertTrue(any.isCalculated());
+    assertThat(any.getElementAsLogical(0), equalTo(Logical.TRUE));
+    assertThat(all.getElementAsLogical(0), equalTo(Logical.FALSE));
+    assertThat(allRemoved.getElementAsLogical(0), equalTo(Logical.FALSE));
+    assertThat(none.getElementAsLogical(0), equalTo(Logical.FALSE));
+  }
+
+  @Test
+  public void cumulativeSum() {
+    DoubleArrayVector x = new DoubleArrayVector(1, 2, DoubleVector.NA, 4);
+    Vector product = new R$primitive$$times$deferred_dd(x, x, AttributeMap.EMPTY);
+    DeferredCumulative cumsum = new DeferredCumulative(product, "cumsum", AttributeMap.EMPTY);
+
+    Vector result = new SimpleVectorPipeliner().materialize(cumsum);
+
+    assertThat(result.getElementAsDouble(0), equalTo(1d));
+    assertThat(result.getElementAsDouble(1), equalTo(5d));
+    assertTrue(DoubleVector.isNA(result.getElementAsDouble(2)));
+    assertTrue(DoubleVector.isNA(result.getElementAsDouble(3)));
+  }
+
+  private void assertFusedMatchesDirect(Vector input, boolean removeNA, VectorPipeliner pipeliner) {
+    Vector[] deferred = new Vector[REDUCTIONS.length];
+    for(int i=0;i!=deferred.length;++i) {
+      deferred[i] = new DeferredReduction(input, Reductions.get(REDUCTIONS[i], removeNA), AttributeMap.EMPTY);
+    }
+    pipeliner.materialize((DeferredComputation) CombinedDoubleVector.combine(deferred, AttributeMap.EMPTY));
+
+    for(int i=0;i!=deferred.length;++i) {
+      Reduction reduction = Reductions.get(REDUCTIONS[i], removeNA);
+      assertTrue(reduction.getName(), ((DeferredReduction) deferred[i]).isCalculated());
+
+      Vector expected = Reductions.reduce(reduction, input);
+      for(int j=0;j!=expected.length();++j) {
+        double expectedValue = expected.getElementAsDouble(j);
+        double actualValue = deferred[i].getElementAsDouble(j);
+        if(Double.isNaN(expectedValue)) {
+          assertThat(reduction.getName(), DoubleVector.isNA(actualValue), equalTo(DoubleVector.isNA(expectedValue)));
+          assertTrue(reduction.getName(), Double.isNaN(actualValue));
+        } else {
+          assertThat(reduction.getName(), actualValue, closeTo(expectedValue, Math.abs(expectedValue) * 1e-9));
+        }
+      }
+    }
+  }
+
+  /**
+   * The sequence 0, 1, 2, ..., which counts how many times its first element is read
+   */
+  public static class CountingVector extends DoubleVector {
+    private final int length;
+    private int passes;
+
+    public CountingVector(int length) {
+      this.length = length;
+    }
+
+    @Override
+    protected SEXP cloneWithNewAttributes(AttributeMap attributes) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public double getElementAsDouble(int index) {
+      if(index == 0) {
+        passes++;
+      }
+      return index;
+    }
+
+    @Override
+    public int length() {
+      return length;
+    }
+
+    @Override
+    public boolean isConstantAccessTime() {
+      return true;
+    }
+  }
+
+  /**
+   * @return values near 1, so that their product is finite, optionally with some NA and NaN values
+   */
+  private DoubleArrayVector values(int n, boolean missing) {
+    double[] values = new double[n];
+    for(int i=0;i!=n;++i) {
+      values[i] = 1 + Math.sin(i) / 1000;
+      if(missing && i % 997 == 500) {
+        values[i] = DoubleVector.NA;
+      } else if(missing && i % 1009 == 700) {
+        values[i] = Double.NaN;
+      }
+    }
+    return new DoubleArrayVector(values);
+  }
+}
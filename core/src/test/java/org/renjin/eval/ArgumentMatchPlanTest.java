@@ -0,0 +1,57 @@
+package org.renjin.eval;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.sexp.Closure;
+import org.renjin.sexp.FunctionCall;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class ArgumentMatchPlanTest extends EvalTestCase {
+
+  @Test
+  public void callSiteWithChangingShape() {
+    eval("g <- function(a, bb = 2, ...) c(a, bb, length(list(...)))");
+    eval("f <- function(...) g(...)");
+
+    assertThat(eval("f(1)"), equalTo(c(1, 2, 0)));
+    assertThat(eval("f(1, 3)"), equalTo(c(1, 3, 0)));
+    assertThat(eval("f(b = 5, 1)"), equalTo(c(1, 5, 0)));
+    assertThat(eval("f(1, 2, 3, 4)"), equalTo(c(1, 2, 2)));
+    assertThat(eval("f(bb = 7, 8, z = 9)"), equalTo(c(8, 7, 1)));
+    assertThat(eval("f(1)"), equalTo(c(1, 2, 0)));
+  }
+
+  @Test
+  public void defaultsAreEvaluatedForEachCall() {
+    eval("h <- function(x, y = x * 2) y");
+    eval("k <- function(x) h(x)");
+
+    assertThat(eval("k(3)"), equalTo(c(6)));
+    assertThat(eval("k(4)"), equalTo(c(8)));
+  }
+
+  @Test(expected = EvalException.class)
+  public void unmatchedArgumentsStillFail() {
+    eval("g <- function(a) a");
+    eval("f <- function(...) g(...)");
+    eval("f(1)");
+    eval("f(1, 2)");
+  }
+
+  @Test
+  public void callSiteWithChangingClosuresStopsCaching() {
+    eval("f <- function(g) g(1, b = 2)");
+    eval("g1 <- function(a, b) a + b");
+    eval("g2 <- function(b, a) a - b");
+
+    assertThat(eval("f(g1)"), equalTo(c(3)));
+    assertThat(eval("f(g2)"), equalTo(c(-1)));
+    assertThat(eval("f(g1)"), equalTo(c(3)));
+
+    FunctionCall callSite = (FunctionCall) ((Closure) global.getVariable("f")).getBody();
+    assertThat(callSite.getMatchPlan(), sameInstance(ArgumentMatchPlan.UNCACHEABLE));
+  }
+}
@@ -0,0 +1,67 @@
+package org.renjin.eval;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class InlineCacheTest extends EvalTestCase {
+
+  @Test
+  public void redefinitionInvalidatesCache() {
+    eval("g <- function() 1");
+    eval("f <- function() g()");
+    assertThat(eval("f()"), equalTo(c(1)));
+    assertThat(eval("f()"), equalTo(c(1)));
+
+    eval("g <- function() 2");
+    assertThat(eval("f()"), equalTo(c(2)));
+  }
+
+  @Test
+  public void localBindingShadowsCachedFunction() {
+    eval("g <- function() 1");
+    eval("f <- function(g) g()");
+    assertThat(eval("f(function() 3)"), equalTo(c(3)));
+    assertThat(eval("f(function() 4)"), equalTo(c(4)));
+  }
+
+  @Test
+  public void assignmentInEnclosingFunctionInvalidatesCache() {
+    eval("f <- function() { g <- function() 1; k <- function() g(); r <- k(); g <- function() 2; c(r, k()) }");
+    assertThat(eval("f()"), equalTo(c(1, 2)));
+  }
+
+  @Test(expected = EvalException.class)
+  public void removedFunctionIsNotFound() {
+    assumingBasePackagesLoad();
+    eval("g <- function() 1");
+    eval("f <- function() g()");
+    assertThat(eval("f()"), equalTo(c(1)));
+
+    eval("rm(g)");
+    eval("f()");
+  }
+
+  @Test(expected = EvalException.class)
+  public void detachedFunctionIsNotFound() {
+    eval("f <- function() attachedFn()");
+    eval(".Internal(attach(list(attachedFn = function() 1), 2L, 'attached'))");
+    assertThat(eval("f()"), equalTo(c(1)));
+
+    eval(".Internal(detach(2L))");
+    eval("x <- 1");
+    eval("f()");
+  }
+
+  @Test(expected = EvalException.class)
+  public void functionReplacedByValueIsNotFound() {
+    eval("g <- function() 1");
+    eval("f <- function() g()");
+    assertThat(eval("f()"), equalTo(c(1)));
+
+    eval("g <- 2");
+    eval("f()");
+  }
+}
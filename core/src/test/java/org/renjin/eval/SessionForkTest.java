@@ -0,0 +1,112 @@
+package org.renjin.eval;
+
+import org.junit.Test;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.*;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+
+public class SessionForkTest {
+
+  @Test
+  public void forkSharesParentValuesCopyOnWrite() {
+    Session parent = new SessionBuilder().withoutBasePackage().build();
+    eval(parent, "y <- 1; f <- function(x) x + y");
+
+    Session fork = parent.fork();
+    eval(fork, "y <- 2; z <- 42");
+
+    assertThat(evalDouble(fork, "f(1)"), equalTo(3d));
+    assertThat(evalDouble(parent, "f(1)"), equalTo(2d));
+    assertThat(parent.getGlobalEnvironment().getVariable("z"), equalTo((SEXP) Symbol.UNBOUND_VALUE));
+  }
+
+  @Test
+  public void removalsAreLocalToFork() {
+    Session parent = new SessionBuilder().withoutBasePackage().build();
+    eval(parent, "y <- 1");
+
+    Session fork = parent.fork();
+    fork.getGlobalEnvironment().remove(Symbol.get("y"));
+
+    assertThat(fork.getGlobalEnvironment().getVariable("y"), equalTo((SEXP) Symbol.UNBOUND_VALUE));
+    assertThat(evalDouble(parent, "y"), equalTo(1d));
+  }
+
+  @Test
+  public void nestedEnvironmentsAreCopyOnWrite() {
+    Session parent = new SessionBuilder().withoutBasePackage().build();
+    Environment global = parent.getGlobalEnvironment();
+    global.setVariable("e", Environment.createChildEnvironment(global));
+    eval(parent, "e$x <- 1");
+
+    Session fork = parent.fork();
+    eval(fork, "e$x <- 2");
+
+    assertThat(evalDouble(fork, "e$x"), equalTo(2d));
+    assertThat(evalDouble(parent, "e$x"), equalTo(1d));
+  }
+
+  @Test
+  public void closureEnvironmentsAreCopyOnWrite() {
+    Session parent = new SessionBuilder().withoutBasePackage().build();
+    eval(parent, "counter <- function() { i <- 0; function() { i <<- i + 1; i } }; g <- counter()");
+
+    Session fork = parent.fork();
+    eval(fork, "g()");
+
+    assertThat(evalDouble(fork, "g()"), equalTo(2d));
+    assertThat(evalDouble(parent, "g()"), equalTo(1d));
+  }
+
+  @Test
+  public void closuresInListsAreCopyOnWrite() {
+    Session parent = new SessionBuilder().withoutBasePackage().build();
+    eval(parent, "counter <- function() { i <- 0; list(inc = function() { i <<- i + 1; i }) }");
+    eval(parent, "handlers <- list(a = counter(), b = 1)");
+
+    Session fork = parent.fork();
+    eval(fork, "handlers$a$inc()");
+
+    assertThat(evalDouble(fork, "handlers$a$inc()"), equalTo(2d));
+    assertThat(evalDouble(parent, "handlers$a$inc()"), equalTo(1d));
+  }
+
+  @Test
+  public void promisesOfEnclosingEnvironmentsAreEvaluatedByFork() {
+    Session parent = new SessionBuilder().withoutBasePackage().build();
+    eval(parent, "make <- function(n) function(i) i * n; y <- 2; f <- make(y + 1)");
+    Closure f = (Closure) parent.getGlobalEnvironment().getVariable("f");
+    Promise n = (Promise) f.getEnclosingEnvironment().getVariable("n");
+
+    Session fork = parent.fork();
+    eval(fork, "y <- 10");
+
+    assertThat(evalDouble(fork, "f(2)"), equalTo(22d));
+    assertFalse(n.isEvaluated());
+    assertThat(evalDouble(parent, "f(2)"), equalTo(6d));
+  }
+
+  @Test
+  public void replacementsInForkDoNotModifySharedVectors() {
+    Session parent = new SessionBuilder().withoutBasePackage().build();
+    Session fork = parent.fork();
+
+    eval(fork, "x <- c(1,2,3); x[1] <- 10; y <- x");
+    eval(fork, "f <- function() { z <- y; z[2] <- 99; z }");
+
+    assertThat(eval(fork, "f()"), equalTo((SEXP) new DoubleArrayVector(10, 99, 3)));
+    assertThat(eval(fork, "x"), equalTo((SEXP) new DoubleArrayVector(10, 2, 3)));
+    assertThat(eval(fork, "y"), equalTo((SEXP) new DoubleArrayVector(10, 2, 3)));
+  }
+
+  private SEXP eval(Session session, String source) {
+    return session.getTopLevelContext().evaluate(RParser.parseSource(source + "\n"));
+  }
+
+  private double evalDouble(Session session, String source) {
+    return ((DoubleVector) eval(session, source)).getElementAsDouble(0);
+  }
+}
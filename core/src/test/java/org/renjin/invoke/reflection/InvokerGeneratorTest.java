@@ -0,0 +1,61 @@
+package org.renjin.invoke.reflection;
+
+import org.junit.Test;
+import org.renjin.primitives.MyBean;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class InvokerGeneratorTest {
+
+  @Test
+  public void instanceMethods() throws Exception {
+    MyBean bean = new MyBean();
+
+    Invoker sayHello = InvokerGenerator.generate(MyBean.class.getMethod("sayHello", String.class));
+    assertThat(sayHello, notNullValue());
+    assertThat(sayHello.getClass().getName(), not(equalTo(Invoker.class.getName())));
+    assertThat(sayHello.invoke(bean, new Object[] { "Bob" }), equalTo((Object) "Hello Bob"));
+
+    Invoker setCount = InvokerGenerator.generate(MyBean.class.getMethod("setCount", int.class));
+    assertThat(setCount, notNullValue());
+    assertThat(setCount.invoke(bean, new Object[] { 3 }), nullValue());
+
+    Invoker getCount = InvokerGenerator.generate(MyBean.class.getMethod("getCount"));
+    assertThat(getCount, notNullValue());
+    assertThat(getCount.invoke(bean, new Object[0]), equalTo((Object) 3));
+  }
+
+  @Test
+  public void primitiveArgumentsAcceptAnyNumber() throws Exception {
+    Invoker sayHello = InvokerGenerator.generate(MyBean.class.getMethod("sayHello", int.class));
+    assertThat(sayHello, notNullValue());
+    assertThat(sayHello.invoke(new MyBean(), new Object[] { 2d }), equalTo((Object) "HelloHello"));
+  }
+
+  @Test
+  public void constructors() throws Exception {
+    Invoker constructor = InvokerGenerator.generate(MyBean.class.getConstructor(String.class));
+    assertThat(constructor, notNullValue());
+
+    Object bean = constructor.invoke(null, new Object[] { "sue" });
+    assertThat(bean, instanceOf(MyBean.class));
+    assertThat(((MyBean) bean).getName(), equalTo("sue"));
+  }
+
+  @Test
+  public void inaccessibleMembersAreNotGenerated() throws Exception {
+    assertThat(InvokerGenerator.generate(Hidden.class.getMethod("toString")), nullValue());
+  }
+
+  private static class Hidden {
+    @Override
+    public String toString() {
+      return "hidden";
+    }
+  }
+}
@@ -0,0 +1,47 @@
+package org.renjin.packaging;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.Files;
+import org.junit.Test;
+import org.renjin.eval.Context;
+import org.renjin.parser.RParser;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.NamedValue;
+import org.renjin.sexp.Promise;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.StringVector;
+
+import java.io.File;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.junit.Assert.assertThat;
+
+public class LazyLoadImageTest {
+
+  @Test
+  public void roundTrip() throws Exception {
+    Context context = Context.newTopLevelContext();
+    // the global environment also holds .Random.seed
+    Environment env = Environment.createChildEnvironment(context.getGlobalEnvironment());
+    context.evaluate(RParser.parseSource("x <- c(1, 2, 3)\ns <- 'hello'\n"), env);
+
+    File dir = Files.createTempDir();
+    new LazyLoadFrameBuilder(context)
+        .outputTo(dir)
+        .buildImage(env);
+
+    Map<String, SEXP> values = Maps.newHashMap();
+    for(NamedValue namedValue : LazyLoadImage.load(new File(dir, "image").toURI().toURL())) {
+      // nothing should be deserialized until it is needed
+      assertThat(namedValue.getValue(), instanceOf(Promise.class));
+      values.put(namedValue.getName(), namedValue.getValue().force(context));
+    }
+
+    assertThat(values.size(), equalTo(2));
+    assertThat(((DoubleVector) values.get("x")).getElementAsDouble(2), equalTo(3d));
+    assertThat(((StringVector) values.get("s")).getElementAsString(0), equalTo("hello"));
+  }
+}
@@ -125,5 +125,24 @@ public class JvmiTest extends EvalTestCase {
 
   }
 
+  @Test
+  public void repeatedCallsUseGeneratedInvokers() {
+    eval("import(org.renjin.primitives.MyBean)");
+    eval("total <- 0");
+    eval("for(i in 1:50) { x <- MyBean$new(); x$count <- i; total <- total + x$count + MyBean$sum(i, 1) }");
+
+    assertThat(eval("total"), equalTo(c(2600)));
+  }
+
+  @Test
+  public void repeatedCallsWithOverloads() {
+    eval("import(org.renjin.primitives.MyBean)");
+    eval("x <- MyBean$new()");
+    eval("for(i in 1:40) { a <- x$sayHello(1L); b <- x$sayHello('fred') }");
+
+    assertThat(eval("a"), equalTo(c("Hello")));
+    assertThat(eval("b"), equalTo(c("Hello fred")));
+  }
+
   
 }
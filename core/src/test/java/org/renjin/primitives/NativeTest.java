@@ -0,0 +1,97 @@
+package org.renjin.primitives;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.gcc.runtime.DoublePtr;
+import org.renjin.gcc.runtime.IntPtr;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.*;
+
+
+public class NativeTest extends EvalTestCase {
+
+  public static class Routines {
+
+    public static void scale_(DoublePtr x, IntPtr n, DoublePtr factor) {
+      for(int i=0;i!=n.array[0];++i) {
+        x.array[i] *= factor.array[0];
+      }
+    }
+  }
+
+  @Test
+  public void fortranCopiesArguments() {
+    eval("x <- c(1, 2, 3)");
+    eval("y <- .Fortran('scale', x=x, n=3L, factor=2, CLASS='org.renjin.primitives.NativeTest$Routines')$x");
+
+    assertThat(eval("y"), equalTo(c(2, 4, 6)));
+    assertThat(eval("x"), equalTo(c(1, 2, 3)));
+  }
+
+  @Test
+  public void fortranWithoutDuplicationCopiesVariables() {
+    eval("x <- c(1, 2, 3)");
+    eval("y <- .Fortran('scale', x=x, n=3L, factor=2, CLASS='org.renjin.primitives.NativeTest$Routines', DUP=FALSE)$x");
+
+    assertThat(eval("y"), equalTo(c(2, 4, 6)));
+    assertThat(eval("x"), equalTo(c(1, 2, 3)));
+  }
+
+  @Test
+  public void fortranWithoutDuplicationCopiesSharedStorage() {
+    eval("x <- c(1, 2, 3)");
+    eval("y <- x");
+    eval("names(y) <- c('a', 'b', 'c')");
+    eval(".Fortran('scale', x=x, n=3L, factor=2, CLASS='org.renjin.primitives.NativeTest$Routines', DUP=FALSE)");
+    eval(".Fortran('scale', x=as.double(y), n=3L, factor=2, CLASS='org.renjin.primitives.NativeTest$Routines', DUP=FALSE)");
+
+    assertThat(eval("x"), equalTo(c(1, 2, 3)));
+    assertThat(eval("as.double(y)"), equalTo(c(1, 2, 3)));
+  }
+
+  @Test
+  public void fortranWithoutDuplicationOfComputedArguments() {
+    eval("x <- c(1, 2, 3)");
+    eval("y <- .Fortran('scale', x=x + 1, n=3L, factor=2, CLASS='org.renjin.primitives.NativeTest$Routines', DUP=FALSE)$x");
+
+    assertThat(eval("y"), equalTo(c(4, 6, 8)));
+    assertThat(eval("x"), equalTo(c(1, 2, 3)));
+  }
+
+  @Test
+  public void fortranWithoutDuplicationCopiesReturnedValues() {
+    assumingBasePackagesLoad();
+    eval("x <- c(1, 2, 3)");
+    eval("f <- function() x");
+    eval(".Fortran('scale', x=get('x'), n=3L, factor=2, CLASS='org.renjin.primitives.NativeTest$Routines', DUP=FALSE)");
+    eval(".Fortran('scale', x=f(), n=3L, factor=2, CLASS='org.renjin.primitives.NativeTest$Routines', DUP=FALSE)");
+
+    // a function masking an allocating function of the base package
+    eval("double <- function(n) x");
+    eval(".Fortran('scale', x=double(3), n=3L, factor=2, CLASS='org.renjin.primitives.NativeTest$Routines', DUP=FALSE)");
+
+    assertThat(eval("x"), equalTo(c(1, 2, 3)));
+  }
+
+  @Test
+  public void fortranWithoutDuplicationOfAllocatedArguments() {
+    assumingBasePackagesLoad();
+    assertThat(eval(".Fortran('scale', x=numeric(3), n=3L, factor=2, " +
+        "CLASS='org.renjin.primitives.NativeTest$Routines', DUP=FALSE)$x"), equalTo(c(0, 0, 0)));
+  }
+
+  @Test
+  public void fortranCoercesArguments() {
+    assertThat(eval(".Fortran('scale', x=1:3, n=3, factor=2L, CLASS='org.renjin.primitives.NativeTest$Routines', " +
+        "DUP=FALSE)$x"), equalTo(c(2, 4, 6)));
+  }
+
+  @Test
+  public void methodsAreResolvedOnce() {
+    NativeMethod method = NativeMethod.forFortran("org.renjin.primitives.NativeTest$Routines", "scale");
+
+    assertThat(method.getName(), equalTo("scale_"));
+    assertThat(NativeMethod.forFortran("org.renjin.primitives.NativeTest$Routines", "scale"), sameInstance(method));
+  }
+}
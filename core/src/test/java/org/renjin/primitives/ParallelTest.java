@@ -0,0 +1,153 @@
+package org.renjin.primitives;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.eval.Context;
+import org.renjin.eval.EvalException;
+import org.renjin.parser.RParser;
+import org.renjin.primitives.packaging.Namespace;
+import org.renjin.primitives.packaging.Package;
+import org.renjin.sexp.Closure;
+import org.renjin.sexp.Environment;
+import org.renjin.sexp.HashFrame;
+import org.renjin.sexp.Promise;
+import org.renjin.sexp.SEXP;
+import org.renjin.sexp.StringVector;
+import org.renjin.sexp.Symbol;
+import org.renjin.sexp.Symbols;
+
+
+public class ParallelTest extends EvalTestCase {
+
+  @Before
+  public void defineMclapply() {
+    eval("mclapply <- function(X, FUN, ..., cores = 4L, chunk.size = 3L) " +
+        " .Internal(mclapply(X, FUN, cores, chunk.size, TRUE))");
+  }
+
+  @Test
+  public void resultsAreInOrder() {
+    eval("x <- mclapply(c(a=1, b=2, c=3, d=4, e=5, f=6, g=7), function(x, y) x * y, 10)");
+
+    assertThat(eval("length(x)"), equalTo(c_i(7)));
+    assertThat(eval("x[[1]]"), equalTo(c(10)));
+    assertThat(eval("x[[7]]"), equalTo(c(70)));
+    assertThat(eval("names(x)"), equalTo(c("a", "b", "c", "d", "e", "f", "g")));
+  }
+
+  @Test
+  public void assignmentsArePrivateToWorkers() {
+    eval("y <- 1");
+    eval("x <- mclapply(1:10, function(i) { y <<- i; y * 2 })");
+
+    assertThat(eval("x[[10]]"), equalTo(c(20)));
+    assertThat(eval("y"), equalTo(c(1)));
+  }
+
+  @Test
+  public void closuresOverPromiseArguments() {
+    eval("count <- 0");
+    eval("f <- function(n) mclapply(1:10, function(i) i * n)");
+    eval("x <- f({ count <<- count + 1; 3 })");
+
+    assertThat(eval("x[[1]]"), equalTo(c(3)));
+    assertThat(eval("x[[10]]"), equalTo(c(30)));
+    // the promise is evaluated by the workers, not in the calling session
+    assertThat(eval("count"), equalTo(c(0)));
+  }
+
+  @Test(expected = EvalException.class)
+  public void errorsArePropagated() {
+    eval("mclapply(1:20, function(i) if(i == 7) no.such.function() else i)");
+  }
+
+  @Test
+  public void warningsAreCollectedInOrder() {
+    assumingBasePackagesLoad();
+    eval("x <- mclapply(1:12, function(i) { if(i %% 4 == 0) warning(paste('w', i)); i })");
+
+    assertThat(eval("names(last.warning)"), equalTo(c("w 4", "w 8", "w 12")));
+  }
+
+  @Test
+  public void streamsDoNotDependOnNumberOfThreads() {
+    assumingBasePackagesLoad();
+    eval("set.seed(1, kind = \"L'Ecuyer-CMRG\")");
+    eval("x <- unlist(mclapply(1:10, function(i) .Internal(runif(1, 0, 1)), cores = 4L))");
+    eval("set.seed(1, kind = \"L'Ecuyer-CMRG\")");
+    eval("y <- unlist(mclapply(1:10, function(i) .Internal(runif(1, 0, 1)), cores = 2L, chunk.size = 5L))");
+
+    assertThat(eval("identical(x, y)"), equalTo(c(true)));
+    assertThat(eval("length(unique(x))"), equalTo(c_i(10)));
+  }
+
+  @Test
+  public void lazilyLoadedPackageFunctions() {
+    Namespace namespace = attachNamespace("lazy");
+    Environment namespaceEnv = namespace.getNamespaceEnvironment();
+    Promise square = Promise.repromise(namespaceEnv, parse("function(x) helper(x) * x"));
+    namespaceEnv.setVariable("square", square);
+    namespaceEnv.setVariable("helper", Promise.repromise(namespaceEnv, parse("function(x) x")));
+    export(namespace, "square");
+
+    eval("x <- unlist(mclapply(1:200, function(i) square(i), cores = 8L, chunk.size = 1L))");
+
+    assertThat(eval("x[c(1, 200)]"), equalTo(c(1, 40000)));
+    // each worker evaluates its own copy of the namespace's promises
+    assertFalse(square.isEvaluated());
+    assertThat(eval("square(3)"), equalTo(c(9)));
+    assertThat(((Closure) square.getValue()).getEnclosingEnvironment(), sameInstance(namespaceEnv));
+  }
+
+  @Test
+  public void serializedPackageFunctionsAreLoadedOnce() {
+    Namespace namespace = attachNamespace("serialized");
+    final Environment namespaceEnv = namespace.getNamespaceEnvironment();
+    final AtomicInteger loads = new AtomicInteger();
+    namespaceEnv.setVariable("cube", new Promise(Environment.EMPTY, parse("function(x) x * x * x")) {
+      @Override
+      protected SEXP doEval(Context context) {
+        // as the lazy load frame does, load the function into the namespace of the owning session
+        loads.incrementAndGet();
+        return context.evaluate(expression, namespaceEnv);
+      }
+    });
+    export(namespace, "cube");
+
+    eval("x <- unlist(mclapply(1:200, function(i) cube(i), cores = 8L, chunk.size = 1L))");
+
+    assertThat(eval("x[c(2, 200)]"), equalTo(c(8, 8000000)));
+    assertThat(loads.get(), equalTo(1));
+  }
+
+  private Namespace attachNamespace(String name) {
+    Namespace namespace = topLevelContext.getNamespaceRegistry().createNamespace(new TestPackage(), name);
+    Environment packageEnv = global.insertAbove(new HashFrame());
+    packageEnv.setAttribute(Symbols.NAME, StringVector.valueOf("package:" + name));
+    return namespace;
+  }
+
+  private void export(Namespace namespace, String name) {
+    namespace.addExport(Symbol.get(name));
+    namespace.copyExportsTo(global.getParent());
+  }
+
+  private SEXP parse(String source) {
+    return RParser.parseSource(source + "\n").getElementAsSEXP(0);
+  }
+
+  private static class TestPackage extends Package {
+    @Override
+    public Class getClass(String name) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
@@ -736,4 +736,54 @@ public class SubsettingTest extends EvalTestCase {
 
   }
   
+  @Test
+  public void replacementInPlace() {
+    eval("x <- c(1, 2, 3)");
+    eval("x[1] <- 10");
+    eval("x[2] <- 20");
+    assertThat(((HashFrame) global.getFrame()).getUnsharedVariable(Symbol.get("x")), Matchers.notNullValue());
+
+    eval("y <- x");
+    assertThat(((HashFrame) global.getFrame()).getUnsharedVariable(Symbol.get("x")), Matchers.nullValue());
+
+    eval("x[3] <- 30");
+    assertThat(eval("x"), equalTo(c(10, 20, 30)));
+    assertThat(eval("y"), equalTo(c(10, 20, 3)));
+  }
+
+  @Test
+  public void replacementInPlaceDoesNotAffectArguments() {
+    eval("f <- function(v) { v[1] <- 99; v[2] <- 98; v }");
+    eval("x <- c(1, 2)");
+    eval("x[1] <- 5");
+    eval("x[2] <- 6");
+    assertThat(eval("f(x)"), equalTo(c(99, 98)));
+    assertThat(eval("x"), equalTo(c(5, 6)));
+  }
+
+  @Test
+  public void fillInLoop() {
+    eval("x <- c(0, 0, 0, 0, 0)");
+    eval("for(i in 1:5) x[i] <- i * 2");
+    assertThat(eval("x"), equalTo(c(2, 4, 6, 8, 10)));
+
+    eval("s <- c('a', 'b', 'c')");
+    eval("for(i in 1:3) s[[i]] <- 'z'");
+    assertThat(eval("s"), equalTo(c("z", "z", "z")));
+  }
+
+  @Test
+  public void listReplacementInPlace() {
+    eval("l <- list(a=1, b=2)");
+    eval("l$a <- 3");
+    eval("l$b <- 4");
+    eval("m <- l");
+    eval("l[[1]] <- 5");
+    eval("l$b <- 6");
+    assertThat(eval("l$a"), equalTo(c(5)));
+    assertThat(eval("l$b"), equalTo(c(6)));
+    assertThat(eval("m$a"), equalTo(c(3)));
+    assertThat(eval("m$b"), equalTo(c(4)));
+  }
+
 }
\ No newline at end of file
@@ -110,6 +110,69 @@ public class SummaryTest extends EvalTestCase {
     assertThat(eval(".Internal(cov(c(1,2,3,4,5), c(5,4,3,2,1), 1, FALSE))"), equalTo(c(-2.5)));
   }
   
+  @Test
+  public void reductionsOfLargeVectors() {
+    eval("x <- as.double(1:200000)");
+    eval("x[5] <- NA");
+
+    assertThat(eval("c(min(x), max(x), sum(x))"), equalTo(c(DoubleVector.NA, DoubleVector.NA, DoubleVector.NA)));
+    assertThat(eval("c(min(x, na.rm=TRUE), max(x, na.rm=TRUE), sum(x, na.rm=TRUE))"),
+        equalTo(c(1, 200000, 200000d * 200001d / 2d - 5)));
+    assertThat(eval("range(x * 2, na.rm=TRUE)"), equalTo(c(2, 400000)));
+    assertThat(eval("any(x * 0 > 0)"), equalTo(c(Logical.NA)));
+    assertThat(eval("cumsum(x)[c(4, 6)]"), equalTo(c(10, DoubleVector.NA)));
+  }
+
+  @Test
+  public void extremesOfNaNDoNotDependOnLength() {
+    eval("x <- c(1, NaN)");
+    eval("y <- c(as.double(1:200000), NaN)");
+
+    assertThat(eval("c(is.nan(min(x)), is.nan(max(x)), is.nan(range(x)))"),
+        equalTo(c(true, true, true, true)));
+    assertThat(eval("c(is.nan(min(y)), is.nan(max(y)), is.nan(range(y)))"),
+        equalTo(c(true, true, true, true)));
+    assertThat(eval("c(is.nan(min(c(NA, NaN))), is.nan(min(c(y, NA))))"), equalTo(c(false, false)));
+  }
+
+  @Test
+  public void extremesOfNoNonMissingValuesWarn() {
+    assumingBasePackagesLoad();
+    eval("x <- c(NA_real_, NaN)");
+    eval("y <- as.double(1:200000) * NA");
+
+    assertThat(eval("c(min(x, na.rm=TRUE), max(x, na.rm=TRUE))"),
+        equalTo(c(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY)));
+    assertThat(eval("names(last.warning)"), equalTo(c(
+        "no non-missing arguments to min; returning Inf",
+        "no non-missing arguments to max; returning -Inf")));
+
+    eval("rm(last.warning, envir = baseenv())");
+    assertThat(eval("c(min(y, na.rm=TRUE), max(y, na.rm=TRUE))"),
+        equalTo(c(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY)));
+    assertThat(eval("names(last.warning)"), equalTo(c(
+        "no non-missing arguments to min; returning Inf",
+        "no non-missing arguments to max; returning -Inf")));
+
+    assertThat(eval("range(y, na.rm=TRUE)"), equalTo(c(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY)));
+    assertThat(eval("range(x, na.rm=TRUE)"), equalTo(c(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY)));
+  }
+
+  @Test
+  public void deferredExtremesWarnOnlyWhereForced() {
+    assumingBasePackagesLoad();
+    eval("y <- as.double(1:200000) * NA");
+    eval("f <- function() min(y, na.rm=TRUE)");
+
+    eval("m <- f()");
+    assertThat(eval("exists('last.warning', envir = baseenv())"), equalTo(c(false)));
+
+    assertThat(eval("c(m, max(y, na.rm=TRUE))"), equalTo(c(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY)));
+    assertThat(eval("names(last.warning)"), equalTo(c(
+        "no non-missing arguments to min; returning Inf",
+        "no non-missing arguments to max; returning -Inf")));
+  }
+
   @Test
   public void testCumsum() {
     assertThat(eval("cumsum(1:10)"), equalTo(c(1, 3, 6, 10, 15, 21, 28, 36, 45, 55)));
@@ -766,4 +766,20 @@ public strictfp class TypesTest extends EvalTestCase {
     eval("as.numeric(as.character(1:10))");
   }
 
+  @Test
+  public void detachRemovesAttachedEnvironment() {
+    assumingBasePackagesLoad();
+    eval(".Internal(attach(list(a = 1), 2L, 'attached'))");
+    assertThat(eval("a"), equalTo(c(1)));
+
+    eval("e <- .Internal(detach(2L))");
+    assertThat(eval("e$a"), equalTo(c(1)));
+    assertThat(eval("exists('a')"), equalTo(c(false)));
+  }
+
+  @Test(expected=EvalException.class)
+  public void detachGlobalEnvThrows() {
+    eval(".Internal(detach(1L))");
+  }
+
 }
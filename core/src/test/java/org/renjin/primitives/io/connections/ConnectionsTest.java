@@ -2,8 +2,7 @@ package org.renjin.primitives.io.connections;
 
 import org.junit.Test;
 import org.renjin.EvalTestCase;
-import org.renjin.sexp.IntVector;
-import org.renjin.sexp.StringVector;
+import org.renjin.sexp.*;
 
 import java.io.IOException;
 
@@ -57,6 +56,82 @@ public class ConnectionsTest extends EvalTestCase {
 
   }
  
+  @Test
+  public void writeBinAndReadBinRaw() throws IOException {
+    SEXP bytes = Connections.writeBin(topLevelContext, new DoubleArrayVector(1.5, -2, 1e300),
+        new RawVector(), IntVector.NA, true, false);
+
+    assertThat(bytes.length(), equalTo(24));
+    assertThat(((RawVector) bytes).getAsByteArray()[6], equalTo((byte)0xF8));
+    assertThat(((RawVector) bytes).getAsByteArray()[7], equalTo((byte)0x3F));
+
+    assertThat(Connections.readBin(topLevelContext, bytes, "double", 10, IntVector.NA, true, true),
+        equalTo(c(1.5, -2, 1e300)));
+    assertThat(Connections.readBin(topLevelContext, bytes, "integer", 4, 2, false, false),
+        equalTo(c_i(0, 0, 0, 0xF83F)));
+  }
+
+  @Test
+  public void writeBinAndReadBinFile() throws IOException {
+    eval("conn <- .Internal(file('target/testbin', 'wb', TRUE, 'UTF8', FALSE))");
+    eval(".Internal(writeBin(1:100000, conn, NA_integer_, FALSE, FALSE))");
+    eval(".Internal(writeBin(c(0.25, 0.5), conn, 4L, TRUE, FALSE))");
+    eval(".Internal(close(conn, 'rw'))");
+
+    eval("conn <- .Internal(file('target/testbin', 'rb', TRUE, 'UTF8', FALSE))");
+    eval("x <- .Internal(readBin(conn, 'integer', 100000L, NA_integer_, TRUE, FALSE))");
+    eval("y <- .Internal(readBin(conn, 'double', 1000000L, 4L, TRUE, TRUE))");
+    eval(".Internal(close(conn, 'rw'))");
+
+    assertThat(eval("length(x)"), equalTo(c_i(100000)));
+    assertThat(eval("x[c(1, 65536, 100000)]"), equalTo(c_i(1, 65536, 100000)));
+    assertThat(eval("y"), equalTo(c(0.25, 0.5)));
+  }
+
+  @Test
+  public void readBinStringsFromFile() throws IOException {
+    eval("conn <- .Internal(file('target/teststrings', 'wb', TRUE, 'UTF8', FALSE))");
+    eval(".Internal(writeBin(c('a', 'bc', 'def'), conn, NA_integer_, FALSE, FALSE))");
+    eval(".Internal(writeBin(7L, conn, NA_integer_, FALSE, FALSE))");
+    eval(".Internal(close(conn, 'rw'))");
+
+    eval("conn <- .Internal(file('target/teststrings', 'rb', TRUE, 'UTF8', FALSE))");
+    eval("s <- .Internal(readBin(conn, 'character', 2L, NA_integer_, TRUE, FALSE))");
+    eval("t <- .Internal(readBin(conn, 'character', 1L, NA_integer_, TRUE, FALSE))");
+    eval("i <- .Internal(readBin(conn, 'integer', 1L, NA_integer_, TRUE, FALSE))");
+    eval(".Internal(close(conn, 'rw'))");
+
+    assertThat(eval("s"), equalTo(c("a", "bc")));
+    assertThat(eval("t"), equalTo(c("def")));
+    assertThat(eval("i"), equalTo(c_i(7)));
+  }
+
+  @Test
+  public void mapBin() throws IOException {
+    eval("conn <- .Internal(file('target/testmap', 'wb', TRUE, 'UTF8', FALSE))");
+    eval(".Internal(writeBin(c(-1L, 0L), conn, NA_integer_, TRUE, FALSE))");
+    eval(".Internal(writeBin(seq(0.5, 1000, by = 0.5), conn, NA_integer_, TRUE, FALSE))");
+    eval(".Internal(close(conn, 'rw'))");
+
+    eval("x <- .Internal(mapBin('target/testmap', 'double', NA_integer_, 8, TRUE))");
+    eval("i <- .Internal(mapBin('target/testmap', 'integer', 2L, 0, TRUE))");
+
+    assertThat(eval("length(x)"), equalTo(c_i(2000)));
+    assertThat(eval("x[c(1, 2000)]"), equalTo(c(0.5, 1000)));
+    assertThat(eval("sum(x * 2)"), equalTo(c(2001000)));
+    assertThat(eval("i"), equalTo(c_i(-1, 0)));
+  }
+
+  @Test
+  public void mapBinPathWithSpaces() throws IOException {
+    eval("conn <- .Internal(file('target/test map', 'wb', TRUE, 'UTF8', FALSE))");
+    eval(".Internal(writeBin(c(1.5, 2.5), conn, NA_integer_, TRUE, FALSE))");
+    eval(".Internal(close(conn, 'rw'))");
+
+    eval("x <- .Internal(mapBin('target/test map', 'double', NA_integer_, 0, TRUE))");
+    assertThat(eval("x"), equalTo(c(1.5, 2.5)));
+  }
+
   @Test
   public void summary() {
     eval("x <- .Internal(summary.connection(.Internal(stdin())))");
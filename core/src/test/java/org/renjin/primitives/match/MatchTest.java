@@ -65,6 +65,28 @@ public class MatchTest extends EvalTestCase {
     
   }
 
+  @Test
+  public void matchSpecialDoubles() {
+    assertThat( eval(" .Internal(match(c(NaN, NA, -0, 1L), c(1, NA, NaN, 0), NA_integer_, NULL))"),
+        equalTo(c_i(3, 2, 4, 1)));
+  }
+
+  @Test
+  public void matchFirstOccurrence() {
+    assertThat( eval(" .Internal(match(c('b', 'c', 'q'), c('a', 'b', 'c', 'b', NA), 0L, NULL))"),
+        equalTo(c_i(2, 3, 0)));
+    assertThat( eval(" .Internal(match(c(TRUE, NA), c(FALSE, NA, TRUE, TRUE), NA_integer_, NULL))"),
+        equalTo(c_i(3, 2)));
+  }
+
+  @Test
+  public void matchRepeatedlyAgainstSameTable() {
+    eval(" t <- as.integer(seq(1, 3000, by = 3)) ");
+    assertThat( eval(" .Internal(match(c(1L, 2L, 2998L), t, NA_integer_, NULL))"), equalTo(c_i(1, IntVector.NA, 1000)));
+    assertThat( eval(" .Internal(match(c(4, 5.5), t, NA_integer_, NULL))"), equalTo(c_i(2, IntVector.NA)));
+    assertThat( eval(" .Internal(match('7', t, NA_integer_, NULL))"), equalTo(c_i(3)));
+  }
+
   @Test
   public void pmatch() {
     eval(" pmatch <- function (x, table, nomatch = NA_integer_, duplicates.ok = FALSE) \n" +
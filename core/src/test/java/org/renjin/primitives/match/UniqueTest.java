@@ -27,6 +27,8 @@ import static org.junit.Assert.assertThat;
 import org.hamcrest.CoreMatchers;
 import org.junit.Test;
 import org.renjin.EvalTestCase;
+import org.renjin.sexp.DoubleVector;
+import org.renjin.sexp.Logical;
 
 
 public class UniqueTest extends EvalTestCase {
@@ -46,6 +48,19 @@ public class UniqueTest extends EvalTestCase {
      assertThat( eval(" .Internal(unique(1L, FALSE, FALSE)) "), CoreMatchers.equalTo(c_i(1)));
    }
   
+  @Test
+  public void uniqueSpecialValues() {
+    assertThat( eval(".Internal(unique(c(NA, NaN, 0, -0, NA, NaN), FALSE, FALSE))"), equalTo( c(DoubleVector.NA, DoubleVector.NaN, 0)) );
+    assertThat( eval(".Internal(unique(c(TRUE, NA, FALSE, NA, TRUE), FALSE, FALSE))"), equalTo( c(Logical.TRUE, Logical.NA, Logical.FALSE)) );
+    assertThat( eval(".Internal(unique(c('b', NA, 'a', 'b', NA), FALSE, FALSE))"), equalTo( c("b", null, "a")) );
+  }
+
+  @Test
+  public void uniqueLargeIntVector() {
+    assertThat( eval("length(.Internal(unique(rep(1:5000, 3), FALSE, FALSE)))"), equalTo( c_i(5000)) );
+    assertThat( eval(".Internal(anyDuplicated(c(1:5000, 4999L), FALSE, FALSE))"), equalTo( c_i(5001)) );
+  }
+  
   @Test
   public void falseIncomparablesIsTreatedAsNull() {
     assertThat( eval(" .Internal(unique(c(0, 1, 0, 0, 0, 0, 0, 0), FALSE, FALSE))"), equalTo(c(0,1)));
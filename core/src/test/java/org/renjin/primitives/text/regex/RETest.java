@@ -24,7 +24,11 @@ package org.renjin.primitives.text.regex;
 import org.junit.Test;
 import org.renjin.primitives.text.regex.ExtendedRE;
 
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 public class RETest {
@@ -48,5 +52,66 @@ public class RETest {
     assertTrue(new ExtendedRE("^[a-z4]+$").match("qf444ee"));
   }
 
+  @Test
+  public void compiledProgramsAreCached() {
+    long hits = REFactory.getCacheStats().hitCount();
+
+    RE first = REFactory.compile("cached-(a+)", false, false, false, false);
+    RE second = REFactory.compile("cached-(a+)", true, false, false, false);
+
+    assertThat(REFactory.getCacheStats().hitCount(), equalTo(hits + 1));
+
+    // matchers sharing a program must keep their own state
+    assertTrue(first.match("xx cached-aaa"));
+    assertTrue(second.match("CACHED-A"));
+    assertThat(first.getGroupStart(1), equalTo(10));
+    assertFalse(first.match("CACHED-A"));
+  }
+
+  @Test
+  public void dfaAgreesWithBacktracking() {
+    String[] patterns = { "abc", "^abc", "abc$", "^$", "a|ab|b+c", "colou?r", "(ab)*c", "[a-c]+d",
+        "^[[:digit:]]+$", "\\d{2,3}-x", "[^a]b", "a.c", "(a|aa)*b", "x*", "^(foo|bar)?baz$", "\\s+\\w" };
+    String[] strings = { "", "abc", "xabcx", "ab", "color", "colour", "ababc", "bbc", "abbd", "123",
+        "12a", "44-x", "xb", "a\nc", "aaab", "baz", "foobaz", "foobarbaz", "  z", "Abc" };
+
+    for(String pattern : patterns) {
+      REProgram program = new RECompiler().compile(pattern);
+      for(boolean ignoreCase : new boolean[] { false, true }) {
+        LazyDFA dfa = LazyDFA.compile(program, ignoreCase);
+        ExtendedRE backtracking = new ExtendedRE(pattern, ignoreCase);
+        for(String string : strings) {
+          assertThat(pattern + " ~ " + string, dfa.matches(string), equalTo(backtracking.match(string)));
+        }
+      }
+    }
+  }
 
+  @Test
+  public void dfaIsLinearOnPathologicalPatterns() {
+    StringBuilder s = new StringBuilder();
+    for(int i = 0; i != 5000; ++i) {
+      s.append('a');
+    }
+    RE re = REFactory.compile("(a|aa)*b", false, false, false, false);
+    assertThat(re, instanceOf(DfaRE.class));
+    assertFalse(re.match(s.toString()));
+    assertThat(re.getGroupStart(0), equalTo(-1));
+  }
+
+  @Test
+  public void dfaLocatesMatchesWithBacktracking() {
+    RE re = REFactory.compile("b+(c)", false, false, false, false);
+    assertTrue(re.match("aabbbcd"));
+    assertThat(re.getGroupStart(0), equalTo(2));
+    assertThat(re.getGroupEnd(0), equalTo(6));
+    assertThat(re.getGroupStart(1), equalTo(5));
+    assertThat(re.subst("xbcybbc", "_", RE.REPLACE_ALL), equalTo("x_y_"));
+  }
+
+  @Test
+  public void backReferencesUseBacktracking() {
+    assertThat(LazyDFA.compile(new RECompiler().compile("(a)\\1"), false), nullValue());
+    assertThat(REFactory.compile("(a)\\1", false, false, false, false), instanceOf(ExtendedRE.class));
+  }
 }
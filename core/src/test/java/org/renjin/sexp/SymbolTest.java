@@ -1,7 +1,17 @@
 package org.renjin.sexp;
 
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.collect.Lists;
 import org.junit.Test;
 import org.renjin.sexp.Symbol;
 
@@ -37,6 +47,33 @@ public class SymbolTest {
     assertTrue(Symbol.get("*").isReservedWord());
   }
 
+  @Test
+  public void reservedHashBitsAreKept() {
+    assertThat(Symbol.get("if").hashBit(), equalTo(1));
+    assertThat(Symbol.get("any").hashBit(), equalTo(1 << 3));
+  }
+
+  @Test
+  public void concurrentLookupsReturnSameInstance() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Symbol>> futures = Lists.newArrayList();
+      for(int i = 0; i != 64; ++i) {
+        futures.add(executor.submit(new Callable<Symbol>() {
+          @Override
+          public Symbol call() throws Exception {
+            return Symbol.get(new String("concurrentlyInterned"));
+          }
+        }));
+      }
+      for(Future<Symbol> future : futures) {
+        assertThat(future.get(), sameInstance(Symbol.get("concurrentlyInterned")));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
   private void print(String name) {
     System.out.println(toBinaryString(Symbol.get(name).hashBit()) + " " + name);
   }
@@ -0,0 +1,128 @@
+package org.renjin.stats.internals;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+import org.renjin.EvalTestCase;
+import org.renjin.stats.internals.distributions.LecuyerCMRG;
+import org.renjin.stats.internals.distributions.Normal;
+import org.renjin.stats.internals.distributions.RNG;
+
+public class RNGTest extends EvalTestCase {
+
+  @Test
+  public void lecuyerMatchesR() {
+    assumingBasePackagesLoad();
+    eval("set.seed(123, kind = \"L'Ecuyer-CMRG\")");
+
+    assertThat(eval(".Random.seed"),
+        equalTo(c_i(407, 1806547166, -983674937, 643431772, 1162448557, -959247990, -133913213)));
+    assertThat(eval(".Internal(runif(3, 0, 1))"), closeTo(c(0.1663742155, 0.3898456579, 0.7599398487), 1e-9));
+  }
+
+  @Test
+  public void switchingToLecuyerSeedsFromPreviousGenerator() {
+    assumingBasePackagesLoad();
+    eval("set.seed(42, kind = \"Mersenne-Twister\")");
+    eval("u <- .Internal(runif(1, 0, 1))");
+
+    // Renjin's Mersenne-Twister is not seeded as R's is, so compare against the draw it makes
+    eval("set.seed(42, kind = \"Mersenne-Twister\")");
+    eval("RNGkind(\"L'Ecuyer-CMRG\")");
+    eval("switched <- .Random.seed");
+    eval("k <- floor(u * 4294967295)");
+    eval("set.seed(as.integer(if(k >= 2^31) k - 2^32 else k), kind = \"L'Ecuyer-CMRG\")");
+
+    assertThat(eval("identical(switched, .Random.seed)"), equalTo(c(true)));
+  }
+
+  @Test
+  public void repeatedRNGkindReseeds() {
+    assumingBasePackagesLoad();
+    eval("set.seed(42, kind = \"L'Ecuyer-CMRG\")");
+    eval("u <- .Internal(runif(1, 0, 1))");
+
+    // R seeds the generator from a draw of the current one, even if the kind is unchanged
+    eval("set.seed(42, kind = \"L'Ecuyer-CMRG\")");
+    eval("RNGkind(\"L'Ecuyer-CMRG\")");
+    eval("reseeded <- .Random.seed");
+    eval("k <- floor(u * 4294967295)");
+    eval("set.seed(as.integer(if(k >= 2^31) k - 2^32 else k))");
+
+    assertThat(eval("identical(reseeded, .Random.seed)"), equalTo(c(true)));
+  }
+
+  @Test
+  public void nextStream() {
+    assumingBasePackagesLoad();
+    eval("set.seed(123, kind = \"L'Ecuyer-CMRG\")");
+
+    assertThat(eval("nextRNGStream(.Random.seed)"),
+        equalTo(c_i(407, 1801422725, -2057975723, 1156894209, 1595475487, 210384600, -1655729657)));
+  }
+
+  @Test
+  public void assignedSeedIsUsed() {
+    assumingBasePackagesLoad();
+    eval("set.seed(42, kind = \"L'Ecuyer-CMRG\")");
+    eval("s <- nextRNGStream(.Random.seed)");
+    eval(".Random.seed <- s");
+    eval("x <- c(.Internal(runif(5, 0, 1)), .Internal(rnorm(5, 0, 1)), .Internal(rexp(5, 1)))");
+    eval(".Random.seed <- s");
+    eval("y <- c(.Internal(runif(5, 0, 1)), .Internal(rnorm(5, 0, 1)), .Internal(rexp(5, 1)))");
+
+    assertThat(eval("identical(x, y)"), equalTo(c(true)));
+    assertThat(eval("identical(.Random.seed, s)"), equalTo(c(false)));
+  }
+
+  @Test
+  public void seedIsSavedByAllGenerators() {
+    assumingBasePackagesLoad();
+    eval("set.seed(42, kind = \"L'Ecuyer-CMRG\")");
+    eval("s <- .Random.seed");
+    eval("x <- c(.Internal(rgamma(5, 2, 1)), .Internal(rpois(5, 3)), .Internal(rbinom(5, 10, 0.3)), .Internal(rbeta(5, 2, 3)))");
+    eval("t <- .Random.seed");
+    eval(".Random.seed <- s");
+    eval("y <- c(.Internal(rgamma(5, 2, 1)), .Internal(rpois(5, 3)), .Internal(rbinom(5, 10, 0.3)), .Internal(rbeta(5, 2, 3)))");
+
+    assertThat(eval("identical(x, y)"), equalTo(c(true)));
+    assertThat(eval("identical(s, t)"), equalTo(c(false)));
+    assertThat(eval("identical(.Random.seed, t)"), equalTo(c(true)));
+  }
+
+  @Test
+  public void bulkNormalsMatchSerial() {
+    LecuyerCMRG bulk = new LecuyerCMRG(99);
+    LecuyerCMRG serial = new LecuyerCMRG(99);
+
+    double[] x = new double[1500];
+    RNG.fillNormal(bulk, x, 10, 2);
+
+    for (int i = 0; i < x.length; i++) {
+      assertThat(x[i], equalTo(10 + 2 * Normal.norm_rand(serial)));
+    }
+    assertThat(bulk.unif_rand(), equalTo(serial.unif_rand()));
+  }
+
+  @Test
+  public void streamsAreReproducible() {
+    LecuyerCMRG first = new LecuyerCMRG(1);
+    LecuyerCMRG second = new LecuyerCMRG(1);
+
+    LecuyerCMRG[] a = new LecuyerCMRG[] { first.split(), first.split(), first.split() };
+    LecuyerCMRG[] b = new LecuyerCMRG[] { second.split(), second.split(), second.split() };
+
+    assertThat(a[1].getSeeds(), equalTo(LecuyerCMRG.nextStream(new LecuyerCMRG(1).getSeeds())));
+
+    // consume the streams in a different order
+    double[] x = new double[3];
+    double[] y = new double[3];
+    for (int i = 0; i < 3; i++) {
+      x[i] = a[i].unif_rand();
+      y[2 - i] = b[2 - i].unif_rand();
+    }
+    assertThat(x, equalTo(y));
+    assertThat(x[0] == x[1] || x[1] == x[2], equalTo(false));
+  }
+}
@@ -5,6 +5,7 @@ import static org.junit.Assert.assertThat;
 import java.io.IOException;
 import org.junit.Test;
 import org.renjin.EvalTestCase;
+import org.renjin.eval.EvalException;
 import org.renjin.sexp.DoubleVector;
 import org.renjin.sexp.IntVector;
 
@@ -42,4 +43,39 @@ public class SamplingTest extends EvalTestCase {
     eval("x<-c(1,2,3,4,5,10,9,8,7,6)");
     assertThat(eval("sort(sample(x, 10L))"), equalTo(c(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)));
   }
+
+  @Test
+  public void weightedWithoutReplacement() throws IOException {
+    assumingBasePackagesLoad();
+    eval("x <- sample(10L, 10L, FALSE, c(1, 2, 3, 4, 5, 6, 7, 8, 9, 10))");
+    assertThat(eval("sort(x)"), equalTo(c_i(1, 2, 3, 4, 5, 6, 7, 8, 9, 10)));
+    assertThat(eval("sample(3L, 2L, FALSE, c(0, 1, 1))[1] != 1L"), equalTo(c(true)));
+  }
+
+  @Test
+  public void largePopulationWithoutReplacement() throws IOException {
+    assumingBasePackagesLoad();
+    eval("x <- sample(1e8, 1000L)");
+    assertThat(eval("length(unique(x))"), equalTo(c_i(1000)));
+    assertThat(eval("all(x >= 1 & x <= 1e8)"), equalTo(c(true)));
+  }
+
+  @Test
+  public void weightedWithReplacementFrequencies() throws IOException {
+    assumingBasePackagesLoad();
+    eval("x <- sample(3L, 100000L, TRUE, c(1, 0, 3))");
+    assertThat(eval("sum(x == 2L)").asReal(), closeTo(0, 0));
+    assertThat(eval("mean(x == 3L)").asReal(), closeTo(0.75, 0.01));
+  }
+
+  @Test(expected = EvalException.class)
+  public void tooFewPositiveProbabilities() throws IOException {
+    assumingBasePackagesLoad();
+    eval("sample(3L, 3L, FALSE, c(1, 0, 1))");
+  }
+
+  @Test(expected = EvalException.class)
+  public void emptyPopulationWithReplacement() throws IOException {
+    eval(".Internal(sample(0L, 2L, TRUE, NULL))");
+  }
 }
@@ -19,7 +19,7 @@ import java.util.List;
 @Command(name = "compile", description = "Compile C/Fortran files to a JVM class file")
 public class CompileCommand implements Runnable {
 
-  @Option(name = "--jimple-output-dir", description = "Set the directory where intermediate jimple files are written")
+  @Option(name = "--jimple-output-dir", description = "Set the directory where intermediate jimple files are written, in verbose mode or when compiling with Soot")
   public File jimpleOutputDirectory;
 
   @Option(name = "-o", description = "Output directory for class files", required = true)
@@ -38,6 +38,12 @@ public class CompileCommand implements Runnable {
   @Option(name = "-v", description = "Verbose mode")
   public boolean verbose;
 
+  @Option(name = "--soot", description = "Compile the intermediate jimple with Soot rather than assembling class files directly")
+  public boolean useSoot;
+
+  @Option(name = "--allow-soot-fallback", description = "Compile with Soot rather than fail if the class files cannot be assembled directly")
+  public boolean allowSootFallback;
+
   @Option(name = "-I", description = "Add include directory for GCC")
   public List<String> includeDirs = Lists.newArrayList();
 
@@ -70,6 +76,8 @@ public class CompileCommand implements Runnable {
     }
     compiler.setOutputDirectory(outputDirectory);
     compiler.setVerbose(verbose);
+    compiler.setUseSoot(useSoot);
+    compiler.setStrict(!allowSootFallback);
     compiler.setPackageName(packageName);
     compiler.setClassName(className);
     
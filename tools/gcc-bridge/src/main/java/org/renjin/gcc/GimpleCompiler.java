@@ -3,10 +3,12 @@ package org.renjin.gcc;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.io.Files;
 import org.renjin.gcc.gimple.CallingConvention;
 import org.renjin.gcc.gimple.CallingConventions;
 import org.renjin.gcc.gimple.GimpleCompilationUnit;
 import org.renjin.gcc.gimple.GimpleFunction;
+import org.renjin.gcc.jimple.JimpleAssembler;
 import org.renjin.gcc.jimple.JimpleClassBuilder;
 import org.renjin.gcc.jimple.JimpleOutput;
 import org.renjin.gcc.translate.FunctionTranslator;
@@ -18,14 +20,22 @@ import org.renjin.gcc.translate.xform.VoidPointerTypeDeducer;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * Compiles a set of Gimple functions to jvm class file
- * 
+ *
+ * <p>The translated classes are assembled directly to bytecode by the {@link JimpleAssembler}.
+ * Soot is only used if {@link #setUseSoot(boolean)} is set. A failure of the assembler is
+ * an error, unless {@link #setStrict(boolean) strict} mode is turned off, in which case it is
+ * logged as an error and the classes are compiled with Soot instead.
  */
 public class GimpleCompiler  {
 
@@ -39,6 +49,10 @@ public class GimpleCompiler  {
 
   private boolean verbose;
 
+  private boolean useSoot;
+
+  private boolean strict = true;
+
   private List<File> classPaths = Lists.newArrayList();
 
   private static Logger LOGGER = Logger.getLogger(GimpleCompiler.class.getName());
@@ -81,9 +95,43 @@ public class GimpleCompiler  {
 
     JimpleOutput output = translate(units);
 
-    output.write(jimpleOutputDirectory);
+    if(verbose || useSoot) {
+      output.write(jimpleOutputDirectory);
+    }
+
+    if(!useSoot) {
+      long startTime = System.nanoTime();
+      try {
+        writeClasses(new JimpleAssembler(compileClassLoader()).assemble(output));
+        LOGGER.info(String.format("Assembled %d classes in %.0f ms", output.getClassNames().size(),
+            (System.nanoTime() - startTime) / 1e6));
+        return;
+      } catch(RuntimeException e) {
+        // the assembler only handles the Jimple which the translator is known to emit:
+        // anything it fails on, including bugs in the assembler itself, is an error unless
+        // the caller has asked for Soot to compile such classes instead
+        if(strict) {
+          throw e;
+        }
+        LOGGER.log(Level.SEVERE, "Could not assemble bytecode directly, falling back to Soot", e);
+        if(!verbose) {
+          output.write(jimpleOutputDirectory);
+        }
+      }
+    }
 
+    long startTime = System.nanoTime();
     compileJimple(output.getClassNames());
+    LOGGER.info(String.format("Compiled %d classes with Soot in %.0f ms", output.getClassNames().size(),
+        (System.nanoTime() - startTime) / 1e6));
+  }
+
+  private void writeClasses(Map<String, byte[]> classes) throws IOException {
+    for (Map.Entry<String, byte[]> clazz : classes.entrySet()) {
+      File classFile = new File(outputDirectory, clazz.getKey().replace('.', File.separatorChar) + ".class");
+      classFile.getParentFile().mkdirs();
+      Files.write(clazz.getValue(), classFile);
+    }
   }
 
   public boolean isVerbose() {
@@ -94,6 +142,30 @@ public class GimpleCompiler  {
     this.verbose = verbose;
   }
 
+  public boolean isUseSoot() {
+    return useSoot;
+  }
+
+  /**
+   * @param useSoot true if the translated Jimple should always be compiled by Soot, rather
+   *                than assembled directly to bytecode.
+   */
+  public void setUseSoot(boolean useSoot) {
+    this.useSoot = useSoot;
+  }
+
+  public boolean isStrict() {
+    return strict;
+  }
+
+  /**
+   * @param strict true if a failure to assemble the translated Jimple should be thrown,
+   *               rather than compiling it with Soot instead. True by default.
+   */
+  public void setStrict(boolean strict) {
+    this.strict = strict;
+  }
+
   public void addSootClassPaths(List<File> classPaths) {
     this.classPaths.addAll(classPaths);
   }
@@ -123,6 +195,19 @@ public class GimpleCompiler  {
     providedTypes.put(typeName, type);
   }
 
+  /**
+   * @return a class loader for the classes referenced by the translated classes, which the
+   * assembler needs to compute stack map frames
+   */
+  private ClassLoader compileClassLoader() throws MalformedURLException {
+    List<URL> urls = Lists.newArrayList();
+    urls.add(outputDirectory.toURI().toURL());
+    for (File path : classPaths) {
+      urls.add(path.toURI().toURL());
+    }
+    return new URLClassLoader(urls.toArray(new URL[urls.size()]), getClass().getClassLoader());
+  }
+
   private String sootClassPath() {
     StringBuilder paths = new StringBuilder();
     paths.append(jimpleOutputDirectory.getAbsolutePath());
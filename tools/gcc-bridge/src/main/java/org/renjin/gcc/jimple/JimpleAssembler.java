@@ -0,0 +1,1473 @@
+package org.renjin.gcc.jimple;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * Assembles the classes built by the translator directly to JVM bytecode, without
+ * writing Jimple sources to disk and compiling them with Soot.
+ *
+ * <p>Only the subset of Jimple which the translator emits is supported. Statements
+ * outside of this subset throw an {@link UnsupportedOperationException}, so that
+ * the caller can report the failure or fall back to Soot.
+ *
+ * <p>Computing stack map frames requires the common super class of the types merged at
+ * branches. The translated classes all extend {@code Object} directly, and the other classes
+ * they reference are loaded from the class loader given to the assembler. A class which cannot
+ * be loaded is an error, rather than being assumed to extend {@code Object}, which could
+ * produce a class that fails verification.
+ */
+public class JimpleAssembler {
+
+  private static final Map<String, Type> PRIMITIVES = ImmutableMap.<String, Type>builder()
+      .put("void", Type.VOID_TYPE)
+      .put("boolean", Type.BOOLEAN_TYPE)
+      .put("byte", Type.BYTE_TYPE)
+      .put("char", Type.CHAR_TYPE)
+      .put("short", Type.SHORT_TYPE)
+      .put("int", Type.INT_TYPE)
+      .put("long", Type.LONG_TYPE)
+      .put("float", Type.FLOAT_TYPE)
+      .put("double", Type.DOUBLE_TYPE)
+      .build();
+
+  private static final Type OBJECT_TYPE = Type.getType(Object.class);
+  private static final Type STRING_TYPE = Type.getType(String.class);
+
+  /**
+   * Conversions between int, long, float and double, indexed by
+   * {@link #conversionIndex(Type)} of the source and target types
+   */
+  private static final int[][] CONVERSIONS = new int[][] {
+      { NOP, I2L, I2F, I2D },
+      { L2I, NOP, L2F, L2D },
+      { F2I, F2L, NOP, F2D },
+      { D2I, D2L, D2F, NOP } };
+
+  private static final String[] RELATIONAL_OPERATORS = { "==", "!=", "<", ">=", ">", "<=" };
+
+  private static final String[] OPERATORS = { "cmpl", "cmpg", "cmp", ">>>", "<<", ">>", "==", "!=", "<=", ">=",
+      "<", ">", "+", "-", "*", "/", "%", "&", "|", "^" };
+
+  private static final String[] INVOKE_KINDS = { "staticinvoke", "virtualinvoke", "interfaceinvoke",
+      "specialinvoke" };
+
+  private static final int[] INVOKE_OPCODES = { INVOKESTATIC, INVOKEVIRTUAL, INVOKEINTERFACE, INVOKESPECIAL };
+
+  private final ClassLoader classLoader;
+
+  /**
+   * The internal names of the classes being assembled, which cannot be loaded yet
+   */
+  private final Set<String> assembledClasses = Sets.newHashSet();
+
+  public JimpleAssembler() {
+    this(JimpleAssembler.class.getClassLoader());
+  }
+
+  /**
+   * @param classLoader the loader of the classes referenced by the translated classes
+   */
+  public JimpleAssembler(ClassLoader classLoader) {
+    this.classLoader = classLoader;
+  }
+
+  /**
+   * @return the bytecode of each class in {@code output}, keyed by fully-qualified class name
+   * @throws UnsupportedOperationException if a class contains Jimple which cannot be assembled
+   */
+  public Map<String, byte[]> assemble(JimpleOutput output) {
+    for (AbstractClassBuilder classBuilder : output.getClasses()) {
+      assembledClasses.add(internalName(classBuilder.getFqcn()));
+    }
+    Map<String, byte[]> classes = Maps.newLinkedHashMap();
+    for (AbstractClassBuilder classBuilder : output.getClasses()) {
+      try {
+        classes.put(classBuilder.getFqcn(), assemble(classBuilder));
+      } catch (UnsupportedOperationException e) {
+        throw new UnsupportedOperationException("Could not assemble " + classBuilder.getFqcn() + ": " +
+            e.getMessage(), e);
+      } catch (RuntimeException e) {
+        throw new IllegalStateException("Exception assembling " + classBuilder.getFqcn(), e);
+      }
+    }
+    return classes;
+  }
+
+  public byte[] assemble(AbstractClassBuilder classBuilder) {
+    assembledClasses.add(internalName(classBuilder.getFqcn()));
+
+    ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES) {
+      @Override
+      protected String getCommonSuperClass(String type1, String type2) {
+        return commonSuperClass(type1, type2);
+      }
+    };
+
+    String className = internalName(classBuilder.getFqcn());
+    if (classBuilder instanceof JimpleInterfaceBuilder) {
+      cw.visit(V1_6, ACC_PUBLIC | ACC_INTERFACE | ACC_ABSTRACT, className, null, OBJECT_TYPE.getInternalName(),
+          internalNames(((JimpleInterfaceBuilder) classBuilder).getSuperInterfaces()));
+    } else {
+      JimpleClassBuilder jimpleClass = (JimpleClassBuilder) classBuilder;
+      cw.visit(V1_6, ACC_PUBLIC | ACC_SUPER, className, null, OBJECT_TYPE.getInternalName(),
+          internalNames(jimpleClass.getInterfaces()));
+      writeConstructor(cw);
+      if (jimpleClass.getStaticInitializer().hasBody()) {
+        new MethodAssembler(cw, jimpleClass.getStaticInitializer()).assemble();
+      }
+    }
+
+    for (JimpleFieldBuilder field : classBuilder.getFields()) {
+      cw.visitField(access(field.getModifiers()), field.getName(), type(field.getType().toString()).getDescriptor(),
+          null, null).visitEnd();
+    }
+
+    for (JimpleMethodBuilder method : classBuilder.getMethods()) {
+      new MethodAssembler(cw, method).assemble();
+    }
+
+    cw.visitEnd();
+
+    try {
+      return cw.toByteArray();
+    } catch (RuntimeException e) {
+      throw new UnsupportedOperationException("Could not compute stack map frames", e);
+    }
+  }
+
+  private String commonSuperClass(String type1, String type2) {
+    if (assembledClasses.contains(type1) || assembledClasses.contains(type2)) {
+      return OBJECT_TYPE.getInternalName();
+    }
+    Class<?> class1 = loadClass(type1);
+    Class<?> class2 = loadClass(type2);
+    if (class1.isAssignableFrom(class2)) {
+      return type1;
+    }
+    if (class2.isAssignableFrom(class1)) {
+      return type2;
+    }
+    if (class1.isInterface() || class2.isInterface()) {
+      return OBJECT_TYPE.getInternalName();
+    }
+    do {
+      class1 = class1.getSuperclass();
+    } while (!class1.isAssignableFrom(class2));
+    return internalName(class1.getName());
+  }
+
+  private Class<?> loadClass(String internalName) {
+    try {
+      return Class.forName(internalName.replace('/', '.'), false, classLoader);
+    } catch (ClassNotFoundException e) {
+      throw new UnsupportedOperationException("Could not load " + internalName +
+          " to compute stack map frames", e);
+    }
+  }
+
+  private void writeConstructor(ClassWriter cw) {
+    MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+    mv.visitCode();
+    mv.visitVarInsn(ALOAD, 0);
+    mv.visitMethodInsn(INVOKESPECIAL, OBJECT_TYPE.getInternalName(), "<init>", "()V");
+    mv.visitInsn(RETURN);
+    mv.visitMaxs(1, 1);
+    mv.visitEnd();
+  }
+
+  private static String internalName(String className) {
+    return className.replace('.', '/');
+  }
+
+  private static String[] internalNames(List<String> classNames) {
+    String[] names = new String[classNames.size()];
+    for (int i = 0; i != names.length; ++i) {
+      names[i] = internalName(classNames.get(i));
+    }
+    return names;
+  }
+
+  /**
+   * @return the JVM type of a Jimple type name, such as {@code int}, {@code double[]}
+   * or {@code org.renjin.gcc.runtime.DoublePtr}
+   */
+  static Type type(String jimpleType) {
+    String name = jimpleType.trim();
+    StringBuilder descriptor = new StringBuilder();
+    while (name.endsWith("[]")) {
+      descriptor.append('[');
+      name = name.substring(0, name.length() - 2);
+    }
+    Type elementType = PRIMITIVES.get(name);
+    if (elementType == null) {
+      elementType = Type.getObjectType(internalName(name));
+    }
+    if (descriptor.length() == 0) {
+      return elementType;
+    }
+    return Type.getType(descriptor.append(elementType.getDescriptor()).toString());
+  }
+
+  private static int access(Collection<JimpleModifiers> modifiers) {
+    int access = 0;
+    for (JimpleModifiers modifier : modifiers) {
+      switch (modifier) {
+        case PUBLIC:
+          access |= ACC_PUBLIC;
+          break;
+        case PRIVATE:
+          access |= ACC_PRIVATE;
+          break;
+        case STATIC:
+          access |= ACC_STATIC;
+          break;
+        case FINAL:
+          access |= ACC_FINAL;
+          break;
+        case ABSTRACT:
+          access |= ACC_ABSTRACT;
+          break;
+      }
+    }
+    return access;
+  }
+
+  private static boolean isPrimitive(Type type) {
+    return type.getSort() != Type.OBJECT && type.getSort() != Type.ARRAY && type.getSort() != Type.VOID;
+  }
+
+  /**
+   * @return the index of the computational type of {@code type} in {@link #CONVERSIONS}
+   */
+  private static int conversionIndex(Type type) {
+    switch (type.getSort()) {
+      case Type.LONG:
+        return 1;
+      case Type.FLOAT:
+        return 2;
+      case Type.DOUBLE:
+        return 3;
+      default:
+        return 0;
+    }
+  }
+
+  private static Type componentType(Type arrayType) {
+    if (arrayType.getSort() != Type.ARRAY) {
+      throw new UnsupportedOperationException("Expected array type, found " + arrayType);
+    }
+    return Type.getType(arrayType.getDescriptor().substring(1));
+  }
+
+  private static class Local {
+    private final Type type;
+    private final int index;
+
+    private Local(Type type, int index) {
+      this.type = type;
+      this.index = index;
+    }
+  }
+
+  /**
+   * A reference to a field or method in the form {@code <owner: type name>}
+   * or {@code <owner: returnType name(parameterTypes)>}
+   */
+  private static class Signature {
+    private String owner;
+    private String name;
+    private Type type;
+    private Type[] parameterTypes;
+
+    public boolean isMethod() {
+      return parameterTypes != null;
+    }
+
+    public String descriptor() {
+      if (isMethod()) {
+        return Type.getMethodDescriptor(type, parameterTypes);
+      } else {
+        return type.getDescriptor();
+      }
+    }
+  }
+
+  private class MethodAssembler {
+    private final JimpleMethodBuilder method;
+    private final MethodVisitor mv;
+    private final Type returnType;
+
+    private final Map<String, Local> locals = Maps.newHashMap();
+    private final Map<String, Label> labels = Maps.newHashMap();
+
+    private MethodAssembler(ClassWriter cw, JimpleMethodBuilder method) {
+      this.method = method;
+      this.returnType = type(method.getReturnType().toString());
+
+      Type[] parameterTypes = new Type[method.getParams().size()];
+      for (int i = 0; i != parameterTypes.length; ++i) {
+        parameterTypes[i] = type(method.getParams().get(i).getType().toString());
+      }
+      this.mv = cw.visitMethod(access(method.getModifiers()), method.getName(),
+          Type.getMethodDescriptor(returnType, parameterTypes), null, null);
+    }
+
+    public void assemble() {
+      if (method.getModifiers().contains(JimpleModifiers.ABSTRACT)) {
+        mv.visitEnd();
+        return;
+      }
+      mv.visitCode();
+
+      int nextIndex = method.getModifiers().contains(JimpleModifiers.STATIC) ? 0 : 1;
+      for (JimpleParam param : method.getParams()) {
+        nextIndex = declare(param, nextIndex);
+      }
+
+      // Jimple locals are all initialized on entry, as the translator does
+      // not guarantee that each is assigned before it is read
+      for (JimpleVarDecl decl : method.getVarDecls()) {
+        if (!(decl instanceof JimpleParam)) {
+          nextIndex = declare(decl, nextIndex);
+          Local local = locals.get(decl.getName());
+          pushDefault(local.type);
+          mv.visitVarInsn(local.type.getOpcode(ISTORE), local.index);
+        }
+      }
+
+      boolean fallsThrough = true;
+      for (JimpleBodyElement element : method.getBody()) {
+        fallsThrough = assemble(element);
+      }
+      if (fallsThrough) {
+        // the end of a non-void method is normally unreachable, and will be
+        // removed when frames are computed
+        if (returnType.getSort() == Type.VOID) {
+          mv.visitInsn(RETURN);
+        } else {
+          pushDefault(returnType);
+          mv.visitInsn(returnType.getOpcode(IRETURN));
+        }
+      }
+
+      mv.visitMaxs(0, 0);
+      mv.visitEnd();
+    }
+
+    private int declare(JimpleVarDecl decl, int index) {
+      Type type = type(decl.getType().toString());
+      Local existing = locals.get(decl.getName());
+      if (existing != null) {
+        if (!existing.type.equals(type)) {
+          throw new UnsupportedOperationException("Local " + decl.getName() + " is declared as both " +
+              existing.type + " and " + type);
+        }
+        return index;
+      }
+      locals.put(decl.getName(), new Local(type, index));
+      return index + type.getSize();
+    }
+
+    private Label label(String name) {
+      Label label = labels.get(name);
+      if (label == null) {
+        label = new Label();
+        labels.put(name, label);
+      }
+      return label;
+    }
+
+    /**
+     * @return true if control can fall through to the next element
+     */
+    private boolean assemble(JimpleBodyElement element) {
+      if (element instanceof JimpleLabel) {
+        mv.visitLabel(label(((JimpleLabel) element).getName()));
+        return true;
+      } else if (element instanceof JimpleSwitchStatement) {
+        switchStatement((JimpleSwitchStatement) element);
+        return false;
+      } else if (element instanceof JimpleStatement) {
+        return statement(((JimpleStatement) element).getText());
+      } else {
+        throw new UnsupportedOperationException("Unsupported element " + element.getClass().getName());
+      }
+    }
+
+    private boolean statement(String text) {
+      Parser parser = new Parser(text);
+      if (parser.keyword("goto")) {
+        String target = parser.identifier();
+        parser.end();
+        mv.visitJumpInsn(GOTO, label(target));
+        return false;
+
+      } else if (parser.keyword("return")) {
+        if (parser.atEnd()) {
+          mv.visitInsn(RETURN);
+        } else {
+          Value value = parser.expr();
+          parser.end();
+          push(value, returnType);
+          mv.visitInsn(returnType.getOpcode(IRETURN));
+        }
+        return false;
+
+      } else if (parser.keyword("if")) {
+        Value condition = parser.expr();
+        if (!parser.keyword("goto")) {
+          throw new UnsupportedOperationException("Expected goto in: " + text);
+        }
+        String target = parser.identifier();
+        parser.end();
+        branch(condition, label(target));
+        return true;
+
+      } else {
+        Value lhs = parser.expr();
+        if (parser.atEnd()) {
+          if (!(lhs instanceof Invoke)) {
+            throw new UnsupportedOperationException("Unsupported statement: " + text);
+          }
+          Type resultType = lhs.load(null);
+          if (resultType.getSize() == 2) {
+            mv.visitInsn(POP2);
+          } else if (resultType.getSize() == 1) {
+            mv.visitInsn(POP);
+          }
+        } else {
+          parser.expect("=");
+          Value rhs = parser.expr();
+          parser.end();
+          if (!(lhs instanceof StorableValue)) {
+            throw new UnsupportedOperationException("Cannot assign to " + lhs + " in: " + text);
+          }
+          ((StorableValue) lhs).store(rhs);
+        }
+        return true;
+      }
+    }
+
+    private void switchStatement(JimpleSwitchStatement statement) {
+      Parser parser = new Parser(statement.getSwitchExpr().toString());
+      Value value = parser.expr();
+      parser.end();
+      push(value, Type.INT_TYPE);
+
+      Label defaultLabel = null;
+      TreeMap<Integer, Label> cases = new TreeMap<Integer, Label>();
+      for (JimpleSwitchStatement.Branch branch : statement.getBranches()) {
+        if (branch.isDefault()) {
+          defaultLabel = label(branch.getTarget());
+        } else if (!cases.containsKey(branch.getValue())) {
+          cases.put(branch.getValue(), label(branch.getTarget()));
+        }
+      }
+      Label fallThrough = null;
+      if (defaultLabel == null) {
+        fallThrough = new Label();
+        defaultLabel = fallThrough;
+      }
+
+      int[] keys = new int[cases.size()];
+      Label[] targets = new Label[cases.size()];
+      int i = 0;
+      for (Map.Entry<Integer, Label> entry : cases.entrySet()) {
+        keys[i] = entry.getKey();
+        targets[i] = entry.getValue();
+        i++;
+      }
+      mv.visitLookupSwitchInsn(defaultLabel, keys, targets);
+
+      if (fallThrough != null) {
+        mv.visitLabel(fallThrough);
+      }
+    }
+
+    private void branch(Value condition, Label target) {
+      if (!(condition instanceof BinaryOp)) {
+        throw new UnsupportedOperationException("Unsupported condition " + condition);
+      }
+      BinaryOp comparison = (BinaryOp) condition;
+      int operator = Arrays.asList(RELATIONAL_OPERATORS).indexOf(comparison.operator);
+      if (operator == -1) {
+        throw new UnsupportedOperationException("Unsupported condition " + condition);
+      }
+      Value a = comparison.a;
+      Value b = comparison.b;
+
+      if (isNull(a) || isNull(b) || !isPrimitive(comparison.operandType())) {
+        if (operator > 1) {
+          throw new UnsupportedOperationException("Unsupported condition " + condition);
+        }
+        if (isNull(b)) {
+          a.load(null);
+          mv.visitJumpInsn(operator == 0 ? IFNULL : IFNONNULL, target);
+        } else if (isNull(a)) {
+          b.load(null);
+          mv.visitJumpInsn(operator == 0 ? IFNULL : IFNONNULL, target);
+        } else {
+          a.load(null);
+          b.load(null);
+          mv.visitJumpInsn(IF_ACMPEQ + operator, target);
+        }
+        return;
+      }
+
+      Type type = comparison.operandType();
+      push(a, type);
+      switch (type.getSort()) {
+        case Type.LONG:
+          push(b, type);
+          mv.visitInsn(LCMP);
+          mv.visitJumpInsn(IFEQ + operator, target);
+          break;
+        case Type.FLOAT:
+        case Type.DOUBLE:
+          push(b, type);
+          // NaN compares as false with <, <=, > and >=
+          boolean lessThan = comparison.operator.startsWith("<");
+          if (type.getSort() == Type.FLOAT) {
+            mv.visitInsn(lessThan ? FCMPG : FCMPL);
+          } else {
+            mv.visitInsn(lessThan ? DCMPG : DCMPL);
+          }
+          mv.visitJumpInsn(IFEQ + operator, target);
+          break;
+        default:
+          if (isZero(b)) {
+            mv.visitJumpInsn(IFEQ + operator, target);
+          } else {
+            push(b, type);
+            mv.visitJumpInsn(IF_ICMPEQ + operator, target);
+          }
+          break;
+      }
+    }
+
+    private boolean isNull(Value value) {
+      return value instanceof Constant && ((Constant) value).value == null;
+    }
+
+    private boolean isZero(Value value) {
+      return value instanceof Constant &&
+          ((Constant) value).value instanceof Number &&
+          ((Number) ((Constant) value).value).doubleValue() == 0;
+    }
+
+    /**
+     * Pushes {@code value} onto the stack, converting it to {@code type} if it is primitive
+     */
+    private void push(Value value, Type type) {
+      Type actualType = value.load(type);
+      if (type != null && isPrimitive(type) && isPrimitive(actualType)) {
+        convert(actualType, type);
+      }
+    }
+
+    private void convert(Type from, Type to) {
+      if (from.equals(to)) {
+        return;
+      }
+      int conversion = CONVERSIONS[conversionIndex(from)][conversionIndex(to)];
+      if (conversion != NOP) {
+        mv.visitInsn(conversion);
+      }
+      switch (to.getSort()) {
+        case Type.BYTE:
+          mv.visitInsn(I2B);
+          break;
+        case Type.CHAR:
+          mv.visitInsn(I2C);
+          break;
+        case Type.SHORT:
+          mv.visitInsn(I2S);
+          break;
+      }
+    }
+
+    private void pushDefault(Type type) {
+      switch (type.getSort()) {
+        case Type.VOID:
+          break;
+        case Type.LONG:
+          mv.visitInsn(LCONST_0);
+          break;
+        case Type.FLOAT:
+          mv.visitInsn(FCONST_0);
+          break;
+        case Type.DOUBLE:
+          mv.visitInsn(DCONST_0);
+          break;
+        case Type.OBJECT:
+        case Type.ARRAY:
+          mv.visitInsn(ACONST_NULL);
+          break;
+        default:
+          mv.visitInsn(ICONST_0);
+          break;
+      }
+    }
+
+    private void pushInt(int value) {
+      if (value >= -1 && value <= 5) {
+        mv.visitInsn(ICONST_0 + value);
+      } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+        mv.visitIntInsn(BIPUSH, value);
+      } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+        mv.visitIntInsn(SIPUSH, value);
+      } else {
+        mv.visitLdcInsn(value);
+      }
+    }
+
+    private void pushLong(long value) {
+      if (value == 0L || value == 1L) {
+        mv.visitInsn(LCONST_0 + (int) value);
+      } else {
+        mv.visitLdcInsn(value);
+      }
+    }
+
+    private void pushFloat(float value) {
+      if (Float.floatToIntBits(value) == 0 || value == 1f || value == 2f) {
+        mv.visitInsn(FCONST_0 + (int) value);
+      } else {
+        mv.visitLdcInsn(value);
+      }
+    }
+
+    private void pushDouble(double value) {
+      if (Double.doubleToLongBits(value) == 0L || value == 1d) {
+        mv.visitInsn(DCONST_0 + (int) value);
+      } else {
+        mv.visitLdcInsn(value);
+      }
+    }
+
+    private abstract class Value {
+
+      /**
+       * @return the type of this value, or {@code null} for the {@code null} constant
+       */
+      public abstract Type type();
+
+      /**
+       * Pushes this value onto the stack.
+       *
+       * @param expectedType the type required by the context, which is used to type constants,
+       *                     or {@code null} if there is no requirement.
+       * @return the type of the value pushed
+       */
+      public abstract Type load(Type expectedType);
+    }
+
+    private abstract class StorableValue extends Value {
+
+      public abstract void store(Value rhs);
+    }
+
+    private class Constant extends Value {
+      private final Type type;
+      private final Object value;
+
+      private Constant(Type type, Object value) {
+        this.type = type;
+        this.value = value;
+      }
+
+      @Override
+      public Type type() {
+        return type;
+      }
+
+      @Override
+      public Type load(Type expectedType) {
+        if (value == null) {
+          mv.visitInsn(ACONST_NULL);
+          return expectedType == null || isPrimitive(expectedType) ? OBJECT_TYPE : expectedType;
+        }
+        if (value instanceof String) {
+          mv.visitLdcInsn(value);
+          return type;
+        }
+        Type pushedType = expectedType != null && isPrimitive(expectedType) ? expectedType : type;
+        Number number = (Number) value;
+        switch (pushedType.getSort()) {
+          case Type.LONG:
+            pushLong(number.longValue());
+            break;
+          case Type.FLOAT:
+            pushFloat(number.floatValue());
+            break;
+          case Type.DOUBLE:
+            pushDouble(number.doubleValue());
+            break;
+          default:
+            pushInt(number.intValue());
+            break;
+        }
+        return pushedType;
+      }
+
+      @Override
+      public String toString() {
+        return String.valueOf(value);
+      }
+    }
+
+    private class LocalRef extends StorableValue {
+      private final String name;
+      private final Local local;
+
+      private LocalRef(String name) {
+        this.name = name;
+        this.local = locals.get(name);
+        if (local == null) {
+          throw new UnsupportedOperationException("Undeclared local " + name);
+        }
+      }
+
+      @Override
+      public Type type() {
+        return local.type;
+      }
+
+      @Override
+      public Type load(Type expectedType) {
+        mv.visitVarInsn(local.type.getOpcode(ILOAD), local.index);
+        return local.type;
+      }
+
+      @Override
+      public void store(Value rhs) {
+        push(rhs, local.type);
+        mv.visitVarInsn(local.type.getOpcode(ISTORE), local.index);
+      }
+
+      @Override
+      public String toString() {
+        return name;
+      }
+    }
+
+    private class ArrayElement extends StorableValue {
+      private final Value array;
+      private final Value index;
+
+      private ArrayElement(Value array, Value index) {
+        this.array = array;
+        this.index = index;
+      }
+
+      @Override
+      public Type type() {
+        return componentType(array.type());
+      }
+
+      @Override
+      public Type load(Type expectedType) {
+        Type type = type();
+        array.load(null);
+        push(index, Type.INT_TYPE);
+        mv.visitInsn(type.getOpcode(IALOAD));
+        return type;
+      }
+
+      @Override
+      public void store(Value rhs) {
+        Type type = type();
+        array.load(null);
+        push(index, Type.INT_TYPE);
+        push(rhs, type);
+        mv.visitInsn(type.getOpcode(IASTORE));
+      }
+
+      @Override
+      public String toString() {
+        return array + "[" + index + "]";
+      }
+    }
+
+    private class FieldRef extends StorableValue {
+      private final Value instance;
+      private final Signature field;
+
+      private FieldRef(Value instance, Signature field) {
+        if (field.isMethod()) {
+          throw new UnsupportedOperationException("Expected field, found method " + field.name);
+        }
+        this.instance = instance;
+        this.field = field;
+      }
+
+      @Override
+      public Type type() {
+        return field.type;
+      }
+
+      @Override
+      public Type load(Type expectedType) {
+        if (instance == null) {
+          mv.visitFieldInsn(GETSTATIC, field.owner, field.name, field.descriptor());
+        } else {
+          instance.load(null);
+          mv.visitFieldInsn(GETFIELD, field.owner, field.name, field.descriptor());
+        }
+        return field.type;
+      }
+
+      @Override
+      public void store(Value rhs) {
+        if (instance == null) {
+          push(rhs, field.type);
+          mv.visitFieldInsn(PUTSTATIC, field.owner, field.name, field.descriptor());
+        } else {
+          instance.load(null);
+          push(rhs, field.type);
+          mv.visitFieldInsn(PUTFIELD, field.owner, field.name, field.descriptor());
+        }
+      }
+
+      @Override
+      public String toString() {
+        return (instance == null ? "" : instance + ".") + field.owner + "." + field.name;
+      }
+    }
+
+    private class BinaryOp extends Value {
+      private final String operator;
+      private final Value a;
+      private final Value b;
+
+      private BinaryOp(String operator, Value a, Value b) {
+        this.operator = operator;
+        this.a = a;
+        this.b = b;
+      }
+
+      /**
+       * @return the type of the operands, taken from the operand which is not a constant,
+       * as Jimple writes constants such as {@code 0} without regard to the type of the operation.
+       */
+      private Type operandType() {
+        if (!(a instanceof Constant)) {
+          return a.type();
+        } else if (!(b instanceof Constant)) {
+          return b.type();
+        } else if (a.type() != null) {
+          return a.type();
+        } else if (b.type() != null) {
+          return b.type();
+        } else {
+          return OBJECT_TYPE;
+        }
+      }
+
+      private boolean isShift() {
+        return operator.equals("<<") || operator.equals(">>") || operator.equals(">>>");
+      }
+
+      @Override
+      public Type type() {
+        if (operator.startsWith("cmp")) {
+          return Type.INT_TYPE;
+        } else if (isShift()) {
+          return a.type();
+        } else {
+          return operandType();
+        }
+      }
+
+      @Override
+      public Type load(Type expectedType) {
+        if (operator.startsWith("cmp")) {
+          Type type = operandType();
+          push(a, type);
+          push(b, type);
+          switch (type.getSort()) {
+            case Type.LONG:
+              mv.visitInsn(LCMP);
+              break;
+            case Type.FLOAT:
+              mv.visitInsn(operator.equals("cmpg") ? FCMPG : FCMPL);
+              break;
+            case Type.DOUBLE:
+              mv.visitInsn(operator.equals("cmpg") ? DCMPG : DCMPL);
+              break;
+            default:
+              throw new UnsupportedOperationException(operator + " on " + type);
+          }
+          return Type.INT_TYPE;
+        }
+
+        Type type = isShift() ? a.type() : operandType();
+        if (a instanceof Constant && (isShift() || b instanceof Constant) &&
+            expectedType != null && isPrimitive(expectedType)) {
+          type = expectedType;
+        }
+        push(a, type);
+        push(b, isShift() ? Type.INT_TYPE : type);
+        mv.visitInsn(type.getOpcode(opcode()));
+        return type;
+      }
+
+      private int opcode() {
+        if (operator.equals("+")) {
+          return IADD;
+        } else if (operator.equals("-")) {
+          return ISUB;
+        } else if (operator.equals("*")) {
+          return IMUL;
+        } else if (operator.equals("/")) {
+          return IDIV;
+        } else if (operator.equals("%")) {
+          return IREM;
+        } else if (operator.equals("&")) {
+          return IAND;
+        } else if (operator.equals("|")) {
+          return IOR;
+        } else if (operator.equals("^")) {
+          return IXOR;
+        } else if (operator.equals("<<")) {
+          return ISHL;
+        } else if (operator.equals(">>")) {
+          return ISHR;
+        } else if (operator.equals(">>>")) {
+          return IUSHR;
+        } else {
+          throw new UnsupportedOperationException("Operator " + operator + " cannot be used as a value");
+        }
+      }
+
+      @Override
+      public String toString() {
+        return a + " " + operator + " " + b;
+      }
+    }
+
+    private class Neg extends Value {
+      private final Value operand;
+
+      private Neg(Value operand) {
+        this.operand = operand;
+      }
+
+      @Override
+      public Type type() {
+        return operand.type();
+      }
+
+      @Override
+      public Type load(Type expectedType) {
+        Type type = operand instanceof Constant && expectedType != null ? expectedType : operand.type();
+        push(operand, type);
+        mv.visitInsn(type.getOpcode(INEG));
+        return type;
+      }
+    }
+
+    private class Cast extends Value {
+      private final Type type;
+      private final Value operand;
+
+      private Cast(Type type, Value operand) {
+        this.type = type;
+        this.operand = operand;
+      }
+
+      @Override
+      public Type type() {
+        return type;
+      }
+
+      @Override
+      public Type load(Type expectedType) {
+        if (isPrimitive(type)) {
+          Type operandType = operand.type();
+          if (operand instanceof Constant || operandType == null || !isPrimitive(operandType)) {
+            push(operand, type);
+          } else {
+            push(operand, operandType);
+            convert(operandType, type);
+          }
+        } else {
+          Type operandType = operand.load(null);
+          if (!type.equals(operandType) && !type.equals(OBJECT_TYPE)) {
+            mv.visitTypeInsn(CHECKCAST, type.getInternalName());
+          }
+        }
+        return type;
+      }
+    }
+
+    private class NewArray extends Value {
+      private final Type componentType;
+      private final Value length;
+
+      private NewArray(Type componentType, Value length) {
+        this.componentType = componentType;
+        this.length = length;
+      }
+
+      @Override
+      public Type type() {
+        return Type.getType("[" + componentType.getDescriptor());
+      }
+
+      @Override
+      public Type load(Type expectedType) {
+        push(length, Type.INT_TYPE);
+        switch (componentType.getSort()) {
+          case Type.BOOLEAN:
+            mv.visitIntInsn(NEWARRAY, T_BOOLEAN);
+            break;
+          case Type.BYTE:
+            mv.visitIntInsn(NEWARRAY, T_BYTE);
+            break;
+          case Type.CHAR:
+            mv.visitIntInsn(NEWARRAY, T_CHAR);
+            break;
+          case Type.SHORT:
+            mv.visitIntInsn(NEWARRAY, T_SHORT);
+            break;
+          case Type.INT:
+            mv.visitIntInsn(NEWARRAY, T_INT);
+            break;
+          case Type.LONG:
+            mv.visitIntInsn(NEWARRAY, T_LONG);
+            break;
+          case Type.FLOAT:
+            mv.visitIntInsn(NEWARRAY, T_FLOAT);
+            break;
+          case Type.DOUBLE:
+            mv.visitIntInsn(NEWARRAY, T_DOUBLE);
+            break;
+          default:
+            mv.visitTypeInsn(ANEWARRAY, componentType.getInternalName());
+            break;
+        }
+        return type();
+      }
+    }
+
+    /**
+     * Allocates a new, uninitialized instance. As in Jimple, the instance is stored in a local
+     * and initialized by a separate {@code specialinvoke} of its constructor.
+     */
+    private class New extends Value {
+      private final Type type;
+
+      private New(Type type) {
+        this.type = type;
+      }
+
+      @Override
+      public Type type() {
+        return type;
+      }
+
+      @Override
+      public Type load(Type expectedType) {
+        mv.visitTypeInsn(NEW, type.getInternalName());
+        return type;
+      }
+    }
+
+    private class LengthOf extends Value {
+      private final Value array;
+
+      private LengthOf(Value array) {
+        this.array = array;
+      }
+
+      @Override
+      public Type type() {
+        return Type.INT_TYPE;
+      }
+
+      @Override
+      public Type load(Type expectedType) {
+        array.load(null);
+        mv.visitInsn(ARRAYLENGTH);
+        return Type.INT_TYPE;
+      }
+    }
+
+    private class Invoke extends Value {
+      private final int opcode;
+      private final Value instance;
+      private final Signature method;
+      private final List<Value> arguments;
+
+      private Invoke(int opcode, Value instance, Signature method, List<Value> arguments) {
+        if (!method.isMethod()) {
+          throw new UnsupportedOperationException("Expected method, found field " + method.name);
+        }
+        if (arguments.size() != method.parameterTypes.length) {
+          throw new UnsupportedOperationException("Wrong number of arguments to " + method.name);
+        }
+        this.opcode = opcode;
+        this.instance = instance;
+        this.method = method;
+        this.arguments = arguments;
+      }
+
+      @Override
+      public Type type() {
+        return method.type;
+      }
+
+      @Override
+      public Type load(Type expectedType) {
+        if (instance != null) {
+          instance.load(null);
+        }
+        for (int i = 0; i != arguments.size(); ++i) {
+          push(arguments.get(i), method.parameterTypes[i]);
+        }
+        mv.visitMethodInsn(opcode, method.owner, method.name, method.descriptor());
+        return method.type;
+      }
+
+      @Override
+      public String toString() {
+        return method.owner + "." + method.name + arguments;
+      }
+    }
+
+    /**
+     * Parses a single Jimple statement or expression
+     */
+    private class Parser {
+      private final String text;
+      private int pos;
+
+      private Parser(String text) {
+        this.text = text;
+      }
+
+      public Value expr() {
+        if (keyword("newarray")) {
+          expect("(");
+          Type componentType = type(typeName());
+          expect(")");
+          expect("[");
+          Value length = operand();
+          expect("]");
+          return new NewArray(componentType, length);
+        }
+        if (keyword("new")) {
+          return new New(type(typeName()));
+        }
+        if (keyword("neg")) {
+          return new Neg(operand());
+        }
+        if (keyword("lengthof")) {
+          return new LengthOf(operand());
+        }
+        for (int i = 0; i != INVOKE_KINDS.length; ++i) {
+          if (keyword(INVOKE_KINDS[i])) {
+            return invoke(INVOKE_OPCODES[i]);
+          }
+        }
+        Value a = operand();
+        String operator = operator();
+        if (operator == null) {
+          return a;
+        }
+        return new BinaryOp(operator, a, operand());
+      }
+
+      private Value invoke(int opcode) {
+        Value instance = null;
+        if (opcode != INVOKESTATIC) {
+          instance = new LocalRef(identifier());
+          expect(".");
+        }
+        skipWhitespace();
+        Signature method = signature();
+        expect("(");
+        List<Value> arguments = Lists.newArrayList();
+        skipWhitespace();
+        if (peek() != ')') {
+          do {
+            arguments.add(operand());
+          } while (consume(","));
+        }
+        expect(")");
+        return new Invoke(opcode, instance, method, arguments);
+      }
+
+      /**
+       * Parses an immediate value, or a reference to an array element or field. Casts are
+       * also accepted here, although Jimple only allows them at the top of an expression.
+       */
+      private Value operand() {
+        skipWhitespace();
+        if (consume("(")) {
+          Type type = type(typeName());
+          expect(")");
+          return new Cast(type, operand());
+        }
+        Value value = primary();
+        if (consume("[")) {
+          Value index = operand();
+          expect("]");
+          return new ArrayElement(value, index);
+        }
+        return value;
+      }
+
+      private Value primary() {
+        char c = peek();
+        if (c == '"') {
+          return new Constant(STRING_TYPE, stringLiteral());
+        }
+        if (c == '<') {
+          return new FieldRef(null, signature());
+        }
+        if (Character.isDigit(c) || c == '-') {
+          return number();
+        }
+        String name = identifier();
+        if (name.equals("null")) {
+          return new Constant(null, null);
+        } else if (name.equals("NaN")) {
+          return new Constant(Type.DOUBLE_TYPE, Double.NaN);
+        } else if (name.equals("NaNF")) {
+          return new Constant(Type.FLOAT_TYPE, Float.NaN);
+        } else if (name.equals("Infinity")) {
+          return new Constant(Type.DOUBLE_TYPE, Double.POSITIVE_INFINITY);
+        } else if (name.equals("InfinityF")) {
+          return new Constant(Type.FLOAT_TYPE, Float.POSITIVE_INFINITY);
+        }
+        Value local = new LocalRef(name);
+        if (text.startsWith(".<", pos)) {
+          pos++;
+          return new FieldRef(local, signature());
+        }
+        return local;
+      }
+
+      private Constant number() {
+        int start = pos;
+        if (peek() == '-') {
+          pos++;
+        }
+        if (text.startsWith("Infinity", pos)) {
+          pos += "Infinity".length();
+          if (consume("F")) {
+            return new Constant(Type.FLOAT_TYPE, Float.NEGATIVE_INFINITY);
+          }
+          return new Constant(Type.DOUBLE_TYPE, Double.NEGATIVE_INFINITY);
+        }
+        boolean decimal = false;
+        while (pos < text.length()) {
+          char c = text.charAt(pos);
+          if (c == '.' || c == 'E' || c == 'e') {
+            decimal = true;
+          } else if ((c == '-' || c == '+') && (text.charAt(pos - 1) == 'E' || text.charAt(pos - 1) == 'e')) {
+            // exponent sign
+          } else if (!Character.isDigit(c)) {
+            break;
+          }
+          pos++;
+        }
+        String literal = text.substring(start, pos);
+        try {
+          if (consume("L")) {
+            return new Constant(Type.LONG_TYPE, Long.parseLong(literal));
+          } else if (consume("F")) {
+            return new Constant(Type.FLOAT_TYPE, Float.parseFloat(literal));
+          } else if (decimal) {
+            return new Constant(Type.DOUBLE_TYPE, Double.parseDouble(literal));
+          } else {
+            return new Constant(Type.INT_TYPE, Integer.parseInt(literal));
+          }
+        } catch (NumberFormatException e) {
+          throw new UnsupportedOperationException("Invalid number '" + literal + "' in: " + text);
+        }
+      }
+
+      private String stringLiteral() {
+        expect("\"");
+        StringBuilder value = new StringBuilder();
+        while (pos < text.length() && text.charAt(pos) != '"') {
+          char c = text.charAt(pos++);
+          if (c == '\\' && pos < text.length()) {
+            char escaped = text.charAt(pos++);
+            switch (escaped) {
+              case 'u':
+                value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                pos += 4;
+                break;
+              case 'n':
+                value.append('\n');
+                break;
+              case 't':
+                value.append('\t');
+                break;
+              case 'r':
+                value.append('\r');
+                break;
+              default:
+                value.append(escaped);
+                break;
+            }
+          } else {
+            value.append(c);
+          }
+        }
+        expect("\"");
+        return value.toString();
+      }
+
+      private Signature signature() {
+        expect("<");
+        Signature signature = new Signature();
+        signature.owner = internalName(typeName());
+        expect(":");
+        signature.type = type(typeName());
+        skipWhitespace();
+        if (peek() == '<') {
+          int end = text.indexOf('>', pos);
+          if (end == -1) {
+            throw new UnsupportedOperationException("Unterminated method name in: " + text);
+          }
+          signature.name = text.substring(pos, end + 1);
+          pos = end + 1;
+        } else {
+          signature.name = identifier();
+        }
+        if (consume("(")) {
+          List<Type> parameterTypes = Lists.newArrayList();
+          skipWhitespace();
+          if (peek() != ')') {
+            do {
+              parameterTypes.add(type(typeName()));
+            } while (consume(","));
+          }
+          expect(")");
+          signature.parameterTypes = parameterTypes.toArray(new Type[parameterTypes.size()]);
+        }
+        expect(">");
+        return signature;
+      }
+
+      private String operator() {
+        skipWhitespace();
+        for (String operator : OPERATORS) {
+          if (text.startsWith(operator, pos)) {
+            if (Character.isLetter(operator.charAt(0)) && isIdentifierPart(pos + operator.length())) {
+              continue;
+            }
+            pos += operator.length();
+            return operator;
+          }
+        }
+        return null;
+      }
+
+      /**
+       * Consumes {@code keyword} if it is the next word, and is not also the name of a local
+       */
+      public boolean keyword(String keyword) {
+        skipWhitespace();
+        if (text.startsWith(keyword, pos) && !isIdentifierPart(pos + keyword.length()) &&
+            !locals.containsKey(keyword)) {
+          pos += keyword.length();
+          return true;
+        }
+        return false;
+      }
+
+      public String identifier() {
+        skipWhitespace();
+        int start = pos;
+        while (isIdentifierPart(pos)) {
+          pos++;
+        }
+        if (start == pos) {
+          throw new UnsupportedOperationException("Expected identifier at position " + pos + " in: " + text);
+        }
+        return text.substring(start, pos);
+      }
+
+      private String typeName() {
+        skipWhitespace();
+        int start = pos;
+        while (isIdentifierPart(pos) || peek() == '.') {
+          pos++;
+        }
+        while (text.startsWith("[]", pos)) {
+          pos += 2;
+        }
+        if (start == pos) {
+          throw new UnsupportedOperationException("Expected type at position " + pos + " in: " + text);
+        }
+        return text.substring(start, pos);
+      }
+
+      private boolean isIdentifierPart(int index) {
+        if (index >= text.length()) {
+          return false;
+        }
+        char c = text.charAt(index);
+        return Character.isLetterOrDigit(c) || c == '_' || c == '$';
+      }
+
+      private char peek() {
+        return pos < text.length() ? text.charAt(pos) : '\0';
+      }
+
+      private void skipWhitespace() {
+        while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+          pos++;
+        }
+      }
+
+      private boolean consume(String token) {
+        skipWhitespace();
+        if (text.startsWith(token, pos)) {
+          pos += token.length();
+          return true;
+        }
+        return false;
+      }
+
+      public void expect(String token) {
+        if (!consume(token)) {
+          throw new UnsupportedOperationException("Expected '" + token + "' at position " + pos + " in: " + text);
+        }
+      }
+
+      public boolean atEnd() {
+        skipWhitespace();
+        return pos == text.length();
+      }
+
+      public void end() {
+        if (!atEnd()) {
+          throw new UnsupportedOperationException("Unexpected '" + text.substring(pos) + "' in: " + text);
+        }
+      }
+    }
+  }
+}
@@ -25,6 +25,10 @@ public class JimpleClassBuilder extends AbstractClassBuilder {
 
   }
 
+  List<String> getInterfaces() {
+    return interfaces;
+  }
+
   public JimpleMethodBuilder getStaticInitializer() {
     return staticInitializer;
   }
@@ -21,6 +21,10 @@ public class JimpleInterfaceBuilder extends AbstractClassBuilder {
     return this;
   }
 
+  List<String> getSuperInterfaces() {
+    return superInterfaces;
+  }
+
   @Override
   public void write(JimpleWriter w) {
     w.println("public interface " + getFqcn() + " extends java.lang.Object " + implementClause());
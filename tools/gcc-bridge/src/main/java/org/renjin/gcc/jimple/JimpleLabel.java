@@ -7,6 +7,10 @@ public class JimpleLabel extends JimpleBodyElement {
     this.name = name;
   }
 
+  String getName() {
+    return name;
+  }
+
   @Override
   public void write(JimpleWriter w) {
     w.println(name + ":");
@@ -84,6 +84,22 @@ public class JimpleMethodBuilder {
     this.body.add(bodyElement);
   }
 
+  Set<JimpleModifiers> getModifiers() {
+    return modifiers;
+  }
+
+  List<JimpleParam> getParams() {
+    return params;
+  }
+
+  List<JimpleVarDecl> getVarDecls() {
+    return varDecls;
+  }
+
+  List<JimpleBodyElement> getBody() {
+    return body;
+  }
+
   public void write(JimpleWriter w) {
     if (modifiers.contains(JimpleModifiers.ABSTRACT)) {
       w.println(modifierList() + " " + returnType + " " + name + "(" + paramList() + ");");
@@ -40,6 +40,10 @@ public class JimpleOutput {
     }
   }
 
+  List<AbstractClassBuilder> getClasses() {
+    return classes;
+  }
+
   public Set<String> getClassNames() {
     Set<String> classNames = Sets.newHashSet();
     for (AbstractClassBuilder clazz : classes) {
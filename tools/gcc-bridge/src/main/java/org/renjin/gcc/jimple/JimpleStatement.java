@@ -8,6 +8,10 @@ public class JimpleStatement extends JimpleBodyElement {
     this.text = text;
   }
 
+  String getText() {
+    return text;
+  }
+
   @Override
   public void write(JimpleWriter w) {
     w.println(toString());
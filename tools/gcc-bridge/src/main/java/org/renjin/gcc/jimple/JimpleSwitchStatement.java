@@ -20,6 +20,14 @@ public class JimpleSwitchStatement extends JimpleBodyElement {
     public boolean isDefault() {
       return value == DEFAULT;
     }
+
+    int getValue() {
+      return value;
+    }
+
+    String getTarget() {
+      return target;
+    }
   }
 
   private JimpleExpr switchExpr;
@@ -37,6 +45,14 @@ public class JimpleSwitchStatement extends JimpleBodyElement {
     this.branches.add(new Branch(DEFAULT, target));
   }
 
+  JimpleExpr getSwitchExpr() {
+    return switchExpr;
+  }
+
+  List<Branch> getBranches() {
+    return branches;
+  }
+
   @Override
   public void write(JimpleWriter w) {
     w.println("lookupswitch(" + switchExpr + ")");
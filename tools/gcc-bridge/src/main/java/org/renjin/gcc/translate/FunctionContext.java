@@ -1,6 +1,7 @@
 package org.renjin.gcc.translate;
 
 import java.util.Map;
+import java.util.Set;
 
 import org.renjin.gcc.gimple.CallingConvention;
 import org.renjin.gcc.gimple.ins.GimpleCall;
@@ -18,6 +19,7 @@ import org.renjin.gcc.translate.type.ImType;
 import org.renjin.gcc.translate.var.Variable;
 
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 public class FunctionContext {
 
@@ -25,6 +27,7 @@ public class FunctionContext {
   private GimpleFunction gimpleFunction;
   private JimpleMethodBuilder builder;
   private Map<Integer, Variable> symbolTable = Maps.newHashMap();
+  private Set<String> reloadStatements = Sets.newLinkedHashSet();
 
   private int nextLabelId = 1000;
 
@@ -79,6 +82,24 @@ public class FunctionContext {
     return new JimpleExpr(tempVar);
   }
 
+  /**
+   * Adds a statement which reloads a variable from the memory to which it was spilled
+   * when its address was passed to the call being translated.
+   */
+  public void addReloadAfterCall(String statement) {
+    reloadStatements.add(statement);
+  }
+
+  /**
+   * Writes the statements added by {@link #addReloadAfterCall(String)} since the last call.
+   */
+  public void writeReloads() {
+    for (String statement : reloadStatements) {
+      builder.addStatement(statement);
+    }
+    reloadStatements.clear();
+  }
+
   public JimpleMethodBuilder getBuilder() {
     return builder;
   }
@@ -110,6 +110,7 @@ public class FunctionTranslator extends GimpleVisitor {
     try {
       CallTranslator translator = context.getTranslationContext().getCallTranslator(call);
       translator.writeCall(context, call);
+      context.writeReloads();
 
     } catch(Exception e) {
       throw new TranslationException("Exception thrown while translating call " + call, e);
@@ -2,6 +2,7 @@ package org.renjin.gcc.translate;
 
 public class VarUsage {
   private boolean addressed;
+  private boolean escaping;
 
   public boolean isAddressed() {
     return addressed;
@@ -11,4 +12,17 @@ public class VarUsage {
     this.addressed = addressed;
   }
 
+  /**
+   * @return true if the address of the variable is used other than as an argument
+   * to a function call, for example by storing it in a pointer variable, and so may be
+   * dereferenced after the call returns.
+   */
+  public boolean isEscaping() {
+    return escaping;
+  }
+
+  public void setEscaping(boolean escaping) {
+    this.escaping = escaping;
+  }
+
 }
@@ -16,7 +16,8 @@ import com.google.common.collect.Maps;
 import org.renjin.gcc.gimple.expr.SymbolRef;
 
 /**
- * Finds all variables which are addressed (&x or x[0]) within a function body.
+ * Finds all variables which are addressed (&x or x[0]) within a function body,
+ * and whether their addresses escape beyond the calls to which they are passed.
  * 
  */
 public class VarUsageInspector extends GimpleVisitor {
@@ -42,13 +43,17 @@ public class VarUsageInspector extends GimpleVisitor {
 
   private void visitOperand(GimpleExpr expr) {
     if (expr instanceof GimpleAddressOf) {
-      visitAddressOf((GimpleAddressOf) expr);
+      visitAddressOf((GimpleAddressOf) expr, true);
     }
   }
 
-  private void visitAddressOf(GimpleAddressOf expr) {
+  private void visitAddressOf(GimpleAddressOf expr, boolean escaping) {
     if (expr.getValue() instanceof SymbolRef) {
-      getUsage(((SymbolRef) expr.getValue()).getId()).setAddressed(true);
+      VarUsage usage = getUsage(((SymbolRef) expr.getValue()).getId());
+      usage.setAddressed(true);
+      if (escaping) {
+        usage.setEscaping(true);
+      }
     }
   }
 
@@ -65,7 +70,16 @@ public class VarUsageInspector extends GimpleVisitor {
 
   @Override
   public void visitCall(GimpleCall gimpleCall) {
-    visitOperands(gimpleCall.getArguments());
+    for (GimpleExpr argument : gimpleCall.getArguments()) {
+      if (argument instanceof GimpleAddressOf) {
+        visitAddressOf((GimpleAddressOf) argument, false);
+      }
+    }
+    // a variable assigned the result of a call to which its address is passed
+    // cannot be reloaded from its address after the call
+    if (gimpleCall.getLhs() instanceof SymbolRef) {
+      getUsage((SymbolRef) gimpleCall.getLhs()).setEscaping(true);
+    }
   }
 
   @Override
@@ -1,5 +1,6 @@
 package org.renjin.gcc.translate.type;
 
+import org.renjin.gcc.gimple.F77CallingConvention;
 import org.renjin.gcc.gimple.type.GimpleBooleanType;
 import org.renjin.gcc.gimple.type.GimpleIntegerType;
 import org.renjin.gcc.gimple.type.GimpleRealType;
@@ -11,6 +12,7 @@ import org.renjin.gcc.translate.VarUsage;
 import org.renjin.gcc.translate.expr.ImExpr;
 import org.renjin.gcc.translate.field.PrimitiveFieldExpr;
 import org.renjin.gcc.translate.var.PrimitiveHeapVar;
+import org.renjin.gcc.translate.var.PrimitiveSpillVar;
 import org.renjin.gcc.translate.var.PrimitiveStackVar;
 import org.renjin.gcc.translate.var.Variable;
 
@@ -202,7 +204,12 @@ public enum ImPrimitiveType implements ImType {
 
   @Override
   public Variable createLocalVariable(FunctionContext functionContext, String gimpleName, VarUsage usage) {
-    if (usage.isAddressed()) {
+    // Fortran callees cannot retain a pointer to an argument passed by reference,
+    // so the variable can live in a local, and only be spilled to the heap for the call
+    if (usage.isAddressed() && !usage.isEscaping() &&
+        functionContext.getCallingConvention() instanceof F77CallingConvention) {
+      return new PrimitiveSpillVar(functionContext, this, gimpleName);
+    } else if (usage.isAddressed()) {
       return new PrimitiveHeapVar(functionContext, this, gimpleName);
     } else {
       return new PrimitiveStackVar(functionContext, this, gimpleName);
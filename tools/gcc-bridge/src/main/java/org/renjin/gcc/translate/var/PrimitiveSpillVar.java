@@ -0,0 +1,92 @@
+package org.renjin.gcc.translate.var;
+
+import org.renjin.gcc.jimple.Jimple;
+import org.renjin.gcc.jimple.JimpleExpr;
+import org.renjin.gcc.translate.FunctionContext;
+import org.renjin.gcc.translate.PrimitiveAssignment;
+import org.renjin.gcc.translate.expr.*;
+import org.renjin.gcc.translate.type.ImPrimitivePtrType;
+import org.renjin.gcc.translate.type.ImPrimitiveType;
+
+/**
+ * Writes jimple instructions to store and retrieve a single primitive numeric
+ * value in a local JVM variable, which is spilled to a unit array only when its
+ * address is passed to another method, and reloaded when the call returns.
+ *
+ * <p>This is only correct if the address does not escape the call, as is the case for
+ * arguments passed by reference in Fortran.
+ */
+public class PrimitiveSpillVar extends AbstractImExpr implements Variable, PrimitiveLValue, ImLValue {
+  private FunctionContext context;
+  private String jimpleName;
+  private String jimpleArrayName;
+  private ImPrimitiveType type;
+
+  public PrimitiveSpillVar(FunctionContext context, ImPrimitiveType type, String gimpleName) {
+    this.context = context;
+    this.jimpleName = Jimple.id(gimpleName);
+    this.jimpleArrayName = jimpleName + "$ref";
+    this.type = type;
+
+    context.getBuilder().addVarDecl(type.getPrimitiveClass(), jimpleName);
+    context.getBuilder().addAssignment(jimpleName, type.literalExpr(0));
+
+    context.getBuilder().addVarDecl(type.getArrayClass(), jimpleArrayName);
+    context.getBuilder().addStatement(jimpleArrayName + " = newarray (" + type.asJimple() + ")[1]");
+  }
+
+  @Override
+  public void writePrimitiveAssignment(JimpleExpr expr) {
+    context.getBuilder().addStatement(jimpleName + " = " + expr);
+  }
+
+  @Override
+  public void writeAssignment(FunctionContext context, ImExpr rhs) {
+    PrimitiveAssignment.assign(context, this, rhs);
+  }
+
+  @Override
+  public JimpleExpr translateToPrimitive(FunctionContext context, ImPrimitiveType type) {
+    return type.castIfNeeded(new JimpleExpr(jimpleName), this.type);
+  }
+
+  @Override
+  public ImPrimitiveType type() {
+    return type;
+  }
+
+  @Override
+  public String toString() {
+    return "spill:" + jimpleName;
+  }
+
+  @Override
+  public ImExpr addressOf() {
+    return new PointerTo();
+  }
+
+  private class PointerTo extends AbstractImExpr implements ImIndirectExpr {
+
+    @Override
+    public ArrayRef translateToArrayRef(FunctionContext context) {
+      context.getBuilder().addStatement(jimpleArrayName + "[0] = " + jimpleName);
+      context.addReloadAfterCall(jimpleName + " = " + jimpleArrayName + "[0]");
+      return new ArrayRef(jimpleArrayName, 0);
+    }
+
+    @Override
+    public ImPrimitivePtrType type() {
+      return PrimitiveSpillVar.this.type().pointerType();
+    }
+
+    @Override
+    public ImExpr memref() {
+      return PrimitiveSpillVar.this;
+    }
+
+    @Override
+    public String toString() {
+      return "&" + PrimitiveSpillVar.this.toString();
+    }
+  }
+}
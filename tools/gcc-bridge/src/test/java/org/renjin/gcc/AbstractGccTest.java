@@ -35,6 +35,10 @@ public abstract class AbstractGccTest {
   }
 
   protected Class<?> compile(List<String> sources, String className) throws Exception {
+    return compileGimple(className, compileToGimple(sources));
+  }
+
+  protected List<GimpleCompilationUnit> compileToGimple(List<String> sources) throws Exception {
 
     File workingDir = new File("target/gcc-work");
     workingDir.mkdirs();
@@ -61,11 +65,15 @@ public abstract class AbstractGccTest {
       }
       units.add(unit);
     }
-
-    return compileGimple(className, units);
+    return units;
   }
 
   protected Class<?> compileGimple(String className, List<GimpleCompilationUnit> units) throws Exception {
+    return compileGimple(className, units, false);
+  }
+
+  protected Class<?> compileGimple(String className, List<GimpleCompilationUnit> units, boolean useSoot)
+      throws Exception {
 
     GimpleCompiler compiler = new GimpleCompiler();
     compiler.setJimpleOutputDirectory(new File("target/test-jimple"));
@@ -73,6 +81,7 @@ public abstract class AbstractGccTest {
     compiler.setPackageName("org.renjin.gcc");
     compiler.setClassName(className);
     compiler.setVerbose(true);
+    compiler.setUseSoot(useSoot);
     compiler.getMethodTable().addReferenceClass(RStubs.class);
     compiler.compile(units);
 
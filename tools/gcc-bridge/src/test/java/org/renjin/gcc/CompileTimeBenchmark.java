@@ -0,0 +1,67 @@
+package org.renjin.gcc;
+
+import org.junit.Test;
+import org.renjin.gcc.gimple.GimpleCompilationUnit;
+import org.renjin.gcc.runtime.DoublePtr;
+import org.renjin.gcc.runtime.IntPtr;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compares the time taken to compile the gimple of the Fortran sources of {@code dqrdc2}
+ * with Soot and with the {@link org.renjin.gcc.jimple.JimpleAssembler}. The gimple is
+ * produced once, so only the backends are timed.
+ *
+ * <p>Run with {@code -Dgcc.bridge.benchmark=true}; the number of rounds can be set with
+ * {@code -Dgcc.bridge.benchmark.rounds}.
+ */
+public class CompileTimeBenchmark extends AbstractGccTest {
+
+  private static final List<String> SOURCES = Arrays.asList("dqrdc2.f", "ddot.f", "daxpy.f", "dscal.f", "dnrm2.f");
+
+  @Test
+  public void sootVersusAssembler() throws Exception {
+    assumeTrue(Boolean.getBoolean("gcc.bridge.benchmark"));
+    int rounds = Integer.getInteger("gcc.bridge.benchmark.rounds", 5);
+
+    List<GimpleCompilationUnit> units = compileToGimple(SOURCES);
+
+    long sootTime = 0;
+    long assemblerTime = 0;
+    for(int round = 0; round <= rounds; ++round) {
+      // the first round only warms up the JVM
+      long sootStart = System.nanoTime();
+      Class<?> sootClass = compileGimple("Dqrdc2Soot" + round, units, true);
+      long assemblerStart = System.nanoTime();
+      Class<?> assembledClass = compileGimple("Dqrdc2Assembled" + round, units, false);
+      long end = System.nanoTime();
+
+      if(round > 0) {
+        sootTime += assemblerStart - sootStart;
+        assemblerTime += end - assemblerStart;
+      }
+
+      assertSameNorm(sootClass, assembledClass);
+    }
+
+    System.out.println(String.format("dqrdc2: Soot %.0f ms, assembler %.0f ms per compilation (%d rounds)",
+        sootTime / 1e6 / rounds, assemblerTime / 1e6 / rounds, rounds));
+  }
+
+  private void assertSameNorm(Class<?> sootClass, Class<?> assembledClass) throws Exception {
+    DoublePtr x = new DoublePtr(3, 4, 12);
+    assertThat(dnrm2(assembledClass, x), closeTo(dnrm2(sootClass, x), 1e-12));
+    assertThat(dnrm2(assembledClass, x), closeTo(13, 1e-12));
+  }
+
+  private double dnrm2(Class<?> clazz, DoublePtr x) throws Exception {
+    Method dnrm2 = clazz.getMethod("dnrm2_", IntPtr.class, DoublePtr.class, IntPtr.class);
+    return (Double) dnrm2.invoke(null, new IntPtr(x.array.length), x, new IntPtr(1));
+  }
+}
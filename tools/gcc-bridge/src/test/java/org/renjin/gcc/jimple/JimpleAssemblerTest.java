@@ -0,0 +1,151 @@
+package org.renjin.gcc.jimple;
+
+import org.junit.Test;
+import org.renjin.gcc.runtime.DoublePtr;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+public class JimpleAssemblerTest {
+
+  @Test
+  public void loopOverPointer() throws Exception {
+    JimpleOutput output = new JimpleOutput();
+    JimpleClassBuilder clazz = newClass(output);
+
+    JimpleMethodBuilder method = clazz.newMethod();
+    method.setModifiers(JimpleModifiers.PUBLIC, JimpleModifiers.STATIC);
+    method.setName("sum");
+    method.setReturnType(JimpleType.DOUBLE);
+    method.addParameter(JimpleType.valueOf(DoublePtr.class), "p_x");
+    method.addParameter(JimpleType.INT, "p_n");
+    method.addVarDecl(double[].class, "x");
+    method.addVarDecl(JimpleType.INT, "i");
+    method.addVarDecl(JimpleType.DOUBLE, "total");
+    method.addStatement("x = p_x.<org.renjin.gcc.runtime.DoublePtr: double[] array>");
+    method.addStatement("i = 0");
+    method.addLabel("BB1");
+    method.addStatement("if i >= p_n goto BB2");
+    method.addStatement("total = total + x[i]");
+    method.addStatement("i = i + 1");
+    method.addStatement(new JimpleGoto("BB1"));
+    method.addLabel("BB2");
+    method.addStatement("return total");
+
+    Method sum = load(output).getMethod("sum", DoublePtr.class, int.class);
+
+    assertThat((Double) sum.invoke(null, new DoublePtr(1, 2, 3, 4), 3), equalTo(6d));
+  }
+
+  @Test
+  public void floatComparisonAndSwitch() throws Exception {
+    JimpleOutput output = new JimpleOutput();
+    JimpleClassBuilder clazz = newClass(output);
+
+    JimpleMethodBuilder method = clazz.newMethod();
+    method.setModifiers(JimpleModifiers.PUBLIC, JimpleModifiers.STATIC);
+    method.setName("classify");
+    method.setReturnType(JimpleType.INT);
+    method.addParameter(JimpleType.DOUBLE, "p_x");
+    method.addVarDecl(JimpleType.INT, "cmp");
+    method.addStatement("cmp = p_x cmpg 0.0");
+    JimpleSwitchStatement switchStatement = new JimpleSwitchStatement(new JimpleExpr("cmp"));
+    switchStatement.addBranch(-1, "NEGATIVE");
+    switchStatement.addBranch(0, "ZERO");
+    switchStatement.addDefaultBranch("POSITIVE");
+    method.add(switchStatement);
+    method.addLabel("NEGATIVE");
+    method.addStatement("return -1");
+    method.addLabel("ZERO");
+    method.addStatement("return 0");
+    method.addLabel("POSITIVE");
+    method.addStatement("return 1");
+
+    Method classify = load(output).getMethod("classify", double.class);
+
+    assertThat((Integer) classify.invoke(null, -3d), equalTo(-1));
+    assertThat((Integer) classify.invoke(null, 0d), equalTo(0));
+    assertThat((Integer) classify.invoke(null, 41d), equalTo(1));
+    assertThat((Integer) classify.invoke(null, Double.NaN), equalTo(1));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void unsupportedStatement() {
+    JimpleOutput output = new JimpleOutput();
+    JimpleClassBuilder clazz = newClass(output);
+
+    JimpleMethodBuilder method = clazz.newMethod();
+    method.setName("monitor");
+    method.setReturnType(JimpleType.VOID);
+    method.addVarDecl(Object.class, "lock");
+    method.addStatement("entermonitor lock");
+
+    new JimpleAssembler().assemble(output);
+  }
+
+  @Test
+  public void mergeOfReferencedClasses() throws Exception {
+    JimpleOutput output = new JimpleOutput();
+    JimpleClassBuilder clazz = newClass(output);
+    addChoose(clazz, "java.lang.Long", "java.lang.Long valueOf(long)", "7L");
+
+    Method choose = load(output).getMethod("choose", int.class);
+
+    assertThat((Integer) choose.invoke(null, 0), equalTo(0));
+    assertThat((Long) choose.invoke(null, 1), equalTo(7L));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void mergeOfUnknownClassIsAnError() {
+    JimpleOutput output = new JimpleOutput();
+    JimpleClassBuilder clazz = newClass(output);
+    addChoose(clazz, "org.renjin.gcc.jimple.Missing", "org.renjin.gcc.jimple.Missing create()", "");
+
+    new JimpleAssembler().assemble(output);
+  }
+
+  /**
+   * Adds a method which returns {@code Integer.valueOf(0)} or the result of a static method
+   * of another class, so that the two types are merged where the branches meet
+   */
+  private void addChoose(JimpleClassBuilder clazz, String className, String signature, String argument) {
+    JimpleMethodBuilder method = clazz.newMethod();
+    method.setModifiers(JimpleModifiers.PUBLIC, JimpleModifiers.STATIC);
+    method.setName("choose");
+    method.setReturnType(JimpleType.valueOf(Object.class));
+    method.addParameter(JimpleType.INT, "p_x");
+    method.addVarDecl(Object.class, "result");
+    method.addStatement("if p_x != 0 goto OTHER");
+    method.addStatement("result = staticinvoke <java.lang.Integer: java.lang.Integer valueOf(int)>(0)");
+    method.addStatement(new JimpleGoto("RETURN"));
+    method.addLabel("OTHER");
+    method.addStatement("result = staticinvoke <" + className + ": " + signature + ">(" + argument + ")");
+    method.addLabel("RETURN");
+    method.addStatement("return result");
+  }
+
+  private JimpleClassBuilder newClass(JimpleOutput output) {
+    JimpleClassBuilder clazz = output.newClass();
+    clazz.setPackageName("org.renjin.gcc.jimple");
+    clazz.setClassName("AssembledClass");
+    return clazz;
+  }
+
+  private Class<?> load(JimpleOutput output) throws ClassNotFoundException {
+    final Map<String, byte[]> classes = new JimpleAssembler().assemble(output);
+    ClassLoader loader = new ClassLoader(getClass().getClassLoader()) {
+      @Override
+      protected Class<?> findClass(String name) throws ClassNotFoundException {
+        byte[] classFile = classes.get(name);
+        if (classFile == null) {
+          throw new ClassNotFoundException(name);
+        }
+        return defineClass(name, classFile, 0, classFile.length);
+      }
+    };
+    return loader.loadClass("org.renjin.gcc.jimple.AssembledClass");
+  }
+}